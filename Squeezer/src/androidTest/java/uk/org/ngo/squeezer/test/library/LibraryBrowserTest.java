@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.test.library;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import uk.org.ngo.squeezer.itemlist.IServiceItemListCallback;
+import uk.org.ngo.squeezer.library.LibraryBrowser;
+import uk.org.ngo.squeezer.library.LibraryDatabase;
+import uk.org.ngo.squeezer.library.LibraryDatabase.Table;
+import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.model.SlimCommand;
+
+import static uk.org.ngo.squeezer.test.library.LibraryDatabaseTest.album;
+import static uk.org.ngo.squeezer.test.library.LibraryDatabaseTest.artist;
+import static uk.org.ngo.squeezer.test.library.LibraryDatabaseTest.track;
+
+public class LibraryBrowserTest extends AndroidTestCase {
+    private static final String SERVER = "server";
+    private static final String URL_PREFIX = "http://server:9000";
+
+    private LibraryDatabase database;
+    private LibraryBrowser browser;
+    private Callback callback;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        database = new LibraryDatabase(getContext(), null);
+        browser = new LibraryBrowser(getContext(), database);
+        callback = new Callback();
+
+        long generation = database.beginSync(SERVER);
+        database.insert(Table.ARTISTS, generation, Arrays.asList(artist("1", "Abba"), artist("2", "Queen")));
+        database.insert(Table.ALBUMS, generation, Arrays.asList(album("10", "Gold", "1"), album("20", "Innuendo", "2")));
+        database.insert(Table.TRACKS, generation, Arrays.asList(
+                track("100", "Waterloo", "10", "1", 2),
+                track("101", "SOS", "10", "1", 1),
+                track("200", "Innuendo", "20", "2", 1)));
+        database.finishSync(SERVER, 100, generation);
+    }
+
+    public void testCanBrowse() {
+        assertTrue(LibraryBrowser.canBrowse(browse("artists")));
+        assertTrue(LibraryBrowser.canBrowse(browse("albums").param("artist_id", "1")));
+        assertFalse(LibraryBrowser.canBrowse(browse("albums").param("role_id", "1")));
+        assertFalse(LibraryBrowser.canBrowse(browse("playlists")));
+        assertFalse(LibraryBrowser.canBrowse(new SlimCommand().cmd("artists")));
+    }
+
+    public void testBrowseArtists() {
+        browser.browse(SERVER, browse("artists"), 0, 10, URL_PREFIX, callback);
+
+        assertEquals(2, callback.count);
+        assertEquals(Arrays.asList("Abba", "Queen"), callback.names());
+        JiveItem abba = callback.items.get(0);
+        assertEquals(Arrays.asList("browselibrary", "items"), abba.getGoAction().action.cmd);
+        assertEquals("albums", abba.getGoAction().action.params.get("mode"));
+        assertEquals("1", abba.getGoAction().action.params.get("artist_id"));
+    }
+
+    public void testBrowseAlbumTracks() {
+        browser.browse(SERVER, browse("tracks").param("album_id", "10"), 0, 10, URL_PREFIX, callback);
+
+        assertEquals(2, callback.count);
+        assertEquals(Arrays.asList("SOS\nAbba", "Waterloo\nAbba"), callback.names());
+        assertEquals("101", callback.items.get(0).getPlayAction().action.params.get("track_id"));
+    }
+
+    public void testBrowsePage() {
+        browser.browse(SERVER, browse("tracks"), 1, 1, URL_PREFIX, callback);
+
+        assertEquals(3, callback.count);
+        assertEquals(1, callback.start);
+        assertEquals(Collections.singletonList("SOS\nAbba - Gold"), callback.names());
+    }
+
+    public void testBrowseOtherServer() {
+        browser.browse("other", browse("artists"), 0, 10, URL_PREFIX, callback);
+
+        assertEquals(0, callback.count);
+        assertTrue(callback.items.isEmpty());
+    }
+
+    /** Browsing sees the last complete sync, not a sync in progress */
+    public void testBrowseDuringSync() {
+        long generation = database.beginSync(SERVER);
+        database.insert(Table.ARTISTS, generation, Collections.singletonList(artist("3", "Blondie")));
+
+        browser.browse(SERVER, browse("artists"), 0, 10, URL_PREFIX, callback);
+        assertEquals(Arrays.asList("Abba", "Queen"), callback.names());
+
+        database.finishSync(SERVER, 200, generation);
+        callback = new Callback();
+        browser.browse(SERVER, browse("artists"), 0, 10, URL_PREFIX, callback);
+        assertEquals(Collections.singletonList("Blondie"), callback.names());
+    }
+
+    public void testSearch() {
+        browser.search(SERVER, "inn", URL_PREFIX, callback);
+
+        assertEquals(Arrays.asList("Innuendo\nQueen", "Innuendo\nQueen - Innuendo"), callback.names());
+    }
+
+    private static SlimCommand browse(String mode) {
+        return new SlimCommand().cmd("browselibrary", "items").param("mode", mode);
+    }
+
+    private static class Callback implements IServiceItemListCallback<JiveItem> {
+        int count = -1;
+        int start = -1;
+        final List<JiveItem> items = new ArrayList<>();
+
+        @Override
+        public void onItemsReceived(int count, int start, Map<String, Object> parameters, List<JiveItem> items, Class<JiveItem> dataType) {
+            this.count = count;
+            this.start = start;
+            this.items.addAll(items);
+        }
+
+        /** The text of the items, as in the records */
+        List<String> names() {
+            List<String> names = new ArrayList<>();
+            for (JiveItem item : items) {
+                names.add(item.text2.isEmpty() ? item.getName() : item.getName() + "\n" + item.text2);
+            }
+            return names;
+        }
+
+        @Override
+        public Object getClient() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.test.library;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.org.ngo.squeezer.library.LibraryDatabase;
+import uk.org.ngo.squeezer.library.LibraryDatabase.Table;
+
+public class LibraryDatabaseTest extends AndroidTestCase {
+    private static final String SERVER = "server";
+    private static final String OTHER_SERVER = "other";
+
+    private LibraryDatabase database;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        database = new LibraryDatabase(getContext(), null);
+    }
+
+    public void testEmptyMirror() {
+        assertEquals(-1, database.getLastScan(SERVER));
+        assertEquals(0, database.getGeneration(SERVER));
+    }
+
+    public void testFinishSync() {
+        long generation = sync(SERVER, 100, artist("1", "Abba"));
+
+        assertEquals(100, database.getLastScan(SERVER));
+        assertEquals(generation, database.getGeneration(SERVER));
+        assertEquals(Collections.singletonList("Abba"), names(Table.ARTISTS, generation));
+    }
+
+    /** Rows of a sync in progress must not be visible, or replace the rows of a complete sync */
+    public void testSyncInProgress() {
+        long committed = sync(SERVER, 100, artist("1", "Abba"));
+
+        long generation = database.beginSync(SERVER);
+        database.insert(Table.ARTISTS, generation, Arrays.asList(artist("1", "ABBA"), artist("2", "Queen")));
+
+        assertEquals(100, database.getLastScan(SERVER));
+        assertEquals(committed, database.getGeneration(SERVER));
+        assertEquals(Collections.singletonList("Abba"), names(Table.ARTISTS, committed));
+        assertEquals(1, database.count(Table.ARTISTS, committed, Collections.emptyMap()));
+    }
+
+    public void testFinishSyncReplacesPreviousSync() {
+        long previous = sync(SERVER, 100, artist("1", "Abba"));
+        long generation = sync(SERVER, 200, artist("1", "ABBA"), artist("2", "Queen"));
+
+        assertEquals(200, database.getLastScan(SERVER));
+        assertEquals(generation, database.getGeneration(SERVER));
+        assertEquals(Arrays.asList("ABBA", "Queen"), names(Table.ARTISTS, generation));
+        assertEquals(0, database.count(Table.ARTISTS, previous, Collections.emptyMap()));
+    }
+
+    public void testServersAreKeptApart() {
+        long generation = sync(SERVER, 100, artist("1", "Abba"));
+        long otherGeneration = sync(OTHER_SERVER, 300, artist("1", "Queen"));
+
+        assertEquals(100, database.getLastScan(SERVER));
+        assertEquals(generation, database.getGeneration(SERVER));
+        assertEquals(Collections.singletonList("Abba"), names(Table.ARTISTS, generation));
+        assertEquals(300, database.getLastScan(OTHER_SERVER));
+        assertEquals(Collections.singletonList("Queen"), names(Table.ARTISTS, otherGeneration));
+    }
+
+    public void testUnfinishedSyncIsRemoved() {
+        long abandoned = database.beginSync(SERVER);
+        database.insert(Table.ARTISTS, abandoned, Collections.singletonList(artist("1", "Abba")));
+
+        long generation = database.beginSync(SERVER);
+        assertTrue(generation != abandoned);
+        assertEquals(0, database.count(Table.ARTISTS, abandoned, Collections.emptyMap()));
+        assertFalse(database.finishSync(SERVER, 100, abandoned));
+        assertEquals(-1, database.getLastScan(SERVER));
+        assertTrue(database.finishSync(SERVER, 100, generation));
+    }
+
+    public void testClear() {
+        sync(SERVER, 100, artist("1", "Abba"));
+        database.clear();
+
+        assertEquals(-1, database.getLastScan(SERVER));
+        assertEquals(0, database.getGeneration(SERVER));
+    }
+
+    public void testFilters() {
+        long generation = database.beginSync(SERVER);
+        database.insert(Table.ARTISTS, generation, Arrays.asList(artist("1", "Abba"), artist("2", "Various")));
+        database.insert(Table.ALBUMS, generation, Arrays.asList(
+                album("10", "Gold", "1"),
+                album("11", "Hits", "2")));
+        database.insert(Table.TRACKS, generation, Arrays.asList(
+                track("100", "Waterloo", "10", "1", 2),
+                track("101", "SOS", "10", "1", 1),
+                track("102", "Fernando", "11", "1", 1),
+                track("103", "Bohemian Rhapsody", "11", "2", 2)));
+        database.finishSync(SERVER, 100, generation);
+
+        // In album order, with the artist and album joined
+        List<Map<String, Object>> tracks = database.list(Table.TRACKS, generation, filter("album_id", "10"), 0, 10);
+        assertEquals(Arrays.asList("SOS", "Waterloo"), column(tracks, "title"));
+        assertEquals("Abba", tracks.get(0).get("artist"));
+        assertEquals("Gold", tracks.get(0).get("album"));
+
+        // Albums with tracks by the artist, and albums of the album artist
+        assertEquals(Arrays.asList("Gold", "Hits"), column(database.list(Table.ALBUMS, generation, filter("artist_id", "1"), 0, 10), "title"));
+        assertEquals(Collections.singletonList("Hits"), column(database.list(Table.ALBUMS, generation, filter("artist_id", "2"), 0, 10), "title"));
+        assertEquals(2, database.count(Table.ARTISTS, generation, filter("album_id", "11")));
+
+        // Paging
+        assertEquals(Arrays.asList("Fernando", "SOS"), column(database.list(Table.TRACKS, generation, Collections.emptyMap(), 1, 2), "title"));
+    }
+
+    public void testSearchIndex() {
+        long generation = sync(SERVER, 100, artist("1", "Abba"));
+        sync(OTHER_SERVER, 100, artist("1", "Abbey Lincoln"));
+
+        assertEquals(1, database.buildSearchIndex(generation).size());
+    }
+
+    @SafeVarargs
+    private final long sync(String server, long lastScan, Map<String, Object>... artists) {
+        long generation = database.beginSync(server);
+        database.insert(Table.ARTISTS, generation, Arrays.asList(artists));
+        assertTrue(database.finishSync(server, lastScan, generation));
+        return generation;
+    }
+
+    private List<Object> names(Table table, long generation) {
+        return column(database.list(table, generation, Collections.emptyMap(), 0, 100), "name");
+    }
+
+    private static List<Object> column(List<Map<String, Object>> rows, String column) {
+        List<Object> values = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            values.add(row.get(column));
+        }
+        return values;
+    }
+
+    private static Map<String, String> filter(String column, String value) {
+        return Collections.singletonMap(column, value);
+    }
+
+    static Map<String, Object> artist(String id, String name) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("id", id);
+        record.put("artist", name);
+        return record;
+    }
+
+    static Map<String, Object> album(String id, String title, String artistId) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("id", id);
+        record.put("album", title);
+        record.put("artist_id", artistId);
+        record.put("artwork_track_id", id + "0");
+        return record;
+    }
+
+    static Map<String, Object> track(String id, String title, String albumId, String artistId, int trackNum) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("id", id);
+        record.put("title", title);
+        record.put("album_id", albumId);
+        record.put("artist_id", artistId);
+        record.put("tracknum", trackNum);
+        return record;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.test.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import uk.org.ngo.squeezer.model.Action;
+import uk.org.ngo.squeezer.model.ItemSnapshot;
+import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.model.SlimCommand;
+
+/**
+ * Items restored from an {@link ItemSnapshot} must behave like the items they were saved from.
+ */
+public class ItemSnapshotTest extends TestCase {
+
+    public void testRoundTrip() throws IOException {
+        List<JiveItem> first = Arrays.asList(track(), choices(), checkbox());
+        List<JiveItem> second = Arrays.asList(folder(), parent());
+        ItemSnapshot snapshot = new ItemSnapshot(100, Arrays.asList(
+                new ItemSnapshot.Run(0, first),
+                new ItemSnapshot.Run(50, second)));
+
+        ItemSnapshot restored = roundTrip(snapshot);
+
+        assertEquals(100, restored.count);
+        assertEquals(2, restored.runs.size());
+        assertEquals(0, restored.runs.get(0).start);
+        assertEquals(50, restored.runs.get(1).start);
+        assertItems(first, restored.runs.get(0).items);
+        assertItems(second, restored.runs.get(1).items);
+    }
+
+    public void testTrack() throws IOException {
+        JiveItem item = restore(track());
+
+        assertEquals("42", item.getId());
+        assertEquals("Song", item.getName());
+        assertEquals("Artist", item.text2);
+        assertEquals("http://lms/music/7/cover.jpg", item.getIcon().toString());
+        assertEquals(Arrays.asList("trackinfo", "items"), item.getGoAction().action.cmd);
+        assertEquals("42", item.getGoAction().action.params.get("track_id"));
+        assertEquals(Action.NextWindowEnum.nowPlaying, item.getPlayAction().action.nextWindow.nextWindow);
+        assertTrue(item.hasContextMenu());
+
+        SlimCommand download = item.downloadCommand();
+        assertEquals(Arrays.asList("titles"), download.cmd);
+        assertEquals("42", download.params.get("track_id"));
+    }
+
+    public void testChoices() throws IOException {
+        JiveItem item = restore(choices());
+
+        assertTrue(item.doAction);
+        assertEquals(Arrays.asList("Off", "On"), Arrays.asList(item.choiceStrings));
+        assertEquals(2, item.selectedIndex);
+        Action.JsonAction[] choices = item.getGoAction().choices;
+        assertEquals(2, choices.length);
+        assertEquals(Arrays.asList("playerpref", "transitionSmart", "0"), choices[0].cmd);
+        assertEquals(Arrays.asList("playerpref", "transitionSmart", "1"), choices[1].cmd);
+    }
+
+    public void testCheckbox() throws IOException {
+        JiveItem item = restore(checkbox());
+
+        assertEquals(Boolean.TRUE, item.checkbox);
+        assertEquals(Arrays.asList("power", "1"), item.getCheckboxAction(true).action.cmd);
+        assertEquals(Arrays.asList("power", "0"), item.getCheckboxAction(false).action.cmd);
+        assertNull(item.radio);
+    }
+
+    public void testSliderAndInput() throws IOException {
+        JiveItem item = restore(slider());
+
+        assertEquals(-10, item.slider.min);
+        assertEquals(10, item.slider.max);
+        assertEquals(3, item.slider.initial);
+        assertEquals("balance", item.slider.sliderIcons);
+        assertEquals(Boolean.TRUE, item.radio);
+        assertEquals(20, item.input.len);
+        assertEquals("Name", item.input.initialText);
+    }
+
+    public void testFolderDownload() throws IOException {
+        SlimCommand download = restore(folder()).downloadCommand();
+
+        assertEquals(Arrays.asList("musicfolder"), download.cmd);
+        assertEquals("17", download.params.get("folder_id"));
+    }
+
+    /** Actions built from base actions and item params, and sub items */
+    public void testBaseActionsAndSubItems() throws IOException {
+        JiveItem item = restore(parent());
+
+        assertEquals("5", item.getGoAction().action.params.get("artist_id"));
+        assertEquals("1", item.getGoAction().action.params.get("menu"));
+        assertEquals(2, item.getSubItems().size());
+        assertEquals("Child 2", item.getSubItems().get(1).getName());
+        assertNull(item.downloadCommand());
+    }
+
+    public void testNotASnapshot() {
+        try {
+            ItemSnapshot.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}));
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static JiveItem restore(JiveItem item) throws IOException {
+        ItemSnapshot restored = roundTrip(new ItemSnapshot(1, Arrays.asList(new ItemSnapshot.Run(0, Arrays.asList(item)))));
+        JiveItem restoredItem = restored.runs.get(0).items.get(0);
+        assertEquals(describe(item), describe(restoredItem));
+        return restoredItem;
+    }
+
+    private static ItemSnapshot roundTrip(ItemSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out);
+        return ItemSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertItems(List<JiveItem> expected, List<JiveItem> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(describe(expected.get(i)), describe(actual.get(i)));
+        }
+    }
+
+    /**
+     * @return All state of the item which is saved, with parameter values as strings, as they are
+     *     in the snapshot
+     */
+    private static String describe(JiveItem item) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(item.getId()).append('|').append(item.getName()).append('|').append(item.text2)
+                .append('|').append(item.getIcon()).append('|').append(item.getNode())
+                .append('|').append(item.getWeight()).append('|').append(item.getType())
+                .append('|').append(item.nextWindow).append('|').append(item.doAction)
+                .append('|').append(item.showBigArtwork).append('|').append(item.selectedIndex)
+                .append('|').append(Arrays.toString(item.choiceStrings))
+                .append('|').append(item.checkbox).append('|').append(item.radio)
+                .append("\n go ").append(describe(item.getGoAction()))
+                .append("\n play ").append(describe(item.getPlayAction()))
+                .append("\n add ").append(describe(item.getAddAction()))
+                .append("\n insert ").append(describe(item.getInsertAction()))
+                .append("\n more ").append(describe(item.getMoreAction()))
+                .append("\n on ").append(describe(item.getCheckboxAction(true)))
+                .append("\n off ").append(describe(item.getCheckboxAction(false)))
+                .append("\n download ").append(describe(item.downloadCommand()));
+        if (item.slider != null) {
+            sb.append("\n slider ").append(item.slider.min).append('|').append(item.slider.max)
+                    .append('|').append(item.slider.adjust).append('|').append(item.slider.initial)
+                    .append('|').append(item.slider.sliderIcons).append('|').append(item.slider.help);
+        }
+        if (item.input != null) {
+            sb.append("\n input ").append(item.input.len).append('|').append(item.input.allowedChars)
+                    .append('|').append(item.input.inputStyle).append('|').append(item.input.title)
+                    .append('|').append(item.input.initialText);
+        }
+        if (item.window != null) {
+            sb.append("\n window ").append(item.window.windowStyle).append('|').append(item.window.text);
+        }
+        if (item.getSubItems() != null) {
+            for (JiveItem subItem : item.getSubItems()) {
+                sb.append("\n sub ").append(describe(subItem).replace("\n", "\n  "));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Action action) {
+        if (action == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(String.valueOf(action.urlCommand)).append(' ').append(describe(action.action));
+        if (action.choices != null) {
+            for (Action.JsonAction choice : action.choices) {
+                sb.append(" / ").append(describe(choice));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String describe(SlimCommand command) {
+        if (command == null) {
+            return "null";
+        }
+        Map<String, String> params = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : command.params.entrySet()) {
+            params.put(entry.getKey(), entry.getValue() == null ? null : entry.getValue().toString());
+        }
+        String description = command.cmd + " " + params;
+        if (command instanceof Action.JsonAction) {
+            Action.JsonAction action = (Action.JsonAction) command;
+            description += " " + action.nextWindow + " " + action.isContextMenu + " " + (action.window == null ? null : action.window.isContextMenu);
+        }
+        return description;
+    }
+
+    private static JiveItem track() {
+        Map<String, Object> record = new HashMap<>();
+        record.put("id", "42");
+        record.put("text", "Song\nArtist");
+        record.put("icon", "http://lms/music/7/cover.jpg");
+        record.put("type", "audio");
+        record.put("trackType", "local");
+        record.put("actions", ImmutableMap.of(
+                "go", action(new Object[]{"trackinfo", "items"}, ImmutableMap.of("track_id", "42", "menu", "1")),
+                "play", ImmutableMap.of(
+                        "cmd", new Object[]{"playlistcontrol"},
+                        "params", ImmutableMap.of("cmd", "load", "track_id", "42"),
+                        "nextWindow", "nowPlaying"),
+                "add", action(new Object[]{"playlistcontrol"}, ImmutableMap.of("cmd", "add", "track_id", "42"))));
+        record.put("window", ImmutableMap.of("windowStyle", "icon_list", "text", "Songs"));
+        return new JiveItem(record);
+    }
+
+    private static JiveItem choices() {
+        Map<String, Object> record = new HashMap<>();
+        record.put("text", "Smart crossfade");
+        record.put("selectedIndex", "2");
+        record.put("choiceStrings", new Object[]{"Off", "On"});
+        record.put("actions", ImmutableMap.of("do", ImmutableMap.of("choices", new Object[]{
+                action(new Object[]{"playerpref", "transitionSmart", "0"}, null),
+                action(new Object[]{"playerpref", "transitionSmart", "1"}, null)})));
+        return new JiveItem(record);
+    }
+
+    private static JiveItem checkbox() {
+        Map<String, Object> record = new HashMap<>();
+        record.put("id", "playerpower");
+        record.put("text", "Turn off");
+        record.put("checkbox", 1);
+        record.put("actions", ImmutableMap.of(
+                "on", action(new Object[]{"power", "1"}, null),
+                "off", action(new Object[]{"power", "0"}, null)));
+        return new JiveItem(record);
+    }
+
+    private static JiveItem slider() {
+        Map<String, Object> record = new HashMap<>();
+        record.put("text", "Balance");
+        record.put("slider", 1);
+        record.put("min", -10);
+        record.put("max", 10);
+        record.put("initial", "3");
+        record.put("sliderIcons", "balance");
+        record.put("radio", 1);
+        record.put("input", ImmutableMap.of("len", 20, "initialText", "Name"));
+        return new JiveItem(record);
+    }
+
+    private static JiveItem folder() {
+        Map<String, Object> record = new HashMap<>();
+        record.put("text", "Jazz");
+        record.put("type", "playlist");
+        record.put("actions", ImmutableMap.of(
+                "go", action(new Object[]{"browselibrary", "items"}, ImmutableMap.of("mode", "bmf", "folder_id", "17")),
+                "play", action(new Object[]{"playlistcontrol"}, ImmutableMap.of("cmd", "load", "folder_id", "17"))));
+        return new JiveItem(record);
+    }
+
+    private static JiveItem parent() {
+        Map<String, Object> record = new HashMap<>();
+        record.put("text", "Artist");
+        record.put("node", "myMusic");
+        record.put("weight", 10);
+        record.put("commonParams", ImmutableMap.of("artist_id", "5"));
+        record.put("base", ImmutableMap.of("actions", ImmutableMap.of(
+                "go", ImmutableMap.of(
+                        "cmd", new Object[]{"browselibrary", "items"},
+                        "itemsParams", "commonParams",
+                        "params", ImmutableMap.of("menu", "1")))));
+        record.put("item_loop", new Object[]{
+                ImmutableMap.of("text", "Child 1"),
+                ImmutableMap.of("text", "Child 2", "actions", ImmutableMap.of(
+                        "go", action(new Object[]{"browselibrary", "items"}, ImmutableMap.of("album_id", "9"))))});
+        return new JiveItem(record);
+    }
+
+    private static Map<String, Object> action(Object[] cmd, Map<String, Object> params) {
+        Map<String, Object> action = new HashMap<>();
+        action.put("cmd", cmd);
+        if (params != null) {
+            action.put("params", params);
+        }
+        return action;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.test.util;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.util.MenuScript;
+
+/**
+ * Measure the throughput of menu scripts which sort, group and filter synthetic album lists, and
+ * of the same sort in Java for comparison. Results are logged, as timings depend on the device.
+ */
+public class MenuScriptBenchmark extends TestCase {
+    private static final String TAG = MenuScriptBenchmark.class.getSimpleName();
+
+    private static final int[] SIZES = {100, 500, 5_000, 20_000};
+    private static final int WARM_UP_RUNS = 10;
+    private static final int RUNS = 30;
+
+    private static final Comparator<JiveItem> byArtist = (a, b) -> {
+        int result = a.text2.compareTo(b.text2);
+        return result != 0 ? result : a.getName().compareTo(b.getName());
+    };
+
+    public void testThroughput() throws MenuScript.ScriptException {
+        MenuScript sort = new MenuScript("sort", MenuScriptTest.SORT_BY_ARTIST);
+        MenuScript group = new MenuScript("group", MenuScriptTest.GROUP_BY_INITIAL);
+        MenuScript filter = new MenuScript("filter", MenuScriptTest.ONLY_ALBUMS);
+        for (int size : SIZES) {
+            List<JiveItem> items = albums(size);
+
+            List<JiveItem> expected = new ArrayList<>(items);
+            expected.sort(byArtist);
+            assertEquals(expected, sort.transform(items));
+
+            log("lua sort", size, measure(() -> sort.apply(items)));
+            log("lua group", size, measure(() -> group.apply(items)));
+            log("lua filter", size, measure(() -> filter.apply(items)));
+            log("lua reorder", size, measure(() -> sort.reorder(new ArrayList<>(items))));
+            log("java sort", size, measure(() -> new ArrayList<>(items).sort(byArtist)));
+        }
+    }
+
+    private interface Run {
+        void run() throws MenuScript.ScriptException;
+    }
+
+    /**
+     * @return Average time of a run after warm up, in ns
+     */
+    private static double measure(Run run) throws MenuScript.ScriptException {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            run.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            run.run();
+        }
+        return (System.nanoTime() - start) / (double) RUNS;
+    }
+
+    private static void log(String name, int size, double time) {
+        Log.i(TAG, String.format("%-11s %6d items: %8.3f ms, %9.0f items/s", name, size, time / 1e6, size / time * 1e9));
+    }
+
+    private static List<JiveItem> albums(int count) {
+        Random random = new Random(1);
+        List<JiveItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            JiveItem item = new JiveItem();
+            item.setId(String.valueOf(i));
+            item.setName((random.nextInt(10) == 0 ? "Track " : "Album ") + random.nextInt(100_000) + " " + i);
+            item.text2 = "Artist " + random.nextInt(count / 10 + 1);
+            items.add(item);
+        }
+        return items;
+    }
+}
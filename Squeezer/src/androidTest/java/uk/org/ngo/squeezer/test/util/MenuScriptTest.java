@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.test.util;
+
+import android.test.AndroidTestCase;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.util.MenuScript;
+
+public class MenuScriptTest extends AndroidTestCase {
+    static final String SORT_BY_ARTIST = "return function(items)\n"
+            + "    table.sort(items, function(a, b)\n"
+            + "        local x, y = a.text2 or '', b.text2 or ''\n"
+            + "        if x ~= y then return x < y end\n"
+            + "        return a.name < b.name\n"
+            + "    end)\n"
+            + "    return items\n"
+            + "end";
+
+    static final String GROUP_BY_INITIAL = "return function(items)\n"
+            + "    local groups, initials = {}, {}\n"
+            + "    for _, item in ipairs(items) do\n"
+            + "        local initial = string.upper(string.sub(item.name, 1, 1))\n"
+            + "        if not groups[initial] then\n"
+            + "            groups[initial] = {}\n"
+            + "            initials[#initials + 1] = initial\n"
+            + "        end\n"
+            + "        table.insert(groups[initial], item)\n"
+            + "    end\n"
+            + "    table.sort(initials)\n"
+            + "    local result = {}\n"
+            + "    for _, initial in ipairs(initials) do\n"
+            + "        for _, item in ipairs(groups[initial]) do result[#result + 1] = item end\n"
+            + "    end\n"
+            + "    return result\n"
+            + "end";
+
+    static final String ONLY_ALBUMS = "return function(items)\n"
+            + "    local result = {}\n"
+            + "    for _, item in ipairs(items) do\n"
+            + "        if string.find(item.name, 'Album', 1, true) then result[#result + 1] = item end\n"
+            + "    end\n"
+            + "    return result\n"
+            + "end";
+
+    public void testSort() throws MenuScript.ScriptException {
+        List<JiveItem> items = items("b Album|Y", "a Album|Y", "c Album|X");
+        assertEquals(Arrays.asList("c Album", "a Album", "b Album"), names(new MenuScript("sort", SORT_BY_ARTIST).transform(items)));
+        assertEquals(Arrays.asList("b Album", "a Album", "c Album"), names(items));
+    }
+
+    public void testGroup() throws MenuScript.ScriptException {
+        List<JiveItem> items = items("beta|", "Alpha|", "bravo|", "alpha|");
+        assertEquals(Arrays.asList("Alpha", "alpha", "beta", "bravo"), names(new MenuScript("group", GROUP_BY_INITIAL).transform(items)));
+    }
+
+    public void testFilter() throws MenuScript.ScriptException {
+        List<JiveItem> items = items("Album 1|", "Track|", "Album 2|");
+        assertEquals(Arrays.asList("Album 1", "Album 2"), names(new MenuScript("filter", ONLY_ALBUMS).transform(items)));
+    }
+
+    public void testReorderKeepsOtherItems() throws MenuScript.ScriptException {
+        List<JiveItem> items = items("Track 1|", "Album 2|", "Track 3|", "Album 1|");
+        new MenuScript("filter", ONLY_ALBUMS).reorder(items);
+        assertEquals(Arrays.asList("Album 2", "Album 1", "Track 1", "Track 3"), names(items));
+
+        items = items("Track|", "Album|");
+        new MenuScript("twice", "return function(items) return {items[2], items[2]} end").reorder(items);
+        assertEquals(Arrays.asList("Album", "Track"), names(items));
+    }
+
+    public void testScriptErrors() {
+        assertScriptException("syntax", "return function(items)");
+        assertScriptException("not a function", "return 1");
+        assertScriptException("error", "return function(items) error('failed') end");
+        assertScriptException("not a list", "return function(items) return 1 end");
+        assertScriptException("not an item", "return function(items) return {1} end");
+        assertScriptException("bad index", "return function(items) items[1].index = 7 return items end");
+        assertScriptException("endless", "return function(items) while true do end end");
+        assertScriptException("io", "return function(items) io.open('/sdcard/x') end");
+        assertScriptException("loadstring", "return function(items) loadstring('return 1') end");
+    }
+
+    private void assertScriptException(String name, String source) {
+        try {
+            new MenuScript(name, source).apply(items("Album|"));
+            fail(name + " did not fail");
+        } catch (MenuScript.ScriptException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * More scripts than a Lua state keeps compiled, and the first script again.
+     */
+    public void testManyScripts() throws MenuScript.ScriptException {
+        List<JiveItem> items = items("a|", "b|", "c|");
+        for (int i = 0; i < 3; i++) {
+            for (int script = 0; script < 20; script++) {
+                String source = "return function(items) return {items[" + (script % 3 + 1) + "]} end";
+                assertEquals(Collections.singletonList(items.get(script % 3)), new MenuScript("script " + script, source).transform(items));
+            }
+        }
+    }
+
+    public void testThreads() throws InterruptedException {
+        final MenuScript script = new MenuScript("sort", SORT_BY_ARTIST);
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int run = 0; run < 50; run++) {
+                        List<JiveItem> sorted = script.transform(items("b|Y", "a|Y", "c|X"));
+                        if (!Arrays.asList("c", "a", "b").equals(names(sorted))) {
+                            errors.add(names(sorted).toString());
+                        }
+                    }
+                } catch (MenuScript.ScriptException e) {
+                    errors.add(e.getMessage());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Collections.emptyList(), errors);
+    }
+
+    public void testForMenu() throws IOException, MenuScript.ScriptException {
+        File directory = getContext().getExternalFilesDir("menu_scripts");
+        assertNotNull(directory);
+        File file = new File(directory, "testMenu.lua");
+        Files.asCharSink(file, Charsets.UTF_8).write(SORT_BY_ARTIST);
+        try {
+            MenuScript script = MenuScript.forMenu(getContext(), "testMenu");
+            assertNotNull(script);
+            assertEquals(Arrays.asList("c", "a"), names(script.transform(items("a|Y", "c|X"))));
+
+            assertNull(MenuScript.forMenu(getContext(), "otherMenu"));
+            assertNull(MenuScript.forMenu(getContext(), "../menu_scripts/testMenu"));
+            assertNull(MenuScript.forMenu(getContext(), null));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * @param specs Name and secondary text of each item, separated by '|'
+     */
+    static List<JiveItem> items(String... specs) {
+        List<JiveItem> items = new ArrayList<>();
+        for (int i = 0; i < specs.length; i++) {
+            String[] fields = specs[i].split("\\|", -1);
+            JiveItem item = new JiveItem();
+            item.setId(String.valueOf(i));
+            item.setName(fields[0]);
+            item.text2 = fields[1].isEmpty() ? null : fields[1];
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<String> names(List<JiveItem> items) {
+        List<String> names = new ArrayList<>();
+        for (JiveItem item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+}
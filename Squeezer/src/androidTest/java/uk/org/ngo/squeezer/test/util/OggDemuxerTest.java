@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.test.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.org.ngo.squeezer.util.OggDemuxer;
+
+public class OggDemuxerTest extends TestCase {
+    private static final int BOS = 0x02;
+    private static final int CONTINUED = 0x01;
+
+    private OggDemuxer demuxer;
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(1024);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        demuxer = new OggDemuxer();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        demuxer.close();
+        super.tearDown();
+    }
+
+    public void testPackets() throws IOException {
+        feed(page(BOS, 1, 0, -1, bytes(3, 'a')),
+                page(0, 1, 1, 10, bytes(2, 'b'), bytes(5, 'c')));
+
+        assertEquals("aaa", next());
+        assertEquals("bb", next());
+        assertEquals("ccccc", next());
+        assertEquals(10, demuxer.getGranulePosition());
+        assertEquals(OggDemuxer.NEED_MORE_DATA, demuxer.nextPacket(packet));
+    }
+
+    /** A packet continued on the next page is only returned when it is complete */
+    public void testPacketAcrossPages() throws IOException {
+        byte[] large = bytes(300, 'x');
+        feed(page(BOS, 1, 0, -1, Arrays.copyOf(large, 255), null));
+        assertEquals(OggDemuxer.NEED_MORE_DATA, demuxer.nextPacket(packet));
+
+        feed(page(CONTINUED, 1, 1, 20, Arrays.copyOfRange(large, 255, 300)));
+        assertEquals(new String(large), next());
+    }
+
+    public void testEmptyPacket() throws IOException {
+        feed(page(BOS, 1, 0, -1, bytes(1, 'a'), new byte[0], bytes(1, 'b')));
+
+        assertEquals("a", next());
+        packet.clear();
+        assertEquals(OggDemuxer.EMPTY_PACKET, demuxer.nextPacket(packet));
+        assertEquals(0, packet.position());
+        assertEquals("b", next());
+        assertEquals(OggDemuxer.NEED_MORE_DATA, demuxer.nextPacket(packet));
+    }
+
+    public void testBufferTooSmall() throws IOException {
+        feed(page(BOS, 1, 0, -1, bytes(100, 'a')));
+
+        ByteBuffer small = ByteBuffer.allocateDirect(10);
+        try {
+            demuxer.nextPacket(small);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, small.position());
+        assertEquals(new String(bytes(100, 'a')), next());
+    }
+
+    public void testChainedStreams() throws IOException {
+        feed(page(BOS, 1, 0, -1, bytes(1, 'a')),
+                page(0, 1, 1, 5, bytes(1, 'b')),
+                page(BOS, 2, 0, -1, bytes(1, 'c')),
+                page(0, 2, 1, 7, bytes(1, 'd')));
+
+        assertEquals(Arrays.asList("a", "b", "c", "d"), drain());
+        assertEquals(7, demuxer.getGranulePosition());
+    }
+
+    /** Only a beginning of stream page starts a new logical stream */
+    public void testOtherStreamsAreSkipped() throws IOException {
+        feed(page(BOS, 1, 0, -1, bytes(1, 'a')),
+                page(BOS, 2, 0, -1, bytes(1, 'x')),
+                page(0, 1, 1, -1, bytes(1, 'b')),
+                page(0, 2, 1, -1, bytes(1, 'y')),
+                page(0, 1, 2, -1, bytes(1, 'c')));
+
+        assertEquals(Arrays.asList("a", "b", "c"), drain());
+    }
+
+    public void testJoinMidway() throws IOException {
+        byte[] first = page(0, 1, 5, -1, bytes(4, 'a'));
+        feed(Arrays.copyOfRange(first, 7, first.length),
+                page(0, 1, 6, -1, bytes(2, 'b')),
+                page(0, 1, 7, -1, bytes(2, 'c')));
+
+        assertEquals(Arrays.asList("bb", "cc"), drain());
+    }
+
+    /** The packets after a lost page are still returned */
+    public void testLostPage() throws IOException {
+        feed(page(BOS, 1, 0, -1, bytes(1, 'a')),
+                page(0, 1, 1, -1, bytes(1, 'b')),
+                page(0, 1, 3, -1, bytes(1, 'd'), bytes(1, 'e')));
+
+        assertEquals(Arrays.asList("a", "b", "d", "e"), drain());
+    }
+
+    public void testReset() throws IOException {
+        feed(page(BOS, 1, 0, 3, bytes(1, 'a')));
+        demuxer.reset();
+        assertEquals(-1, demuxer.getGranulePosition());
+        assertEquals(OggDemuxer.NEED_MORE_DATA, demuxer.nextPacket(packet));
+
+        feed(page(BOS, 2, 0, -1, bytes(1, 'b')));
+        assertEquals("b", next());
+    }
+
+    public void testClosed() {
+        demuxer.close();
+        try {
+            demuxer.reset();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private void feed(byte[]... pages) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        for (byte[] page : pages) {
+            buffer.clear();
+            buffer.put(page);
+            buffer.flip();
+            demuxer.feed(buffer);
+            assertEquals(buffer.limit(), buffer.position());
+        }
+    }
+
+    private String next() throws IOException {
+        packet.clear();
+        int length = demuxer.nextPacket(packet);
+        assertTrue("length " + length, length > 0);
+        assertEquals(length, packet.position());
+        byte[] bytes = new byte[length];
+        packet.flip();
+        packet.get(bytes);
+        return new String(bytes);
+    }
+
+    private List<String> drain() throws IOException {
+        List<String> packets = new ArrayList<>();
+        int length;
+        while ((length = demuxer.nextPacket(packet)) != OggDemuxer.NEED_MORE_DATA) {
+            if (length > 0) {
+                byte[] bytes = new byte[length];
+                packet.flip();
+                packet.get(bytes);
+                packets.add(new String(bytes));
+            }
+            packet.clear();
+        }
+        return packets;
+    }
+
+    private static byte[] bytes(int length, char c) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) c);
+        return bytes;
+    }
+
+    /**
+     * Build an Ogg page holding the supplied packets. A null after the last packet leaves it
+     * unfinished, so it continues on the next page.
+     */
+    private static byte[] page(int flags, int serialNo, int sequenceNo, long granulePosition, byte[]... packets) {
+        ByteArrayOutputStream lacing = new ByteArrayOutputStream();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int i = 0; i < packets.length; i++) {
+            if (packets[i] == null) {
+                continue;
+            }
+            boolean unfinished = (i + 1 < packets.length && packets[i + 1] == null);
+            int remaining = packets[i].length;
+            while (remaining >= 255) {
+                lacing.write(255);
+                remaining -= 255;
+            }
+            if (!unfinished) {
+                lacing.write(remaining);
+            }
+            data.write(packets[i], 0, packets[i].length);
+        }
+
+        ByteBuffer page = ByteBuffer.allocate(27 + lacing.size() + data.size()).order(ByteOrder.LITTLE_ENDIAN);
+        page.put(new byte[]{'O', 'g', 'g', 'S', 0, (byte) flags});
+        page.putLong(granulePosition);
+        page.putInt(serialNo);
+        page.putInt(sequenceNo);
+        page.putInt(0);
+        page.put((byte) lacing.size());
+        page.put(lacing.toByteArray());
+        page.put(data.toByteArray());
+        page.putInt(22, crc(page.array()));
+        return page.array();
+    }
+
+    private static int crc(byte[] bytes) {
+        int crc = 0;
+        for (byte b : bytes) {
+            crc ^= (b & 0xff) << 24;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04c11db7 : crc << 1;
+            }
+        }
+        return crc;
+    }
+}
@@ -59,13 +59,13 @@ public class UtilTest extends TestCase {
     }
 
     public void testParseInt() {
-        assertEquals(2, Util.parseDecimalIntOrZero("2"));
-        assertEquals(0, Util.parseDecimalIntOrZero("2x"));
-        assertEquals(2, Util.parseDecimalIntOrZero("2.0"));
-        assertEquals(2, Util.parseDecimalIntOrZero("2.9"));
-        assertEquals(0, Util.parseDecimalIntOrZero(null));
-        assertEquals(-2, Util.parseDecimalIntOrZero("-2"));
-        assertEquals(0, Util.parseDecimalIntOrZero("2,0"));
+        assertEquals(2, Util.parseDecimalInt("2", 0));
+        assertEquals(0, Util.parseDecimalInt("2x", 0));
+        assertEquals(2, Util.parseDecimalInt("2.0", 0));
+        assertEquals(2, Util.parseDecimalInt("2.9", 0));
+        assertEquals(0, Util.parseDecimalInt(null, 0));
+        assertEquals(-2, Util.parseDecimalInt("-2", 0));
+        assertEquals(0, Util.parseDecimalInt("2,0", 0));
 
         assertEquals(123456789, Util.parseDecimalInt("123456789", -1));
         assertEquals(-1, Util.parseDecimalInt("0x8", -1));
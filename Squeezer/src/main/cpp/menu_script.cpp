@@ -0,0 +1,212 @@
+//
+// Lua runtime for uk.org.ngo.squeezer.util.MenuScript, on top of the bundled Lua 5.1.
+//
+// A lua_State is only used by one thread at a time, as MenuScript takes it from its pool for each
+// run, so the functions here don't synchronize.
+//
+
+#include <jni.h>
+
+extern "C" {
+#include "lua.h"
+#include "lauxlib.h"
+#include "lualib.h"
+}
+
+namespace {
+
+// Abort scripts which run away, f.e. with an endless loop
+const int INSTRUCTION_CHECK_INTERVAL = 100000;
+const int MAX_INSTRUCTIONS = 200000000;
+
+const char *SCRIPT_EXCEPTION = "uk/org/ngo/squeezer/util/MenuScript$ScriptException";
+
+struct State {
+    lua_State *L;
+    int instructions;
+};
+
+State *state(jlong handle) {
+    return reinterpret_cast<State *>(handle);
+}
+
+void countHook(lua_State *L, lua_Debug *) {
+    lua_getfield(L, LUA_REGISTRYINDEX, "squeezer.state");
+    auto *s = static_cast<State *>(lua_touserdata(L, -1));
+    lua_pop(L, 1);
+    s->instructions += INSTRUCTION_CHECK_INTERVAL;
+    if (s->instructions > MAX_INSTRUCTIONS) {
+        luaL_error(L, "script exceeded %d instructions", MAX_INSTRUCTIONS);
+    }
+}
+
+void throwScriptException(JNIEnv *env, const char *message) {
+    jclass exceptionClass = env->FindClass(SCRIPT_EXCEPTION);
+    if (exceptionClass != nullptr) {
+        env->ThrowNew(exceptionClass, message);
+    }
+}
+
+// Throw the error on top of the Lua stack as a ScriptException, and pop it
+void throwLuaError(JNIEnv *env, lua_State *L) {
+    const char *message = lua_tostring(L, -1);
+    throwScriptException(env, message != nullptr ? message : "unknown Lua error");
+    lua_pop(L, 1);
+}
+
+// Only the libraries which can't reach outside the state
+void openLibs(lua_State *L) {
+    const luaL_Reg libs[] = {
+            {"", luaopen_base},
+            {LUA_TABLIBNAME, luaopen_table},
+            {LUA_STRLIBNAME, luaopen_string},
+            {LUA_MATHLIBNAME, luaopen_math},
+            {LUA_BITLIBNAME, luaopen_bit},
+            {nullptr, nullptr}
+    };
+    for (const luaL_Reg *lib = libs; lib->func != nullptr; lib++) {
+        lua_pushcfunction(L, lib->func);
+        lua_pushstring(L, lib->name);
+        lua_call(L, 1, 0);
+    }
+
+    // The base library can load files
+    const char *unsafe[] = {"dofile", "loadfile", "load", "loadstring", "module", "require", nullptr};
+    for (const char **name = unsafe; *name != nullptr; name++) {
+        lua_pushnil(L);
+        lua_setglobal(L, *name);
+    }
+}
+
+void setStringField(JNIEnv *env, lua_State *L, jobjectArray values, jsize i, const char *field) {
+    if (values == nullptr) {
+        return;
+    }
+    auto value = static_cast<jstring>(env->GetObjectArrayElement(values, i));
+    if (value != nullptr) {
+        const char *chars = env->GetStringUTFChars(value, nullptr);
+        lua_pushstring(L, chars);
+        env->ReleaseStringUTFChars(value, chars);
+        env->DeleteLocalRef(value);
+        lua_setfield(L, -2, field);
+    }
+}
+
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+Java_uk_org_ngo_squeezer_util_MenuScript_nativeNewState(JNIEnv *, jclass) {
+    auto *s = new State();
+    s->L = luaL_newstate();
+    s->instructions = 0;
+    openLibs(s->L);
+    lua_pushlightuserdata(s->L, s);
+    lua_setfield(s->L, LUA_REGISTRYINDEX, "squeezer.state");
+    lua_sethook(s->L, countHook, LUA_MASKCOUNT, INSTRUCTION_CHECK_INTERVAL);
+    return reinterpret_cast<jlong>(s);
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_uk_org_ngo_squeezer_util_MenuScript_nativeClose(JNIEnv *, jclass, jlong handle) {
+    State *s = state(handle);
+    lua_close(s->L);
+    delete s;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+Java_uk_org_ngo_squeezer_util_MenuScript_nativeLoad(JNIEnv *env, jclass, jlong handle,
+                                                  jstring name, jstring source) {
+    State *s = state(handle);
+    lua_State *L = s->L;
+    s->instructions = 0;
+
+    const char *chunkName = env->GetStringUTFChars(name, nullptr);
+    const char *chars = env->GetStringUTFChars(source, nullptr);
+    int status = luaL_loadbuffer(L, chars, static_cast<size_t>(env->GetStringUTFLength(source)), chunkName);
+    env->ReleaseStringUTFChars(source, chars);
+    env->ReleaseStringUTFChars(name, chunkName);
+    if (status == 0) {
+        status = lua_pcall(L, 0, 1, 0);
+    }
+    if (status != 0) {
+        throwLuaError(env, L);
+        return LUA_NOREF;
+    }
+    if (!lua_isfunction(L, -1)) {
+        lua_pop(L, 1);
+        throwScriptException(env, "script must return a function");
+        return LUA_NOREF;
+    }
+    return luaL_ref(L, LUA_REGISTRYINDEX);
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_uk_org_ngo_squeezer_util_MenuScript_nativeUnload(JNIEnv *, jclass, jlong handle, jint ref) {
+    luaL_unref(state(handle)->L, LUA_REGISTRYINDEX, ref);
+}
+
+extern "C" JNIEXPORT jintArray JNICALL
+Java_uk_org_ngo_squeezer_util_MenuScript_nativeApply(JNIEnv *env, jclass, jlong handle, jint ref,
+                                                   jobjectArray ids, jobjectArray names,
+                                                   jobjectArray text2s, jobjectArray types) {
+    State *s = state(handle);
+    lua_State *L = s->L;
+    s->instructions = 0;
+    jsize count = env->GetArrayLength(names);
+
+    lua_rawgeti(L, LUA_REGISTRYINDEX, ref);
+    lua_createtable(L, count, 0);
+    for (jsize i = 0; i < count; i++) {
+        lua_createtable(L, 0, 5);
+        lua_pushinteger(L, i);
+        lua_setfield(L, -2, "index");
+        setStringField(env, L, ids, i, "id");
+        setStringField(env, L, names, i, "name");
+        setStringField(env, L, text2s, i, "text2");
+        setStringField(env, L, types, i, "type");
+        lua_rawseti(L, -2, i + 1);
+    }
+
+    if (lua_pcall(L, 1, 1, 0) != 0) {
+        throwLuaError(env, L);
+        return nullptr;
+    }
+    if (!lua_istable(L, -1)) {
+        lua_pop(L, 1);
+        throwScriptException(env, "script must return a list of items");
+        return nullptr;
+    }
+
+    auto resultCount = static_cast<jsize>(lua_objlen(L, -1));
+    jintArray result = env->NewIntArray(resultCount);
+    jint *positions = env->GetIntArrayElements(result, nullptr);
+    const char *error = nullptr;
+    for (jsize i = 0; i < resultCount && error == nullptr; i++) {
+        lua_rawgeti(L, -1, i + 1);
+        if (lua_istable(L, -1)) {
+            lua_getfield(L, -1, "index");
+            if (lua_isnumber(L, -1)) {
+                lua_Integer index = lua_tointeger(L, -1);
+                if (index >= 0 && index < count) {
+                    positions[i] = static_cast<jint>(index);
+                } else {
+                    error = "item index out of range";
+                }
+            } else {
+                error = "item without index";
+            }
+            lua_pop(L, 1);
+        } else {
+            error = "list contains a value which is not an item";
+        }
+        lua_pop(L, 1);
+    }
+    lua_pop(L, 1);
+    env->ReleaseIntArrayElements(result, positions, 0);
+
+    if (error != nullptr) {
+        throwScriptException(env, error);
+        return nullptr;
+    }
+    return result;
+}
@@ -0,0 +1,157 @@
+//
+// Ogg demuxer for uk.org.ngo.squeezer.util.OggDemuxer, on top of the bundled libogg.
+//
+// Data is passed in and out through direct ByteBuffers, so demuxing a stream doesn't allocate
+// anything on the Java heap.
+//
+
+#include <jni.h>
+#include <cstring>
+#include <ogg/ogg.h>
+
+namespace {
+
+struct Demuxer {
+    ogg_sync_state sync;
+    ogg_stream_state stream;
+    bool streamInitialized;
+    bool lastPageBos;
+    ogg_int64_t granulePosition;
+};
+
+// Return values of nativeNextPacket, must match OggDemuxer
+const jint NEED_MORE_DATA = 0;
+const jint EMPTY_PACKET = -1;
+const jint BUFFER_TOO_SMALL = -2;
+
+Demuxer *demuxer(jlong handle) {
+    return reinterpret_cast<Demuxer *>(handle);
+}
+
+// Submit the next page to the stream, starting a new logical stream for chained streams.
+//
+// Only a beginning of stream page starts a new logical stream. Pages of other logical streams are
+// skipped, and of a group of beginning of stream pages (a multiplexed stream) the first is
+// followed.
+//
+// Returns false if more data is needed.
+bool pageIn(Demuxer *d) {
+    ogg_page page;
+    for (;;) {
+        int result = ogg_sync_pageout(&d->sync, &page);
+        if (result == 0) {
+            return false;
+        }
+        if (result < 0) {
+            // Skipped bytes to resynchronize, f.e. when joining a stream midway
+            continue;
+        }
+
+        int serialNo = ogg_page_serialno(&page);
+        bool bos = ogg_page_bos(&page) != 0;
+        bool lastPageBos = d->lastPageBos;
+        d->lastPageBos = bos;
+        if (!d->streamInitialized) {
+            ogg_stream_init(&d->stream, serialNo);
+            d->streamInitialized = true;
+        } else if (bos && !lastPageBos) {
+            ogg_stream_reset_serialno(&d->stream, serialNo);
+        } else if (d->stream.serialno != serialNo) {
+            continue;
+        }
+        if (ogg_stream_pagein(&d->stream, &page) == 0) {
+            return true;
+        }
+    }
+}
+
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+Java_uk_org_ngo_squeezer_util_OggDemuxer_nativeCreate(JNIEnv *, jclass) {
+    auto *d = new Demuxer();
+    ogg_sync_init(&d->sync);
+    d->streamInitialized = false;
+    d->lastPageBos = false;
+    d->granulePosition = -1;
+    return reinterpret_cast<jlong>(d);
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_uk_org_ngo_squeezer_util_OggDemuxer_nativeDestroy(JNIEnv *, jclass, jlong handle) {
+    Demuxer *d = demuxer(handle);
+    if (d->streamInitialized) {
+        ogg_stream_clear(&d->stream);
+    }
+    ogg_sync_clear(&d->sync);
+    delete d;
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_uk_org_ngo_squeezer_util_OggDemuxer_nativeFeed(JNIEnv *env, jclass, jlong handle,
+                                                  jobject buffer, jint offset, jint length) {
+    Demuxer *d = demuxer(handle);
+    auto *src = static_cast<const char *>(env->GetDirectBufferAddress(buffer));
+    char *dst = ogg_sync_buffer(&d->sync, length);
+    if (src == nullptr || dst == nullptr) {
+        return JNI_FALSE;
+    }
+    memcpy(dst, src + offset, static_cast<size_t>(length));
+    return ogg_sync_wrote(&d->sync, length) == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+Java_uk_org_ngo_squeezer_util_OggDemuxer_nativeNextPacket(JNIEnv *env, jclass, jlong handle,
+                                                        jobject buffer, jint offset, jint capacity) {
+    Demuxer *d = demuxer(handle);
+    auto *dst = static_cast<char *>(env->GetDirectBufferAddress(buffer));
+    if (dst == nullptr) {
+        return BUFFER_TOO_SMALL;
+    }
+
+    ogg_packet packet;
+    for (;;) {
+        int result = d->streamInitialized ? ogg_stream_packetpeek(&d->stream, &packet) : 0;
+        if (result == 0) {
+            if (!pageIn(d)) {
+                return NEED_MORE_DATA;
+            }
+            continue;
+        }
+        if (result < 0) {
+            // A hole in the data, which the peek has skipped. The packets after it are still good.
+            continue;
+        }
+
+        if (packet.bytes > capacity) {
+            // Leave the packet in the stream, so it can be read into a larger buffer
+            return BUFFER_TOO_SMALL;
+        }
+        ogg_stream_packetout(&d->stream, &packet);
+        if (packet.granulepos >= 0) {
+            d->granulePosition = packet.granulepos;
+        }
+        if (packet.bytes == 0) {
+            return EMPTY_PACKET;
+        }
+        memcpy(dst + offset, packet.packet, static_cast<size_t>(packet.bytes));
+        return static_cast<jint>(packet.bytes);
+    }
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+Java_uk_org_ngo_squeezer_util_OggDemuxer_nativeGranulePosition(JNIEnv *, jclass, jlong handle) {
+    return demuxer(handle)->granulePosition;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_uk_org_ngo_squeezer_util_OggDemuxer_nativeReset(JNIEnv *, jclass, jlong handle) {
+    Demuxer *d = demuxer(handle);
+    ogg_sync_reset(&d->sync);
+    if (d->streamInitialized) {
+        ogg_stream_clear(&d->stream);
+        d->streamInitialized = false;
+    }
+    d->lastPageBos = false;
+    d->granulePosition = -1;
+}
@@ -81,6 +81,7 @@ import uk.org.ngo.squeezer.itemlist.PlayerListActivity;
 import uk.org.ngo.squeezer.itemlist.JiveItemListActivity;
 import uk.org.ngo.squeezer.itemlist.JiveItemViewLogic;
 import uk.org.ngo.squeezer.itemlist.PlayerViewLogic;
+import uk.org.ngo.squeezer.model.Action;
 import uk.org.ngo.squeezer.model.CurrentPlaylistItem;
 import uk.org.ngo.squeezer.model.Player;
 import uk.org.ngo.squeezer.model.PlayerState;
@@ -200,17 +201,25 @@ public class NowPlayingFragment extends Fragment {
 
     /**
      * Shows the "connecting" dialog if it's not already showing.
+     *
+     * @param wakeSeconds Seconds spent waiting for the server to wake up, shown in the dialog, or
+     *     -1 if the server is not being woken
      */
     @UiThread
-    private void showConnectingDialog() {
-        if (connectingDialog == null || !connectingDialog.isShowing()) {
-            Preferences preferences = new Preferences(mActivity);
-            Preferences.ServerAddress serverAddress = preferences.getServerAddress();
+    private void showConnectingDialog(int wakeSeconds) {
+        Preferences preferences = new Preferences(mActivity);
+        Preferences.ServerAddress serverAddress = preferences.getServerAddress();
+        String message = (wakeSeconds >= 0)
+                ? getString(R.string.waking_server_text, serverAddress.serverName(), wakeSeconds)
+                : getString(R.string.connecting_to_text, serverAddress.serverName());
 
+        if (connectingDialog == null || !connectingDialog.isShowing()) {
             connectingDialog = ProgressDialog.show(mActivity,
                     getText(R.string.connecting_text),
-                    getString(R.string.connecting_to_text, serverAddress.serverName()),
+                    message,
                     true, false);
+        } else {
+            connectingDialog.setMessage(message);
         }
     }
 
@@ -310,13 +319,13 @@ public class NowPlayingFragment extends Fragment {
         if (mFullHeightLayout) {
             artistText.setOnClickListener(v1 -> {
                 if (artistItem != null) {
-                    JiveItemListActivity.show(mActivity, artistItem, artistItem.goAction);
+                    JiveItemListActivity.show(mActivity, artistItem, artistItem.getGoAction());
                 }
             });
 
             albumText.setOnClickListener(v12 -> {
                 if (albumItem != null) {
-                    JiveItemListActivity.show(mActivity, albumItem, albumItem.goAction);
+                    JiveItemListActivity.show(mActivity, albumItem, albumItem.getGoAction());
                 }
             });
 
@@ -324,7 +333,7 @@ public class NowPlayingFragment extends Fragment {
                 CurrentPlaylistItem song = getCurrentSong();
                 if (song != null) {
                     globalSearch.input.initialText = song.getName();
-                    JiveItemListActivity.show(mActivity, globalSearch, globalSearch.goAction);
+                    JiveItemListActivity.show(mActivity, globalSearch, globalSearch.getGoAction());
                 }
             });
 
@@ -652,7 +661,7 @@ public class NowPlayingFragment extends Fragment {
                 albumText.setText(song.getAlbum());
                 totalTime.setText(Util.formatElapsedTime(playerState.getCurrentSongDuration()));
 
-                mService.pluginItems(song.moreAction, new IServiceItemListCallback<JiveItem>() {
+                mService.pluginItems(song.getMoreAction(), new IServiceItemListCallback<JiveItem>() {
                     @Override
                     public void onItemsReceived(int count, int start, Map<String, Object> parameters, List<JiveItem> items, Class<JiveItem> dataType) {
                         albumItem = findBrowseAction(items, "album_id");
@@ -689,9 +698,10 @@ public class NowPlayingFragment extends Fragment {
 
     private JiveItem findBrowseAction(List<JiveItem> items, String idParam) {
         for (JiveItem item : items) {
-            if (item.goAction != null && item.goAction.action != null &&
-                    item.goAction.action.cmd.equals(Arrays.asList("browselibrary", "items")) &&
-                    item.goAction.action.params.containsKey(idParam)) {
+            Action goAction = item.getGoAction();
+            if (goAction != null && goAction.action != null &&
+                    goAction.action.cmd.equals(Arrays.asList("browselibrary", "items")) &&
+                    goAction.action.params.containsKey(idParam)) {
                 return item;
             }
         }
@@ -835,7 +845,7 @@ public class NowPlayingFragment extends Fragment {
         int itemId = item.getItemId();
         if (itemId == R.id.menu_item_search) {
             globalSearch.input.initialText = "";
-            JiveItemListActivity.show(mActivity, globalSearch, globalSearch.goAction);
+            JiveItemListActivity.show(mActivity, globalSearch, globalSearch.getGoAction());
             return true;
         } else if (itemId == R.id.menu_item_playlist) {
             CurrentPlaylistActivity.show(mActivity);
@@ -963,7 +973,7 @@ public class NowPlayingFragment extends Fragment {
         // Any other event means that a connection is in progress or completed.
         // Show the the dialog if appropriate.
         if (event.connectionState != ConnectionState.CONNECTION_COMPLETED) {
-            showConnectingDialog();
+            showConnectingDialog(event.wakeSeconds);
         }
 
         // Ensure that option menu item state is adjusted as appropriate.
@@ -1066,7 +1076,7 @@ public class NowPlayingFragment extends Fragment {
     public void onEventMainThread(HomeMenuEvent event) {
         globalSearch = null;
         for (JiveItem menuItem : event.menuItems) {
-            if ("globalSearch".equals(menuItem.getId()) && menuItem.goAction != null) {
+            if ("globalSearch".equals(menuItem.getId()) && menuItem.getGoAction() != null) {
                 globalSearch = menuItem;
                 break;
             }
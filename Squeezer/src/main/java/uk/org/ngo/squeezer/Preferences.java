@@ -23,7 +23,13 @@ import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
 import uk.org.ngo.squeezer.download.DownloadFilenameStructure;
@@ -48,6 +54,15 @@ public final class Preferences {
     // Optional Squeezebox Server name
     private static final String KEY_SERVER_NAME = "squeezer.server_name";
 
+    // The uuid the server reported when it was last connected at this address
+    private static final String KEY_SERVER_UUID = "squeezer.server_uuid";
+
+    // Addresses (host:port) at which a Squeezebox Server has been connected, by server uuid
+    private static final String KEY_SERVER_ADDRESSES = "squeezer.server_addresses_by_uuid";
+
+    // The address of the selected server which was reachable last time, by network and server
+    private static final String KEY_PREFERRED_SERVER_ADDRESS = "squeezer.preferred_server_addr";
+
     // Optional Squeezebox Server user name
     private static final String KEY_USERNAME = "squeezer.username";
 
@@ -112,12 +127,21 @@ public final class Preferences {
     // Start SqueezePlayer automatically if installed.
     public static final String KEY_SQUEEZEPLAYER_ENABLED = "squeezer.squeezeplayer.enabled";
 
+    // Play on this device, as a player of the server
+    public static final String KEY_LOCAL_PLAYER = "squeezer.local_player";
+
     // Preferred UI theme.
     static final String KEY_ON_THEME_SELECT_ACTION = "squeezer.theme";
 
     // Download confirmation
     static final String KEY_CLEAR_PLAYLIST_CONFIRMATION = "squeezer.clear.current_playlist.confirmation";
 
+    // Keep a local copy of the music library for browsing
+    public static final String KEY_LIBRARY_MIRROR = "squeezer.library_mirror";
+
+    // Maximum number of items of a list kept in memory
+    static final String KEY_LIST_CACHE_SIZE = "squeezer.list_cache_size";
+
     // Download enabled
     static final String KEY_DOWNLOAD_ENABLED = "squeezer.download.enabled";
 
@@ -133,6 +157,12 @@ public final class Preferences {
     // Download filename structure
     static final String KEY_DOWNLOAD_FILENAME_STRUCTURE = "squeezer.download.filename_structure";
 
+    // Maximum number of downloads handed to the download manager at a time
+    static final String KEY_DOWNLOAD_CONCURRENCY = "squeezer.download.concurrency";
+
+    // Download with the built-in HTTP client instead of the download manager
+    static final String KEY_DOWNLOAD_IN_APP = "squeezer.download.in_app";
+
     // Use SD-card (getExternalMediaDirs)
     static final String KEY_DOWNLOAD_USE_SD_CARD_SCREEN = "squeezer.download.use_sd_card.screen";
     static final String KEY_DOWNLOAD_USE_SD_CARD = "squeezer.download.use_sd_card";
@@ -203,11 +233,105 @@ public final class Preferences {
         return serverAddress;
     }
 
+    /**
+     * Get the addresses at which the supplied server may be reachable from the current network,
+     * in order of preference: The address which was reachable last time on this network, the
+     * address of the server, and the other known addresses of the server.
+     * <p>
+     * Other addresses are known by the uuid of the server, which is learned when it is connected.
+     * Only addresses at which the server has reported the same uuid are included, so a server
+     * which happens to have the same name, or an address which now belongs to another server, is
+     * not mistaken for the selected server.
+     *
+     * @return Addresses in the form host:port
+     */
+    public List<String> getServerAddresses(ServerAddress serverAddress) {
+        Set<String> addresses = new LinkedHashSet<>();
+        String uuid = serverAddress.uuid;
+        if (uuid != null) {
+            addAddress(addresses, getStringPreference(preferredServerAddressKey(serverAddress)));
+        }
+        addAddress(addresses, serverAddress.localAddress());
+
+        if (uuid != null) {
+            ServerAddress fallback = new ServerAddress(null, defaultHttpPort);
+            readServerAddress(fallback, getStringPreference(KEY_SERVER_ADDRESS), defaultHttpPort);
+            if (uuid.equals(fallback.uuid)) {
+                addAddress(addresses, fallback.localAddress());
+            }
+            for (String address : sharedPreferences.getStringSet(KEY_SERVER_ADDRESSES + "_" + uuid, Collections.emptySet())) {
+                addAddress(addresses, address);
+            }
+        }
+        return new ArrayList<>(addresses);
+    }
+
+    private void addAddress(Set<String> addresses, String address) {
+        if (address != null) {
+            ServerAddress serverAddress = new ServerAddress(null, defaultHttpPort);
+            serverAddress.setAddress(address);
+            addresses.add(serverAddress.localAddress());
+        }
+    }
+
+    /**
+     * Remember the address of the supplied server which is reachable from the current network.
+     *
+     * @param address Address in the form host:port, or null to forget it
+     */
+    public void setPreferredServerAddress(ServerAddress serverAddress, String address) {
+        sharedPreferences.edit().putString(preferredServerAddressKey(serverAddress), address).apply();
+    }
+
+    /**
+     * Remember the uuid the supplied server reported at its address.
+     */
+    public void setServerUuid(ServerAddress serverAddress, String uuid) {
+        serverAddress.uuid = uuid;
+        sharedPreferences.edit().putString(prefix(serverAddress) + KEY_SERVER_UUID, uuid).apply();
+    }
+
+    private String preferredServerAddressKey(ServerAddress serverAddress) {
+        return prefixed(serverAddress.bssId, KEY_PREFERRED_SERVER_ADDRESS) + "_" + serverAddress.localAddress();
+    }
+
+    /**
+     * Add the supplied address to the known addresses of a server.
+     *
+     * @param serverUuid The uuid the server reported at the address
+     * @param address Address in the form host:port
+     */
+    public void addServerAddress(String serverUuid, String address) {
+        String key = KEY_SERVER_ADDRESSES + "_" + serverUuid;
+        Set<String> addresses = sharedPreferences.getStringSet(key, Collections.emptySet());
+        if (!addresses.contains(address)) {
+            // The returned set must not be modified
+            Set<String> newAddresses = new HashSet<>(addresses);
+            newAddresses.add(address);
+            sharedPreferences.edit().putStringSet(key, newAddresses).apply();
+        }
+    }
+
+    /**
+     * Remove the supplied address from the known addresses of a server, f.e. because another
+     * server answers at it now.
+     */
+    public void removeServerAddress(String serverUuid, String address) {
+        String key = KEY_SERVER_ADDRESSES + "_" + serverUuid;
+        Set<String> addresses = sharedPreferences.getStringSet(key, Collections.emptySet());
+        if (addresses.contains(address)) {
+            Set<String> newAddresses = new HashSet<>(addresses);
+            newAddresses.remove(address);
+            sharedPreferences.edit().putStringSet(key, newAddresses).apply();
+        }
+    }
+
     private void readServerAddress(ServerAddress serverAddress, String address, int defaultPort) {
         serverAddress.setAddress(address, defaultPort);
 
         serverAddress.squeezeNetwork = sharedPreferences.getBoolean(prefixed(serverAddress.bssId, KEY_SQUEEZE_NETWORK), false);
         serverAddress.serverName = getStringPreference(prefix(serverAddress) + KEY_SERVER_NAME);
+        serverAddress.uuid = getStringPreference(prefix(serverAddress) + KEY_SERVER_UUID);
         serverAddress.userName = getStringPreference(prefix(serverAddress) + KEY_USERNAME);
         serverAddress.password = getStringPreference(prefix(serverAddress) + KEY_PASSWORD);
         serverAddress.wakeOnLan = sharedPreferences.getBoolean(prefix(serverAddress) + KEY_WOL, false);
@@ -240,6 +364,8 @@ public final class Preferences {
         private final int defaultPort;
 
         private String serverName;
+        /** The uuid the server reported when it was last connected at this address, if any */
+        private String uuid;
         public String userName;
         public String password;
 
@@ -290,6 +416,10 @@ public final class Preferences {
             return serverName != null ? serverName : host;
         }
 
+        public String uuid() {
+            return uuid;
+        }
+
         private void setAddress(String hostPort, int defaultPort) {
             // Common mistakes, based on crash reports...
             if (hostPort != null) {
@@ -366,6 +496,19 @@ public final class Preferences {
         sharedPreferences.edit().putBoolean(Preferences.KEY_CLEAR_PLAYLIST_CONFIRMATION, b).apply();
     }
 
+    public boolean isLibraryMirror() {
+        return sharedPreferences.getBoolean(KEY_LIBRARY_MIRROR, false);
+    }
+
+    public int getFadeInSecs() {
+        return sharedPreferences.getInt(KEY_FADE_IN_SECS, 0);
+    }
+
+    public int getListCacheSize() {
+        int size = sharedPreferences.getInt(KEY_LIST_CACHE_SIZE, 0);
+        return (size > 0 ? size : 5000);
+    }
+
     public boolean isAutoConnect() {
         return sharedPreferences.getBoolean(KEY_AUTO_CONNECT, true);
     }
@@ -506,6 +649,15 @@ public final class Preferences {
         return sharedPreferences.getBoolean(KEY_DOWNLOAD_USE_SERVER_PATH, true);
     }
 
+    public boolean isDownloadInApp() {
+        return sharedPreferences.getBoolean(KEY_DOWNLOAD_IN_APP, false);
+    }
+
+    public int getDownloadConcurrency() {
+        int concurrency = sharedPreferences.getInt(KEY_DOWNLOAD_CONCURRENCY, 0);
+        return (concurrency > 0 ? concurrency : 4);
+    }
+
     public DownloadPathStructure getDownloadPathStructure() {
         final String string = sharedPreferences.getString(KEY_DOWNLOAD_PATH_STRUCTURE, null);
         return (string == null ? DownloadPathStructure.ARTIST_ALBUM: DownloadPathStructure.valueOf(string));
@@ -133,17 +133,23 @@ public class SettingsFragment  extends PreferenceFragmentCompat implements
         final CheckBoxPreference useServerPathPreference = findPreference(Preferences.KEY_DOWNLOAD_USE_SERVER_PATH);
         final ListPreference pathStructurePreference = findPreference(Preferences.KEY_DOWNLOAD_PATH_STRUCTURE);
         final ListPreference filenameStructurePreference = findPreference(Preferences.KEY_DOWNLOAD_FILENAME_STRUCTURE);
+        final IntEditTextPreference concurrencyPreference = findPreference(Preferences.KEY_DOWNLOAD_CONCURRENCY);
+        final CheckBoxPreference inAppPreference = findPreference(Preferences.KEY_DOWNLOAD_IN_APP);
         final boolean enabled = preferences.isDownloadEnabled();
         final boolean useServerPath = preferences.isDownloadUseServerPath();
 
         downloadEnabled.setChecked(enabled);
         downloadConfirmation.setChecked(preferences.isDownloadConfirmation());
         useServerPathPreference.setChecked(useServerPath);
+        inAppPreference.setChecked(preferences.isDownloadInApp());
 
         downloadConfirmation.setEnabled(enabled);
         useServerPathPreference.setEnabled(enabled);
         pathStructurePreference.setEnabled(enabled && !useServerPath);
         filenameStructurePreference.setEnabled(enabled && !useServerPath);
+        concurrencyPreference.setEnabled(enabled);
+        concurrencyPreference.setSummary(String.valueOf(preferences.getDownloadConcurrency()));
+        inAppPreference.setEnabled(enabled);
     }
 
     private void fillDisplayPreferences(Preferences preferences) {
@@ -173,6 +179,13 @@ public class SettingsFragment  extends PreferenceFragmentCompat implements
 
         final SwitchPreferenceCompat clearPlaylistConfirmation = findPreference(Preferences.KEY_CLEAR_PLAYLIST_CONFIRMATION);
         clearPlaylistConfirmation.setChecked(preferences.isClearPlaylistConfirmation());
+
+        updateListCacheSizeSummary(preferences);
+    }
+
+    private void updateListCacheSizeSummary(Preferences preferences) {
+        final IntEditTextPreference listCacheSizePreference = findPreference(Preferences.KEY_LIST_CACHE_SIZE);
+        listCacheSizePreference.setSummary(getString(R.string.settings_list_cache_size_summary, preferences.getListCacheSize()));
     }
 
     private <E extends Enum<E> & EnumWithText> void fillEnumPreference(ListPreference listPreference, Class<E> actionTypes, E defaultValue) {
@@ -266,11 +279,16 @@ public class SettingsFragment  extends PreferenceFragmentCompat implements
         Log.v(TAG, "Preference changed: " + key);
 
         if (key.equals(Preferences.KEY_DOWNLOAD_USE_SERVER_PATH) ||
-                key.equals(Preferences.KEY_DOWNLOAD_ENABLED)
+                key.equals(Preferences.KEY_DOWNLOAD_ENABLED) ||
+                key.equals(Preferences.KEY_DOWNLOAD_CONCURRENCY)
         ) {
             updateDownloadPreferences(new Preferences(getActivity(), sharedPreferences));
         }
 
+        if (key.equals(Preferences.KEY_LIST_CACHE_SIZE)) {
+            updateListCacheSizeSummary(new Preferences(getActivity(), sharedPreferences));
+        }
+
         if (service != null) {
             service.preferenceChanged(key);
         } else {
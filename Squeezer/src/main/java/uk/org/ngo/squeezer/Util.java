@@ -350,6 +350,12 @@ public class Util {
                 outputStream.write(b, 0, bytes);
             }
         }
+        if (ContentResolver.SCHEME_FILE.equals(source.getScheme())) {
+            if (!new File(source.getPath()).delete()) {
+                throw new IOException("moveFile: could not delete '" + source + "' after copy");
+            }
+            return;
+        }
         int deleted = resolver.delete(source, null, null);
         if (deleted != 1) {
             throw new IOException("moveFile: try to delete '" + source + "' after copy, expected 1 deleted file but was " + deleted);
@@ -17,10 +17,16 @@
 package uk.org.ngo.squeezer.download;
 
 import android.app.Activity;
-import android.app.DownloadManager;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
 import android.util.Log;
+import android.widget.TextView;
+
+import java.lang.ref.WeakReference;
 
 import uk.org.ngo.squeezer.R;
 import uk.org.ngo.squeezer.util.AsyncTask;
@@ -32,6 +38,19 @@ import uk.org.ngo.squeezer.util.AsyncTask;
 public class CancelDownloadsActivity extends Activity {
     private static final String TAG = CancelDownloadsActivity.class.getSimpleName();
 
+    /** Time between progress updates. The ETA is estimated from successive updates. */
+    private static final long PROGRESS_INTERVAL = 1000;
+
+    private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable updateProgress = this::updateProgress;
+
+    /** True while the activity is resumed, and the progress is updated */
+    private boolean resumed;
+
+    /** True while a {@link DownloadProgressTask} is running */
+    private boolean progressTaskRunning;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -43,30 +62,91 @@ public class CancelDownloadsActivity extends Activity {
         });
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        resumed = true;
+        if (!progressTaskRunning) {
+            updateProgress();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        resumed = false;
+        uiThreadHandler.removeCallbacks(updateProgress);
+    }
+
+    private void updateProgress() {
+        progressTaskRunning = true;
+        new DownloadProgressTask(this).execute();
+    }
+
+    private void onProgress(DownloadScheduler.DownloadProgress progress) {
+        progressTaskRunning = false;
+        showProgress(progress);
+        if (resumed) {
+            uiThreadHandler.postDelayed(updateProgress, PROGRESS_INTERVAL);
+        }
+    }
+
     private void cancelDownloads() {
         Log.i(TAG, "cancelDownloads");
         new CancelDownloadsTask(this).execute();
     }
 
+    private void showProgress(DownloadScheduler.DownloadProgress progress) {
+        if (progress.isEmpty()) {
+            return;
+        }
+        long downloaded = progress.completedBytes + progress.activeBytesDownloaded;
+        long eta = progress.getEtaSeconds();
+        String text = getString(R.string.download_progress, progress.pending + progress.active,
+                Formatter.formatShortFileSize(this, downloaded));
+        if (eta >= 0) {
+            text += "\n" + getString(R.string.download_progress_eta, DateUtils.formatElapsedTime(eta));
+        }
+        TextView progressView = findViewById(R.id.download_progress);
+        progressView.setText(text);
+        progressView.setVisibility(TextView.VISIBLE);
+    }
+
     static class CancelDownloadsTask extends AsyncTask<Void, Void, Void> {
-        final DownloadDatabase downloadDatabase;
-        final DownloadManager downloadManager;
+        final DownloadScheduler downloadScheduler;
 
         public CancelDownloadsTask(Context context) {
-            downloadDatabase = new DownloadDatabase(context);
-            downloadManager =(DownloadManager)context.getSystemService(Context.DOWNLOAD_SERVICE);
+            downloadScheduler = DownloadScheduler.getInstance(context);
         }
 
         @Override
         protected Void doInBackground(Void... params) {
-            downloadDatabase.iterateDownloadEntries(entry -> {
-                if (entry.downloadId != -1) {
-                    downloadManager.remove(entry.downloadId);
-                }
-                downloadDatabase.remove(entry.url);
-            });
+            downloadScheduler.cancelAll();
             return null;
         }
     }
 
+    static class DownloadProgressTask extends AsyncTask<Void, Void, DownloadScheduler.DownloadProgress> {
+        final DownloadScheduler downloadScheduler;
+        final WeakReference<CancelDownloadsActivity> activityReference;
+
+        public DownloadProgressTask(CancelDownloadsActivity activity) {
+            downloadScheduler = DownloadScheduler.getInstance(activity);
+            activityReference = new WeakReference<>(activity);
+        }
+
+        @Override
+        protected DownloadScheduler.DownloadProgress doInBackground(Void... params) {
+            return downloadScheduler.getProgress();
+        }
+
+        @Override
+        protected void onPostExecute(DownloadScheduler.DownloadProgress progress) {
+            CancelDownloadsActivity activity = activityReference.get();
+            if (activity != null && !activity.isFinishing()) {
+                activity.onProgress(progress);
+            }
+        }
+    }
+
 }
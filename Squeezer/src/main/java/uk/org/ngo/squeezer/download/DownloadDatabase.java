@@ -16,31 +16,34 @@
 
 package uk.org.ngo.squeezer.download;
 
-import android.app.DownloadManager;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
-import android.util.Base64;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * Maintain a queue of download requests.
+ * Persistent store of download requests.
  * <p>
- * Enqueue a new download request via {@link #enqueueDownload(DownloadManager, String, Uri, String)} and
- * call {@link #popDownloadEntry(Context, long)} when a download is completed.
+ * This only keeps the table in sync with {@link DownloadScheduler}, which holds the queue in memory
+ * and decides when requests are handed to the download manager. Register new requests via
+ * {@link #registerDownloads(List)} and call {@link #popDownloadEntry(long)} when a download is
+ * completed.
  */
 public class DownloadDatabase {
     public static final String TAG = DownloadDatabase.class.getSimpleName();
 
     private static class DOWNLOAD_DATABASE {
         private static final String NAME = "download";
-        private static final int VERSION = 5;
+        private static final int VERSION = 6;
 
         private static class SONG {
             private static final String TABLE = "download";
@@ -54,6 +57,11 @@ public class DownloadDatabase {
                 private static final String ALBUM = "album";
                 private static final String ARTIST = "artist";
             }
+
+            private static class INDEXES {
+                private static final String DOWNLOAD_ID = "download_download_id";
+                private static final String URL = "download_url";
+            }
         }
     }
 
@@ -95,6 +103,10 @@ public class DownloadDatabase {
                     DOWNLOAD_DATABASE.SONG.COLUMNS.TITLE + " TEXT, " +
                     DOWNLOAD_DATABASE.SONG.COLUMNS.ALBUM + " TEXT, " +
                     DOWNLOAD_DATABASE.SONG.COLUMNS.ARTIST + " TEXT)");
+            sqLiteDatabase.execSQL("CREATE INDEX " + DOWNLOAD_DATABASE.SONG.INDEXES.DOWNLOAD_ID +
+                    " ON " + DOWNLOAD_DATABASE.SONG.TABLE + "(" + DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID + ")");
+            sqLiteDatabase.execSQL("CREATE INDEX " + DOWNLOAD_DATABASE.SONG.INDEXES.URL +
+                    " ON " + DOWNLOAD_DATABASE.SONG.TABLE + "(" + DOWNLOAD_DATABASE.SONG.COLUMNS.URL + ")");
         }
 
         @Override
@@ -108,84 +120,82 @@ public class DownloadDatabase {
     }
 
     /**
-     * Register a download request.
+     * Register a batch of download requests in a single transaction.
+     * <p>
+     * Entries which could not be stored are logged and left out of the returned list.
+     *
+     * @return The entries which were registered
      */
-    public void registerDownload(Context context, String credentials, Uri url, @NonNull String fileName, @NonNull String title, String album, String artist) {
-        // To avoid download manager stops processing our requests due to exceeding the rate
-        // limit for notifications (because download manager shows a notification), we delay
-        // enqueuing further download requests until any current enqueued requests is completed.
-        DownloadManager downloadManager = (DownloadManager) context.getSystemService(Context.DOWNLOAD_SERVICE);
-        long downloadId = (activeRequests() < 4) ? enqueueDownload(downloadManager, credentials, url, title) : -1;
-
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID, downloadId);
-        contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.URL, url.toString());
-        contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.FILE_NAME, fileName);
-        contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.CREDENTIALS, credentials);
-        contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.TITLE, title);
-        contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.ALBUM, album);
-        contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.ARTIST, artist);
-        if (db.insert(DOWNLOAD_DATABASE.SONG.TABLE, null, contentValues) == -1) {
-            Log.w(TAG, "Could not register download entry for: " + title);
-            if (downloadId != -1) {
-                downloadManager.remove(downloadId);
+    public List<DownloadEntry> registerDownloads(List<DownloadEntry> entries) {
+        List<DownloadEntry> registered = new ArrayList<>(entries.size());
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DOWNLOAD_DATABASE.SONG.TABLE + "(" +
+                DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID + ", " +
+                DOWNLOAD_DATABASE.SONG.COLUMNS.URL + ", " +
+                DOWNLOAD_DATABASE.SONG.COLUMNS.FILE_NAME + ", " +
+                DOWNLOAD_DATABASE.SONG.COLUMNS.CREDENTIALS + ", " +
+                DOWNLOAD_DATABASE.SONG.COLUMNS.TITLE + ", " +
+                DOWNLOAD_DATABASE.SONG.COLUMNS.ALBUM + ", " +
+                DOWNLOAD_DATABASE.SONG.COLUMNS.ARTIST + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (DownloadEntry entry : entries) {
+                insert.clearBindings();
+                insert.bindLong(1, entry.downloadId);
+                insert.bindString(2, entry.url.toString());
+                bindStringOrNull(insert, 3, entry.fileName);
+                bindStringOrNull(insert, 4, entry.credentials);
+                bindStringOrNull(insert, 5, entry.title);
+                bindStringOrNull(insert, 6, entry.album);
+                bindStringOrNull(insert, 7, entry.artist);
+                if (insert.executeInsert() == -1) {
+                    Log.w(TAG, "Could not register download entry for: " + entry.title);
+                } else {
+                    registered.add(entry);
+                }
             }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
         }
+        return registered;
     }
 
-    /**
-     * Enqueue a download if any pending
-     */
-    private void maybeEnqueueDownload(Context context) {
-        DownloadEntry entry = null;
-
-        try (Cursor cursor = db.rawQuery("select * from " + DOWNLOAD_DATABASE.SONG.TABLE +
-                        " where " + DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID + "=?", new String[]{String.valueOf(-1)})) {
-            if (cursor.moveToNext()) {
-                entry = getDownloadEntry(cursor);
-            }
-        }
-        if (entry != null) {
-            DownloadManager downloadManager = (DownloadManager) context.getSystemService(Context.DOWNLOAD_SERVICE);
-            long downloadId = enqueueDownload(downloadManager, entry.credentials, entry.url, entry.title);
-            ContentValues contentValues = new ContentValues();
-            contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID, downloadId);
-            db.update(DOWNLOAD_DATABASE.SONG.TABLE, contentValues, DOWNLOAD_DATABASE.SONG.COLUMNS.URL + "=?",
-                    new String[]{String.valueOf(entry.url)});
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
         }
     }
 
-    private long activeRequests() {
-        try (Cursor cursor = db.rawQuery("select count(*) from " + DOWNLOAD_DATABASE.SONG.TABLE +
-                " where " + DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID + " <>?", new String[]{String.valueOf(-1)})) {
-            if (cursor.moveToNext()) {
-                return cursor.getLong(0);
+    /**
+     * Record the download manager ids of the supplied entries in a single transaction.
+     */
+    void updateDownloadIds(List<DownloadEntry> entries) {
+        db.beginTransaction();
+        try {
+            ContentValues contentValues = new ContentValues();
+            for (DownloadEntry entry : entries) {
+                contentValues.put(DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID, entry.downloadId);
+                db.update(DOWNLOAD_DATABASE.SONG.TABLE, contentValues, DOWNLOAD_DATABASE.SONG.COLUMNS.URL + "=?",
+                        new String[]{entry.url.toString()});
             }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
-        return 0;
-    }
-
-    private long enqueueDownload(DownloadManager downloadManager, String credentials, Uri url, @NonNull String title) {
-        String base64EncodedCredentials = Base64.encodeToString(credentials.getBytes(), Base64.NO_WRAP);
-        DownloadManager.Request request = new DownloadManager.Request(url)
-                .setTitle(title)
-                .setVisibleInDownloadsUi(false)
-                .addRequestHeader("Authorization", "Basic " + base64EncodedCredentials);
-        long downloadId = downloadManager.enqueue(request);
-        Log.i(TAG, "download enqueued[" + title + "]: " + downloadId);
-        return downloadId;
     }
 
     /**
      * Search for a previously registered download entry with the supplied id.
-     * If an entry is found it is returned, the download is unregistered and if any pending
-     * downloads a new one is enqueued.
+     * If an entry is found it is returned and the download is unregistered.
      *
      * @param downloadId Download id
      * @return The registered download entry or null if not found
      */
     @Nullable
-    public DownloadEntry popDownloadEntry(Context context, long downloadId) {
+    public DownloadEntry popDownloadEntry(long downloadId) {
         DownloadEntry entry = null;
 
         try (Cursor cursor = db.rawQuery("select * from " + DOWNLOAD_DATABASE.SONG.TABLE +
@@ -198,14 +208,22 @@ public class DownloadDatabase {
         if (entry != null) {
             db.delete(DOWNLOAD_DATABASE.SONG.TABLE, DOWNLOAD_DATABASE.SONG.COLUMNS.DOWNLOAD_ID + "=?",
                     new String[]{String.valueOf(downloadId)});
-            maybeEnqueueDownload(context);
         }
 
         return entry;
     }
 
+    /**
+     * Unregister the supplied entry, f.e. because it could not be handed to the download manager.
+     */
+    void removeDownloadEntry(DownloadEntry entry) {
+        db.delete(DOWNLOAD_DATABASE.SONG.TABLE, DOWNLOAD_DATABASE.SONG.COLUMNS.URL + "=?",
+                new String[]{entry.url.toString()});
+    }
+
     public void iterateDownloadEntries(DownloadHandler callback) {
-        try (Cursor cursor = db.rawQuery("select * from " + DOWNLOAD_DATABASE.SONG.TABLE, null)) {
+        try (Cursor cursor = db.rawQuery("select * from " + DOWNLOAD_DATABASE.SONG.TABLE +
+                " order by rowid", null)) {
             while (cursor.moveToNext()) {
                 callback.handle(getDownloadEntry(cursor));
             }
@@ -224,12 +242,12 @@ public class DownloadDatabase {
         return entry;
     }
 
-    public void remove(Uri url) {
-        db.delete(DOWNLOAD_DATABASE.SONG.TABLE, DOWNLOAD_DATABASE.SONG.COLUMNS.URL + "=?", new String[]{url.toString()});
+    public void clear() {
+        db.delete(DOWNLOAD_DATABASE.SONG.TABLE, null, null);
     }
 
     public static class DownloadEntry {
-        public long downloadId;
+        public long downloadId = -1;
         public Uri url;
         public String fileName;
         public String credentials;
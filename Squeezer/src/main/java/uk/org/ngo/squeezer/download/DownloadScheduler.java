@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.download;
+
+import android.app.DownloadManager;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Environment;
+import android.os.SystemClock;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.primitives.Longs;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.org.ngo.squeezer.Preferences;
+
+/**
+ * Queue of download requests, which are passed on to the download manager a few at a time.
+ * <p>
+ * To avoid download manager stops processing our requests due to exceeding the rate limit for
+ * notifications (because download manager shows a notification), only a limited number of
+ * requests are handed to the download manager at a time. The limit is configurable via
+ * {@link Preferences#getDownloadConcurrency()}.
+ * <p>
+ * If {@link Preferences#isDownloadInApp()} is set, requests are instead handed to an
+ * {@link HttpDownloadEngine}, which resumes interrupted transfers and verifies the result. Such
+ * requests get negative ids, so they can't be mistaken for download manager ids.
+ * <p>
+ * The queue is kept in memory, and mirrored in {@link DownloadDatabase} so it survives the process
+ * being killed. All database writes for a batch of requests are done in a single transaction.
+ * <p>
+ * Methods may block on database and download manager access, so don't call them on the main
+ * thread.
+ */
+public class DownloadScheduler {
+    private static final String TAG = DownloadScheduler.class.getSimpleName();
+
+    private static final Object mInstanceLock = new Object();
+    private static volatile DownloadScheduler mInstance;
+
+    /** Number of times the download engine retries a failed transfer */
+    private static final int ENGINE_MAX_RETRIES = 5;
+
+    /** Delay before the download engine first retries a failed transfer */
+    private static final long ENGINE_RETRY_DELAY = 2000;
+
+    private final Context context;
+    private final DownloadDatabase downloadDatabase;
+    private final DownloadManager downloadManager;
+
+    /** Requests not yet handed to the download manager, in the order they were registered. */
+    private final Deque<DownloadDatabase.DownloadEntry> pending = new ArrayDeque<>();
+
+    /** Requests currently handled by the download manager, keyed by download id. */
+    private final Map<Long, DownloadDatabase.DownloadEntry> active = new HashMap<>();
+
+    /** Requests currently handled by the download engine, keyed by download id. */
+    private final Map<Long, HttpDownloadEngine.Request> engineRequests = new HashMap<>();
+
+    /** Created when the first request is handed to it. */
+    @Nullable
+    private HttpDownloadEngine engine;
+
+    /** Next id to use for the download engine. Counts down from -2, since -1 means pending. */
+    private long nextEngineId = -2;
+
+    private boolean loaded;
+
+    /** Total bytes of downloads which has completed since the queue was last empty. */
+    private long completedBytes;
+
+    /** Number of downloads which has completed since the queue was last empty. */
+    private int completedCount;
+
+    /** Previous sample used to estimate the transfer rate. */
+    private long lastSampleTime;
+    private long lastSampleBytes;
+    private double bytesPerSecond;
+
+    private DownloadScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        downloadDatabase = new DownloadDatabase(this.context);
+        downloadManager = (DownloadManager) this.context.getSystemService(Context.DOWNLOAD_SERVICE);
+    }
+
+    public static DownloadScheduler getInstance(Context context) {
+        if (mInstance == null) {
+            synchronized (mInstanceLock) {
+                if (mInstance == null) {
+                    mInstance = new DownloadScheduler(context);
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * Restore the in-memory queue from the database, e.g. after the process has been killed.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        downloadDatabase.iterateDownloadEntries(entry -> {
+            if (entry.downloadId < -1) {
+                // The download engine died with the process. Resume the partial file when the
+                // request is handed out again.
+                nextEngineId = Math.min(nextEngineId, entry.downloadId - 1);
+                entry.downloadId = -1;
+            }
+            if (entry.downloadId == -1) {
+                pending.add(entry);
+            } else {
+                active.put(entry.downloadId, entry);
+            }
+        });
+        Log.i(TAG, "Restored " + pending.size() + " pending and " + active.size() + " active downloads");
+    }
+
+    /**
+     * Register a batch of download requests, and enqueue as many as allowed to the download
+     * manager.
+     */
+    public synchronized void enqueue(@NonNull List<DownloadDatabase.DownloadEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ensureLoaded();
+        pending.addAll(downloadDatabase.registerDownloads(entries));
+        fill();
+    }
+
+    /**
+     * Unregister a completed download, and enqueue a pending one if any.
+     *
+     * @param downloadId Id of the completed download
+     * @param bytes Size of the completed download, used for progress reporting
+     * @return The registered download entry or null if not found
+     */
+    @Nullable
+    public synchronized DownloadDatabase.DownloadEntry onDownloadComplete(long downloadId, long bytes) {
+        ensureLoaded();
+        active.remove(downloadId);
+        engineRequests.remove(downloadId);
+        DownloadDatabase.DownloadEntry entry = downloadDatabase.popDownloadEntry(downloadId);
+        if (entry != null) {
+            completedCount++;
+            completedBytes += Math.max(0, bytes);
+        }
+        fill();
+        return entry;
+    }
+
+    /**
+     * Remove all our requests from the download manager, cancel the transfers of the download
+     * engine, and forget all pending requests.
+     */
+    public synchronized void cancelAll() {
+        ensureLoaded();
+        List<Long> downloadManagerIds = new ArrayList<>();
+        for (long downloadId : active.keySet()) {
+            if (downloadId >= 0) {
+                downloadManagerIds.add(downloadId);
+            }
+        }
+        if (!downloadManagerIds.isEmpty()) {
+            downloadManager.remove(Longs.toArray(downloadManagerIds));
+        }
+        if (engine != null) {
+            // The workers stop the transfers and remove their partial files
+            for (HttpDownloadEngine.Request request : engineRequests.values()) {
+                engine.cancel(request);
+            }
+        }
+        engineRequests.clear();
+        active.clear();
+        pending.clear();
+        downloadDatabase.clear();
+        resetProgress();
+    }
+
+    /**
+     * Hand pending requests to the download manager (or the download engine) until the
+     * concurrency limit is reached.
+     */
+    private void fill() {
+        Preferences preferences = new Preferences(context);
+        int maxActive = preferences.getDownloadConcurrency();
+        boolean inApp = preferences.isDownloadInApp();
+        List<DownloadDatabase.DownloadEntry> enqueued = new ArrayList<>();
+        while (active.size() < maxActive && !pending.isEmpty()) {
+            DownloadDatabase.DownloadEntry entry = pending.poll();
+            if (inApp) {
+                entry.downloadId = nextEngineId--;
+            } else {
+                try {
+                    entry.downloadId = enqueueDownload(entry);
+                } catch (RuntimeException e) {
+                    // F.e. the download manager is disabled, or doesn't accept the url. Retrying
+                    // won't help, so the request is given up.
+                    Log.e(TAG, "Can't enqueue download of '" + entry.title + "'", e);
+                    downloadDatabase.removeDownloadEntry(entry);
+                    continue;
+                }
+            }
+            active.put(entry.downloadId, entry);
+            enqueued.add(entry);
+        }
+        if (!enqueued.isEmpty()) {
+            downloadDatabase.updateDownloadIds(enqueued);
+            if (inApp) {
+                // Start the transfers after the ids are stored, so completion can find the entries
+                for (DownloadDatabase.DownloadEntry entry : enqueued) {
+                    enqueueInApp(entry, maxActive);
+                }
+            }
+        }
+        if (active.isEmpty() && pending.isEmpty()) {
+            resetProgress();
+        }
+    }
+
+    private long enqueueDownload(DownloadDatabase.DownloadEntry entry) {
+        String base64EncodedCredentials = Base64.encodeToString(entry.credentials.getBytes(), Base64.NO_WRAP);
+        DownloadManager.Request request = new DownloadManager.Request(entry.url)
+                .setTitle(entry.title)
+                .setVisibleInDownloadsUi(false)
+                .addRequestHeader("Authorization", "Basic " + base64EncodedCredentials);
+        long downloadId = downloadManager.enqueue(request);
+        Log.i(TAG, "download enqueued[" + entry.title + "]: " + downloadId);
+        return downloadId;
+    }
+
+    private void enqueueInApp(DownloadDatabase.DownloadEntry entry, int maxActive) {
+        URL url;
+        try {
+            url = new URL(entry.url.toString());
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Can't download '" + entry.url + "'", e);
+            active.remove(entry.downloadId);
+            downloadDatabase.popDownloadEntry(entry.downloadId);
+            return;
+        }
+        if (engine == null) {
+            engine = new HttpDownloadEngine(maxActive, ENGINE_MAX_RETRIES, ENGINE_RETRY_DELAY);
+        } else if (engine.getMaxParallel() != maxActive) {
+            engine.setMaxParallel(maxActive);
+        }
+        // Stage the file in app storage, DownloadStatusReceiver moves it to the music collection
+        File destination = new File(context.getExternalFilesDir(Environment.DIRECTORY_MUSIC), entry.fileName);
+        HttpDownloadEngine.Request request = new HttpDownloadEngine.Request(url, destination);
+        request.credentials = entry.credentials;
+        engineRequests.put(entry.downloadId, request);
+        engine.enqueue(request, new EngineListener(entry.downloadId));
+        Log.i(TAG, "download enqueued in app[" + entry.title + "]: " + entry.downloadId);
+    }
+
+    private void resetProgress() {
+        completedBytes = 0;
+        completedCount = 0;
+        lastSampleTime = 0;
+        lastSampleBytes = 0;
+        bytesPerSecond = 0;
+    }
+
+    /**
+     * Calculate progress of the queued downloads, using a single aggregated download manager
+     * query for all active downloads.
+     * <p>
+     * The transfer rate, and hence the ETA, is estimated from successive calls, so call this
+     * periodically to get a sensible ETA.
+     */
+    @NonNull
+    public synchronized DownloadProgress getProgress() {
+        ensureLoaded();
+        DownloadProgress progress = new DownloadProgress();
+        progress.pending = pending.size();
+        progress.active = active.size();
+        progress.completed = completedCount;
+        progress.completedBytes = completedBytes;
+
+        for (HttpDownloadEngine.Request request : engineRequests.values()) {
+            progress.activeBytesDownloaded += request.bytesDownloaded;
+            if (request.totalBytes > 0) {
+                progress.activeBytesTotal += request.totalBytes;
+            } else {
+                progress.activeSizeUnknown++;
+            }
+        }
+        if (active.size() > engineRequests.size()) {
+            DownloadManager.Query query = new DownloadManager.Query().setFilterById(Longs.toArray(active.keySet()));
+            try (Cursor cursor = downloadManager.query(query)) {
+                int downloadedColumn = cursor.getColumnIndex(DownloadManager.COLUMN_BYTES_DOWNLOADED_SO_FAR);
+                int totalColumn = cursor.getColumnIndex(DownloadManager.COLUMN_TOTAL_SIZE_BYTES);
+                while (cursor.moveToNext()) {
+                    progress.activeBytesDownloaded += cursor.getLong(downloadedColumn);
+                    long total = cursor.getLong(totalColumn);
+                    if (total > 0) {
+                        progress.activeBytesTotal += total;
+                    } else {
+                        progress.activeSizeUnknown++;
+                    }
+                }
+            }
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        long transferred = progress.completedBytes + progress.activeBytesDownloaded;
+        if (lastSampleTime > 0 && now > lastSampleTime) {
+            double rate = (transferred - lastSampleBytes) * 1000.0 / (now - lastSampleTime);
+            // Smooth the rate to avoid a jumpy ETA
+            bytesPerSecond = (bytesPerSecond == 0) ? rate : 0.7 * bytesPerSecond + 0.3 * rate;
+        }
+        lastSampleTime = now;
+        lastSampleBytes = transferred;
+        progress.bytesPerSecond = bytesPerSecond;
+
+        return progress;
+    }
+
+    /**
+     * Report completed download engine transfers, like {@link DownloadStatusReceiver} does for the
+     * download manager.
+     */
+    private class EngineListener implements HttpDownloadEngine.Listener {
+        private final long downloadId;
+
+        EngineListener(long downloadId) {
+            this.downloadId = downloadId;
+        }
+
+        @Override
+        public void onComplete(HttpDownloadEngine.Request request, File file) {
+            DownloadDatabase.DownloadEntry entry = onDownloadComplete(downloadId, file.length());
+            logMetrics();
+            if (entry == null) {
+                // Cancelled while the transfer completed
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                return;
+            }
+            DownloadStatusReceiver.importDownload(context, entry, Uri.fromFile(file));
+        }
+
+        @Override
+        public void onFailure(HttpDownloadEngine.Request request, IOException e) {
+            if (e instanceof HttpDownloadEngine.CancelledException) {
+                // Forgotten by cancelAll, and the worker removed the partial file
+                Log.i(TAG, e.getMessage());
+                return;
+            }
+            // TODO remote logging
+            Log.e(TAG, "Unsuccessful download of " + request.url, e);
+            // The request is given up, so the partial file will not be resumed
+            //noinspection ResultOfMethodCallIgnored
+            new File(request.destination.getPath() + HttpDownloadEngine.PART_SUFFIX).delete();
+            onDownloadComplete(downloadId, 0);
+            logMetrics();
+        }
+    }
+
+    private synchronized void logMetrics() {
+        if (engine != null) {
+            Log.i(TAG, "Download engine " + engine.getMetrics());
+        }
+    }
+
+    /**
+     * Snapshot of the progress of the download queue.
+     */
+    public static class DownloadProgress {
+        /** Number of requests not yet handed to the download manager */
+        public int pending;
+
+        /** Number of requests currently handled by the download manager or download engine */
+        public int active;
+
+        /** Number of downloads completed since the queue was last empty */
+        public int completed;
+
+        /** Total size of downloads completed since the queue was last empty */
+        public long completedBytes;
+
+        /** Bytes downloaded so far of the active downloads */
+        public long activeBytesDownloaded;
+
+        /** Total size of the active downloads, where known */
+        public long activeBytesTotal;
+
+        /** Number of active downloads, which size is not yet known */
+        public int activeSizeUnknown;
+
+        /** Estimated transfer rate */
+        public double bytesPerSecond;
+
+        public boolean isEmpty() {
+            return pending == 0 && active == 0;
+        }
+
+        /**
+         * @return Estimated number of seconds until the queue is empty, or -1 if it can't be
+         *     estimated yet.
+         */
+        public long getEtaSeconds() {
+            if (bytesPerSecond <= 0) {
+                return -1;
+            }
+            int knownSizeActive = active - activeSizeUnknown;
+            long averageSize;
+            if (completed > 0) {
+                averageSize = completedBytes / completed;
+            } else if (knownSizeActive > 0) {
+                averageSize = activeBytesTotal / knownSizeActive;
+            } else {
+                return -1;
+            }
+            long remaining = (activeBytesTotal - activeBytesDownloaded)
+                    + (long) (activeSizeUnknown + pending) * averageSize;
+            return (long) (Math.max(0, remaining) / bytesPerSecond);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "DownloadProgress{" +
+                    "pending=" + pending +
+                    ", active=" + active +
+                    ", completed=" + completed +
+                    ", activeBytesDownloaded=" + activeBytesDownloaded +
+                    ", activeBytesTotal=" + activeBytesTotal +
+                    ", bytesPerSecond=" + bytesPerSecond +
+                    '}';
+        }
+    }
+}
@@ -70,7 +70,7 @@ public class DownloadStatusReceiver extends BroadcastReceiver {
     }
 
     private void handleDownloadComplete(Context context, long id) {
-        final DownloadDatabase downloadDatabase = new DownloadDatabase(context);
+        final DownloadScheduler downloadScheduler = DownloadScheduler.getInstance(context);
         final DownloadManager downloadManager = (DownloadManager) context.getSystemService(Context.DOWNLOAD_SERVICE);
         final DownloadManager.Query query = new DownloadManager.Query().setFilterById(id);
 
@@ -86,12 +86,13 @@ public class DownloadStatusReceiver extends BroadcastReceiver {
             int downloadId = cursor.getInt(cursor.getColumnIndex(DownloadManager.COLUMN_ID));
             int status = cursor.getInt(cursor.getColumnIndex(DownloadManager.COLUMN_STATUS));
             int reason = cursor.getInt(cursor.getColumnIndex(DownloadManager.COLUMN_REASON));
+            long bytes = cursor.getLong(cursor.getColumnIndex(DownloadManager.COLUMN_BYTES_DOWNLOADED_SO_FAR));
             String title = cursor.getString(cursor.getColumnIndex(DownloadManager.COLUMN_TITLE));
             String url = cursor.getString(cursor.getColumnIndex(DownloadManager.COLUMN_URI));
             Uri local_url = Uri.parse(cursor.getString(cursor.getColumnIndex(DownloadManager.COLUMN_LOCAL_URI)));
             Log.i(TAG, "download complete(" + title + "): " + id);
 
-            final DownloadDatabase.DownloadEntry downloadEntry = downloadDatabase.popDownloadEntry(context, downloadId);
+            final DownloadDatabase.DownloadEntry downloadEntry = downloadScheduler.onDownloadComplete(downloadId, bytes);
             if (downloadEntry == null) {
                 // TODO remote logging
                 Log.e(TAG, "Download database does not have an entry for " + format(status, reason, title, url, local_url));
@@ -103,16 +104,23 @@ public class DownloadStatusReceiver extends BroadcastReceiver {
                 return;
             }
 
-            try {
-                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
-                    addToMediaStorage(context, downloadEntry, local_url);
-                } else {
-                    addToMediaLibrary(context, downloadEntry, local_url);
-                }
-            } catch (IOException e) {
-                // TODO remote logging
-                Log.e(TAG, "IOException moving downloaded file", e);
+            importDownload(context, downloadEntry, local_url);
+        }
+    }
+
+    /**
+     * Move a downloaded file to its final location in the shared music collection.
+     */
+    static void importDownload(Context context, DownloadDatabase.DownloadEntry downloadEntry, Uri local_url) {
+        try {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                addToMediaStorage(context, downloadEntry, local_url);
+            } else {
+                addToMediaLibrary(context, downloadEntry, local_url);
             }
+        } catch (IOException e) {
+            // TODO remote logging
+            Log.e(TAG, "IOException moving downloaded file", e);
         }
     }
 
@@ -120,7 +128,7 @@ public class DownloadStatusReceiver extends BroadcastReceiver {
         return "{status:" + status + ", reason:" + reason + ", title:'" + title + "', url:'" + url + "', local url:'" + local_url + "'}";
     }
 
-    private void addToMediaStorage(Context context, DownloadDatabase.DownloadEntry downloadEntry, Uri local_url) throws IOException {
+    private static void addToMediaStorage(Context context, DownloadDatabase.DownloadEntry downloadEntry, Uri local_url) throws IOException {
         File destinationFile = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_MUSIC), downloadEntry.fileName);
         File destFolder = destinationFile.getParentFile();
 
@@ -140,7 +148,7 @@ public class DownloadStatusReceiver extends BroadcastReceiver {
     }
 
     @RequiresApi(api = Build.VERSION_CODES.Q)
-    private void addToMediaLibrary(Context context, DownloadDatabase.DownloadEntry downloadEntry, Uri local_url) throws IOException {
+    private static void addToMediaLibrary(Context context, DownloadDatabase.DownloadEntry downloadEntry, Uri local_url) throws IOException {
         ContentResolver resolver = context.getContentResolver();
         Uri audioCollection = MediaStore.Audio.Media.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
         Uri uri = null;
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.download;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Download files over HTTP, as an alternative to the system download manager.
+ * <p>
+ * Data is written to a file next to the destination with the suffix {@link #PART_SUFFIX}. If a
+ * transfer fails, it is retried with an HTTP Range request from the end of the partial file, and
+ * a partial file left from an earlier session is resumed the same way. When the transfer is
+ * complete the size is checked against the size reported by the server (and against a MD5
+ * checksum if the request or the server supplies one), and the partial file is then renamed to
+ * the destination.
+ * <p>
+ * Up to <code>maxParallel</code> transfers run at a time. Transfer rate, retries, resumes and
+ * failures are recorded in {@link Metrics}.
+ * <p>
+ * A request can be cancelled with {@link #cancel(Request)}, which closes the connection of its
+ * transfer. The worker then removes the partial file.
+ * <p>
+ * This class uses only the standard java API, so it can be tested on the JVM.
+ */
+public class HttpDownloadEngine {
+    public static final String PART_SUFFIX = ".part";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+|\\*)(?:-(\\d+))?/(\\d+|\\*)");
+
+    private final ThreadPoolExecutor executor;
+    private final int maxRetries;
+    private final long retryDelayMillis;
+    private final Metrics metrics = new Metrics();
+
+    private int connectTimeout = 15_000;
+    private int readTimeout = 30_000;
+
+    /**
+     * @param maxParallel Maximum number of simultaneous transfers
+     * @param maxRetries Number of times a failed transfer is resumed before giving up
+     * @param retryDelayMillis Delay before the first retry, doubled for each subsequent retry
+     */
+    public HttpDownloadEngine(int maxParallel, int maxRetries, long retryDelayMillis) {
+        int poolSize = Math.max(1, maxParallel);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.maxRetries = maxRetries;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * Change the maximum number of simultaneous transfers. Transfers in progress are not
+     * affected, but no new ones start until fewer than <code>maxParallel</code> are running.
+     */
+    public void setMaxParallel(int maxParallel) {
+        int poolSize = Math.max(1, maxParallel);
+        // The core size must not exceed the maximum size at any time
+        if (poolSize > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        } else {
+            executor.setCorePoolSize(poolSize);
+            executor.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    public int getMaxParallel() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public void setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Queue the request for download. The listener is called from a worker thread when the
+     * download is completed.
+     */
+    public Future<File> enqueue(final Request request, final Listener listener) {
+        return executor.submit(() -> {
+            try {
+                File file = download(request);
+                listener.onComplete(request, file);
+                return file;
+            } catch (IOException e) {
+                listener.onFailure(request, e);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Stop all transfers. Partial files are kept, so the transfers can be resumed later.
+     */
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Cancel the supplied request. A transfer in progress is stopped by closing its connection.
+     * The worker deletes the partial file, and reports a {@link CancelledException} to the
+     * listener. A request which has not started yet fails the same way when its turn comes.
+     */
+    public void cancel(Request request) {
+        synchronized (request) {
+            request.cancelled = true;
+            // Wake the worker if it waits to retry
+            request.notifyAll();
+        }
+        HttpURLConnection connection = request.connection;
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Download the request on the calling thread.
+     *
+     * @return The verified and renamed destination file
+     * @throws VerificationException If the downloaded data didn't have the expected size or
+     *     checksum. The partial file is deleted in this case.
+     * @throws CancelledException If the request was cancelled. The partial file is deleted in
+     *     this case.
+     * @throws IOException If the transfer failed more than <code>maxRetries</code> times. The
+     *     partial file is kept in this case.
+     */
+    public File download(Request request) throws IOException {
+        File part = new File(request.destination.getPath() + PART_SUFFIX);
+        File parent = part.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create folder for '" + request.destination + "'");
+        }
+
+        int attempt = 0;
+        while (true) {
+            try {
+                checkCancelled(request);
+                TransferResult result = transfer(request, part);
+                // A closed connection may look like the end of a response of unknown length
+                checkCancelled(request);
+                verify(request, part, result);
+                moveToDestination(part, request.destination);
+                metrics.downloads.incrementAndGet();
+                return request.destination;
+            } catch (VerificationException e) {
+                //noinspection ResultOfMethodCallIgnored
+                part.delete();
+                metrics.failures.incrementAndGet();
+                throw e;
+            } catch (IOException e) {
+                if (request.cancelled) {
+                    //noinspection ResultOfMethodCallIgnored
+                    part.delete();
+                    throw (e instanceof CancelledException ? (CancelledException) e : new CancelledException(request, e));
+                }
+                if (++attempt > maxRetries || Thread.currentThread().isInterrupted()) {
+                    metrics.failures.incrementAndGet();
+                    throw e;
+                }
+                metrics.retries.incrementAndGet();
+                try {
+                    synchronized (request) {
+                        if (!request.cancelled) {
+                            request.wait(retryDelayMillis << (attempt - 1));
+                        }
+                    }
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void checkCancelled(Request request) throws CancelledException {
+        if (request.cancelled) {
+            throw new CancelledException(request, null);
+        }
+    }
+
+    private TransferResult transfer(Request request, File part) throws IOException {
+        long offset = part.exists() ? part.length() : 0;
+        HttpURLConnection connection = (HttpURLConnection) request.url.openConnection();
+        request.connection = connection;
+        try {
+            // Cancelled before the connection was published
+            checkCancelled(request);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            // We need the exact number of bytes on the wire for Range requests
+            connection.setRequestProperty("Accept-Encoding", "identity");
+            if (request.credentials != null) {
+                String authorization = Base64.getEncoder().encodeToString(request.credentials.getBytes(StandardCharsets.UTF_8));
+                connection.setRequestProperty("Authorization", "Basic " + authorization);
+            }
+            if (offset > 0) {
+                connection.setRequestProperty("Range", "bytes=" + offset + "-");
+            }
+
+            TransferResult result = new TransferResult();
+            int responseCode = connection.getResponseCode();
+            boolean append;
+            if (responseCode == 416 && offset > 0) {
+                // The partial file already holds the entire resource
+                long[] range = parseContentRange(connection.getHeaderField("Content-Range"));
+                result.total = (range != null ? range[2] : offset);
+                result.md5 = connection.getHeaderField("Content-MD5");
+                request.bytesDownloaded = offset;
+                return result;
+            } else if (responseCode == HttpURLConnection.HTTP_PARTIAL && offset > 0) {
+                long[] range = parseContentRange(connection.getHeaderField("Content-Range"));
+                if (range == null || range[0] != offset) {
+                    throw new IOException("Unexpected Content-Range: " + connection.getHeaderField("Content-Range"));
+                }
+                append = true;
+                result.total = (range[2] >= 0 ? range[2] : contentLength(connection, offset));
+                metrics.resumes.incrementAndGet();
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                // Server ignored the range request (or we didn't send one), so start over
+                append = false;
+                offset = 0;
+                result.total = contentLength(connection, 0);
+            } else {
+                throw new IOException("Unexpected HTTP response " + responseCode + " for " + request.url);
+            }
+            result.md5 = connection.getHeaderField("Content-MD5");
+            request.totalBytes = result.total;
+            request.bytesDownloaded = offset;
+
+            long start = System.nanoTime();
+            long transferred = 0;
+            try (InputStream in = connection.getInputStream();
+                 OutputStream out = new FileOutputStream(part, append)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                    transferred += count;
+                    request.bytesDownloaded = offset + transferred;
+                }
+            } finally {
+                metrics.bytes.addAndGet(transferred);
+                metrics.transferNanos.addAndGet(System.nanoTime() - start);
+            }
+            if (result.total >= 0 && offset + transferred < result.total) {
+                // Connection closed early; retry, and resume from where we got to
+                throw new IOException("Truncated transfer of " + request.url + ": got " + (offset + transferred) + " of " + result.total + " bytes");
+            }
+            return result;
+        } finally {
+            request.connection = null;
+            connection.disconnect();
+        }
+    }
+
+    private static long contentLength(HttpURLConnection connection, long offset) {
+        long length = connection.getContentLengthLong();
+        return (length >= 0 ? offset + length : -1);
+    }
+
+    /**
+     * Parse a Content-Range header value.
+     *
+     * @return {first byte, last byte, total size}, where unknown values are -1, or null if the
+     *     value could not be parsed.
+     */
+    static long[] parseContentRange(String contentRange) {
+        if (contentRange == null) {
+            return null;
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new long[]{
+                "*".equals(matcher.group(1)) ? -1 : Long.parseLong(matcher.group(1)),
+                matcher.group(2) == null ? -1 : Long.parseLong(matcher.group(2)),
+                "*".equals(matcher.group(3)) ? -1 : Long.parseLong(matcher.group(3))
+        };
+    }
+
+    private void verify(Request request, File part, TransferResult result) throws IOException {
+        long length = part.length();
+        if (result.total >= 0 && length != result.total) {
+            throw new VerificationException("Size mismatch for " + request.url + ": got " + length + ", expected " + result.total);
+        }
+        if (request.expectedSize >= 0 && length != request.expectedSize) {
+            throw new VerificationException("Size mismatch for " + request.url + ": got " + length + ", expected " + request.expectedSize);
+        }
+
+        String expectedMd5 = request.expectedMd5;
+        if (expectedMd5 == null && result.md5 != null) {
+            try {
+                expectedMd5 = toHex(Base64.getDecoder().decode(result.md5.trim()));
+            } catch (IllegalArgumentException e) {
+                // Malformed header, can't verify
+            }
+        }
+        if (expectedMd5 != null) {
+            String md5 = md5(part);
+            if (!md5.equalsIgnoreCase(expectedMd5)) {
+                metrics.checksumMismatches.incrementAndGet();
+                throw new VerificationException("Checksum mismatch for " + request.url + ": got " + md5 + ", expected " + expectedMd5);
+            }
+        }
+    }
+
+    private static void moveToDestination(File part, File destination) throws IOException {
+        if (destination.exists() && !destination.delete()) {
+            throw new IOException("Can't replace '" + destination + "'");
+        }
+        if (!part.renameTo(destination)) {
+            throw new IOException("Can't rename '" + part + "' to '" + destination + "'");
+        }
+    }
+
+    static String md5(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static class TransferResult {
+        long total = -1;
+        String md5;
+    }
+
+    /**
+     * A file to download.
+     */
+    public static class Request {
+        public final URL url;
+        public final File destination;
+
+        /** Credentials in the form "username:password" or null */
+        public String credentials;
+
+        /** Expected size if known by the caller, otherwise -1 */
+        public long expectedSize = -1;
+
+        /** Expected MD5 checksum as a hex string, if known by the caller */
+        public String expectedMd5;
+
+        /** Bytes in the partial file, updated while the transfer is in progress */
+        public volatile long bytesDownloaded;
+
+        /** Total size as reported by the server, or -1 if not known (yet) */
+        public volatile long totalBytes = -1;
+
+        /** Set by {@link HttpDownloadEngine#cancel(Request)} */
+        private volatile boolean cancelled;
+
+        /** Connection of the transfer in progress, so {@link HttpDownloadEngine#cancel(Request)} can close it */
+        private volatile HttpURLConnection connection;
+
+        public Request(URL url, File destination) {
+            this.url = url;
+            this.destination = destination;
+        }
+    }
+
+    public interface Listener {
+        void onComplete(Request request, File file);
+
+        void onFailure(Request request, IOException e);
+    }
+
+    /**
+     * Thrown when the downloaded data is not as expected.
+     */
+    public static class VerificationException extends IOException {
+        public VerificationException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Thrown when a request was cancelled, see {@link #cancel(Request)}.
+     */
+    public static class CancelledException extends IOException {
+        CancelledException(Request request, Throwable cause) {
+            super("Cancelled download of " + request.url, cause);
+        }
+    }
+
+    /**
+     * Counters for all transfers made by an engine.
+     */
+    public static class Metrics {
+        public final AtomicLong bytes = new AtomicLong();
+        public final AtomicLong transferNanos = new AtomicLong();
+        public final AtomicInteger downloads = new AtomicInteger();
+        public final AtomicInteger failures = new AtomicInteger();
+        public final AtomicInteger retries = new AtomicInteger();
+        public final AtomicInteger resumes = new AtomicInteger();
+        public final AtomicInteger checksumMismatches = new AtomicInteger();
+
+        /**
+         * @return Average transfer rate while data was actually transferred. When several
+         *     transfers run in parallel, this is the average rate per transfer.
+         */
+        public double getBytesPerSecond() {
+            long nanos = transferNanos.get();
+            return (nanos > 0 ? bytes.get() * 1e9 / nanos : 0);
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "bytes=" + bytes +
+                    ", bytesPerSecond=" + (long) getBytesPerSecond() +
+                    ", downloads=" + downloads +
+                    ", failures=" + failures +
+                    ", retries=" + retries +
+                    ", resumes=" + resumes +
+                    ", checksumMismatches=" + checksumMismatches +
+                    '}';
+        }
+    }
+}
@@ -142,6 +142,16 @@ public abstract class BaseListActivity<VH extends ItemViewHolder<T>, T extends I
 
     protected abstract ItemAdapter<VH, T> createItemListAdapter();
 
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <IT extends Item> void prepareItems(List<IT> items, Class<IT> dataType) {
+        // Don't create the adapter here, this is not the UI thread
+        ItemAdapter<VH, T> itemAdapter = this.itemAdapter;
+        if (itemAdapter != null) {
+            itemAdapter.prepareItems((List<T>) items);
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected <IT extends Item> void updateAdapter(int count, int start, List<IT> items, Class<IT> dataType) {
@@ -17,17 +17,23 @@
 package uk.org.ngo.squeezer.framework;
 
 import android.os.Parcelable;
-import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+import uk.org.ngo.squeezer.Preferences;
 import uk.org.ngo.squeezer.R;
 import uk.org.ngo.squeezer.model.Item;
 import uk.org.ngo.squeezer.util.Reflection;
@@ -58,7 +64,8 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
      */
     private int count;
 
-    private final SparseArray<T[]> pages = new SparseArray<>();
+    /** The items received so far. Positions which are not yet received are kept sparse. */
+    private final SparseItemList<T> items = new SparseItemList<>();
 
     /**
      * This is set if the list shall start with an empty item.
@@ -71,9 +78,19 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
     private final String loadingText;
 
     /**
-     * Number of elements to be fetched at a time
+     * The pages held in memory. When there are more than the budget allows, pages far from where
+     * the user has scrolled are forgotten, and ordered again when they are displayed.
      */
-    private final int pageSize;
+    private final ItemPages<T> pages;
+
+    /**
+     * Number of changes to the items, so a diff calculated in the background can be discarded if
+     * the items it was calculated from have changed.
+     */
+    private int modCount;
+
+    /** Diffs are calculated here, one at a time, so they are applied in order */
+    private static final Executor diffExecutor = Executors.newSingleThreadExecutor();
 
     /**
      * Creates a new adapter. Initially the item list is populated with items displaying the
@@ -87,8 +104,18 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
         this.activity = activity;
         mEmptyItem = emptyItem;
         loadingText = getActivity().getString(R.string.loading_text);
-        pageSize = getActivity().getResources().getInteger(R.integer.PageSize);
-        pages.clear();
+        int pageSize = getActivity().getResources().getInteger(R.integer.PageSize);
+        pages = new ItemPages<>(items, pageSize, new Preferences(activity).getListCacheSize(), emptyItem, new ItemPages.Callback() {
+            @Override
+            public void orderPage(int pagePosition) {
+                getActivity().maybeOrderPage(pagePosition);
+            }
+
+            @Override
+            public void onPageEvicted(int pagePosition) {
+                getActivity().onPageEvicted(pagePosition);
+            }
+        });
     }
 
     /**
@@ -98,15 +125,14 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
         this(activity, false);
     }
 
-    private int pageNumber(int position) {
-        return position / pageSize;
-    }
-
     /**
      * Removes all items from this adapter leaving it empty.
      */
     public void clear() {
         count = (mEmptyItem ? 1 : 0);
+        modCount++;
+        items.clear();
+        items.setSize(count);
         pages.clear();
         notifyDataSetChanged();
     }
@@ -145,37 +171,8 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
         return count;
     }
 
-    private T[] getPage(int position) {
-        int pageNumber = pageNumber(position);
-        T[] page = pages.get(pageNumber);
-        if (page == null) {
-            pages.put(pageNumber, page = arrayInstance(pageSize));
-        }
-        return page;
-    }
-
-    private void setItems(int start, List<T> items) {
-        T[] page = getPage(start);
-        int offset = start % pageSize;
-        for (T item : items) {
-            if (offset >= pageSize) {
-                start += offset;
-                page = getPage(start);
-                offset = 0;
-            }
-            page[offset++] = item;
-        }
-    }
-
     public T getItem(int position) {
-        T item = getPage(position)[position % pageSize];
-        if (item == null) {
-            if (mEmptyItem) {
-                position--;
-            }
-            getActivity().maybeOrderPage(pageNumber(position) * pageSize);
-        }
-        return item;
+        return pages.get(position);
     }
 
     @Override
@@ -203,25 +200,203 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
         int offset = (mEmptyItem ? 1 : 0);
         count += offset;
         start += offset;
-        boolean countUpdated = (count == 0 || count != getItemCount());
+        int previousCount = this.count;
+        modCount++;
+
+        pages.set(start - offset, items);
+        this.count = count;
+        this.items.setSize(count);
 
-        setItems(start, items);
-        if (countUpdated) {
-            this.count = count;
+        // Notify the precise ranges, so only the views of the received items are bound again
+        int changedEnd = Math.min(start + items.size(), Math.min(count, previousCount));
+        if (changedEnd > start) {
+            notifyItemRangeChanged(start, changedEnd - start);
+        }
+        if (count > previousCount) {
+            notifyItemRangeInserted(previousCount, count - previousCount);
+        } else if (count < previousCount) {
+            notifyItemRangeRemoved(count, previousCount - count);
+        }
+        if (count != previousCount || count == 0) {
             onCountUpdated();
-            notifyDataSetChanged();
-        } else {
-            notifyItemRangeChanged(start, items.size());
         }
     }
 
+    /**
+     * Called on a background thread with the items of an update, before they are passed to
+     * {@link #update(int, int, List)} on the main thread.
+     * <p>
+     * Override this to prepare what is needed to bind the items, so it is not done on the main
+     * thread. The default implementation is empty.
+     */
+    protected void prepareItems(List<T> items) {
+    }
+
+    /**
+     * Replace the items from the start position with new items, and notify the changes as the
+     * minimal set of inserts, removes, moves and changes, as computed by {@link DiffUtil}.
+     * <p>
+     * The new items are compared with the items currently at the same positions, so the items
+     * after the window keep their positions.
+     * <p>
+     * Unlike {@link #update(int, int, List)} the views of items which are the same are kept, and
+     * the scroll position is preserved.
+     *
+     * @param count Number of items as reported by SqueezeServer.
+     * @param start The start position of items in this update.
+     * @param items New items for the window
+     * @param itemCallback Decides if two items represent the same object, and if so if their
+     *     contents are equal
+     */
+    public void updateWindow(int count, int start, List<T> items, DiffUtil.ItemCallback<T> itemCallback) {
+        int windowStart = start + (mEmptyItem ? 1 : 0);
+        List<T> oldItems = window(windowStart, items.size());
+        int expectedModCount = modCount;
+        diffExecutor.execute(() -> {
+            DiffUtil.DiffResult diff = calculateDiff(oldItems, items, itemCallback);
+            getActivity().runOnUiThread(() -> {
+                if (modCount != expectedModCount) {
+                    // The items changed while the diff was calculated, so it must be done again
+                    applyWindow(count, start, items, calculateDiff(window(windowStart, items.size()), items, itemCallback));
+                } else {
+                    applyWindow(count, start, items, diff);
+                }
+            });
+        });
+    }
+
+    /**
+     * @return The items currently in the window of the supplied size from the start position
+     */
+    private List<T> window(int start, int size) {
+        List<T> window = new ArrayList<>();
+        for (int i = start; i < Math.min(start + size, this.count); i++) {
+            window.add(this.items.get(i));
+        }
+        return window;
+    }
+
+    private static <T> DiffUtil.DiffResult calculateDiff(List<T> oldItems, List<T> items, DiffUtil.ItemCallback<T> itemCallback) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return items.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                T oldItem = oldItems.get(oldItemPosition);
+                return oldItem != null && itemCallback.areItemsTheSame(oldItem, items.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return itemCallback.areContentsTheSame(oldItems.get(oldItemPosition), items.get(newItemPosition));
+            }
+        });
+    }
+
+    /**
+     * Apply the changes calculated by {@link #updateWindow(int, int, List, DiffUtil.ItemCallback)}
+     */
+    private void applyWindow(int count, int start, List<T> items, DiffUtil.DiffResult diff) {
+        int offset = (mEmptyItem ? 1 : 0);
+        count += offset;
+        start += offset;
+        int previousCount = this.count;
+        modCount++;
+
+        final int windowStart = start;
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                for (int i = 0; i < count; i++) {
+                    ItemAdapter.this.items.insert(windowStart + position, null);
+                }
+                ItemAdapter.this.count += count;
+                notifyItemRangeInserted(windowStart + position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                for (int i = 0; i < count; i++) {
+                    ItemAdapter.this.items.remove(windowStart + position);
+                }
+                ItemAdapter.this.count -= count;
+                notifyItemRangeRemoved(windowStart + position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                ItemAdapter.this.items.move(windowStart + fromPosition, windowStart + toPosition);
+                notifyItemMoved(windowStart + fromPosition, windowStart + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, @Nullable Object payload) {
+                notifyItemRangeChanged(windowStart + position, count, payload);
+            }
+        });
+        pages.set(start - offset, items);
+
+        if (count > this.count) {
+            notifyItemRangeInserted(this.count, count - this.count);
+        } else if (count < this.count) {
+            notifyItemRangeRemoved(count, this.count - count);
+        }
+        this.count = count;
+        this.items.setSize(count);
+        if (count != previousCount) {
+            onCountUpdated();
+        }
+    }
+
+    /**
+     * @return The runs of consecutive items received so far. Positions are as in
+     *     {@link #update(int, int, List)}, i.e. not counting the empty item.
+     */
+    public List<SparseItemList.Run<T>> getReceivedRuns() {
+        List<SparseItemList.Run<T>> runs = items.runs();
+        if (mEmptyItem) {
+            List<SparseItemList.Run<T>> shifted = new ArrayList<>(runs.size());
+            for (SparseItemList.Run<T> run : runs) {
+                SparseItemList.Run<T> shiftedRun = new SparseItemList.Run<>(run.start - 1);
+                shiftedRun.items.addAll(run.items);
+                shifted.add(shiftedRun);
+            }
+            return shifted;
+        }
+        return runs;
+    }
+
+    /**
+     * @return Number of items as reported by SqueezeServer, i.e. not counting the empty item
+     */
+    public int getServerCount() {
+        return count - (mEmptyItem ? 1 : 0);
+    }
+
+    /**
+     * Forget the items in the supplied range, so they are ordered again when they are displayed.
+     * Positions are as in {@link #update(int, int, List)}, i.e. not counting the empty item. The
+     * count is not changed, and views are not notified.
+     */
+    public void forgetItems(int start, int count) {
+        modCount++;
+        pages.forget(start, count);
+    }
+
     /**
      * Move the item at the specified position to the new position and notify the change.
      */
     public void moveItem(int fromPosition, int toPosition) {
-        T item = getItem(fromPosition);
-        remove(fromPosition);
-        insert(toPosition, item);
+        modCount++;
+        items.move(fromPosition, toPosition);
         notifyItemMoved(fromPosition, toPosition);
     }
 
@@ -229,7 +404,8 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
      * Remove the item at the specified position, update the count and notify the change.
      */
     public void removeItem(int position) {
-        remove(position);
+        modCount++;
+        items.remove(position);
         count--;
         onCountUpdated();
         notifyItemRemoved(position);
@@ -239,51 +415,13 @@ public abstract class ItemAdapter<VH extends ItemViewHolder<T>, T extends Item>
      * Insert an item at the specified position, update the count and notify the change.
      */
     public void insertItem(int position, T item) {
-        insert(position, item);
+        modCount++;
+        items.insert(position, item);
         count++;
         onCountUpdated();
         notifyItemInserted(position);
     }
 
-    private void remove(int position) {
-        T[] page = getPage(position);
-        int offset = position % pageSize;
-        while (position++ <= count) {
-            if (offset == pageSize - 1) {
-                T[] nextPage = getPage(position);
-                page[offset] = nextPage[0];
-                offset = 0;
-                page = nextPage;
-            } else {
-                page[offset] = page[offset+1];
-                offset++;
-            }
-        }
-
-    }
-
-    private void insert(int position, T item) {
-        int n = count;
-        T[] page = getPage(n);
-        int offset = n % pageSize;
-        while (n-- > position) {
-            if (offset == 0) {
-                T[] nextPage = getPage(n);
-                offset = pageSize - 1;
-                page[0] = nextPage[offset];
-                page = nextPage;
-            } else {
-                page[offset] = page[offset-1];
-                offset--;
-            }
-        }
-        page[offset] = item;
-    }
-
-    private T[] arrayInstance(int size) {
-        return getItemCreator().newArray(size);
-    }
-
     private Class<T> _itemClass;
 
     private Parcelable.Creator<T> _itemCreator;
@@ -29,10 +29,10 @@ import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
 import uk.org.ngo.squeezer.Preferences;
 import uk.org.ngo.squeezer.R;
@@ -67,21 +67,9 @@ public abstract class ItemListActivity extends BaseActivity {
     protected int mPageSize;
 
     /**
-     * The pages that have been requested from the server.
+     * The pages that have been requested and received from the server.
      */
-    private final Set<Integer> mOrderedPages = new HashSet<>();
-
-    /**
-     * The pages that have been received from the server
-     */
-    private Set<Integer> mReceivedPages;
-
-    /**
-     * Pages requested before the handshake completes. A stack on the assumption
-     * that once the service is bound the most recently requested pages should be ordered
-     * first.
-     */
-    private final Stack<Integer> mOrderedPagesBeforeHandshake = new Stack<>();
+    private PageOrders mPageOrders;
 
     /**
      * Progress bar (spinning) while items are loading.
@@ -104,7 +92,7 @@ public abstract class ItemListActivity extends BaseActivity {
     private RecyclerView listView;
 
     /**
-     * Tag for mReceivedPages in mRetainFragment.
+     * Tag for the received pages in mRetainFragment.
      */
     private static final String TAG_RECEIVED_PAGES = "mReceivedPages";
 
@@ -152,11 +140,12 @@ public abstract class ItemListActivity extends BaseActivity {
         mRetainFragment = RetainFragment.getInstance(TAG, getSupportFragmentManager());
         setContentView(getContentView());
 
-        mReceivedPages = getRetainedValue(TAG_RECEIVED_PAGES);
-        if (mReceivedPages == null) {
-            mReceivedPages = new HashSet<>();
-            putRetainedValue(TAG_RECEIVED_PAGES, mReceivedPages);
+        Set<Integer> receivedPages = getRetainedValue(TAG_RECEIVED_PAGES);
+        if (receivedPages == null) {
+            receivedPages = new HashSet<>();
+            putRetainedValue(TAG_RECEIVED_PAGES, receivedPages);
         }
+        mPageOrders = new PageOrders(mPageSize, receivedPages);
     }
 
     protected <T> T getRetainedValue(String key) {
@@ -241,20 +230,19 @@ public abstract class ItemListActivity extends BaseActivity {
      * @return True if the page needed to be ordered (even if the order failed), false otherwise.
      */
     public boolean maybeOrderPage(int pagePosition) {
-        if (!mListScrolling && !mReceivedPages.contains(pagePosition) && !mOrderedPages
-                .contains(pagePosition) && !mOrderedPagesBeforeHandshake.contains(pagePosition)) {
+        if (!mListScrolling && mPageOrders.needsOrder(pagePosition)) {
             ISqueezeService service = getService();
 
             // If the service connection hasn't happened yet then store the page
             // request where it can be used in mHandshakeComplete.
             if (service == null) {
-                mOrderedPagesBeforeHandshake.push(pagePosition);
+                mPageOrders.orderAfterHandshake(pagePosition);
             } else {
                 try {
                     orderPage(service, pagePosition);
-                    mOrderedPages.add(pagePosition);
+                    mPageOrders.ordered(pagePosition);
                 } catch (SqueezeService.HandshakeNotCompleteException e) {
-                    mOrderedPagesBeforeHandshake.push(pagePosition);
+                    mPageOrders.orderAfterHandshake(pagePosition);
                 }
             }
             return true;
@@ -285,8 +273,8 @@ public abstract class ItemListActivity extends BaseActivity {
     @MainThread
     public void onEventMainThread(HandshakeComplete event) {
         // Order any pages that were requested before the handshake complete.
-        while (!mOrderedPagesBeforeHandshake.empty()) {
-            maybeOrderPage(mOrderedPagesBeforeHandshake.pop());
+        for (int page : mPageOrders.takeOrdersBeforeHandshake()) {
+            maybeOrderPage(page);
         }
     }
 
@@ -321,7 +309,8 @@ public abstract class ItemListActivity extends BaseActivity {
      * Subclasses <b>must</b> call this method when receiving data from the server to ensure that
      * internal bookkeeping about pages that have/have not been ordered is kept consistent.
      * <p>
-     * This will call back to {@link #updateAdapter(int, int, List, Class)} on the UI thread
+     * This will call back to {@link #prepareItems(List, Class)} on the calling thread, and then to
+     * {@link #updateAdapter(int, int, List, Class)} on the UI thread
      *
      * @param count The total number of items known by the server.
      * @param start The start position of this update.
@@ -332,24 +321,31 @@ public abstract class ItemListActivity extends BaseActivity {
         int size = items.size();
         Log.d(TAG, "onItemsReceived(" + count + ", " + start + ", " + size + ")");
 
-        // If this doesn't add any items, then don't register the page as received
-        if (start < count && size != 0) {
-            // Because we might receive a page in chunks, we test if this is the end of a page
-            // before we register the page as received.
-            if (((start + size) % mPageSize == 0) || (start + size == count)) {
-                // Add this page of data to mReceivedPages and remove from mOrderedPages.
-                int pageStart = (start / mPageSize) * mPageSize;
-                mReceivedPages.add(pageStart);
-                mOrderedPages.remove(pageStart);
-            }
-        }
+        mPageOrders.received(count, start, size);
 
+        prepareItems(items, dataType);
         runOnUiThread(() -> {
             showContent();
             updateAdapter(count, start, items, dataType);
         });
     }
 
+    /**
+     * Call back from {@link #onItemsReceived(int, int, List, Class)} on the thread which received
+     * the items, before they are passed to {@link #updateAdapter(int, int, List, Class)} on the UI
+     * thread. The default implementation is empty.
+     */
+    protected <T extends Item> void prepareItems(List<T> items, Class<T> dataType) {
+    }
+
+    /**
+     * The adapter has forgotten the items of the page, so it must be ordered again when it is
+     * displayed.
+     */
+    void onPageEvicted(int pagePosition) {
+        mPageOrders.evicted(pagePosition);
+    }
+
     /**
      * Empties the variables that track which pages have been requested, and orders page 0.
      */
@@ -361,19 +357,30 @@ public abstract class ItemListActivity extends BaseActivity {
         }
     }
 
+    /**
+     * Forgets which pages have been received, and orders the supplied pages again.
+     * <p>
+     * Unlike {@link #clearAndReOrderItems()} the adapter keeps its items, so the new pages can be
+     * reconciled with what is shown.
+     */
+    protected void reOrderPages(Collection<Integer> pages) {
+        mPageOrders.clear();
+        for (int page : pages) {
+            maybeOrderPage(page);
+        }
+    }
+
     /** Empty the variables that track which pages have been requested. */
     public void clearItems() {
-        mOrderedPagesBeforeHandshake.clear();
-        mOrderedPages.clear();
-        mReceivedPages.clear();
+        mPageOrders.clear();
         clearItemAdapter();
     }
 
     /**
-     * Removes any outstanding requests from mOrderedPages.
+     * Removes any outstanding requests.
      */
     private void cancelOrders() {
-        mOrderedPages.clear();
+        mPageOrders.cancelOrders();
     }
 
     /**
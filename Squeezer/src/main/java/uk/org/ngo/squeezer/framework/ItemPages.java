@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import java.util.List;
+
+/**
+ * The items of an {@link ItemAdapter}, and the pages of them which are held in memory.
+ * <p>
+ * Positions of items are adapter positions, i.e. they count the empty item if the list starts
+ * with one. Pages are identified by their start position in the list from the server, as in
+ * {@link ItemListActivity#maybeOrderPage(int)}.
+ */
+class ItemPages<T> {
+    /**
+     * Orders the pages which are displayed but not held, and is told when a held page is
+     * forgotten.
+     */
+    interface Callback {
+        /** Order the page starting at the supplied position, unless it is received or ordered. */
+        void orderPage(int pagePosition);
+
+        /** The items of the page have been forgotten, so it must be ordered again. */
+        void onPageEvicted(int pagePosition);
+    }
+
+    private final SparseItemList<T> items;
+    private final PageWindow pageWindow;
+    private final int offset;
+    private final Callback callback;
+
+    /**
+     * @param items The items of the adapter
+     * @param pageSize Number of items per page
+     * @param maxItems Maximum number of items to hold
+     * @param emptyItem If set the list of items starts with an empty item
+     * @param callback Orders pages, and is told when pages are evicted
+     */
+    ItemPages(SparseItemList<T> items, int pageSize, int maxItems, boolean emptyItem, Callback callback) {
+        this.items = items;
+        this.pageWindow = new PageWindow(pageSize, maxItems);
+        this.offset = (emptyItem ? 1 : 0);
+        this.callback = callback;
+    }
+
+    /**
+     * @return The item at the supplied adapter position, or null if it is not held, in which case
+     *     its page is ordered
+     */
+    T get(int position) {
+        T item = items.get(position);
+        position -= offset;
+        if (item == null) {
+            callback.orderPage(pageWindow.pageStart(Math.max(position, 0)));
+        } else if (position >= 0) {
+            pageWindow.touch(position);
+        }
+        return item;
+    }
+
+    /**
+     * Store the supplied items from the start position in the list from the server, and forget
+     * the pages the page window evicts.
+     * <p>
+     * Items which arrive in bulk, rather than a page at a time, are not paged from the server,
+     * so they are not registered with the page window.
+     */
+    void set(int start, List<T> items) {
+        this.items.set(start + offset, items);
+        if (items.size() > pageWindow.pageSize()) {
+            return;
+        }
+        for (int page : pageWindow.add(start, items.size())) {
+            this.items.forget(page + offset, pageWindow.pageSize());
+            callback.onPageEvicted(page);
+        }
+    }
+
+    /**
+     * Forget the items from the start position in the list from the server, and the pages they
+     * are in, so they are ordered again when they are displayed.
+     */
+    void forget(int start, int count) {
+        items.forget(start + offset, count);
+        pageWindow.remove(start, count);
+        for (int page = pageWindow.pageStart(start); page < start + count; page += pageWindow.pageSize()) {
+            callback.onPageEvicted(page);
+        }
+    }
+
+    /**
+     * @return Number of pages held
+     */
+    int size() {
+        return pageWindow.size();
+    }
+
+    /**
+     * Forget all pages. The items must be cleared by the caller.
+     */
+    void clear() {
+        pageWindow.clear();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Stack;
+
+/**
+ * Keeps track of which pages of a list have been ordered from the server and which have been
+ * received, so each page is ordered once, and again if it is evicted.
+ * <p>
+ * Pages are identified by their start position in the list from the server.
+ */
+class PageOrders {
+    /**
+     * The number of items per page.
+     */
+    private final int pageSize;
+
+    /**
+     * The pages that have been requested from the server.
+     */
+    private final Set<Integer> orderedPages = new HashSet<>();
+
+    /**
+     * The pages that have been received from the server
+     */
+    private final Set<Integer> receivedPages;
+
+    /**
+     * Pages requested before the handshake completes. A stack on the assumption
+     * that once the service is bound the most recently requested pages should be ordered
+     * first.
+     */
+    private final Stack<Integer> orderedPagesBeforeHandshake = new Stack<>();
+
+    /**
+     * @param pageSize Number of items per page
+     * @param receivedPages The pages that have been received, which may be retained across the
+     *     activity lifecycle
+     */
+    PageOrders(int pageSize, Set<Integer> receivedPages) {
+        this.pageSize = pageSize;
+        this.receivedPages = receivedPages;
+    }
+
+    /**
+     * @return True if the page has not been received, nor ordered
+     */
+    boolean needsOrder(int pagePosition) {
+        return !receivedPages.contains(pagePosition) && !orderedPages.contains(pagePosition)
+                && !orderedPagesBeforeHandshake.contains(pagePosition);
+    }
+
+    /**
+     * Register that the page has been requested from the server.
+     */
+    void ordered(int pagePosition) {
+        orderedPages.add(pagePosition);
+    }
+
+    /**
+     * Register that the page shall be ordered when the handshake completes.
+     */
+    void orderAfterHandshake(int pagePosition) {
+        orderedPagesBeforeHandshake.push(pagePosition);
+    }
+
+    /**
+     * @return The pages requested before the handshake completed, most recent first. They are
+     *     no longer registered as ordered.
+     */
+    List<Integer> takeOrdersBeforeHandshake() {
+        List<Integer> pages = new ArrayList<>(orderedPagesBeforeHandshake.size());
+        while (!orderedPagesBeforeHandshake.empty()) {
+            pages.add(orderedPagesBeforeHandshake.pop());
+        }
+        return pages;
+    }
+
+    /**
+     * Register the items received from the server.
+     * <p>
+     * A page might be received in chunks, so it is registered as received when its last item is
+     * received.
+     *
+     * @param count The total number of items known by the server.
+     * @param start The start position of this update.
+     * @param size The number of items in this update
+     */
+    void received(int count, int start, int size) {
+        // If this doesn't add any items, then don't register the page as received
+        if (start < count && size != 0) {
+            if (((start + size) % pageSize == 0) || (start + size == count)) {
+                int pageStart = (start / pageSize) * pageSize;
+                receivedPages.add(pageStart);
+                orderedPages.remove(pageStart);
+            }
+        }
+    }
+
+    /**
+     * Register that the items of the page have been forgotten, so it must be ordered again when
+     * it is displayed.
+     */
+    void evicted(int pagePosition) {
+        receivedPages.remove(pagePosition);
+    }
+
+    /**
+     * Removes any outstanding requests.
+     */
+    void cancelOrders() {
+        orderedPages.clear();
+    }
+
+    /**
+     * Forget which pages have been ordered and received.
+     */
+    void clear() {
+        orderedPagesBeforeHandshake.clear();
+        orderedPages.clear();
+        receivedPages.clear();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Keeps track of the pages of a list which are held in memory, and decides which pages to evict
+ * when there are more than the budget allows.
+ * <p>
+ * Pages are evicted in least recently used order. A page is used when it is received and when
+ * one of its items is displayed, so the pages which are evicted are those furthest from where the
+ * user has been scrolling.
+ */
+class PageWindow {
+    /** Never keep fewer pages than this, so the pages on screen are not evicted */
+    static final int MIN_PAGES = 4;
+
+    private final int pageSize;
+    private final int maxPages;
+
+    /** Start positions of the pages held, in access order */
+    private final LinkedHashMap<Integer, Boolean> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The page most recently used, to make {@link #touch(int)} cheap while a page is displayed */
+    private int lastPage = -1;
+
+    /**
+     * @param pageSize Number of items per page
+     * @param maxItems Maximum number of items to hold
+     */
+    PageWindow(int pageSize, int maxItems) {
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(MIN_PAGES, maxItems / pageSize);
+    }
+
+    /**
+     * @return Number of items per page
+     */
+    int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return Start position of the page containing the supplied position
+     */
+    int pageStart(int position) {
+        return (position / pageSize) * pageSize;
+    }
+
+    /**
+     * Register that the items from start to start + count have been received.
+     *
+     * @return Start positions of the pages to evict
+     */
+    List<Integer> add(int start, int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        for (int page = pageStart(start); page < start + count; page += pageSize) {
+            pages.put(page, Boolean.TRUE);
+            lastPage = page;
+        }
+
+        List<Integer> evicted = new ArrayList<>();
+        for (Iterator<Integer> it = pages.keySet().iterator(); pages.size() > maxPages; ) {
+            evicted.add(it.next());
+            it.remove();
+        }
+        return evicted;
+    }
+
+    /**
+     * Register that an item at the supplied position is used.
+     */
+    void touch(int position) {
+        int page = pageStart(position);
+        if (page != lastPage) {
+            pages.get(page);
+            lastPage = page;
+        }
+    }
+
+    /**
+     * Register that the items from start to start + count have been forgotten.
+     */
+    void remove(int start, int count) {
+        for (int page = pageStart(start); page < start + count; page += pageSize) {
+            pages.remove(page);
+            if (page == lastPage) {
+                lastPage = -1;
+            }
+        }
+    }
+
+    /**
+     * @return Number of pages held
+     */
+    int size() {
+        return pages.size();
+    }
+
+    void clear() {
+        pages.clear();
+        lastPage = -1;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A list of items, where only some of the items are known, and items can be inserted and
+ * removed at any position.
+ * <p>
+ * The list is stored as a sequence of segments, each either a run of unknown items (which takes
+ * no storage regardless of length), or an array of up to {@link #SEGMENT_SIZE} known items. The
+ * segments are kept in an implicit treap (a randomized balanced binary tree, ordered by position,
+ * where each node knows the number of positions in its subtree). So get, set, insert and remove
+ * at a position take O(log n) time, plus O(SEGMENT_SIZE) to copy within a segment.
+ * <p>
+ * Adjacent segments which fit in one are joined after modifications, so the list doesn't get
+ * fragmented by repeated inserts and removes.
+ *
+ * @param <T> Type of the items
+ */
+public class SparseItemList<T> {
+    /** Maximum number of items in a segment of known items */
+    static final int SEGMENT_SIZE = 64;
+
+    private final Random random = new Random();
+
+    /** A run of consecutive known items */
+    public static class Run<T> {
+        public final int start;
+        public final List<T> items = new ArrayList<>();
+
+        Run(int start) {
+            this.start = start;
+        }
+    }
+
+    private Node root;
+
+    private static class Node {
+        final int priority;
+        Node left;
+        Node right;
+
+        /** Items of this segment, or null if this is a run of unknown items */
+        Object[] items;
+
+        /** Number of positions in this segment */
+        int length;
+
+        /** Number of positions in this subtree */
+        int size;
+
+        Node(int priority, Object[] items, int length) {
+            this.priority = priority;
+            this.items = items;
+            this.length = length;
+            this.size = length;
+        }
+
+        boolean isHole() {
+            return items == null;
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = size(node.left) + node.length + size(node.right);
+        return node;
+    }
+
+    /**
+     * @return Number of positions in the list, known or not
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Remove all items, leaving an empty list.
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Change the number of positions in the list. New positions are unknown, and items beyond the
+     * new size are discarded.
+     */
+    public void setSize(int size) {
+        int current = size();
+        if (size > current) {
+            root = join(root, hole(size - current));
+        } else if (size < current) {
+            root = split(root, size)[0];
+        }
+    }
+
+    /**
+     * @return The item at the supplied position, or null if it is unknown or outside the list
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int position) {
+        if (position < 0 || position >= size()) {
+            return null;
+        }
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position < leftSize + node.length) {
+                return node.isHole() ? null : (T) node.items[position - leftSize];
+            } else {
+                position -= leftSize + node.length;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Store the supplied items from the start position, replacing whatever is there. The list
+     * grows if necessary.
+     */
+    public void set(int start, List<? extends T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (start + items.size() > size()) {
+            setSize(start + items.size());
+        }
+        Node[] head = split(root, start);
+        Node[] tail = split(head[1], items.size());
+        Node middle = null;
+        for (int i = 0; i < items.size(); i += SEGMENT_SIZE) {
+            int length = Math.min(SEGMENT_SIZE, items.size() - i);
+            middle = merge(middle, segment(items.subList(i, i + length).toArray(), length));
+        }
+        root = join(join(head[0], middle), tail[1]);
+    }
+
+    /**
+     * Make the positions from start to start + count unknown, without changing the size.
+     */
+    public void forget(int start, int count) {
+        int end = Math.min(start + count, size());
+        start = Math.max(start, 0);
+        if (start >= end) {
+            return;
+        }
+        Node[] head = split(root, start);
+        Node[] tail = split(head[1], end - start);
+        root = join(join(head[0], hole(end - start)), tail[1]);
+    }
+
+    /**
+     * Insert an item at the supplied position, moving the following items one position up.
+     */
+    public void insert(int position, T item) {
+        if (position > size()) {
+            setSize(position);
+        }
+        Node[] parts = split(root, position);
+        root = join(join(parts[0], segment(new Object[]{item}, 1)), parts[1]);
+    }
+
+    /**
+     * Remove the item at the supplied position, moving the following items one position down.
+     */
+    public void remove(int position) {
+        if (position < 0 || position >= size()) {
+            return;
+        }
+        Node[] head = split(root, position);
+        Node[] tail = split(head[1], 1);
+        root = join(head[0], tail[1]);
+    }
+
+    /**
+     * Move the item at the supplied position to a new position.
+     */
+    public void move(int fromPosition, int toPosition) {
+        T item = get(fromPosition);
+        remove(fromPosition);
+        if (item != null) {
+            insert(toPosition, item);
+        } else {
+            Node[] parts = split(root, toPosition);
+            root = join(join(parts[0], hole(1)), parts[1]);
+        }
+    }
+
+    /**
+     * @return The runs of consecutive known items, in order
+     */
+    public List<Run<T>> runs() {
+        List<Run<T>> runs = new ArrayList<>();
+        collectRuns(root, 0, runs);
+        return runs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int collectRuns(Node node, int position, List<Run<T>> runs) {
+        if (node == null) {
+            return position;
+        }
+        position = collectRuns(node.left, position, runs);
+        if (!node.isHole()) {
+            Run<T> run = (runs.isEmpty() ? null : runs.get(runs.size() - 1));
+            if (run == null || run.start + run.items.size() != position) {
+                runs.add(run = new Run<>(position));
+            }
+            for (int i = 0; i < node.length; i++) {
+                run.items.add((T) node.items[i]);
+            }
+        }
+        return collectRuns(node.right, position + node.length, runs);
+    }
+
+    private Node hole(int length) {
+        return new Node(random.nextInt(), null, length);
+    }
+
+    private Node segment(Object[] items, int length) {
+        Object[] segment = new Object[SEGMENT_SIZE];
+        System.arraycopy(items, 0, segment, 0, length);
+        return new Node(random.nextInt(), segment, length);
+    }
+
+    /**
+     * Split the tree into a tree with the first <code>position</code> positions, and a tree
+     * with the rest. A segment containing the split position is cut in two.
+     */
+    private Node[] split(Node node, int position) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int leftSize = size(node.left);
+        if (position <= leftSize) {
+            Node[] parts = split(node.left, position);
+            node.left = parts[1];
+            parts[1] = update(node);
+            return parts;
+        }
+        if (position >= leftSize + node.length) {
+            Node[] parts = split(node.right, position - leftSize - node.length);
+            node.right = parts[0];
+            parts[0] = update(node);
+            return parts;
+        }
+
+        // Cut the segment of this node
+        int offset = position - leftSize;
+        Node rest;
+        if (node.isHole()) {
+            rest = hole(node.length - offset);
+        } else {
+            Object[] items = new Object[SEGMENT_SIZE];
+            System.arraycopy(node.items, offset, items, 0, node.length - offset);
+            Arrays.fill(node.items, offset, node.length, null);
+            rest = new Node(random.nextInt(), items, node.length - offset);
+        }
+        node.length = offset;
+        Node right = merge(rest, node.right);
+        node.right = null;
+        return new Node[]{update(node), right};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        } else {
+            right.left = merge(left, right.left);
+            return update(right);
+        }
+    }
+
+    /**
+     * Merge the trees, and join the last segment of the left tree with the first segment of the
+     * right tree if they are both unknown, or if they fit in one segment.
+     */
+    private Node join(Node left, Node right) {
+        if (left == null || right == null) {
+            return merge(left, right);
+        }
+        Node last = left;
+        while (last.right != null) {
+            last = last.right;
+        }
+        Node first = right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        boolean holes = last.isHole() && first.isHole();
+        boolean fit = !last.isHole() && !first.isHole() && last.length + first.length <= SEGMENT_SIZE;
+        if (!(holes || fit)) {
+            return merge(left, right);
+        }
+
+        // Extend the last segment of the left tree, and remove the first segment of the right
+        if (fit) {
+            System.arraycopy(first.items, 0, last.items, last.length, first.length);
+        }
+        int length = first.length;
+        right = split(right, length)[1];
+        last.length += length;
+        updatePath(left, last);
+        return merge(left, right);
+    }
+
+    /**
+     * Update the sizes on the path from the root to a descendant whose length has changed.
+     */
+    private static void updatePath(Node root, Node descendant) {
+        if (root != descendant) {
+            updatePath(root.right, descendant);
+        }
+        update(root);
+    }
+}
@@ -145,7 +145,7 @@ public class ViewParamItemView<T extends Item> extends ItemViewHolder<T> {
      */
     @Override
     public void bindView(T item) {
-        text1.setText(item.getName());
+        setPrimaryText(item.getName());
 
         if (contextMenuButton!= null) {
             contextMenuButton.setOnClickListener(v -> showContextMenu(item));
@@ -156,6 +156,16 @@ public class ViewParamItemView<T extends Item> extends ItemViewHolder<T> {
         }
     }
 
+    /**
+     * Sets the text of {@link #text1} for a bound item.
+     * <p>
+     * The default implementation just sets the text, subclasses may override this to use texts
+     * which are laid out in advance.
+     */
+    protected void setPrimaryText(CharSequence text) {
+        text1.setText(text);
+    }
+
     /**
      * Binds the text to {@link #text1}.
      */
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.homescreenwidgets;
+
+import uk.org.ngo.squeezer.service.JsonRpcClient;
+
+/**
+ * Runs the action of a button directly on the server, without waiting for the service to connect.
+ */
+@FunctionalInterface
+interface QuickCommandHandler {
+    void run(JsonRpcClient client, String playerId) throws Exception;
+}
@@ -12,6 +12,7 @@ import uk.org.ngo.squeezer.itemlist.CurrentPlaylistActivity;
 import uk.org.ngo.squeezer.itemlist.HomeActivity;
 import uk.org.ngo.squeezer.service.IRButton;
 import uk.org.ngo.squeezer.service.ISqueezeService;
+import uk.org.ngo.squeezer.service.JsonRpcClient;
 
 public enum RemoteButton {
     OPEN((context, service, player) -> {
@@ -35,16 +36,16 @@ public enum RemoteButton {
                 Settings.Global.ANIMATOR_DURATION_SCALE, 1.0f);
         handler.postDelayed(() -> CurrentPlaylistActivity.show(context), (long) (300 * animationDelay));
     }, R.string.remote_openCurrentPlaylist, R.drawable.ic_action_playlist),
-    POWER(ISqueezeService::togglePower, R.string.remote_powerDescription, R.drawable.ic_action_power_settings_new),
-    NEXT(ISqueezeService::nextTrack, R.string.remote_nextDescription, R.drawable.ic_action_next),
-    PREVIOUS(ISqueezeService::previousTrack, R.string.remote_previousDescription, R.drawable.ic_action_previous),
-    PLAY(ISqueezeService::togglePausePlay, R.string.remote_pausePlayDescription, R.drawable.ic_action_play),
-    PRESET_1((context, service, player) -> service.button(player, IRButton.playPreset_1), R.string.remote_preset1Description, "1"),
-    PRESET_2((context, service, player) -> service.button(player, IRButton.playPreset_2), R.string.remote_preset2Description, "2"),
-    PRESET_3((context, service, player) -> service.button(player, IRButton.playPreset_3), R.string.remote_preset3Description, "3"),
-    PRESET_4((context, service, player) -> service.button(player, IRButton.playPreset_4), R.string.remote_preset4Description, "4"),
-    PRESET_5((context, service, player) -> service.button(player, IRButton.playPreset_5), R.string.remote_preset5Description, "5"),
-    PRESET_6((context, service, player) -> service.button(player, IRButton.playPreset_6), R.string.remote_preset6Description, "6"),
+    POWER(ISqueezeService::togglePower, JsonRpcClient::togglePower, R.string.remote_powerDescription, R.drawable.ic_action_power_settings_new),
+    NEXT(ISqueezeService::nextTrack, JsonRpcClient::nextTrack, R.string.remote_nextDescription, R.drawable.ic_action_next),
+    PREVIOUS(ISqueezeService::previousTrack, JsonRpcClient::previousTrack, R.string.remote_previousDescription, R.drawable.ic_action_previous),
+    PLAY(ISqueezeService::togglePausePlay, JsonRpcClient::togglePausePlay, R.string.remote_pausePlayDescription, R.drawable.ic_action_play),
+    PRESET_1((context, service, player) -> service.button(player, IRButton.playPreset_1), (client, playerId) -> client.button(playerId, IRButton.playPreset_1), R.string.remote_preset1Description, "1"),
+    PRESET_2((context, service, player) -> service.button(player, IRButton.playPreset_2), (client, playerId) -> client.button(playerId, IRButton.playPreset_2), R.string.remote_preset2Description, "2"),
+    PRESET_3((context, service, player) -> service.button(player, IRButton.playPreset_3), (client, playerId) -> client.button(playerId, IRButton.playPreset_3), R.string.remote_preset3Description, "3"),
+    PRESET_4((context, service, player) -> service.button(player, IRButton.playPreset_4), (client, playerId) -> client.button(playerId, IRButton.playPreset_4), R.string.remote_preset4Description, "4"),
+    PRESET_5((context, service, player) -> service.button(player, IRButton.playPreset_5), (client, playerId) -> client.button(playerId, IRButton.playPreset_5), R.string.remote_preset5Description, "5"),
+    PRESET_6((context, service, player) -> service.button(player, IRButton.playPreset_6), (client, playerId) -> client.button(playerId, IRButton.playPreset_6), R.string.remote_preset6Description, "6"),
 
     // Must be last since it's truncated from user-visible lists
     UNKNOWN((context, service, player) -> {
@@ -54,6 +55,7 @@ public enum RemoteButton {
 
     public static final int UNKNOWN_IMAGE = -1;
     private ContextServicePlayerHandler handler;
+    private QuickCommandHandler quickHandler;
     private @DrawableRes
     int buttonImage = UNKNOWN_IMAGE;
 
@@ -81,10 +83,28 @@ public enum RemoteButton {
         this.description = description;
     }
 
+    RemoteButton(ServicePlayerHandler handler, QuickCommandHandler quickHandler, @StringRes int description, @DrawableRes int buttonImage) {
+        this(handler, description, buttonImage);
+        this.quickHandler = quickHandler;
+    }
+
+    RemoteButton(ContextServicePlayerHandler handler, QuickCommandHandler quickHandler, @StringRes int description, String buttonText) {
+        this(handler, description, buttonText);
+        this.quickHandler = quickHandler;
+    }
+
     public ContextServicePlayerHandler getHandler() {
         return handler;
     }
 
+    /**
+     * @return Handler which runs the action directly on the server, or null if the action needs
+     *     the service
+     */
+    public QuickCommandHandler getQuickHandler() {
+        return quickHandler;
+    }
+
     public int getButtonImage() {
         return buttonImage;
     }
@@ -13,7 +13,12 @@ import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import uk.org.ngo.squeezer.Preferences;
 import uk.org.ngo.squeezer.service.ISqueezeService;
+import uk.org.ngo.squeezer.service.JsonRpcClient;
 import uk.org.ngo.squeezer.service.SqueezeService;
 import uk.org.ngo.squeezer.service.event.PlayersChanged;
 
@@ -25,6 +30,9 @@ public class SqueezerHomeScreenWidget extends AppWidgetProvider {
 
     private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
 
+    /** Runs the quick commands in order, see {@link #runOnPlayer(Context, String, RemoteButton)} */
+    private static final Executor quickCommandExecutor = Executors.newSingleThreadExecutor();
+
     /**
      * Returns number of cells needed for given size of the widget.
      *
@@ -99,4 +107,51 @@ public class SqueezerHomeScreenWidget extends AppWidgetProvider {
         runOnService(context, service -> handler.run(context, service, service.getPlayer(playerId)));
     }
 
+    /**
+     * Run the action of the supplied button.
+     * <p>
+     * If the service isn't connected, and the button has a {@link RemoteButton#getQuickHandler()},
+     * the action is sent directly to the server while the service connects in the background. If
+     * the action certainly did not reach the server (see {@link JsonRpcClient.NotSentException}),
+     * it is run on the service once it is connected. After other errors the server may have run
+     * the action, so it is dropped rather than risk running f.e. a toggle twice.
+     */
+    protected void runOnPlayer(final Context context, final String playerId, final RemoteButton button) {
+        final QuickCommandHandler quickHandler = button.getQuickHandler();
+        IBinder binder = peekService(context, new Intent(context, SqueezeService.class));
+        boolean connected = (binder instanceof ISqueezeService && ((ISqueezeService) binder).isConnected());
+        if (quickHandler == null || connected) {
+            runOnPlayer(context, playerId, button.getHandler());
+            return;
+        }
+
+        final PendingResult pendingResult = goAsync();
+        quickCommandExecutor.execute(() -> {
+            Runnable bind;
+            try {
+                Preferences preferences = new Preferences(context);
+                quickHandler.run(new JsonRpcClient(preferences.getServerAddress(), preferences.getFadeInSecs()), playerId);
+                Log.i(TAG, "Performed " + button + " on " + playerId + " via JSON-RPC");
+                bind = () -> runOnService(context, service -> {});
+            } catch (JsonRpcClient.NotSentException e) {
+                Log.w(TAG, "Can't send " + button + " via JSON-RPC, waiting for the service: " + e);
+                bind = () -> runOnPlayer(context, playerId, button.getHandler());
+            } catch (Exception e) {
+                Log.e(TAG, "Dropped " + button + " on " + playerId + ", the server may have received it: " + e);
+                bind = () -> runOnService(context, service -> {});
+            }
+
+            // Keep the broadcast alive until the service is bound, so the process isn't killed
+            // before the service is started.
+            final Runnable finalBind = bind;
+            uiThreadHandler.post(() -> {
+                try {
+                    finalBind.run();
+                } finally {
+                    pendingResult.finish();
+                }
+            });
+        });
+    }
+
 }
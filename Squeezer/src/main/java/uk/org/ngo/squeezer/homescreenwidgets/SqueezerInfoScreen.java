@@ -42,7 +42,6 @@ public class SqueezerInfoScreen extends SqueezerHomeScreenWidget {
         int minWidth = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
         int minHeight = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_HEIGHT);
         RemoteViews views = getRemoteViews(context, minWidth, minHeight);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
 
         Log.d(TAG, "wiring up widget for player " + playerName + " with id " + playerId);
         views.setTextViewText(R.id.squeezerRemote_playerButton, playerName);
@@ -46,7 +46,6 @@ public class SqueezerRemoteControl extends SqueezerHomeScreenWidget {
 
         // Construct the RemoteViews object
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.squeezer_remote_control);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
 
         Log.d(TAG, "wiring up widget for player " + playerName + " with id " + playerId);
         views.setTextViewText(R.id.squeezerRemote_playerButton, playerName);
@@ -147,7 +146,7 @@ public class SqueezerRemoteControl extends SqueezerHomeScreenWidget {
 
         if (action.startsWith(ACTION_PREFIX)) {
             RemoteButton button = RemoteButton.valueOf(action.substring(ACTION_PREFIX.length()));
-            runOnPlayer(context, playerId, button.getHandler());
+            runOnPlayer(context, playerId, button);
         }
     }
 
@@ -25,14 +25,20 @@ import android.view.MenuItem;
 import android.view.View;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBar;
 import androidx.core.view.GestureDetectorCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import uk.org.ngo.squeezer.Preferences;
 import uk.org.ngo.squeezer.R;
@@ -41,7 +47,10 @@ import uk.org.ngo.squeezer.framework.BaseActivity;
 import uk.org.ngo.squeezer.framework.ItemAdapter;
 import uk.org.ngo.squeezer.itemlist.dialog.PlaylistClearDialog;
 import uk.org.ngo.squeezer.itemlist.dialog.PlaylistSaveDialog;
+import uk.org.ngo.squeezer.model.Action;
+import uk.org.ngo.squeezer.model.Item;
 import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.model.PlayerState;
 import uk.org.ngo.squeezer.service.ISqueezeService;
 import uk.org.ngo.squeezer.service.event.MusicChanged;
 import uk.org.ngo.squeezer.service.event.PlaylistChanged;
@@ -55,6 +64,33 @@ public class CurrentPlaylistActivity extends JiveItemListActivity {
     private int skipPlaylistChanged = 0;
     private int draggedIndex = -1;
 
+    /**
+     * Pages which are ordered again after the playlist has changed. When they arrive they are
+     * reconciled with the items shown, instead of replacing them.
+     */
+    private final Set<Integer> refreshPages = new HashSet<>();
+
+    /**
+     * Playlist items are the same if they are the same track. The contents are the same if they
+     * display the same.
+     */
+    private static final DiffUtil.ItemCallback<JiveItem> PLAYLIST_ITEM_CALLBACK = new DiffUtil.ItemCallback<JiveItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull JiveItem oldItem, @NonNull JiveItem newItem) {
+            return Objects.equals(trackId(oldItem), trackId(newItem)) && oldItem.getName().equals(newItem.getName());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull JiveItem oldItem, @NonNull JiveItem newItem) {
+            return Objects.equals(oldItem.text2, newItem.text2) && oldItem.getIcon().equals(newItem.getIcon());
+        }
+
+        private Object trackId(JiveItem item) {
+            Action moreAction = item.getMoreAction();
+            return (moreAction != null && moreAction.action != null) ? moreAction.action.params.get("track_id") : null;
+        }
+    };
+
     /**
      * Called when the activity is first created.
      */
@@ -222,9 +258,48 @@ public class CurrentPlaylistActivity extends JiveItemListActivity {
             return;
         }
         if (event.player.equals(getService().getActivePlayer())) {
+            refreshItems(event.player.getPlayerState());
+        }
+    }
+
+    /**
+     * Order the pages which are shown, and the page with the current song, again. When they
+     * arrive, they are compared with the items shown and only the differences are applied, see
+     * {@link #updateAdapter(int, int, List, Class)}. Other items are forgotten, and ordered when
+     * they are displayed.
+     * <p>
+     * This preserves the scroll position, and avoids ordering every page of a long playlist, when
+     * f.e. a single track is added.
+     */
+    private void refreshItems(PlayerState playerState) {
+        ItemAdapter<JiveItemView, JiveItem> adapter = getItemAdapter();
+        LinearLayoutManager layoutManager = (LinearLayoutManager) getListView().getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (adapter.getItemCount() == 0 || playerState.getCurrentPlaylistTracksNum() == 0 || first == RecyclerView.NO_POSITION) {
+            refreshPages.clear();
             clearAndReOrderItems();
             getItemAdapter().notifyDataSetChanged();
+            return;
+        }
+
+        Set<Integer> pages = new HashSet<>();
+        for (int page = (first / mPageSize) * mPageSize; page <= last; page += mPageSize) {
+            pages.add(page);
+        }
+        int currentIndex = playerState.getCurrentPlaylistIndex();
+        if (currentIndex >= 0 && currentIndex < adapter.getItemCount()) {
+            pages.add((currentIndex / mPageSize) * mPageSize);
         }
+
+        for (int page = 0; page < adapter.getItemCount(); page += mPageSize) {
+            if (!pages.contains(page)) {
+                adapter.forgetItems(page, mPageSize);
+            }
+        }
+        refreshPages.clear();
+        refreshPages.addAll(pages);
+        reOrderPages(pages);
     }
 
     public void skipPlaylistChanged() {
@@ -249,26 +324,40 @@ public class CurrentPlaylistActivity extends JiveItemListActivity {
                 count--;
             } else {
                 playlistItems.add(item);
-                if (item.moreAction == null) {
-                    item.moreAction = item.goAction;
-                    item.goAction = null;
+                if (item.getMoreAction() == null) {
+                    item.setMoreAction(item.getGoAction());
+                    item.setGoAction(null);
                 }
             }
         }
+        ISqueezeService service = getService();
+        if (service != null) {
+            setSelectedIndex(service.getPlayerState().getCurrentPlaylistIndex());
+        }
+
         super.onItemsReceived(count, start, parameters, playlistItems, dataType);
+    }
 
-        ISqueezeService service = getService();
-        if (service == null) {
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <IT extends Item> void updateAdapter(int count, int start, List<IT> items, Class<IT> dataType) {
+        int pageStart = (start / mPageSize) * mPageSize;
+        if (refreshPages.contains(pageStart)) {
+            if ((start + items.size()) % mPageSize == 0 || start + items.size() >= count) {
+                refreshPages.remove(pageStart);
+            }
+            getItemAdapter().updateWindow(count, start, (List<JiveItem>) items, PLAYLIST_ITEM_CALLBACK);
             return;
         }
 
-        int selectedIndex = service.getPlayerState().getCurrentPlaylistIndex();
-        setSelectedIndex(selectedIndex);
+        super.updateAdapter(count, start, items, dataType);
+
         // Initially position the list at the currently playing song.
         // Do it again once it has loaded because the newly displayed items
         // may push the current song outside the displayed area
-        if (start == 0 || (start <= selectedIndex && selectedIndex < start + playlistItems.size())) {
-            runOnUiThread(() -> getListView().scrollToPosition(selectedIndex));
+        int selectedIndex = getSelectedIndex();
+        if (start == 0 || (start <= selectedIndex && selectedIndex < start + items.size())) {
+            getListView().scrollToPosition(selectedIndex);
         }
     }
 
@@ -46,8 +46,7 @@ class CurrentPlaylistItemView extends JiveItemView {
 
     @Override
     public void bindView(JiveItem item) {
-        super.bindView(item);
-
+        // Set the text appearance first, so the texts can be bound with their measured layouts
         if (getAdapterPosition() == activity.getSelectedIndex()) {
             itemView.setBackgroundResource(getActivity().getAttributeValue(R.attr.currentTrackBackground));
             text1.setTextAppearance(getActivity(), R.style.SqueezerTextAppearance_ListItem_Primary_Highlight);
@@ -58,6 +57,8 @@ class CurrentPlaylistItemView extends JiveItemView {
             text2.setTextAppearance(getActivity(), R.style.SqueezerTextAppearance_ListItem_Secondary);
         }
 
+        super.bindView(item);
+
         itemView.setAlpha(getAdapterPosition() == activity.getDraggedIndex() ? 0 : 1);
 
         final GestureDetectorCompat detector = new GestureDetectorCompat(getActivity(), new OnSwipeListener() {
@@ -25,6 +25,9 @@ import android.graphics.PorterDuff;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
@@ -34,7 +37,9 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -47,8 +52,10 @@ import android.widget.TextView;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputLayout;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import uk.org.ngo.squeezer.NowPlayingActivity;
 import uk.org.ngo.squeezer.Preferences;
@@ -56,15 +63,21 @@ import uk.org.ngo.squeezer.R;
 import uk.org.ngo.squeezer.Util;
 import uk.org.ngo.squeezer.dialog.NetworkErrorDialogFragment;
 import uk.org.ngo.squeezer.framework.ItemAdapter;
+import uk.org.ngo.squeezer.framework.SparseItemList;
 import uk.org.ngo.squeezer.framework.ViewParamItemView;
 import uk.org.ngo.squeezer.model.Action;
 import uk.org.ngo.squeezer.framework.BaseListActivity;
+import uk.org.ngo.squeezer.model.Item;
+import uk.org.ngo.squeezer.model.ItemSnapshot;
 import uk.org.ngo.squeezer.model.JiveItem;
 import uk.org.ngo.squeezer.model.Window;
 import uk.org.ngo.squeezer.itemlist.dialog.ArtworkListLayout;
 import uk.org.ngo.squeezer.service.ISqueezeService;
 import uk.org.ngo.squeezer.service.event.HandshakeComplete;
 import uk.org.ngo.squeezer.util.ImageFetcher;
+import uk.org.ngo.squeezer.util.MenuScript;
+import uk.org.ngo.squeezer.util.SnapshotStore;
+import uk.org.ngo.squeezer.util.TextLayoutCache;
 import uk.org.ngo.squeezer.util.ThemeManager;
 import uk.org.ngo.squeezer.widget.DividerItemDecoration;
 import uk.org.ngo.squeezer.widget.GridAutofitLayoutManager;
@@ -77,9 +90,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveItem>
         implements NetworkErrorDialogFragment.NetworkErrorDialogListener {
+    private static final String TAG = JiveItemListActivity.class.getSimpleName();
     private static final int GO = 1;
     private static final String FINISH = "FINISH";
     private static final String RELOAD = "RELOAD";
+    private static final String TAG_SNAPSHOT = "snapshot";
+    private static final String TAG_SNAPSHOT_POSITION = "snapshotPosition";
+    private static final int TEXT_LAYOUT_CACHE_SIZE = 500;
+
+    /** Time to wait for more key strokes before searching the library mirror, in ms. */
+    private static final long SEARCH_DELAY = 250;
 
     private JiveItemViewLogic pluginViewDelegate;
     private boolean register;
@@ -88,6 +108,9 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
     Window window = new Window();
     private int selectedIndex;
 
+    /** Handle of the latest snapshot of the items, see {@link #onSaveInstanceState(Bundle)} */
+    private String snapshotHandle;
+
     private Menu viewMenu;
     private MenuItem menuItemLight;
     private MenuItem menuItemDark;
@@ -99,6 +122,27 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
 
     private ViewParamItemView<JiveItem> parentViewHolder;
 
+    /** Icons of items without artwork, by {@link JiveItem#getIconResource()} */
+    private final Map<Integer, Drawable.ConstantState> iconDrawables = new ConcurrentHashMap<>();
+
+    private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
+
+    /** The latest type-ahead query, searched when the input has been still for {@link #SEARCH_DELAY}. */
+    private String pendingSearch;
+
+    /** True if the list shows type-ahead results instead of the items of the parent. */
+    private boolean showingLibraryResults;
+
+    private final Runnable searchLibrary = () -> searchLibrary(pendingSearch);
+
+    /** The script which reorders the items of this menu, see {@link #getMenuScript()} */
+    private MenuScript menuScript;
+    private boolean menuScriptLoaded;
+
+    /** Measured names and secondary texts of the received items, see {@link #prepareItems(List, Class)} */
+    final TextLayoutCache primaryTexts = new TextLayoutCache(TEXT_LAYOUT_CACHE_SIZE);
+    final TextLayoutCache secondaryTexts = new TextLayoutCache(TEXT_LAYOUT_CACHE_SIZE);
+
     @Override
     protected ItemAdapter<JiveItemView, JiveItem> createItemListAdapter() {
         return new ItemAdapter<JiveItemView, JiveItem>(this) {
@@ -128,6 +172,10 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
         pluginViewDelegate = new JiveItemViewLogic(this);
         setParentViewHolder();
 
+        if (savedInstanceState != null && getItemAdapter().getItemCount() == 0) {
+            restoreSnapshot(savedInstanceState);
+        }
+
         // If initial setup is performed, use it
         if (savedInstanceState != null && savedInstanceState.containsKey("window")) {
             applyWindow((Window) savedInstanceState.getParcelable("window"));
@@ -182,6 +230,48 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
                     clearAndReOrderItems(inputText.getText().toString());
                 }
             });
+
+            if (action.getInputType() == Action.InputType.SEARCH) {
+                inputText.addTextChangedListener(new TextWatcher() {
+                    @Override
+                    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                    }
+
+                    @Override
+                    public void onTextChanged(CharSequence s, int start, int before, int count) {
+                    }
+
+                    @Override
+                    public void afterTextChanged(Editable s) {
+                        pendingSearch = s.toString();
+                        uiThreadHandler.removeCallbacks(searchLibrary);
+                        uiThreadHandler.postDelayed(searchLibrary, SEARCH_DELAY);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Show type-ahead results from the local library mirror while a search is entered. The search
+     * on the server is still performed when the input is submitted.
+     * <p>
+     * When the input is cleared the items of the parent are shown again.
+     */
+    private void searchLibrary(String query) {
+        ISqueezeService service = getService();
+        if (service == null) {
+            return;
+        }
+        if (TextUtils.isEmpty(query.trim())) {
+            if (showingLibraryResults) {
+                showingLibraryResults = false;
+                clearAndReOrderItems();
+            }
+        } else if (service.canSearchLibrary()) {
+            showingLibraryResults = true;
+            clearItems();
+            service.searchLibrary(query, this);
         }
     }
 
@@ -194,6 +284,69 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
         outState.putParcelable("window", window);
+
+        // The items are retained across configuration changes, but they are lost if the process
+        // is killed. Save them to a file, as they may be too large for the saved state.
+        if (!isChangingConfigurations()) {
+            saveSnapshot(outState);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (isFinishing()) {
+            new SnapshotStore(this).remove(snapshotHandle);
+        }
+    }
+
+    private void saveSnapshot(Bundle outState) {
+        ItemAdapter<JiveItemView, JiveItem> adapter = getItemAdapter();
+        List<ItemSnapshot.Run> runs = new ArrayList<>();
+        for (SparseItemList.Run<JiveItem> run : adapter.getReceivedRuns()) {
+            runs.add(new ItemSnapshot.Run(run.start, run.items));
+        }
+        if (runs.isEmpty()) {
+            return;
+        }
+        ItemSnapshot snapshot = new ItemSnapshot(adapter.getServerCount(), runs);
+
+        SnapshotStore store = new SnapshotStore(this);
+        store.remove(snapshotHandle);
+        snapshotHandle = store.put(snapshot::write);
+        outState.putString(TAG_SNAPSHOT, snapshotHandle);
+        LinearLayoutManager layoutManager = (LinearLayoutManager) getListView().getLayoutManager();
+        outState.putInt(TAG_SNAPSHOT_POSITION, layoutManager.findFirstVisibleItemPosition());
+    }
+
+    /**
+     * Show the items saved before the process was killed, until they are received from the
+     * server. The pages are not registered as received, so the visible pages are still ordered.
+     */
+    private void restoreSnapshot(Bundle savedInstanceState) {
+        snapshotHandle = savedInstanceState.getString(TAG_SNAPSHOT);
+        if (snapshotHandle == null) {
+            return;
+        }
+        int position = savedInstanceState.getInt(TAG_SNAPSHOT_POSITION);
+        new SnapshotStore(this).get(snapshotHandle, ItemSnapshot::read, snapshot -> {
+            if (snapshot != null) {
+                runOnUiThread(() -> applySnapshot(snapshot, position));
+            }
+        });
+    }
+
+    private void applySnapshot(ItemSnapshot snapshot, int position) {
+        if (isFinishing() || getItemAdapter().getItemCount() != 0) {
+            return;
+        }
+        showContent();
+        for (ItemSnapshot.Run run : snapshot.runs) {
+            updateAdapter(snapshot.count, run.start, run.items, JiveItem.class);
+        }
+        if (position > 0) {
+            getListView().scrollToPosition(position);
+        }
     }
 
     @Override
@@ -205,6 +358,7 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
     @Override
     public void onPause() {
         super.onPause();
+        uiThreadHandler.removeCallbacks(searchLibrary);
         pluginViewDelegate.resetContextMenu();
         pluginViewDelegate.resetContextMenu();
     }
@@ -302,6 +456,8 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
 
     private void clearAndReOrderItems(String inputString) {
         if (getService() != null && !TextUtils.isEmpty(inputString)) {
+            uiThreadHandler.removeCallbacks(searchLibrary);
+            showingLibraryResults = false;
             parent.inputValue = inputString;
             clearAndReOrderItems();
         }
@@ -333,10 +489,67 @@ public class JiveItemListActivity extends BaseListActivity<JiveItemView, JiveIte
     public void onEventMainThread(HandshakeComplete event) {
         super.onEventMainThread(event);
         if (parent != null && parent.hasSubItems()) {
-            getItemAdapter().update(parent.subItems.size(), 0, parent.subItems);
+            getItemAdapter().update(parent.getSubItems().size(), 0, parent.getSubItems());
         }
     }
 
+    /**
+     * Reorder the items with the script for this menu, if the user has supplied one, and create
+     * the icons of the items which don't have artwork, so they are ready when the items are bound.
+     * <p>
+     * The script is applied to each page of items as it is received.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <IT extends Item> void prepareItems(List<IT> items, Class<IT> dataType) {
+        MenuScript script = (dataType == JiveItem.class && !showingLibraryResults) ? getMenuScript() : null;
+        if (script != null) {
+            try {
+                script.reorder((List<JiveItem>) items);
+            } catch (MenuScript.ScriptException e) {
+                Log.w(TAG, script + " failed: " + e.getMessage());
+            }
+        }
+
+        super.prepareItems(items, dataType);
+        for (IT item : items) {
+            if (item instanceof JiveItem) {
+                primaryTexts.prepare(item.getName());
+                secondaryTexts.prepare(((JiveItem) item).text2);
+            }
+            if (item instanceof JiveItem && !((JiveItem) item).hasArtwork()) {
+                JiveItem jiveItem = (JiveItem) item;
+                if (!iconDrawables.containsKey(jiveItem.getIconResource())) {
+                    Drawable drawable = jiveItem.getIconDrawable(this);
+                    if (drawable != null && drawable.getConstantState() != null) {
+                        iconDrawables.put(jiveItem.getIconResource(), drawable.getConstantState());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load the script for this menu the first time it is needed, see
+     * {@link MenuScript#forMenu(android.content.Context, String)}. Called on the thread which
+     * receives the items.
+     */
+    private synchronized MenuScript getMenuScript() {
+        if (!menuScriptLoaded) {
+            menuScript = (parent != null ? MenuScript.forMenu(this, parent.getId()) : null);
+            menuScriptLoaded = true;
+        }
+        return menuScript;
+    }
+
+    /**
+     * @return The icon to show for an item without artwork
+     */
+    Drawable getIconDrawable(JiveItem item) {
+        Drawable.ConstantState constantState = iconDrawables.get(item.getIconResource());
+        return (constantState != null ? constantState.newDrawable(getResources()) : item.getIconDrawable(this));
+    }
+
     @Override
     public void onItemsReceived(int count, int start, final Map<String, Object> parameters, List<JiveItem> items, Class<JiveItem> dataType) {
         if (parameters.containsKey("goNow")) {
@@ -101,7 +101,7 @@ public class JiveItemView extends ViewParamItemView<JiveItem> {
         setItemViewParams((viewParamIcon() | VIEW_PARAM_TWO_LINE | viewParamContext(item)));
         super.bindView(item);
 
-        text2.setText(item.text2);
+        getActivity().secondaryTexts.setText(text2, item.text2);
 
         // If the item has an image, then fetch and display it
         if (item.hasArtwork()) {
@@ -113,7 +113,7 @@ public class JiveItemView extends ViewParamItemView<JiveItem> {
                     this::onIcon
             );
         } else {
-            icon.setImageDrawable(item.getIconDrawable(getActivity()));
+            icon.setImageDrawable(getActivity().getIconDrawable(item));
             onIcon();
         }
 
@@ -133,6 +133,10 @@ public class JiveItemView extends ViewParamItemView<JiveItem> {
         }
     }
 
+    @Override
+    protected void setPrimaryText(CharSequence text) {
+        getActivity().primaryTexts.setText(text1, text);
+    }
 
     private void bindSlider(final JiveItem item) {
         com.google.android.material.slider.Slider seekBar = itemView.findViewById(R.id.slider);
@@ -148,9 +152,9 @@ public class JiveItemView extends ViewParamItemView<JiveItem> {
 
             @Override
             public void onStopTrackingTouch(@NonNull com.google.android.material.slider.Slider seekBar) {
-                if (item.goAction != null) {
+                if (item.getGoAction() != null) {
                     item.inputValue = String.valueOf((int)seekBar.getValue());
-                    getActivity().action(item, item.goAction);
+                    getActivity().action(item, item.getGoAction());
                 }
             }
         });
@@ -183,19 +187,20 @@ public class JiveItemView extends ViewParamItemView<JiveItem> {
     }
 
     private void onItemSelected(JiveItem item) {
-        Action.JsonAction action = (item.goAction != null && item.goAction.action != null) ? item.goAction.action : null;
+        Action goAction = item.getGoAction();
+        Action.JsonAction action = (goAction != null && goAction.action != null) ? goAction.action : null;
         Action.NextWindow nextWindow = (action != null ? action.nextWindow : item.nextWindow);
         if (item.checkbox != null) {
             item.checkbox = !item.checkbox;
-            Action checkboxAction = item.checkboxActions.get(item.checkbox);
+            Action checkboxAction = item.getCheckboxAction(item.checkbox);
             if (checkboxAction != null) {
                 getActivity().action(item, checkboxAction);
             }
             contextMenuCheckbox.setChecked(item.checkbox);
         } else if (nextWindow != null && !item.hasInput()) {
-            getActivity().action(item, item.goAction);
+            getActivity().action(item, item.getGoAction());
         } else {
-            if (item.goAction != null)
+            if (item.getGoAction() != null)
                 logicDelegate.execGoAction(this, item, 0);
             else if (item.hasSubItems())
                 JiveItemListActivity.show(getActivity(), item);
@@ -26,11 +26,13 @@ import androidx.annotation.NonNull;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import uk.org.ngo.squeezer.Preferences;
 import uk.org.ngo.squeezer.framework.ItemListActivity;
 import uk.org.ngo.squeezer.itemlist.dialog.DefeatDestructiveTouchToPlayDialog;
 import uk.org.ngo.squeezer.itemlist.dialog.PlayTrackAlbumDialog;
@@ -41,6 +43,7 @@ import uk.org.ngo.squeezer.model.Item;
 import uk.org.ngo.squeezer.model.Player;
 import uk.org.ngo.squeezer.model.PlayerState;
 import uk.org.ngo.squeezer.service.ISqueezeService;
+import uk.org.ngo.squeezer.service.PlayerCache;
 import uk.org.ngo.squeezer.service.event.HandshakeComplete;
 import uk.org.ngo.squeezer.service.event.PlayerStateChanged;
 import uk.org.ngo.squeezer.service.event.PlayerVolume;
@@ -69,6 +72,15 @@ public class PlayerListActivity extends ItemListActivity implements
     private Player currentPlayer;
     private PlayerListAdapter.SyncGroup currentSyncGroup;
 
+    /**
+     * The players from the last session with the server, by ID. They are shown until the server
+     * has sent the status of the player, see {@link #withCachedPlayers(Collection)}.
+     */
+    private final Map<String, Player> mCachedPlayers = new HashMap<>();
+
+    /** The server has sent its players */
+    private boolean mHandshakeComplete;
+
     public static void show(Context context) {
         final Intent intent = new Intent(context, PlayerListActivity.class).addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
         context.startActivity(intent);
@@ -107,6 +119,15 @@ public class PlayerListActivity extends ItemListActivity implements
             currentPlayer = savedInstanceState.getParcelable(PlayerListActivity.CURRENT_PLAYER);
         }
        currentSyncGroup = getRetainedValue(CURRENT_SYNC_GROUP);
+
+        new PlayerCache(this).load(new Preferences(this).getServerAddress().address(), players -> runOnUiThread(() -> {
+            if (!isFinishing() && !players.isEmpty()) {
+                for (Player player : players) {
+                    mCachedPlayers.put(player.getId(), player);
+                }
+                updateAndExpandPlayerList();
+            }
+        }));
     }
 
     @Override
@@ -207,10 +228,41 @@ public class PlayerListActivity extends ItemListActivity implements
      * expanded.
      */
     protected void updateAndExpandPlayerList() {
-        updateSyncGroups(getService().getPlayers());
+        ISqueezeService service = getService();
+        Collection<Player> players = (service != null ? service.getPlayers() : new ArrayList<>());
+        updateSyncGroups(withCachedPlayers(players));
         adapter.setSyncGroups(mPlayerSyncGroups);
     }
 
+    /**
+     * Until the server has sent its players, show the cached players. After that the cached
+     * players stand in for connected players which haven't received a status yet.
+     */
+    private Collection<Player> withCachedPlayers(Collection<Player> players) {
+        if (mCachedPlayers.isEmpty()) {
+            return players;
+        }
+        if (!mHandshakeComplete) {
+            return mCachedPlayers.values();
+        }
+
+        List<Player> result = new ArrayList<>(players.size());
+        boolean stale = false;
+        for (Player player : players) {
+            Player cachedPlayer = mCachedPlayers.get(player.getId());
+            if (cachedPlayer != null && player.getConnected() && player.getPlayerState().getPlayStatus() == null) {
+                result.add(cachedPlayer);
+                stale = true;
+            } else {
+                result.add(player);
+            }
+        }
+        if (!stale) {
+            mCachedPlayers.clear();
+        }
+        return result;
+    }
+
     @Override
     protected void orderPage(@NonNull ISqueezeService service, int start) {
         // Do nothing -- the service has been tracking players from the time it
@@ -219,6 +271,7 @@ public class PlayerListActivity extends ItemListActivity implements
 
     public void onEventMainThread(HandshakeComplete event) {
         super.onEventMainThread(event);
+        mHandshakeComplete = true;
         updateAndExpandPlayerList();
     }
 
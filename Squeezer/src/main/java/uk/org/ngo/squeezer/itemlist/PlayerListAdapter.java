@@ -123,6 +123,9 @@ public class PlayerListAdapter extends RecyclerView.Adapter<PlayerListAdapter.Pl
     /** The last set of player sync groups that were provided. */
     private Multimap<String, Player> prevPlayerSyncGroups;
 
+    /** The number of cached players in the last set of player sync groups. */
+    private int prevStalePlayerCount;
+
     /** Indicates if the list of players has changed. */
     boolean mPlayersChanged;
 
@@ -154,29 +157,77 @@ public class PlayerListAdapter extends RecyclerView.Adapter<PlayerListAdapter.Pl
      */
     void setSyncGroups(Multimap<String, Player> playerSyncGroups) {
         // The players might not have changed (so there's no need to reset the contents of the
-        // adapter) but information about an individual player might have done.
-        if (prevPlayerSyncGroups != null && prevPlayerSyncGroups.equals(playerSyncGroups)) {
+        // adapter) but information about an individual player might have done. Cached players
+        // equal the live players which replace them, so they are counted separately.
+        int stalePlayerCount = countStalePlayers(playerSyncGroups);
+        if (prevPlayerSyncGroups != null && prevPlayerSyncGroups.equals(playerSyncGroups)
+                && prevStalePlayerCount == stalePlayerCount) {
             notifyDataSetChanged();
             return;
         }
 
         prevPlayerSyncGroups = HashMultimap.create(playerSyncGroups);
-        clear();
+        prevStalePlayerCount = stalePlayerCount;
 
-        // Get a list of slaves for every synchronization group
+        // Get a list of slaves for every synchronization group. Groups which still have the same
+        // players keep their adapter, so only new groups are sorted and named.
+        List<SyncGroup> syncGroups = new ArrayList<>();
         for (Collection<Player> slaves: playerSyncGroups.asMap().values()) {
-            // create a new synchronization group
-            SyncGroup syncGroup = new SyncGroup();
-            mPlayerCount += slaves.size();
-            // add the slaves (the players) to the synchronization group
-            syncGroup.update(slaves.size(), 0, new ArrayList<>(slaves));
-            // add synchronization group to the child adapters
-            childAdapters.add(syncGroup);
+            SyncGroup syncGroup = findSyncGroup(slaves);
+            if (syncGroup == null) {
+                // create a new synchronization group
+                syncGroup = new SyncGroup();
+                // add the slaves (the players) to the synchronization group
+                syncGroup.update(slaves.size(), 0, new ArrayList<>(slaves));
+            }
+            syncGroups.add(syncGroup);
         }
+
+        mPlayersChanged = true;
+        childAdapters.clear();
+        childAdapters.addAll(syncGroups);
+        mPlayerCount = playerSyncGroups.size();
         Collections.sort(childAdapters); // sort sync group list alphabetically by sync group name
         notifyDataSetChanged();
     }
 
+    /**
+     * @return The current adapter for the supplied players, or null if they are not a sync group
+     *     in the adapter. Players are compared by identity, as cached players equal the live
+     *     players which replace them.
+     */
+    private SyncGroup findSyncGroup(Collection<Player> players) {
+        for (SyncGroup syncGroup : childAdapters) {
+            if (syncGroup.getItemCount() == players.size() && containsAll(syncGroup, players)) {
+                return syncGroup;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsAll(SyncGroup syncGroup, Collection<Player> players) {
+        for (Player player : players) {
+            boolean found = false;
+            for (int i = 0; i < syncGroup.getItemCount() && !found; i++) {
+                found = (syncGroup.getItem(i) == player);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int countStalePlayers(Multimap<String, Player> playerSyncGroups) {
+        int count = 0;
+        for (Player player : playerSyncGroups.values()) {
+            if (player.getPlayerState().isStale()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Override
     public int getItemCount() {
         return childAdapters.size();
@@ -80,6 +80,10 @@ public class PlayerView extends PlayerBaseView {
         });
         volumeBar.setValue(playerState.getCurrentVolume());
 
+        // The last known state of the player, until the server sends its status
+        itemView.setAlpha(playerState.isStale() ? 0.5f : 1.0f);
+        volumeBar.setEnabled(!playerState.isStale());
+
         text2.setVisibility(playerState.getSleepDuration() > 0 ? View.VISIBLE : View.INVISIBLE);
         if (playerState.getSleepDuration() > 0) {
             text2.setText(activity.getString(R.string.SLEEPING_IN)
@@ -89,6 +93,10 @@ public class PlayerView extends PlayerBaseView {
 
     @Override
     public void showContextMenu(final Player item) {
+        if (item.getPlayerState().isStale()) {
+            return;
+        }
+
         PopupMenu popup = new PopupMenu(getActivity(), contextMenuButtonHolder);
         popup.inflate(R.menu.player_context_menu);
 
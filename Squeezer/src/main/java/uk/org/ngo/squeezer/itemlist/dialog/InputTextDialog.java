@@ -50,7 +50,7 @@ public class InputTextDialog extends BaseEditTextDialog {
     @Override
     protected boolean commit(String inputString) {
         item.inputValue = inputString;
-        activity.action(item, item.goAction, alreadyPopped);
+        activity.action(item, item.getGoAction(), alreadyPopped);
         return true;
     }
 
@@ -60,6 +60,6 @@ public class InputTimeDialog extends TimePickerDialog implements TimePickerDialo
     @Override
     public void onTimeSet(RadialPickerLayout view, int hourOfDay, int minute) {
         item.inputValue = String.valueOf((hourOfDay * 60 + minute) * 60);
-        activity.action(item, item.goAction, alreadyPopped);
+        activity.action(item, item.getGoAction(), alreadyPopped);
     }
 }
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.library;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import uk.org.ngo.squeezer.R;
+import uk.org.ngo.squeezer.Util;
+import uk.org.ngo.squeezer.itemlist.IServiceItemListCallback;
+import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.model.SlimCommand;
+
+/**
+ * Answer <code>browselibrary items</code> requests for artists, albums, tracks, genres and years
+ * from the {@link LibraryDatabase library mirror}.
+ * <p>
+ * The items are built from records of the same form as the server sends, i.e. actions in a base
+ * record with the item specific parameters in <code>commonParams</code>, so they behave exactly
+ * like items received from the server.
+ * <p>
+ * Requests which the mirror can't answer, f.e. because they are filtered by role or library, must
+ * be sent to the server. Use {@link #canBrowse(SlimCommand)} to check.
+ * <p>
+ * The mirror can also be searched for type-ahead results, see {@link #search(String, String, String, IServiceItemListCallback)}.
+ */
+public class LibraryBrowser {
+    private static final String TAG = LibraryBrowser.class.getSimpleName();
+
+    /** Modes of <code>browselibrary items</code> we can answer, and the table which holds the items */
+    private static final Map<String, LibraryDatabase.Table> MODES = ImmutableMap.of(
+            "genres", LibraryDatabase.Table.GENRES,
+            "years", LibraryDatabase.Table.YEARS,
+            "artists", LibraryDatabase.Table.ARTISTS,
+            "albums", LibraryDatabase.Table.ALBUMS,
+            "tracks", LibraryDatabase.Table.TRACKS
+    );
+
+    /** Parameters which filter the list */
+    private static final Set<String> FILTERS = ImmutableSet.of("artist_id", "album_id", "genre_id", "year");
+
+    /** Parameters which doesn't affect the items in the list */
+    private static final Set<String> NEUTRAL = ImmutableSet.of("mode", "menu", "useContextMenu");
+
+    /** Maximum number of search results of each type */
+    private static final int SEARCH_LIMIT = 15;
+
+    private final Context context;
+    private final LibraryDatabase database;
+
+    /** Search index, and the generation of the mirror it was built from */
+    private SearchIndex searchIndex;
+    private long searchIndexGeneration = -1;
+
+    public LibraryBrowser(@NonNull Context context) {
+        this(context, new LibraryDatabase(context));
+    }
+
+    @VisibleForTesting
+    public LibraryBrowser(@NonNull Context context, @NonNull LibraryDatabase database) {
+        this.context = context.getApplicationContext();
+        this.database = database;
+    }
+
+    /**
+     * @return True if the supplied action can be answered from the library mirror
+     */
+    public static boolean canBrowse(@NonNull SlimCommand action) {
+        if (!Arrays.asList("browselibrary", "items").equals(action.cmd)) {
+            return false;
+        }
+        if (!MODES.containsKey(Util.getString(action.params, "mode"))) {
+            return false;
+        }
+        for (Map.Entry<String, Object> param : action.params.entrySet()) {
+            if (!NEUTRAL.contains(param.getKey()) && !(FILTERS.contains(param.getKey()) && param.getValue() != null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fetch a page of items for the supplied action from the library of the supplied server, and
+     * deliver them to the callback, like a response from the server would be.
+     * <p>
+     * This accesses the database, so don't call it on the main thread.
+     */
+    public void browse(@NonNull String server, @NonNull SlimCommand action, int start, int pageSize, String urlPrefix, @NonNull IServiceItemListCallback<JiveItem> callback) {
+        LibraryDatabase.Table table = MODES.get(Util.getString(action.params, "mode"));
+        Map<String, String> filters = new TreeMap<>();
+        for (Map.Entry<String, Object> param : action.params.entrySet()) {
+            if (FILTERS.contains(param.getKey())) {
+                filters.put(param.getKey(), param.getValue().toString());
+            }
+        }
+
+        // A sync may complete, and remove the rows we are reading, while we read them. If so read
+        // again from the new rows.
+        int count;
+        List<Map<String, Object>> rows;
+        long generation = database.getGeneration(server);
+        while (true) {
+            count = database.count(table, generation, filters);
+            rows = database.list(table, generation, filters, start, pageSize);
+            long current = database.getGeneration(server);
+            if (current == generation) {
+                break;
+            }
+            generation = current;
+        }
+
+        Map<String, Object> base = base(table);
+        List<JiveItem> items = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> record = record(table, filters, row);
+            record.put("urlPrefix", urlPrefix);
+            record.put("base", base);
+            items.add(new JiveItem(record));
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("count", count);
+        if (table == LibraryDatabase.Table.ALBUMS) {
+            parameters.put("window", Collections.singletonMap("windowStyle", "icon_list"));
+        }
+        callback.onItemsReceived(count, start, parameters, items, JiveItem.class);
+    }
+
+    /**
+     * Search the names of artists, albums and tracks in the library of the supplied server, and
+     * deliver the matches to the callback, like a response from the server would be.
+     * <p>
+     * The search index is built on first use after each sync of the mirror, so the first search
+     * may take a while; the following ones take a few milliseconds.
+     * <p>
+     * This accesses the database, so don't call it on the main thread.
+     */
+    public void search(@NonNull String server, @NonNull String query, String urlPrefix, @NonNull IServiceItemListCallback<JiveItem> callback) {
+        Map<SearchIndex.Type, Map<String, Object>> bases = new EnumMap<>(SearchIndex.Type.class);
+        List<JiveItem> items = new ArrayList<>();
+        for (SearchIndex.Document document : getSearchIndex(server).search(query, SEARCH_LIMIT)) {
+            LibraryDatabase.Table table = table(document.type);
+            Map<String, Object> base = bases.get(document.type);
+            if (base == null) {
+                bases.put(document.type, base = base(table));
+            }
+            Map<String, Object> record = record(table, Collections.emptyMap(), row(document));
+            record.put("urlPrefix", urlPrefix);
+            record.put("base", base);
+            items.add(new JiveItem(record));
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("window", Collections.singletonMap("windowStyle", "icon_list"));
+        callback.onItemsReceived(items.size(), 0, parameters, items, JiveItem.class);
+    }
+
+    /**
+     * @return A search index for the current content of the library of the supplied server
+     */
+    private synchronized SearchIndex getSearchIndex(String server) {
+        long generation = database.getGeneration(server);
+        if (searchIndex == null || generation != searchIndexGeneration) {
+            long startTime = SystemClock.elapsedRealtime();
+            searchIndex = database.buildSearchIndex(generation);
+            searchIndexGeneration = generation;
+            Log.i(TAG, "Built search index of " + searchIndex.size() + " items in " + (SystemClock.elapsedRealtime() - startTime) + "ms");
+        }
+        return searchIndex;
+    }
+
+    private static LibraryDatabase.Table table(SearchIndex.Type type) {
+        switch (type) {
+            case ARTIST:
+                return LibraryDatabase.Table.ARTISTS;
+            case ALBUM:
+                return LibraryDatabase.Table.ALBUMS;
+            default:
+                return LibraryDatabase.Table.TRACKS;
+        }
+    }
+
+    /**
+     * @return A row like the ones from {@link LibraryDatabase#list(LibraryDatabase.Table, long, Map, int, int)}
+     *     for a search result.
+     */
+    private static Map<String, Object> row(SearchIndex.Document document) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", document.id);
+        switch (document.type) {
+            case ARTIST:
+                row.put("name", document.name);
+                break;
+            case ALBUM:
+                row.put("title", document.name);
+                row.put("artist", document.artist);
+                row.put("artwork_track_id", document.artworkTrackId);
+                break;
+            case TRACK:
+                row.put("title", document.name);
+                row.put("artist", document.artist);
+                row.put("album", document.album);
+                row.put("artwork_track_id", document.artworkTrackId);
+                break;
+        }
+        return row;
+    }
+
+    /**
+     * Build an item record for a row of the supplied table.
+     */
+    private Map<String, Object> record(LibraryDatabase.Table table, Map<String, String> filters, Map<String, Object> row) {
+        Map<String, Object> record = new HashMap<>();
+        Map<String, Object> commonParams = new HashMap<>();
+        switch (table) {
+            case GENRES:
+                record.put("text", row.get("name"));
+                commonParams.putAll(filters);
+                commonParams.put("genre_id", row.get("id"));
+                break;
+            case YEARS: {
+                long year = Util.getLong(row, "year");
+                record.put("text", year > 0 ? String.valueOf(year) : context.getString(R.string.unknown_year));
+                commonParams.putAll(filters);
+                commonParams.put("year", year);
+                break;
+            }
+            case ARTISTS:
+                record.put("text", row.get("name"));
+                commonParams.putAll(filters);
+                commonParams.remove("album_id");
+                commonParams.put("artist_id", row.get("id"));
+                break;
+            case ALBUMS:
+                record.put("text", text(Util.getString(row, "title"), Util.getString(row, "artist")));
+                record.put("icon-id", row.get("artwork_track_id"));
+                // The album artist may not be an artist of the tracks (f.e. compilations), so only
+                // filter tracks by the album
+                commonParams.put("album_id", row.get("id"));
+                break;
+            case TRACKS:
+                String artist = Util.getString(row, "artist");
+                String album = Util.getString(row, "album");
+                record.put("text", text(Util.getString(row, "title"),
+                        filters.containsKey("album_id") ? artist : text(artist, album, " - ")));
+                record.put("icon-id", row.get("artwork_track_id"));
+                record.put("trackType", "local");
+                commonParams.put("track_id", row.get("id"));
+                break;
+        }
+        record.put("commonParams", commonParams);
+        return record;
+    }
+
+    private static String text(String text1, String text2) {
+        return text(text1, text2, "\n");
+    }
+
+    private static String text(String text1, String text2, String separator) {
+        if (text2 == null || text2.isEmpty()) {
+            return text1 == null ? "" : text1;
+        }
+        if (text1 == null || text1.isEmpty()) {
+            return text2;
+        }
+        return text1 + separator + text2;
+    }
+
+    /**
+     * Build the base record with the actions for the items of the supplied table.
+     */
+    private static Map<String, Object> base(LibraryDatabase.Table table) {
+        Map<String, Object> actions = new HashMap<>();
+        if (table == LibraryDatabase.Table.TRACKS) {
+            actions.put("go", action(new String[]{"trackinfo", "items"}, "menu", "nowhere"));
+            Map<String, Object> more = action(new String[]{"trackinfo", "items"}, "menu", "menu");
+            more.put("window", Collections.singletonMap("isContextMenu", 1));
+            actions.put("more", more);
+        } else {
+            actions.put("go", action(new String[]{"browselibrary", "items"}, "mode", nextMode(table)));
+        }
+        Map<String, Object> play = action(new String[]{"playlistcontrol"}, "cmd", "load");
+        play.put("nextWindow", "nowPlaying");
+        actions.put("play", play);
+        actions.put("add", action(new String[]{"playlistcontrol"}, "cmd", "add"));
+        actions.put("add-hold", action(new String[]{"playlistcontrol"}, "cmd", "insert"));
+
+        Map<String, Object> base = new HashMap<>();
+        base.put("actions", actions);
+        return base;
+    }
+
+    private static Map<String, Object> action(String[] cmd, String param, String value) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("menu", 1);
+        params.put(param, value);
+
+        Map<String, Object> action = new HashMap<>();
+        action.put("cmd", cmd);
+        action.put("params", params);
+        action.put("itemsParams", "commonParams");
+        return action;
+    }
+
+    private static String nextMode(LibraryDatabase.Table table) {
+        switch (table) {
+            case GENRES:
+                return "artists";
+            case ARTISTS:
+            case YEARS:
+                return "albums";
+            default:
+                return "tracks";
+        }
+    }
+}
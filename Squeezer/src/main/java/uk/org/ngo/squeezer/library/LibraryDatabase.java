@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.library;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local mirror of the music library of a server.
+ * <p>
+ * The mirror holds the artists, albums, tracks, genres and years of the library. It is filled a
+ * page at a time by the library sync in the service, and read by {@link LibraryBrowser}.
+ * <p>
+ * The mirror can hold the libraries of several servers. Each sync writes its rows with a new
+ * generation number, which is part of the key of every row, so the rows of a sync in progress
+ * never replace the rows of a complete one. The state table records the generation of the last
+ * complete sync of each server, and every read is restricted to that generation. When a sync is
+ * complete (see {@link #finishSync(String, long, long)}) its generation replaces the previous one
+ * of the server, so the mirror can be browsed while it is updated, and an interrupted sync
+ * doesn't leave the mirror half empty.
+ * <p>
+ * Methods access the database, so don't call them on the main thread.
+ */
+public class LibraryDatabase {
+    private static final String TAG = LibraryDatabase.class.getSimpleName();
+
+    private static final String NAME = "library";
+    private static final int VERSION = 1;
+
+    /** Column with the number of the sync which wrote the row */
+    private static final String GENERATION = "generation";
+
+    /** Join the artist and album of a track, from the same generation */
+    private static final String TRACK_JOINS =
+            " LEFT JOIN artists ON artists.generation = tracks.generation AND artists.id = tracks.artist_id" +
+            " LEFT JOIN albums ON albums.generation = tracks.generation AND albums.id = tracks.album_id";
+
+    private static class STATE {
+        private static final String TABLE = "library_state";
+
+        private static class COLUMNS {
+            private static final String SERVER = "server";
+            private static final String LAST_SCAN = "last_scan";
+            private static final String GENERATION = "generation";
+            private static final String SYNC_GENERATION = "sync_generation";
+        }
+    }
+
+    /**
+     * The tables of the mirror, in the order they are synced.
+     * <p>
+     * Each table is filled from a server query. The columns of the table are filled from the
+     * fields of the query result at the same position.
+     */
+    public enum Table {
+        GENRES("genres", "id", "genre_id", "genres", "",
+                new String[]{"id TEXT", "name TEXT COLLATE NOCASE"},
+                new String[]{"id", "genre"},
+                new String[]{"name"}),
+        YEARS("years", "year", "year", "years", "",
+                new String[]{"year INTEGER"},
+                new String[]{"year"},
+                new String[0]),
+        ARTISTS("artists", "id", "artist_id", "artists", "",
+                new String[]{"id TEXT", "name TEXT COLLATE NOCASE"},
+                new String[]{"id", "artist"},
+                new String[]{"name"}),
+        /**
+         * l:album, y:year, J:artwork_track_id, a:artist, S:artist_id, w:compilation
+         */
+        ALBUMS("albums", "id", "album_id", "albums", "lyJaSw",
+                new String[]{"id TEXT", "title TEXT COLLATE NOCASE", "year INTEGER", "artwork_track_id TEXT", "artist TEXT", "artist_id TEXT", "compilation INTEGER"},
+                new String[]{"id", "album", "year", "artwork_track_id", "artist", "artist_id", "compilation"},
+                new String[]{"title", "artist_id", "year"}),
+        /**
+         * e:album_id, s:artist_id, p:genre_id, y:year, t:tracknum, i:disc, d:duration, u:url
+         */
+        TRACKS("tracks", "id", null, "titles", "espytidu",
+                new String[]{"id TEXT", "title TEXT COLLATE NOCASE", "album_id TEXT", "artist_id TEXT", "genre_id TEXT", "year INTEGER", "tracknum INTEGER", "disc INTEGER", "duration REAL", "url TEXT"},
+                new String[]{"id", "title", "album_id", "artist_id", "genre_id", "year", "tracknum", "disc", "duration", "url"},
+                new String[]{"title", "album_id, disc, tracknum", "artist_id", "genre_id", "year"});
+
+        final String table;
+
+        /** Column which identifies a row within a generation */
+        final String key;
+
+        /** Column in the tracks table which refers to this table */
+        final String trackColumn;
+
+        /** Server command to fetch the rows of this table */
+        public final String cmd;
+
+        /** Tags to request from the server */
+        public final String tags;
+
+        private final String[] columnDefinitions;
+        private final String[] fields;
+        private final String[] indexes;
+
+        Table(String table, String key, String trackColumn, String cmd, String tags, String[] columnDefinitions, String[] fields, String[] indexes) {
+            this.table = table;
+            this.key = key;
+            this.trackColumn = trackColumn;
+            this.cmd = cmd;
+            this.tags = tags;
+            this.columnDefinitions = columnDefinitions;
+            this.fields = fields;
+            this.indexes = indexes;
+        }
+
+        private String column(int i) {
+            return columnDefinitions[i].split(" ")[0];
+        }
+    }
+
+    private final SQLiteDatabase db;
+
+    public LibraryDatabase(Context context) {
+        db = OpenHelper.getInstance(context).getWritableDatabase();
+    }
+
+    /**
+     * Open a separate database, f.e. an in memory database if <code>name</code> is null.
+     */
+    @VisibleForTesting
+    public LibraryDatabase(Context context, @Nullable String name) {
+        db = new OpenHelper(context, name).getWritableDatabase();
+    }
+
+    private static class OpenHelper extends SQLiteOpenHelper {
+
+        private static final Object mInstanceLock = new Object();
+        private static OpenHelper mInstance;
+
+        private OpenHelper(Context context, String name) {
+            super(context, name, null, VERSION);
+            // Allow browsing while a sync writes to the database
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        public static OpenHelper getInstance(Context context) {
+            if (mInstance == null) {
+                synchronized (mInstanceLock) {
+                    if (mInstance == null) {
+                        mInstance = new OpenHelper(context.getApplicationContext(), NAME);
+                    }
+                }
+            }
+            return mInstance;
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase sqLiteDatabase) {
+            sqLiteDatabase.execSQL("CREATE TABLE " + STATE.TABLE + "(" +
+                    STATE.COLUMNS.SERVER + " TEXT PRIMARY KEY, " +
+                    STATE.COLUMNS.LAST_SCAN + " INTEGER, " +
+                    STATE.COLUMNS.GENERATION + " INTEGER, " +
+                    STATE.COLUMNS.SYNC_GENERATION + " INTEGER)");
+            for (Table table : Table.values()) {
+                sqLiteDatabase.execSQL("CREATE TABLE " + table.table + "(" +
+                        TextUtils.join(", ", table.columnDefinitions) + ", " +
+                        GENERATION + " INTEGER, " +
+                        "PRIMARY KEY (" + GENERATION + ", " + table.key + "))");
+                for (String index : table.indexes) {
+                    sqLiteDatabase.execSQL("CREATE INDEX " + table.table + "_" + index.replaceAll("\\W+", "_") +
+                            " ON " + table.table + "(" + GENERATION + ", " + index + ")");
+                }
+            }
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+            // The mirror can always be fetched again from the server
+            sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + STATE.TABLE);
+            for (Table table : Table.values()) {
+                sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + table.table);
+            }
+            onCreate(sqLiteDatabase);
+        }
+    }
+
+    /**
+     * @return The time of the server scan the mirror was last synced with, or -1 if the mirror
+     *     does not hold a complete copy of the library of the supplied server.
+     */
+    public long getLastScan(@NonNull String server) {
+        try (Cursor cursor = db.rawQuery("SELECT " + STATE.COLUMNS.LAST_SCAN + " FROM " + STATE.TABLE +
+                " WHERE " + STATE.COLUMNS.SERVER + "=? AND " + STATE.COLUMNS.GENERATION + " IS NOT NULL", new String[]{server})) {
+            return cursor.moveToNext() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    /**
+     * @return The generation number of the rows of the last complete sync of the supplied server,
+     *     or 0 if the mirror holds no copy of its library. This changes whenever the content of
+     *     the mirror changes.
+     */
+    public long getGeneration(@NonNull String server) {
+        try (Cursor cursor = db.rawQuery("SELECT " + STATE.COLUMNS.GENERATION + " FROM " + STATE.TABLE +
+                " WHERE " + STATE.COLUMNS.SERVER + "=? AND " + STATE.COLUMNS.GENERATION + " IS NOT NULL", new String[]{server})) {
+            return cursor.moveToNext() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Start a new sync of the library of the supplied server. Rows left by an earlier sync which
+     * was never finished are removed.
+     *
+     * @return The generation number to use for the rows of the new sync
+     */
+    public long beginSync(@NonNull String server) {
+        db.beginTransaction();
+        try {
+            long generation = DatabaseUtils.longForQuery(db, "SELECT MAX(IFNULL(MAX(" + STATE.COLUMNS.GENERATION + "), 0), " +
+                    "IFNULL(MAX(" + STATE.COLUMNS.SYNC_GENERATION + "), 0)) + 1 FROM " + STATE.TABLE, null);
+            db.execSQL("INSERT OR IGNORE INTO " + STATE.TABLE + "(" + STATE.COLUMNS.SERVER + ") VALUES (?)", new Object[]{server});
+            ContentValues values = new ContentValues();
+            values.put(STATE.COLUMNS.SYNC_GENERATION, generation);
+            db.update(STATE.TABLE, values, STATE.COLUMNS.SERVER + "=?", new String[]{server});
+
+            String generations = "SELECT " + STATE.COLUMNS.GENERATION + " FROM " + STATE.TABLE + " WHERE " + STATE.COLUMNS.GENERATION + " IS NOT NULL" +
+                    " UNION SELECT " + STATE.COLUMNS.SYNC_GENERATION + " FROM " + STATE.TABLE + " WHERE " + STATE.COLUMNS.SYNC_GENERATION + " IS NOT NULL";
+            for (Table table : Table.values()) {
+                int deleted = db.delete(table.table, GENERATION + " NOT IN (" + generations + ")", null);
+                if (deleted > 0) {
+                    Log.i(TAG, "Removed " + deleted + " " + table.table + " of an unfinished sync");
+                }
+            }
+            db.setTransactionSuccessful();
+            return generation;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Store a page of records from the server in a single transaction.
+     */
+    public void insert(@NonNull Table table, long generation, @NonNull List<Map<String, Object>> records) {
+        String[] columns = new String[table.fields.length + 1];
+        String[] placeholders = new String[columns.length];
+        for (int i = 0; i < table.fields.length; i++) {
+            columns[i] = table.column(i);
+            placeholders[i] = "?";
+        }
+        columns[table.fields.length] = GENERATION;
+        placeholders[table.fields.length] = "?";
+
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + table.table + "(" +
+                TextUtils.join(", ", columns) + ") VALUES (" + TextUtils.join(", ", placeholders) + ")");
+        db.beginTransaction();
+        try {
+            for (Map<String, Object> record : records) {
+                insert.clearBindings();
+                for (int i = 0; i < table.fields.length; i++) {
+                    Object value = record.get(table.fields[i]);
+                    if (value == null) {
+                        insert.bindNull(i + 1);
+                    } else {
+                        insert.bindString(i + 1, value.toString());
+                    }
+                }
+                insert.bindLong(columns.length, generation);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    /**
+     * Complete a sync: make its rows the library of the server, remove the rows of the previous
+     * sync of the server, and record the server scan it was made from.
+     *
+     * @return False if the sync was replaced by a later one for the same server, in which case
+     *     nothing is changed.
+     */
+    public boolean finishSync(@NonNull String server, long lastScan, long generation) {
+        db.beginTransaction();
+        try {
+            long previous = getGeneration(server);
+            ContentValues values = new ContentValues();
+            values.put(STATE.COLUMNS.LAST_SCAN, lastScan);
+            values.put(STATE.COLUMNS.GENERATION, generation);
+            values.putNull(STATE.COLUMNS.SYNC_GENERATION);
+            if (db.update(STATE.TABLE, values, STATE.COLUMNS.SERVER + "=? AND " + STATE.COLUMNS.SYNC_GENERATION + "=?",
+                    new String[]{server, String.valueOf(generation)}) == 0) {
+                return false;
+            }
+            if (previous != 0) {
+                for (Table table : Table.values()) {
+                    int deleted = db.delete(table.table, GENERATION + "=?", new String[]{String.valueOf(previous)});
+                    Log.i(TAG, "Replaced " + deleted + " " + table.table);
+                }
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Remove everything from the mirror.
+     */
+    public void clear() {
+        db.beginTransaction();
+        try {
+            db.delete(STATE.TABLE, null, null);
+            for (Table table : Table.values()) {
+                db.delete(table.table, null, null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * @param generation Generation of the rows, see {@link #getGeneration(String)}
+     * @param filters Restrict the result to rows related to tracks with these column values
+     *     (<code>artist_id</code>, <code>album_id</code>, <code>genre_id</code> or
+     *     <code>year</code>)
+     * @return The number of rows in the table which match the filters
+     */
+    public int count(@NonNull Table table, long generation, @NonNull Map<String, String> filters) {
+        List<String> args = new ArrayList<>();
+        String where = where(table, generation, filters, args);
+        return (int) DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + table.table + where, args.toArray(new String[0]));
+    }
+
+    /**
+     * Fetch a page of rows matching the filters, in display order.
+     * <p>
+     * Tracks are returned with the name of the artist and the title and artwork of the album in
+     * the <code>artist</code>, <code>album</code> and <code>artwork_track_id</code> columns.
+     *
+     * @see #count(Table, long, Map)
+     */
+    @NonNull
+    public List<Map<String, Object>> list(@NonNull Table table, long generation, @NonNull Map<String, String> filters, int start, int count) {
+        List<String> args = new ArrayList<>();
+        String where = where(table, generation, filters, args);
+        String sql;
+        switch (table) {
+            case TRACKS:
+                sql = "SELECT tracks.*, artists.name AS artist, albums.title AS album, albums.artwork_track_id" +
+                        " FROM tracks" + TRACK_JOINS + where +
+                        (filters.containsKey("album_id") ? " ORDER BY tracks.disc, tracks.tracknum, tracks.title" : " ORDER BY tracks.title");
+                break;
+            case YEARS:
+                sql = "SELECT * FROM years" + where + " ORDER BY year DESC";
+                break;
+            case ALBUMS:
+                sql = "SELECT * FROM albums" + where + " ORDER BY title";
+                break;
+            default:
+                sql = "SELECT * FROM " + table.table + where + " ORDER BY name";
+                break;
+        }
+        sql += " LIMIT " + count + " OFFSET " + start;
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]))) {
+            String[] columnNames = cursor.getColumnNames();
+            while (cursor.moveToNext()) {
+                Map<String, Object> row = new HashMap<>();
+                for (int i = 0; i < columnNames.length; i++) {
+                    switch (cursor.getType(i)) {
+                        case Cursor.FIELD_TYPE_INTEGER:
+                            row.put(columnNames[i], cursor.getLong(i));
+                            break;
+                        case Cursor.FIELD_TYPE_FLOAT:
+                            row.put(columnNames[i], cursor.getDouble(i));
+                            break;
+                        case Cursor.FIELD_TYPE_STRING:
+                            row.put(columnNames[i], cursor.getString(i));
+                            break;
+                    }
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Build a search index over the names of the artists, albums and tracks of the supplied
+     * generation.
+     */
+    @NonNull
+    public SearchIndex buildSearchIndex(long generation) {
+        String[] args = new String[]{String.valueOf(generation)};
+        SearchIndex.Builder builder = new SearchIndex.Builder();
+        try (Cursor cursor = db.rawQuery("SELECT id, name FROM artists WHERE generation=?", args)) {
+            while (cursor.moveToNext()) {
+                builder.addArtist(cursor.getString(0), cursor.getString(1));
+            }
+        }
+        try (Cursor cursor = db.rawQuery("SELECT id, title, artist, artwork_track_id FROM albums WHERE generation=?", args)) {
+            while (cursor.moveToNext()) {
+                builder.addAlbum(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3));
+            }
+        }
+        try (Cursor cursor = db.rawQuery("SELECT tracks.id, tracks.title, artists.name, albums.title, albums.artwork_track_id" +
+                " FROM tracks" + TRACK_JOINS + " WHERE tracks.generation=?", args)) {
+            while (cursor.moveToNext()) {
+                builder.addTrack(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3), cursor.getString(4));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build a where clause for the generation and the filters. Tracks are filtered directly, other
+     * tables are filtered to rows referenced by matching tracks.
+     */
+    private static String where(Table table, long generation, Map<String, String> filters, List<String> args) {
+        String where = " WHERE " + table.table + "." + GENERATION + "=?";
+        args.add(String.valueOf(generation));
+        if (filters.isEmpty()) {
+            return where;
+        }
+
+        List<String> conditions = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            conditions.add("tracks." + filter.getKey() + "=?");
+            values.add(filter.getValue());
+        }
+        String condition = TextUtils.join(" AND ", conditions);
+        if (table == Table.TRACKS) {
+            args.addAll(values);
+            return where + " AND " + condition;
+        }
+
+        String related = table.table + "." + table.key + " IN (SELECT " + table.trackColumn + " FROM tracks" +
+                " WHERE tracks." + GENERATION + "=? AND " + condition + ")";
+        args.add(String.valueOf(generation));
+        args.addAll(values);
+        if (table == Table.ALBUMS && filters.size() == 1 && filters.containsKey("artist_id")) {
+            // Include albums where the artist is the album artist, f.e. compilations
+            related = "(" + related + " OR albums.artist_id=?)";
+            args.add(filters.get("artist_id"));
+        }
+        return where + " AND " + related;
+    }
+}
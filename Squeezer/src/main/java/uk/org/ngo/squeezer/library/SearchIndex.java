@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.library;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * In memory full text index over the artists, albums and tracks of the
+ * {@link LibraryDatabase library mirror}, for type-ahead search.
+ * <p>
+ * Names are split into words, which are folded to lower case without accents. Every word of a
+ * query is matched as a prefix, so results can be shown for each key stroke. A document matches
+ * if all the words of the query match a word of the document.
+ * <p>
+ * The distinct words are kept in a sorted array, so the words matching a prefix are a contiguous
+ * range of word ids, found by binary search. For each word the index holds the (ascending)
+ * documents containing it, and for each document the ids of its words. A query is driven by its
+ * most selective word; the remaining words are checked against the word ids of the candidate
+ * documents, which is a simple range test.
+ * <p>
+ * Documents are ordered by type (artists, albums, tracks) and name, so results come out in
+ * display order, and a search can stop as soon as it has found enough results of each type.
+ * <p>
+ * The index is immutable and can be searched from any thread. Use {@link Builder} to create it.
+ */
+public class SearchIndex {
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * If the most selective word of a query matches more than this fraction of all documents, it
+     * is cheaper to scan the documents in order than to collect and sort the candidates.
+     */
+    private static final int SCAN_FRACTION = 8;
+
+    public enum Type {
+        ARTIST, ALBUM, TRACK
+    }
+
+    /**
+     * An artist, album or track in the index.
+     */
+    public static class Document {
+        @NonNull public final Type type;
+        @NonNull public final String id;
+        @NonNull public final String name;
+        /** Artist of an album or track */
+        @Nullable public final String artist;
+        /** Album of a track */
+        @Nullable public final String album;
+        /** Track which holds the artwork of an album or track */
+        @Nullable public final String artworkTrackId;
+
+        public Document(@NonNull Type type, @NonNull String id, @NonNull String name, @Nullable String artist, @Nullable String album, @Nullable String artworkTrackId) {
+            this.type = type;
+            this.id = id;
+            this.name = name;
+            this.artist = artist;
+            this.album = album;
+            this.artworkTrackId = artworkTrackId;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return type + "{id=" + id + ", name=" + name + ", artist=" + artist + ", album=" + album + "}";
+        }
+    }
+
+    private final Document[] documents;
+
+    /** First document of each type, and the number of documents at the end */
+    private final int[] typeStart;
+
+    /** Distinct words, sorted */
+    private final String[] words;
+
+    /** Documents containing the word with id i are at postings[postingStart[i]..postingStart[i+1]) */
+    private final int[] postingStart;
+    private final int[] postings;
+
+    /** Word ids of each document */
+    private final int[][] documentWords;
+
+    private SearchIndex(Document[] documents, int[] typeStart, String[] words, int[] postingStart, int[] postings, int[][] documentWords) {
+        this.documents = documents;
+        this.typeStart = typeStart;
+        this.words = words;
+        this.postingStart = postingStart;
+        this.postings = postings;
+        this.documentWords = documentWords;
+    }
+
+    /**
+     * @return Number of documents in the index
+     */
+    public int size() {
+        return documents.length;
+    }
+
+    /**
+     * Find documents matching all the words of the query.
+     *
+     * @param query Text to search for
+     * @param limit Maximum number of results of each type
+     * @return The matching documents: artists, then albums, then tracks, each sorted by name.
+     */
+    @NonNull
+    public List<Document> search(@NonNull String query, int limit) {
+        List<String> terms = words(query);
+        if (terms.isEmpty() || documents.length == 0) {
+            return Collections.emptyList();
+        }
+
+        // Word id range [lo, hi) of each term, and the one with the fewest postings
+        int[] lo = new int[terms.size()];
+        int[] hi = new int[terms.size()];
+        int driver = 0;
+        int driverSize = Integer.MAX_VALUE;
+        for (int t = 0; t < terms.size(); t++) {
+            String term = terms.get(t);
+            lo[t] = lowerBound(term);
+            hi[t] = lowerBound(term + Character.MAX_VALUE);
+            int size = postingStart[hi[t]] - postingStart[lo[t]];
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            if (size < driverSize) {
+                driver = t;
+                driverSize = size;
+            }
+        }
+
+        List<Document> result = new ArrayList<>();
+        int[] found = new int[Type.values().length];
+        if (driverSize > documents.length / SCAN_FRACTION) {
+            // Frequent prefix: matches are dense, so the first matches are found quickly in order
+            for (int type = 0; type < found.length; type++) {
+                for (int doc = typeStart[type]; doc < typeStart[type + 1] && found[type] < limit; doc++) {
+                    if (matches(doc, lo, hi, -1)) {
+                        result.add(documents[doc]);
+                        found[type]++;
+                    }
+                }
+            }
+        } else {
+            int[] candidates = new int[driverSize];
+            System.arraycopy(postings, postingStart[lo[driver]], candidates, 0, driverSize);
+            Arrays.sort(candidates);
+            int previous = -1;
+            for (int doc : candidates) {
+                if (doc == previous) {
+                    continue;
+                }
+                previous = doc;
+                int type = documents[doc].type.ordinal();
+                if (found[type] < limit && matches(doc, lo, hi, driver)) {
+                    result.add(documents[doc]);
+                    found[type]++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return True if the document has a word in each of the supplied word id ranges, except the
+     *     one at index skip, which is already known to match.
+     */
+    private boolean matches(int doc, int[] lo, int[] hi, int skip) {
+        int[] ids = documentWords[doc];
+        for (int t = 0; t < lo.length; t++) {
+            if (t == skip) {
+                continue;
+            }
+            boolean match = false;
+            for (int id : ids) {
+                if (id >= lo[t] && id < hi[t]) {
+                    match = true;
+                    break;
+                }
+            }
+            if (!match) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Index of the first word which is not less than the key
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = words.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (words[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Split the text into words for the index, in lower case and without accents.
+     */
+    @NonNull
+    static List<String> words(@Nullable String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String folded = (isAscii(text) ? text : MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")).toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        for (String word : NON_WORD.split(folded)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects documents and builds a {@link SearchIndex}.
+     */
+    public static class Builder {
+        private final List<Document> documents = new ArrayList<>();
+
+        /** Share the strings which are repeated across documents, such as artist and album names */
+        private final Map<String, String> strings = new HashMap<>();
+
+        private String intern(String s) {
+            if (s == null) {
+                return null;
+            }
+            String interned = strings.get(s);
+            if (interned == null) {
+                strings.put(s, s);
+                interned = s;
+            }
+            return interned;
+        }
+
+        public Builder addArtist(@NonNull String id, @Nullable String name) {
+            return add(new Document(Type.ARTIST, id, name == null ? "" : intern(name), null, null, null));
+        }
+
+        public Builder addAlbum(@NonNull String id, @Nullable String title, @Nullable String artist, @Nullable String artworkTrackId) {
+            return add(new Document(Type.ALBUM, id, title == null ? "" : intern(title), intern(artist), null, artworkTrackId));
+        }
+
+        public Builder addTrack(@NonNull String id, @Nullable String title, @Nullable String artist, @Nullable String album, @Nullable String artworkTrackId) {
+            return add(new Document(Type.TRACK, id, title == null ? "" : title, intern(artist), intern(album), intern(artworkTrackId)));
+        }
+
+        private Builder add(Document document) {
+            documents.add(document);
+            return this;
+        }
+
+        @NonNull
+        public SearchIndex build() {
+            Document[] docs = documents.toArray(new Document[0]);
+            Arrays.sort(docs, (d1, d2) -> {
+                int result = d1.type.compareTo(d2.type);
+                return result != 0 ? result : d1.name.compareToIgnoreCase(d2.name);
+            });
+
+            int[] typeStart = new int[Type.values().length + 1];
+            for (int i = 0, type = 0; type < Type.values().length; type++) {
+                while (i < docs.length && docs[i].type.ordinal() < type) {
+                    i++;
+                }
+                typeStart[type] = i;
+            }
+            typeStart[Type.values().length] = docs.length;
+
+            // Words of each document, and the sorted set of distinct words
+            String[][] docWords = new String[docs.length][];
+            Map<String, Integer> wordCounts = new HashMap<>();
+            for (int doc = 0; doc < docs.length; doc++) {
+                List<String> words = new ArrayList<>(words(docs[doc].name));
+                words.addAll(words(docs[doc].artist));
+                words.addAll(words(docs[doc].album));
+                String[] distinct = new LinkedHashSet<>(words).toArray(new String[0]);
+                docWords[doc] = distinct;
+                for (String word : distinct) {
+                    Integer count = wordCounts.get(word);
+                    wordCounts.put(word, count == null ? 1 : count + 1);
+                }
+            }
+
+            String[] words = wordCounts.keySet().toArray(new String[0]);
+            Arrays.sort(words);
+            int[] postingStart = new int[words.length + 1];
+            Map<String, Integer> wordIds = new HashMap<>(words.length * 2);
+            for (int id = 0; id < words.length; id++) {
+                wordIds.put(words[id], id);
+                postingStart[id + 1] = postingStart[id] + wordCounts.get(words[id]);
+            }
+
+            // Documents are visited in order, so the postings of each word are ascending
+            int[] postings = new int[postingStart[words.length]];
+            int[] next = Arrays.copyOf(postingStart, words.length);
+            int[][] documentWords = new int[docs.length][];
+            for (int doc = 0; doc < docs.length; doc++) {
+                int[] ids = new int[docWords[doc].length];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = wordIds.get(docWords[doc][i]);
+                    postings[next[ids[i]]++] = doc;
+                }
+                documentWords[doc] = ids;
+            }
+
+            return new SearchIndex(docs, typeStart, words, postingStart, postings, documentWords);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes and plays the streams of the local player.
+ * <p>
+ * {@link #open(boolean)}, {@link #write(ByteBuffer)}, {@link #drain()} and {@link #close()} are
+ * called by the thread which reads the stream. When it is interrupted, the blocking methods throw
+ * {@link java.io.InterruptedIOException}. The other methods are called by the slimproto thread, at
+ * any time.
+ */
+public interface AudioSink {
+    /**
+     * @return The formats the sink plays, as announced to the server, f.e. "ogg"
+     */
+    @NonNull
+    String getFormats();
+
+    /**
+     * @param format Format code of a strm message, f.e. 'o' for Ogg
+     * @return Whether the sink can play a stream of the given format
+     */
+    boolean canPlay(char format);
+
+    /**
+     * Prepare for a new stream.
+     *
+     * @param start Start playback as soon as there is audio. If false, playback is started by
+     *     {@link #resume()}.
+     */
+    void open(boolean start) throws IOException;
+
+    /**
+     * Decode the remaining bytes of the buffer. Blocks while the output is full.
+     * <p>
+     * On return the position of the buffer is at its limit.
+     */
+    void write(@NonNull ByteBuffer buffer) throws IOException;
+
+    /**
+     * Block until all the audio written has been played.
+     */
+    void drain() throws IOException;
+
+    /**
+     * Stop playback, and release the resources of the stream.
+     */
+    void close();
+
+    void pause();
+
+    void resume();
+
+    /**
+     * @param volume From 0 to 1
+     */
+    void setVolume(float volume);
+
+    /**
+     * @return Milliseconds of audio played since {@link #open(boolean)}
+     */
+    long getPlayedMillis();
+}
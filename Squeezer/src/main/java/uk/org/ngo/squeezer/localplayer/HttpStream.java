@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The HTTP connection of a stream.
+ * <p>
+ * The request comes verbatim from the server, so this only sends it, checks the status of the
+ * response and hands out the body as it arrives.
+ */
+class HttpStream implements Closeable {
+    private static final int CONNECT_TIMEOUT = 5000; // ms
+
+    private final SocketChannel channel;
+    private final String headers;
+
+    private HttpStream(SocketChannel channel, String headers) {
+        this.channel = channel;
+        this.headers = headers;
+    }
+
+    /**
+     * Connect, send the request and read the response headers.
+     * <p>
+     * Body data read along with the headers is left in the buffer, from its start to its position.
+     *
+     * @param buffer A buffer which holds at least the response headers
+     */
+    static HttpStream open(InetSocketAddress address, String request, ByteBuffer buffer) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(address, CONNECT_TIMEOUT);
+            ByteBuffer out = ByteBuffer.wrap(request.getBytes(StandardCharsets.ISO_8859_1));
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+
+            buffer.clear();
+            int end;
+            while ((end = headerEnd(buffer)) < 0) {
+                if (!buffer.hasRemaining()) {
+                    throw new IOException("Response headers don't fit in " + buffer.capacity() + " bytes");
+                }
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Connection closed in the response headers");
+                }
+            }
+            byte[] bytes = new byte[end];
+            buffer.flip();
+            buffer.get(bytes);
+            buffer.compact();
+
+            String headers = new String(bytes, StandardCharsets.ISO_8859_1);
+            checkStatus(headers);
+            return new HttpStream(channel, headers);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** The status line and the headers of the response, including the empty line after them */
+    @NonNull
+    String getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Read the next part of the body into the buffer.
+     *
+     * @return The number of bytes read, or -1 at the end of the stream
+     */
+    int read(ByteBuffer buffer) throws IOException {
+        return channel.read(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return The length of the headers including the terminating empty line, or -1 if they are
+     *     not complete yet
+     */
+    private static int headerEnd(ByteBuffer buffer) {
+        for (int i = 3; i < buffer.position(); i++) {
+            if (buffer.get(i - 3) == '\r' && buffer.get(i - 2) == '\n' && buffer.get(i - 1) == '\r' && buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Accept any 2xx status, also from shoutcast servers, which answer with "ICY 200 OK" */
+    private static void checkStatus(String headers) throws IOException {
+        int end = headers.indexOf('\r');
+        String statusLine = headers.substring(0, end);
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[1].startsWith("2") || parts[1].length() != 3) {
+            throw new IOException("Unexpected response: " + statusLine);
+        }
+    }
+}
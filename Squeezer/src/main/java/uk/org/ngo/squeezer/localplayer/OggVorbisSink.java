@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+import uk.org.ngo.squeezer.util.OggDemuxer;
+
+/**
+ * Plays Ogg Vorbis streams: the {@link OggDemuxer} splits the stream into packets, which are
+ * decoded by the platform decoder, and played by an {@link AudioTrack}.
+ * <p>
+ * The buffers are reused, so nothing is allocated per packet, apart from what the platform does.
+ * A chained stream with the same sample rate and channels continues on the same track.
+ */
+public class OggVorbisSink implements AudioSink {
+    private static final String MIME = MediaFormat.MIMETYPE_AUDIO_VORBIS;
+
+    /** Vorbis packets are typically a few KB, the setup header can be larger */
+    private static final int PACKET_SIZE = 64 * 1024;
+
+    private static final long DEQUEUE_TIMEOUT = 10_000; // microseconds
+    private static final int WAIT_INTERVAL = 10; // ms
+    private static final int TRACK_BUFFER = 500; // ms
+
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(PACKET_SIZE);
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+    // Only used by the stream thread
+    private OggDemuxer demuxer;
+    private ByteBuffer identification;
+    private MediaCodec codec;
+    private int frameSize;
+    private long framesWritten;
+    /** A track's worth of silence */
+    private ByteBuffer silence;
+
+    private final Object lock = new Object();
+    /** Guarded by lock. Only replaced by the stream thread. */
+    private AudioTrack track;
+    /** Guarded by lock */
+    private int sampleRate;
+    /** Guarded by lock */
+    private int channels;
+    /** Guarded by lock */
+    private boolean playing;
+    /** Guarded by lock */
+    private float volume = 1;
+    /** Audio played on tracks of the stream which have been released. Guarded by lock. */
+    private long playedMillisBefore;
+
+    @NonNull
+    @Override
+    public String getFormats() {
+        return "ogg";
+    }
+
+    @Override
+    public boolean canPlay(char format) {
+        return format == 'o';
+    }
+
+    @Override
+    public void open(boolean start) {
+        close();
+        demuxer = new OggDemuxer();
+        synchronized (lock) {
+            playing = start;
+            playedMillisBefore = 0;
+        }
+    }
+
+    @Override
+    public void write(@NonNull ByteBuffer buffer) throws IOException {
+        try {
+            demuxer.feed(buffer);
+            int length;
+            while (true) {
+                packet.clear();
+                length = demuxer.nextPacket(packet);
+                if (length == OggDemuxer.NEED_MORE_DATA) {
+                    break;
+                }
+                if (length == OggDemuxer.EMPTY_PACKET) {
+                    continue;
+                }
+                packet.flip();
+                switch (VorbisPackets.type(packet)) {
+                    case VorbisPackets.IDENTIFICATION:
+                        // The start of a new stream in the chain
+                        finishDecoder();
+                        identification = copy(packet);
+                        break;
+                    case VorbisPackets.SETUP:
+                        if (identification != null) {
+                            startDecoder(identification, copy(packet));
+                        }
+                        break;
+                    case VorbisPackets.AUDIO:
+                        // Audio before the headers, when joining a stream midway, can't be decoded
+                        if (codec != null) {
+                            decode(packet);
+                        }
+                        break;
+                    default:
+                        // The comment header isn't used
+                        break;
+                }
+            }
+        } catch (IllegalStateException e) {
+            // Includes MediaCodec.CodecException
+            throw new IOException("Can't decode the stream", e);
+        }
+    }
+
+    @Override
+    public void drain() throws IOException {
+        try {
+            finishDecoder();
+        } catch (IllegalStateException e) {
+            throw new IOException("Can't decode the stream", e);
+        }
+        playOut();
+    }
+
+    @Override
+    public void close() {
+        if (codec != null) {
+            codec.release();
+            codec = null;
+        }
+        releaseTrack();
+        if (demuxer != null) {
+            demuxer.close();
+            demuxer = null;
+        }
+        identification = null;
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            playing = false;
+            if (track != null) {
+                track.pause();
+            }
+        }
+    }
+
+    @Override
+    public void resume() {
+        synchronized (lock) {
+            playing = true;
+            if (track != null) {
+                track.play();
+            }
+        }
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        synchronized (lock) {
+            this.volume = volume;
+            if (track != null) {
+                track.setVolume(volume);
+            }
+        }
+    }
+
+    @Override
+    public long getPlayedMillis() {
+        synchronized (lock) {
+            return playedMillisBefore + trackPlayedMillis();
+        }
+    }
+
+    /** Guarded by lock */
+    private long trackPlayedMillis() {
+        return (track != null) ? (track.getPlaybackHeadPosition() & 0xffffffffL) * 1000 / sampleRate : 0;
+    }
+
+    private void startDecoder(ByteBuffer identification, ByteBuffer setup) throws IOException {
+        int channels = VorbisPackets.channels(identification);
+        int sampleRate = VorbisPackets.sampleRate(identification);
+        if (channels < 1 || channels > 2) {
+            throw new IOException("Unsupported number of channels: " + channels);
+        }
+
+        MediaFormat format = MediaFormat.createAudioFormat(MIME, sampleRate, channels);
+        format.setByteBuffer("csd-0", identification);
+        format.setByteBuffer("csd-1", setup);
+        codec = MediaCodec.createDecoderByType(MIME);
+        codec.configure(format, null, null, 0);
+        codec.start();
+
+        boolean sameFormat;
+        synchronized (lock) {
+            sameFormat = (track != null && this.sampleRate == sampleRate && this.channels == channels);
+        }
+        if (!sameFormat) {
+            playOut();
+            openTrack(sampleRate, channels);
+        }
+    }
+
+    private void openTrack(int sampleRate, int channels) {
+        int channelMask = (channels == 1) ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        frameSize = 2 * channels;
+        int bufferSize = Math.max(AudioTrack.getMinBufferSize(sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT),
+                sampleRate * frameSize * TRACK_BUFFER / 1000);
+        AudioTrack newTrack = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setSampleRate(sampleRate)
+                        .setChannelMask(channelMask)
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .build())
+                .setBufferSizeInBytes(bufferSize)
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .build();
+
+        releaseTrack();
+        synchronized (lock) {
+            track = newTrack;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            track.setVolume(volume);
+            if (playing) {
+                track.play();
+            }
+        }
+        framesWritten = 0;
+        if (silence == null || silence.capacity() != bufferSize) {
+            silence = ByteBuffer.allocateDirect(bufferSize);
+        }
+    }
+
+    private void releaseTrack() {
+        synchronized (lock) {
+            if (track != null) {
+                playedMillisBefore += trackPlayedMillis();
+                track.release();
+                track = null;
+            }
+        }
+    }
+
+    private void decode(ByteBuffer packet) throws IOException {
+        int index;
+        while ((index = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT)) < 0) {
+            drainOutput(false);
+            checkInterrupted();
+        }
+        ByteBuffer input = codec.getInputBuffer(index);
+        input.clear();
+        if (input.remaining() < packet.remaining() + 4) {
+            throw new IOException("Vorbis packet doesn't fit in the decoder: " + packet.remaining());
+        }
+        input.put(packet);
+        VorbisPackets.putSampleCount(input);
+        codec.queueInputBuffer(index, 0, input.position(), 0, 0);
+        drainOutput(false);
+    }
+
+    /**
+     * Play the rest of the stream in the decoder, and release it.
+     */
+    private void finishDecoder() throws IOException {
+        if (codec == null) {
+            return;
+        }
+        int index;
+        while ((index = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT)) < 0) {
+            drainOutput(false);
+            checkInterrupted();
+        }
+        codec.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+        drainOutput(true);
+        codec.release();
+        codec = null;
+    }
+
+    /**
+     * Write the decoded audio to the track.
+     *
+     * @param endOfStream Wait for the end of the stream, instead of returning when the decoder
+     *     has no more output
+     */
+    private void drainOutput(boolean endOfStream) throws IOException {
+        while (true) {
+            int index = codec.dequeueOutputBuffer(info, endOfStream ? DEQUEUE_TIMEOUT : 0);
+            if (index >= 0) {
+                ByteBuffer output = codec.getOutputBuffer(index);
+                output.limit(info.offset + info.size);
+                output.position(info.offset);
+                play(output);
+                codec.releaseOutputBuffer(index, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return;
+                }
+            } else if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!endOfStream) {
+                    return;
+                }
+                checkInterrupted();
+            }
+            // The track is set up from the identification header, so format changes are ignored
+        }
+    }
+
+    private void play(ByteBuffer pcm) throws IOException {
+        while (pcm.hasRemaining()) {
+            int written = track.write(pcm, pcm.remaining(), AudioTrack.WRITE_NON_BLOCKING);
+            if (written < 0) {
+                throw new IOException("Can't write to the audio track: " + written);
+            }
+            framesWritten += written / frameSize;
+            if (written == 0) {
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * Wait until the audio written to the track has been played.
+     * <p>
+     * A track may not start until its buffer is full, so it is filled up with silence.
+     */
+    private void playOut() throws IOException {
+        if (track == null) {
+            return;
+        }
+        long frames = framesWritten;
+        silence.clear();
+        play(silence);
+        while (true) {
+            synchronized (lock) {
+                if ((track.getPlaybackHeadPosition() & 0xffffffffL) >= frames) {
+                    return;
+                }
+            }
+            sleep();
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer packet) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(packet.remaining());
+        copy.put(packet);
+        copy.flip();
+        return copy;
+    }
+
+    private static void sleep() throws InterruptedIOException {
+        try {
+            Thread.sleep(WAIT_INTERVAL);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.interrupted()) {
+            throw new InterruptedIOException();
+        }
+    }
+}
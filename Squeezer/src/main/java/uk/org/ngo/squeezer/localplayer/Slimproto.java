@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding and decoding of the slimproto messages exchanged by the local player.
+ * <p>
+ * Messages from the player are a 4 byte opcode, a 4 byte length and the payload. Messages from the
+ * server are a 2 byte length, which includes the 4 byte command, and the payload. All numbers are
+ * big endian.
+ */
+class Slimproto {
+    /** Device id of SqueezePlay, which makes the server read the capabilities from the HELO */
+    static final int DEVICE_ID = 12;
+
+    private static final int REVISION = 0;
+
+    /** Length of the fixed part of a STAT payload */
+    static final int STAT_LENGTH = 53;
+
+    /** Length of the fixed part of a strm payload, before the HTTP request */
+    static final int STRM_LENGTH = 24;
+
+    private Slimproto() {
+    }
+
+    /**
+     * A message from the server.
+     */
+    static class Frame {
+        @NonNull final String command;
+        @NonNull final byte[] data;
+
+        Frame(@NonNull String command, @NonNull byte[] data) {
+            this.command = command;
+            this.data = data;
+        }
+    }
+
+    /**
+     * A strm message, which controls the stream and the playback.
+     */
+    static class Strm {
+        static final char START = 's';
+        static final char PAUSE = 'p';
+        static final char UNPAUSE = 'u';
+        static final char STOP = 'q';
+        static final char STATUS = 't';
+        static final char FLUSH = 'f';
+
+        final char command;
+        final char autostart;
+        final char format;
+        /** Bytes to buffer before the player reports that it is ready to start */
+        final int threshold;
+        /** Replay gain for start, pause interval for pause, and the server timestamp for status */
+        final int replayGain;
+        final int serverPort;
+        /** IP address of the stream server, 0 for the control server */
+        final int serverIp;
+        @NonNull final String request;
+
+        private Strm(ByteBuffer data) {
+            command = (char) data.get(0);
+            autostart = (char) data.get(1);
+            format = (char) data.get(2);
+            threshold = (data.get(7) & 0xff) * 1024;
+            replayGain = data.getInt(14);
+            serverPort = data.getShort(18) & 0xffff;
+            serverIp = data.getInt(20);
+            request = new String(data.array(), STRM_LENGTH, data.limit() - STRM_LENGTH, StandardCharsets.ISO_8859_1);
+        }
+
+        /** Should playback start without waiting for an unpause? */
+        boolean autostart() {
+            return autostart == '1' || autostart == '3';
+        }
+
+        static Strm parse(byte[] data) throws IOException {
+            if (data.length < STRM_LENGTH) {
+                throw new IOException("strm too short: " + data.length);
+            }
+            return new Strm(ByteBuffer.wrap(data));
+        }
+    }
+
+    static Frame readFrame(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length < 4) {
+            throw new IOException("Frame too short: " + length);
+        }
+        byte[] command = new byte[4];
+        in.readFully(command);
+        byte[] data = new byte[length - 4];
+        in.readFully(data);
+        return new Frame(new String(command, StandardCharsets.US_ASCII), data);
+    }
+
+    /**
+     * @param mac Identifies the player at the server
+     * @param capabilities Comma separated list of the model and the formats the player can play
+     */
+    static byte[] helo(byte[] mac, String capabilities) {
+        byte[] caps = capabilities.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer payload = ByteBuffer.allocate(36 + caps.length);
+        payload.put((byte) DEVICE_ID);
+        payload.put((byte) REVISION);
+        payload.put(mac, 0, 6);
+        payload.position(payload.position() + 16); // uuid
+        payload.putShort((short) 0); // wlan channel list
+        payload.putLong(0); // bytes received
+        payload.put(new byte[]{'e', 'n'});
+        payload.put(caps);
+        return frame("HELO", payload.array());
+    }
+
+    static byte[] stat(String event, int streamBufferSize, int streamBufferFullness, long bytesReceived,
+                       int jiffies, long elapsedMillis, int serverTimestamp) {
+        ByteBuffer payload = ByteBuffer.allocate(STAT_LENGTH);
+        payload.put(event.getBytes(StandardCharsets.US_ASCII), 0, 4);
+        payload.put((byte) 0); // crlf
+        payload.put((byte) 0); // mas initialized
+        payload.put((byte) 0); // mas mode
+        payload.putInt(streamBufferSize);
+        payload.putInt(streamBufferFullness);
+        payload.putLong(bytesReceived);
+        payload.putShort((short) 0xffff); // signal strength, wired
+        payload.putInt(jiffies);
+        payload.putInt(0); // output buffer size
+        payload.putInt(0); // output buffer fullness
+        payload.putInt((int) (elapsedMillis / 1000));
+        payload.putShort((short) 0); // voltage
+        payload.putInt((int) elapsedMillis);
+        payload.putInt(serverTimestamp);
+        payload.putShort((short) 0); // error code
+        return frame("STAT", payload.array());
+    }
+
+    /** The response headers of the stream */
+    static byte[] resp(String headers) {
+        return frame("RESP", headers.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /** The name of the player, in reply to a setd query for it */
+    static byte[] setdName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(bytes.length + 2);
+        payload.put((byte) 0);
+        payload.put(bytes);
+        payload.put((byte) 0);
+        return frame("SETD", payload.array());
+    }
+
+    /**
+     * @return The new volume of an audg message, 1 for full volume
+     */
+    static float gain(byte[] data) throws IOException {
+        if (data.length < 18) {
+            throw new IOException("audg too short: " + data.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.get(8) == 0) {
+            // Volume is fixed
+            return 1;
+        }
+        // 16.16 fixed point, the same for both channels
+        return Math.min(1, (buffer.getInt(10) & 0xffffffffL) / 65536f);
+    }
+
+    private static byte[] frame(String opcode, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.put(opcode.getBytes(StandardCharsets.US_ASCII));
+        frame.putInt(payload.length);
+        frame.put(payload);
+        return frame.array();
+    }
+}
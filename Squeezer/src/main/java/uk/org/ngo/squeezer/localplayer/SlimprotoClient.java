@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * A player which the server controls with slimproto, and which plays the streams through an
+ * {@link AudioSink}.
+ * <p>
+ * The client connects to the server, and reconnects when the connection drops, until
+ * {@link #stop()} is called. Each stream is read on its own thread, which starts when the previous
+ * stream has finished playing, so the end of a track isn't cut off when the server starts the next.
+ * Synchronization with other players isn't supported beyond starting on the server's command.
+ */
+public class SlimprotoClient {
+    public static final int PORT = 3483;
+
+    private static final int CONNECT_TIMEOUT = 5000; // ms
+    private static final int RECONNECT_DELAY = 5000; // ms
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public interface Listener {
+        void onConnected();
+
+        /**
+         * The connection to the server was lost, or couldn't be made. The client tries again.
+         */
+        void onDisconnected(@NonNull IOException e);
+
+        void onStreamError(@NonNull IOException e);
+    }
+
+    private final String host;
+    private final int port;
+    private final byte[] mac;
+    private final String name;
+    private final AudioSink sink;
+    private final Listener listener;
+
+    /** Stream data, from the HTTP connection to the sink. Used by one stream thread at a time. */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private volatile boolean running;
+    private Thread controlThread;
+
+    private final Object sendLock = new Object();
+    /** Guarded by sendLock */
+    private Socket socket;
+    /** Guarded by sendLock */
+    private OutputStream out;
+
+    /** The latest stream. Only changed by the control thread. */
+    @Nullable
+    private volatile Stream stream;
+
+    /**
+     * @param mac Identifies the player at the server
+     * @param name Name of the player, if the server asks for it
+     */
+    public SlimprotoClient(@NonNull String host, int port, @NonNull byte[] mac, @NonNull String name,
+                           @NonNull AudioSink sink, @NonNull Listener listener) {
+        this.host = host;
+        this.port = port;
+        this.mac = mac;
+        this.name = name;
+        this.sink = sink;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        controlThread = new Thread(this::run, "Slimproto");
+        controlThread.start();
+    }
+
+    /**
+     * Disconnect and stop playback. Doesn't wait for the threads of the client to finish.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        controlThread.interrupt();
+        closeSocket();
+        cancelStream();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Socket socket = new Socket();
+                synchronized (sendLock) {
+                    // So stop() can abort the connect
+                    this.socket = socket;
+                }
+                if (!running) {
+                    break;
+                }
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+                socket.setKeepAlive(true);
+                socket.setTcpNoDelay(true);
+                synchronized (sendLock) {
+                    out = socket.getOutputStream();
+                }
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+                send(Slimproto.helo(mac, "Model=squeezer,ModelName=Squeezer," + sink.getFormats()));
+                listener.onConnected();
+                while (running) {
+                    handle(Slimproto.readFrame(in));
+                }
+            } catch (IOException e) {
+                if (running) {
+                    listener.onDisconnected(e);
+                }
+            } finally {
+                closeSocket();
+                cancelStream();
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException e) {
+                    // stop() was called
+                }
+            }
+        }
+    }
+
+    private void handle(Slimproto.Frame frame) throws IOException {
+        switch (frame.command) {
+            case "strm":
+                handleStrm(Slimproto.Strm.parse(frame.data));
+                break;
+            case "audg":
+                sink.setVolume(Slimproto.gain(frame.data));
+                break;
+            case "setd":
+                if (frame.data.length == 1 && frame.data[0] == 0) {
+                    send(Slimproto.setdName(name));
+                }
+                break;
+            default:
+                // Display, IR and output switching don't apply to this player
+                break;
+        }
+    }
+
+    private void handleStrm(Slimproto.Strm strm) {
+        switch (strm.command) {
+            case Slimproto.Strm.START: {
+                if (!sink.canPlay(strm.format)) {
+                    cancelStream();
+                    sendStatus("STMn", 0);
+                    break;
+                }
+                Stream previous = stream;
+                if (previous != null && !previous.draining) {
+                    previous.cancel();
+                }
+                Stream next = new Stream(strm, previous);
+                stream = next;
+                next.start();
+                break;
+            }
+            case Slimproto.Strm.PAUSE:
+                // A pause with an interval is used to synchronize players, which isn't supported
+                if (strm.replayGain == 0) {
+                    sink.pause();
+                    sendStatus("STMp", 0);
+                }
+                break;
+            case Slimproto.Strm.UNPAUSE:
+                sink.resume();
+                sendStatus("STMr", 0);
+                break;
+            case Slimproto.Strm.STOP:
+            case Slimproto.Strm.FLUSH:
+                cancelStream();
+                sendStatus("STMf", 0);
+                break;
+            case Slimproto.Strm.STATUS:
+                sendStatus("STMt", strm.replayGain);
+                break;
+            default:
+                // Skip ahead is only used to synchronize players
+                break;
+        }
+    }
+
+    private void cancelStream() {
+        Stream current = stream;
+        if (current != null) {
+            current.cancel();
+            stream = null;
+        }
+    }
+
+    private void sendStatus(String event, int serverTimestamp) {
+        Stream current = stream;
+        int fullness = (current != null) ? current.fullness : 0;
+        long bytesReceived = (current != null) ? current.bytesReceived : 0;
+        send(Slimproto.stat(event, BUFFER_SIZE, fullness, bytesReceived,
+                (int) (System.nanoTime() / 1_000_000), sink.getPlayedMillis(), serverTimestamp));
+    }
+
+    private void send(byte[] frame) {
+        synchronized (sendLock) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(frame);
+                out.flush();
+            } catch (IOException e) {
+                // The control thread notices the broken connection and reconnects
+                closeSocket();
+            }
+        }
+    }
+
+    private void closeSocket() {
+        synchronized (sendLock) {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing to do
+                }
+                socket = null;
+                out = null;
+            }
+        }
+    }
+
+    /**
+     * Reads a stream from the server and writes it to the sink.
+     */
+    private class Stream extends Thread {
+        private final Slimproto.Strm strm;
+        @Nullable
+        private volatile Stream previous;
+
+        private volatile boolean cancelled;
+        /** All of the stream has been read, and the sink is playing what is left */
+        private volatile boolean draining;
+        private volatile long bytesReceived;
+        /** Bytes in the buffer, waiting for the sink */
+        private volatile int fullness;
+
+        Stream(Slimproto.Strm strm, @Nullable Stream previous) {
+            super("Slimproto stream");
+            this.strm = strm;
+            this.previous = previous;
+        }
+
+        void cancel() {
+            cancelled = true;
+            interrupt();
+            Stream previous = this.previous;
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (previous != null) {
+                    previous.join();
+                    previous = null;
+                }
+                play();
+            } catch (InterruptedException e) {
+                // Cancelled while the previous stream played
+            } catch (IOException e) {
+                if (!cancelled) {
+                    listener.onStreamError(e);
+                    sendStatus("STMn", 0);
+                }
+            } finally {
+                sink.close();
+            }
+        }
+
+        private void play() throws IOException {
+            boolean started = false;
+            try (HttpStream http = HttpStream.open(streamAddress(), strm.request, buffer)) {
+                sendStatus("STMc", 0);
+                send(Slimproto.resp(http.getHeaders()));
+                sendStatus("STMh", 0);
+
+                sink.open(strm.autostart());
+                // The output of the sink is the buffer which has to be filled before playback can
+                // start, so report it loaded right away, rather than waiting for the threshold.
+                if (!strm.autostart()) {
+                    sendStatus("STMl", 0);
+                }
+                long received = buffer.position();
+                while (true) {
+                    bytesReceived = received;
+                    fullness = buffer.position();
+                    buffer.flip();
+                    sink.write(buffer);
+                    buffer.clear();
+                    if (!started && sink.getPlayedMillis() > 0) {
+                        started = true;
+                        sendStatus("STMs", 0);
+                    }
+                    int read = http.read(buffer);
+                    if (read < 0) {
+                        break;
+                    }
+                    received += read;
+                }
+            }
+
+            fullness = 0;
+            draining = true;
+            sendStatus("STMd", 0);
+            sink.drain();
+            if (cancelled || stream != this) {
+                return;
+            }
+            if (!started) {
+                sendStatus("STMs", 0);
+            }
+            sendStatus("STMu", 0);
+        }
+
+        private InetSocketAddress streamAddress() throws IOException {
+            if (strm.serverIp == 0) {
+                return new InetSocketAddress(host, strm.serverPort);
+            }
+            byte[] ip = ByteBuffer.allocate(4).putInt(strm.serverIp).array();
+            return new InetSocketAddress(InetAddress.getByAddress(ip), strm.serverPort);
+        }
+    }
+}
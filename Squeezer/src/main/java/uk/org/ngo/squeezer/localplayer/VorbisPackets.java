@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The parts of the Vorbis packet format needed to hand the packets of an Ogg stream to the
+ * platform decoder.
+ * <p>
+ * Packets are read from the position to the limit of the buffer, which are left unchanged.
+ */
+class VorbisPackets {
+    static final int AUDIO = 0;
+    static final int IDENTIFICATION = 1;
+    static final int COMMENT = 3;
+    static final int SETUP = 5;
+
+    private static final byte[] MAGIC = {'v', 'o', 'r', 'b', 'i', 's'};
+
+    /** Length of the identification header */
+    private static final int IDENTIFICATION_LENGTH = 30;
+
+    private VorbisPackets() {
+    }
+
+    /**
+     * @return The type of header of the packet, or {@link #AUDIO} if it isn't a header
+     */
+    static int type(ByteBuffer packet) {
+        int start = packet.position();
+        if (packet.remaining() < 1 + MAGIC.length || (packet.get(start) & 1) == 0) {
+            return AUDIO;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (packet.get(start + 1 + i) != MAGIC[i]) {
+                return AUDIO;
+            }
+        }
+        return packet.get(start) & 0xff;
+    }
+
+    static int channels(ByteBuffer identification) {
+        checkIdentification(identification);
+        return identification.get(identification.position() + 11) & 0xff;
+    }
+
+    static int sampleRate(ByteBuffer identification) {
+        checkIdentification(identification);
+        return identification.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(identification.position() + 12);
+    }
+
+    /**
+     * Append the number of samples of the packet, as the platform decoder expects after each audio
+     * packet. -1 means all of the decoded samples are valid.
+     */
+    static void putSampleCount(ByteBuffer input) {
+        ByteOrder order = input.order();
+        input.order(ByteOrder.LITTLE_ENDIAN).putInt(-1);
+        input.order(order);
+    }
+
+    private static void checkIdentification(ByteBuffer packet) {
+        if (type(packet) != IDENTIFICATION || packet.remaining() < IDENTIFICATION_LENGTH) {
+            throw new IllegalArgumentException("Not a Vorbis identification header");
+        }
+    }
+}
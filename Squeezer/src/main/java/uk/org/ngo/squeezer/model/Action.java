@@ -22,6 +22,7 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import uk.org.ngo.squeezer.Util;
@@ -139,6 +140,10 @@ public class Action implements Parcelable {
         public JsonAction() {
         }
 
+        JsonAction(List<String> cmd, Map<String, Object> params) {
+            super(cmd, params);
+        }
+
         public static final Creator<JsonAction> CREATOR = new Creator<JsonAction>() {
             @Override
             public JsonAction[] newArray(int size) {
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.model;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import uk.org.ngo.squeezer.Util;
+import uk.org.ngo.squeezer.util.OverlayMap;
+
+/**
+ * The parts of a {@link Action.JsonAction} which don't depend on the item.
+ * <p>
+ * Items in a list from the server typically use the actions of the "base" record, and differ only
+ * by their item parameters, f.e. the album_id. Each distinct action record is parsed once to a
+ * template, and the actions of the items share the command terms and parameters of the template,
+ * with the item parameters as a small overlay, see {@link OverlayMap}.
+ * <p>
+ * Templates are immutable, and are interned, so identical actions in different pages or in the
+ * actions records of the items are also shared.
+ */
+final class ActionTemplate {
+    private static final String USE_CONTEXT_MENU = "useContextMenu";
+
+    /** Templates by the action record they were parsed from */
+    private static final ConcurrentMap<Map<String, Object>, ActionTemplate> templates = new MapMaker().weakKeys().makeMap();
+
+    private static final Interner<ActionTemplate> interner = Interners.newWeakInterner();
+
+    private final List<String> cmd;
+    private final Map<String, Object> params;
+
+    /** Parameters which take precedence over the item parameters */
+    private final Set<String> fixedParams;
+
+    private final String nextWindow;
+    private final Boolean windowIsContextMenu;
+    private final boolean isContextMenu;
+
+    /** Shared by the actions, like the command terms and parameters */
+    private final Action.NextWindow actionNextWindow;
+    private final Action.ActionWindow actionWindow;
+
+    /** Lazily created variants of this template, see {@link #withParam(String, Object)} */
+    private volatile Map<String, ActionTemplate> variants = Collections.emptyMap();
+
+    private ActionTemplate(List<String> cmd, Map<String, Object> params, Set<String> fixedParams,
+                           String nextWindow, Boolean windowIsContextMenu, boolean isContextMenu) {
+        this.cmd = cmd;
+        this.params = params;
+        this.fixedParams = fixedParams;
+        this.nextWindow = nextWindow;
+        this.windowIsContextMenu = windowIsContextMenu;
+        this.isContextMenu = isContextMenu;
+        actionNextWindow = Action.NextWindow.fromString(nextWindow);
+        actionWindow = (windowIsContextMenu != null ? new Action.ActionWindow(windowIsContextMenu) : null);
+    }
+
+    /**
+     * @return The template for the supplied action record
+     */
+    @NonNull
+    static ActionTemplate of(@NonNull Map<String, Object> actionRecord) {
+        ActionTemplate template = templates.get(actionRecord);
+        if (template == null) {
+            template = interner.intern(parse(actionRecord));
+            templates.put(actionRecord, template);
+        }
+        return template;
+    }
+
+    private static ActionTemplate parse(Map<String, Object> actionRecord) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        Map<String, Object> recordParams = Util.getRecord(actionRecord, "params");
+        if (recordParams != null) {
+            for (Map.Entry<String, Object> entry : recordParams.entrySet()) {
+                Object value = entry.getValue();
+                params.put(entry.getKey().intern(), value instanceof String ? ((String) value).intern() : value);
+            }
+        }
+        params.put(USE_CONTEXT_MENU, "1");
+
+        List<String> cmd = Collections.unmodifiableList(Arrays.asList(internAll(Util.getStringArray(actionRecord, "cmd"))));
+
+        Map<String, Object> windowRecord = Util.getRecord(actionRecord, "window");
+        Boolean windowIsContextMenu = (windowRecord != null ? Util.getInt(windowRecord, "isContextMenu") != 0 : null);
+
+        // LMS may send isContextMenu in the itemParams, but this is ignored by squeezeplay, so we must do the same.
+        boolean isContextMenu = (recordParams != null && recordParams.containsKey("isContextMenu")) || Boolean.TRUE.equals(windowIsContextMenu);
+
+        String nextWindow = Util.getString(actionRecord, "nextWindow");
+        return new ActionTemplate(cmd, Collections.unmodifiableMap(params), Collections.singleton(USE_CONTEXT_MENU),
+                nextWindow == null ? null : nextWindow.intern(), windowIsContextMenu, isContextMenu);
+    }
+
+    private static String[] internAll(String[] strings) {
+        for (int i = 0; i < strings.length; i++) {
+            if (strings[i] != null) {
+                strings[i] = strings[i].intern();
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * @return A template like this, with the supplied parameter, which also takes precedence over
+     *     the item parameters
+     */
+    @NonNull
+    ActionTemplate withParam(@NonNull String key, @NonNull Object value) {
+        String variantKey = key + '=' + value;
+        ActionTemplate variant = variants.get(variantKey);
+        if (variant == null) {
+            Map<String, Object> params = new LinkedHashMap<>(this.params);
+            params.put(key, value);
+            variant = interner.intern(new ActionTemplate(cmd, Collections.unmodifiableMap(params),
+                    ImmutableSet.<String>builder().addAll(fixedParams).add(key).build(),
+                    nextWindow, windowIsContextMenu, isContextMenu));
+            Map<String, ActionTemplate> variants = new HashMap<>(this.variants);
+            variants.put(variantKey, variant);
+            this.variants = variants;
+        }
+        return variant;
+    }
+
+    /**
+     * Create an action from this template.
+     *
+     * @param itemParams Parameters of the item, which are not copied unless they contain a
+     *     parameter which can't be overridden
+     * @param itemNextWindow Next window of the item, used if the action record doesn't have one
+     * @param baseNextWindow Next window of the base record, used if neither the action record nor
+     *     the item has one
+     */
+    @NonNull
+    Action.JsonAction newAction(Map<String, Object> itemParams, Action.NextWindow itemNextWindow, Action.NextWindow baseNextWindow) {
+        Map<String, Object> overlay = (itemParams != null ? itemParams : ImmutableMap.of());
+        for (String key : fixedParams) {
+            if (overlay.containsKey(key)) {
+                overlay = new HashMap<>(overlay);
+                overlay.keySet().removeAll(fixedParams);
+                break;
+            }
+        }
+
+        Action.JsonAction action = new Action.JsonAction(cmd, new OverlayMap<>(params, overlay));
+        action.nextWindow = actionNextWindow;
+        if (action.nextWindow == null) action.nextWindow = itemNextWindow;
+        if (action.nextWindow == null) action.nextWindow = baseNextWindow;
+        action.window = actionWindow;
+        action.isContextMenu = isContextMenu;
+        return action;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ActionTemplate that = (ActionTemplate) o;
+        return isContextMenu == that.isContextMenu &&
+                cmd.equals(that.cmd) &&
+                params.equals(that.params) &&
+                fixedParams.equals(that.fixedParams) &&
+                Objects.equals(nextWindow, that.nextWindow) &&
+                Objects.equals(windowIsContextMenu, that.windowIsContextMenu);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cmd, params, fixedParams, nextWindow, windowIsContextMenu, isContextMenu);
+    }
+}
@@ -19,8 +19,12 @@ package uk.org.ngo.squeezer.model;
 import android.os.Parcel;
 import androidx.annotation.NonNull;
 
+import java.io.IOException;
 import java.util.Map;
 
+import uk.org.ngo.squeezer.util.SnapshotInput;
+import uk.org.ngo.squeezer.util.SnapshotOutput;
+
 
 public class CurrentPlaylistItem extends JiveItem {
 
@@ -79,6 +83,25 @@ public class CurrentPlaylistItem extends JiveItem {
         dest.writeString(artist);
         dest.writeString(album);
     }
+
+    /**
+     * Restore an item written by {@link #writeToSnapshot(SnapshotOutput)}.
+     */
+    CurrentPlaylistItem(SnapshotInput in) throws IOException {
+        super(in);
+        track = in.readString();
+        artist = in.readString();
+        album = in.readString();
+    }
+
+    @Override
+    void writeToSnapshot(SnapshotOutput out) throws IOException {
+        super.writeToSnapshot(out);
+        out.writeString(track);
+        out.writeString(artist);
+        out.writeString(album);
+    }
+
     /**
      * Extend the equality test by looking at additional track information.
      *
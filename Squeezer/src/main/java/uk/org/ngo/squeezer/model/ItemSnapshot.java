@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.model;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import uk.org.ngo.squeezer.util.SnapshotInput;
+import uk.org.ngo.squeezer.util.SnapshotOutput;
+
+/**
+ * A snapshot of the items of a list, in a compact binary format.
+ * <p>
+ * The list is saved as the runs of consecutive items which have been received, and the total
+ * number of items. Strings are interned, see {@link SnapshotOutput}.
+ * <p>
+ * Unlike the {@link android.os.Parcelable} implementations of the items, this is meant to be
+ * saved to a file, so it can be restored after the process has been killed, without putting the
+ * items in the saved instance state.
+ */
+public class ItemSnapshot {
+    private static final int MAGIC = 0x53514931; // "SQI1"
+
+    /** Number of items in the list */
+    public final int count;
+
+    /** Runs of consecutive items */
+    public final List<Run> runs;
+
+    public static class Run {
+        public final int start;
+        public final List<JiveItem> items;
+
+        public Run(int start, List<JiveItem> items) {
+            this.start = start;
+            this.items = items;
+        }
+    }
+
+    public ItemSnapshot(int count, List<Run> runs) {
+        this.count = count;
+        this.runs = runs;
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        SnapshotOutput out = new SnapshotOutput(outputStream);
+        out.writeVarInt(MAGIC);
+        out.writeVarInt(count);
+        out.writeVarInt(runs.size());
+        for (Run run : runs) {
+            out.writeVarInt(run.start);
+            writeItems(out, run.items);
+        }
+        out.flush();
+    }
+
+    @NonNull
+    public static ItemSnapshot read(InputStream inputStream) throws IOException {
+        SnapshotInput in = new SnapshotInput(inputStream);
+        if (in.readVarInt() != MAGIC) {
+            throw new IOException("Not an item snapshot");
+        }
+        int count = in.readVarInt();
+        int runCount = in.readVarInt();
+        List<Run> runs = new ArrayList<>(runCount);
+        for (int i = 0; i < runCount; i++) {
+            int start = in.readVarInt();
+            runs.add(new Run(start, readItems(in)));
+        }
+        return new ItemSnapshot(count, runs);
+    }
+
+    static void writeItems(SnapshotOutput out, List<JiveItem> items) throws IOException {
+        out.writeInt(items == null ? -1 : items.size());
+        if (items != null) {
+            for (JiveItem item : items) {
+                item.writeToSnapshot(out);
+            }
+        }
+    }
+
+    static List<JiveItem> readItems(SnapshotInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<JiveItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new JiveItem(in));
+        }
+        return items;
+    }
+
+    static void writeUri(SnapshotOutput out, Uri uri) throws IOException {
+        out.writeString(Uri.EMPTY.equals(uri) ? "" : uri.toString());
+    }
+
+    static Uri readUri(SnapshotInput in) throws IOException {
+        String uri = in.readString();
+        return (uri.isEmpty() ? Uri.EMPTY : Uri.parse(uri));
+    }
+
+    static void writeStrings(SnapshotOutput out, String[] strings) throws IOException {
+        out.writeInt(strings == null ? -1 : strings.length);
+        if (strings != null) {
+            for (String s : strings) {
+                out.writeString(s);
+            }
+        }
+    }
+
+    static String[] readStrings(SnapshotInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        String[] strings = new String[length];
+        for (int i = 0; i < length; i++) {
+            strings[i] = in.readString();
+        }
+        return strings;
+    }
+
+    static void writeBoolean(SnapshotOutput out, Boolean value) throws IOException {
+        out.writeInt(value == null ? -1 : value ? 1 : 0);
+    }
+
+    static Boolean readBoolean(SnapshotInput in) throws IOException {
+        int value = in.readInt();
+        return (value < 0 ? null : value != 0);
+    }
+
+    static void writeCommand(SnapshotOutput out, SlimCommand command) throws IOException {
+        out.writeVarInt(command.cmd.size());
+        for (String term : command.cmd) {
+            out.writeString(term);
+        }
+        out.writeVarInt(command.params.size());
+        for (Map.Entry<String, Object> entry : command.params.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeString(entry.getValue() == null ? null : entry.getValue().toString());
+        }
+    }
+
+    static <T extends SlimCommand> T readCommand(SnapshotInput in, T command) throws IOException {
+        int cmdSize = in.readVarInt();
+        for (int i = 0; i < cmdSize; i++) {
+            command.cmd.add(in.readString());
+        }
+        int paramsSize = in.readVarInt();
+        for (int i = 0; i < paramsSize; i++) {
+            command.params.put(in.readString(), in.readString());
+        }
+        return command;
+    }
+
+    static void writeJsonAction(SnapshotOutput out, Action.JsonAction action) throws IOException {
+        out.writeBoolean(action != null);
+        if (action != null) {
+            writeCommand(out, action);
+            out.writeString(action.nextWindow == null ? null : action.nextWindow.toString());
+            writeBoolean(out, action.window == null ? null : action.window.isContextMenu);
+            out.writeBoolean(action.isContextMenu);
+        }
+    }
+
+    static Action.JsonAction readJsonAction(SnapshotInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Action.JsonAction action = readCommand(in, new Action.JsonAction());
+        action.nextWindow = Action.NextWindow.fromString(in.readString());
+        Boolean isContextMenu = readBoolean(in);
+        action.window = (isContextMenu == null ? null : new Action.ActionWindow(isContextMenu));
+        action.isContextMenu = in.readBoolean();
+        return action;
+    }
+
+    static void writeAction(SnapshotOutput out, Action action) throws IOException {
+        out.writeBoolean(action != null);
+        if (action != null) {
+            out.writeString(action.urlCommand);
+            out.writeInt(action.choices == null ? -1 : action.choices.length);
+            if (action.choices != null) {
+                for (Action.JsonAction choice : action.choices) {
+                    writeJsonAction(out, choice);
+                }
+            }
+            writeJsonAction(out, action.action);
+        }
+    }
+
+    static Action readAction(SnapshotInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Action action = new Action();
+        action.urlCommand = in.readString();
+        int choiceCount = in.readInt();
+        if (choiceCount >= 0) {
+            action.choices = new Action.JsonAction[choiceCount];
+            for (int i = 0; i < choiceCount; i++) {
+                action.choices[i] = readJsonAction(in);
+            }
+        }
+        action.action = readJsonAction(in);
+        return action;
+    }
+
+    static void writeWindow(SnapshotOutput out, Window window) throws IOException {
+        out.writeBoolean(window != null);
+        if (window != null) {
+            out.writeString(window.text);
+            out.writeString(window.textarea);
+            out.writeString(window.textareaToken);
+            writeUri(out, window.icon);
+            out.writeString(window.titleStyle);
+            out.writeString(window.windowStyle == null ? null : window.windowStyle.name());
+            out.writeString(window.help);
+            out.writeString(window.windowId);
+        }
+    }
+
+    static Window readWindow(SnapshotInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Window window = new Window();
+        window.text = in.readString();
+        window.textarea = in.readString();
+        window.textareaToken = in.readString();
+        window.icon = readUri(in);
+        window.titleStyle = in.readString();
+        String windowStyle = in.readString();
+        window.windowStyle = (windowStyle == null ? null : Window.WindowStyle.valueOf(windowStyle));
+        window.help = in.readString();
+        window.windowId = in.readString();
+        return window;
+    }
+
+    static void writeInput(SnapshotOutput out, Input input) throws IOException {
+        out.writeBoolean(input != null);
+        if (input != null) {
+            out.writeInt(input.len);
+            out.writeString(input.allowedChars);
+            out.writeString(input.inputStyle);
+            out.writeString(input.title);
+            out.writeString(input.initialText);
+            out.writeBoolean(input.help != null);
+            if (input.help != null) {
+                out.writeString(input.help.text);
+                out.writeString(input.help.token);
+            }
+            out.writeString(input.softbutton1);
+            out.writeString(input.softbutton2);
+        }
+    }
+
+    static Input readInput(SnapshotInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Input input = new Input();
+        input.len = in.readInt();
+        input.allowedChars = in.readString();
+        input.inputStyle = in.readString();
+        input.title = in.readString();
+        input.initialText = in.readString();
+        if (in.readBoolean()) {
+            input.help = new HelpText();
+            input.help.text = in.readString();
+            input.help.token = in.readString();
+        }
+        input.softbutton1 = in.readString();
+        input.softbutton2 = in.readString();
+        return input;
+    }
+
+    static void writeSlider(SnapshotOutput out, Slider slider) throws IOException {
+        out.writeBoolean(slider != null);
+        if (slider != null) {
+            out.writeInt(slider.min);
+            out.writeInt(slider.max);
+            out.writeInt(slider.adjust);
+            out.writeInt(slider.initial);
+            out.writeString(slider.sliderIcons);
+            out.writeString(slider.help);
+        }
+    }
+
+    static Slider readSlider(SnapshotInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Slider slider = new Slider();
+        slider.min = in.readInt();
+        slider.max = in.readInt();
+        slider.adjust = in.readInt();
+        slider.initial = in.readInt();
+        slider.sliderIcons = in.readString();
+        slider.help = in.readString();
+        return slider;
+    }
+}
@@ -28,6 +28,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
 import androidx.appcompat.content.res.AppCompatResources;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -40,6 +41,8 @@ import java.util.Set;
 import uk.org.ngo.squeezer.R;
 import uk.org.ngo.squeezer.Squeezer;
 import uk.org.ngo.squeezer.Util;
+import uk.org.ngo.squeezer.util.SnapshotInput;
+import uk.org.ngo.squeezer.util.SnapshotOutput;
 
 
 public class JiveItem extends Item {
@@ -108,22 +111,28 @@ public class JiveItem extends Item {
     public String inputValue;
     public Window window;
     public boolean doAction;
-    public Action goAction;
-    public Action playAction;
-    public Action addAction;
-    public Action insertAction;
-    public Action moreAction;
-    public List<JiveItem> subItems;
+    private Action goAction;
+    private Action playAction;
+    private Action addAction;
+    private Action insertAction;
+    private Action moreAction;
+    private List<JiveItem> subItems;
     public boolean showBigArtwork;
     public int selectedIndex;
     public String[] choiceStrings;
     public Boolean checkbox;
-    public Map<Boolean, Action> checkboxActions;
+    private Map<Boolean, Action> checkboxActions;
     public Boolean radio;
     public Slider slider;
 
     private SlimCommand downloadCommand;
 
+    /**
+     * Where the actions and sub items are extracted from, when they are first needed. Null when
+     * they have been extracted, see {@link #materialize()}.
+     */
+    private volatile ActionSource actionSource;
+
     public JiveItem() {
         name = "";
         icon = Uri.EMPTY;
@@ -183,6 +192,15 @@ public class JiveItem extends Item {
         return AppCompatResources.getDrawable(context, getSlimIcon(defaultIcon));
     }
 
+    /**
+     * @return Resource which identifies the drawable returned by {@link #getIconDrawable(Context)}
+     */
+    @DrawableRes
+    public int getIconResource() {
+        @DrawableRes int foreground = getItemIcon();
+        return (foreground != 0 ? foreground : getSlimIcon(R.drawable.icon_pending_artwork));
+    }
+
     @DrawableRes private int getSlimIcon(@DrawableRes int defaultIcon) {
         @DrawableRes Integer iconResource = slimIcons.get(id);
         return iconResource == null ? defaultIcon : iconResource;
@@ -258,11 +276,13 @@ public class JiveItem extends Item {
 
 
     public boolean isSelectable() {
-        return (goAction != null || nextWindow != null || hasSubItems()|| node != null || checkbox != null);
+        ActionSource source = actionSource;
+        boolean hasGoAction = (source != null ? source.actionRecord(source.goActionName) != null : goAction != null);
+        return (hasGoAction || nextWindow != null || hasSubItems()|| node != null || checkbox != null);
     }
 
     public boolean hasContextMenu() {
-        return (playAction != null || addAction != null || insertAction != null || moreAction != null || checkbox != null || radio != null);
+        return (hasAction("play", playAction) || hasAction("add", addAction) || hasAction("add-hold", insertAction) || hasAction("more", moreAction) || checkbox != null || radio != null);
     }
 
 
@@ -276,44 +296,25 @@ public class JiveItem extends Item {
         Map<String, Object> baseRecord = getRecord(record, "base");
         Map<String, Object> baseActions = (baseRecord != null ? getRecord(baseRecord, "actions") : null);
         Map<String, Object> baseWindow = (baseRecord != null ? getRecord(baseRecord, "window") : null);
-        Map<String, Object> actionsRecord = getRecord(record, "actions");
         nextWindow = Action.NextWindow.fromString(getString(record, "nextWindow"));
         input = extractInput(getRecord(record, "input"));
         window = extractWindow(getRecord(record, "window"), baseWindow);
 
-        // do takes precedence over go
-        goAction = extractAction("do", baseActions, actionsRecord, record, baseRecord);
-        doAction = (goAction != null);
-        if (goAction == null) {
-            // check if item instructs us to use a different action
-            String goActionName = record.containsKey("goAction") ? getString(record, "goAction") : "go";
-            goAction = extractAction(goActionName, baseActions, actionsRecord, record, baseRecord);
+        // Rows only show the name, text2 and icon, so the actions and sub items are extracted when
+        // the item is used
+        ActionSource source = new ActionSource(record, baseActions, baseRecord);
+        if (!source.isEmpty()) {
+            actionSource = source;
+            doAction = source.isDoAction();
         }
 
-        playAction = extractAction("play", baseActions, actionsRecord, record, baseRecord);
-        addAction = extractAction("add", baseActions, actionsRecord, record, baseRecord);
-        insertAction = extractAction("add-hold", baseActions, actionsRecord, record, baseRecord);
-        moreAction = extractAction("more", baseActions, actionsRecord, record, baseRecord);
-        if (moreAction != null) {
-            moreAction.action.params.put("xmlBrowseInterimCM", 1);
-        }
-
-        downloadCommand = extractDownloadAction(record);
-
-        subItems = extractSubItems((Object[]) record.get("item_loop"));
         showBigArtwork = record.containsKey("showBigArtwork");
 
         selectedIndex = getInt(record, "selectedIndex");
         choiceStrings = Util.getStringArray(record, "choiceStrings");
-        if (goAction != null && goAction.action != null && goAction.action.cmd.size() == 0) {
-            doAction = true;
-        }
 
         if (record.containsKey("checkbox")) {
             checkbox = (getInt(record, "checkbox") != 0);
-            checkboxActions = new HashMap<>();
-            checkboxActions.put(true, extractAction("on", baseActions, actionsRecord, record, baseRecord));
-            checkboxActions.put(false, extractAction("off", baseActions, actionsRecord, record, baseRecord));
         }
 
         if (record.containsKey("radio")) {
@@ -365,6 +366,7 @@ public class JiveItem extends Item {
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
+        materialize();
         dest.writeString(getId());
         dest.writeString(name);
         dest.writeString(text2);
@@ -395,6 +397,80 @@ public class JiveItem extends Item {
         dest.writeParcelable(downloadCommand, flags);
     }
 
+    /**
+     * Restore an item written by {@link #writeToSnapshot(SnapshotOutput)}.
+     */
+    JiveItem(SnapshotInput in) throws IOException {
+        setId(in.readString());
+        name = in.readString();
+        text2 = in.readString();
+        icon = ItemSnapshot.readUri(in);
+        node = in.readString();
+        weight = in.readInt();
+        type = in.readString();
+        nextWindow = Action.NextWindow.fromString(in.readString());
+        input = ItemSnapshot.readInput(in);
+        window = ItemSnapshot.readWindow(in);
+        goAction = ItemSnapshot.readAction(in);
+        playAction = ItemSnapshot.readAction(in);
+        addAction = ItemSnapshot.readAction(in);
+        insertAction = ItemSnapshot.readAction(in);
+        moreAction = ItemSnapshot.readAction(in);
+        subItems = ItemSnapshot.readItems(in);
+        doAction = in.readBoolean();
+        showBigArtwork = in.readBoolean();
+        selectedIndex = in.readInt();
+        choiceStrings = ItemSnapshot.readStrings(in);
+        checkbox = ItemSnapshot.readBoolean(in);
+        if (checkbox != null) {
+            checkboxActions = new HashMap<>();
+            checkboxActions.put(true, ItemSnapshot.readAction(in));
+            checkboxActions.put(false, ItemSnapshot.readAction(in));
+        }
+        radio = ItemSnapshot.readBoolean(in);
+        slider = ItemSnapshot.readSlider(in);
+        downloadCommand = (in.readBoolean() ? ItemSnapshot.readCommand(in, new SlimCommand()) : null);
+    }
+
+    /**
+     * Write this item to an {@link ItemSnapshot}, in the same order as
+     * {@link #writeToParcel(Parcel, int)}.
+     */
+    void writeToSnapshot(SnapshotOutput out) throws IOException {
+        materialize();
+        out.writeString(getId());
+        out.writeString(name);
+        out.writeString(text2);
+        ItemSnapshot.writeUri(out, icon);
+        out.writeString(node);
+        out.writeInt(weight);
+        out.writeString(type);
+        out.writeString(nextWindow == null ? null : nextWindow.toString());
+        ItemSnapshot.writeInput(out, input);
+        ItemSnapshot.writeWindow(out, window);
+        ItemSnapshot.writeAction(out, goAction);
+        ItemSnapshot.writeAction(out, playAction);
+        ItemSnapshot.writeAction(out, addAction);
+        ItemSnapshot.writeAction(out, insertAction);
+        ItemSnapshot.writeAction(out, moreAction);
+        ItemSnapshot.writeItems(out, subItems);
+        out.writeBoolean(doAction);
+        out.writeBoolean(showBigArtwork);
+        out.writeInt(selectedIndex);
+        ItemSnapshot.writeStrings(out, choiceStrings);
+        ItemSnapshot.writeBoolean(out, checkbox);
+        if (checkbox != null) {
+            ItemSnapshot.writeAction(out, checkboxActions.get(true));
+            ItemSnapshot.writeAction(out, checkboxActions.get(false));
+        }
+        ItemSnapshot.writeBoolean(out, radio);
+        ItemSnapshot.writeSlider(out, slider);
+        out.writeBoolean(downloadCommand != null);
+        if (downloadCommand != null) {
+            ItemSnapshot.writeCommand(out, downloadCommand);
+        }
+    }
+
 
     public boolean hasInput() {
         return hasInputField() || hasChoices();
@@ -417,17 +493,98 @@ public class JiveItem extends Item {
     }
 
     public boolean hasSubItems() {
-        return (subItems != null);
+        ActionSource source = actionSource;
+        return (source != null ? source.itemLoop != null : subItems != null);
+    }
+
+    public List<JiveItem> getSubItems() {
+        materialize();
+        return subItems;
     }
 
     public boolean canDownload() {
-        return downloadCommand != null;
+        return downloadCommand() != null;
     }
 
     public SlimCommand downloadCommand() {
+        materialize();
         return downloadCommand;
     }
 
+    public Action getGoAction() {
+        materialize();
+        return goAction;
+    }
+
+    public void setGoAction(Action goAction) {
+        materialize();
+        this.goAction = goAction;
+    }
+
+    public Action getPlayAction() {
+        materialize();
+        return playAction;
+    }
+
+    public Action getAddAction() {
+        materialize();
+        return addAction;
+    }
+
+    public Action getInsertAction() {
+        materialize();
+        return insertAction;
+    }
+
+    public Action getMoreAction() {
+        materialize();
+        return moreAction;
+    }
+
+    public void setMoreAction(Action moreAction) {
+        materialize();
+        this.moreAction = moreAction;
+    }
+
+    /**
+     * @return The action to execute when the checkbox is set to the supplied value
+     */
+    public Action getCheckboxAction(boolean checked) {
+        materialize();
+        return (checkboxActions != null ? checkboxActions.get(checked) : null);
+    }
+
+    private boolean hasAction(String actionName, Action action) {
+        ActionSource source = actionSource;
+        return (source != null ? source.actionRecord(actionName) != null : action != null);
+    }
+
+    /**
+     * Extract the actions, the sub items and the download command, if it isn't done already.
+     */
+    private synchronized void materialize() {
+        ActionSource source = actionSource;
+        if (source == null) {
+            return;
+        }
+
+        // do takes precedence over go
+        goAction = extractAction(source, source.goActionName, null, null);
+        playAction = extractAction(source, "play", null, null);
+        addAction = extractAction(source, "add", null, null);
+        insertAction = extractAction(source, "add-hold", null, null);
+        moreAction = extractAction(source, "more", "xmlBrowseInterimCM", 1);
+        if (checkbox != null) {
+            checkboxActions = new HashMap<>();
+            checkboxActions.put(true, extractAction(source, "on", null, null));
+            checkboxActions.put(false, extractAction(source, "off", null, null));
+        }
+        downloadCommand = extractDownloadAction(source.trackType);
+        subItems = extractSubItems(source.itemLoop);
+
+        actionSource = null;
+    }
+
 
     @Override
     public int describeContents() {
@@ -444,11 +601,11 @@ public class JiveItem extends Item {
                 + ", name: " + getName()
                 + ", node: " + node
                 + ", weight: " + getWeight()
-                + ", go: " + goAction
-                + ", play: " + playAction
-                + ", add: " + addAction
-                + ", insert: " + insertAction
-                + ", more: " + moreAction
+                + ", go: " + getGoAction()
+                + ", play: " + getPlayAction()
+                + ", add: " + getAddAction()
+                + ", insert: " + getInsertAction()
+                + ", more: " + getMoreAction()
                 + ", window: " + window;
 
     }
@@ -537,27 +694,17 @@ public class JiveItem extends Item {
         return input;
     }
 
-    private Action extractAction(String actionName, Map<String, Object> baseActions, Map<String, Object> itemActions, Map<String, Object> record, Map<String, Object> baseRecord) {
-        Map<String, Object> actionRecord = null;
-        Map<String, Object> itemParams = null;
-
-        Object itemAction = (itemActions != null ? itemActions.get(actionName) : null);
-        if (itemAction instanceof Map) {
-            actionRecord = (Map<String, Object>) itemAction;
-        }
-        if (actionRecord == null && baseActions != null) {
-            Map<String, Object> baseAction = getRecord(baseActions, actionName);
-            if (baseAction != null) {
-                String itemsParams = (String) baseAction.get("itemsParams");
-                if (itemsParams != null) {
-                    itemParams = getRecord(record, itemsParams);
-                    if (itemParams != null) {
-                        actionRecord = baseAction;
-                    }
-                }
-            }
-        }
+    /**
+     * Extract the action with the supplied name from the item, or from the base record with the
+     * parameters of the item.
+     * <p>
+     * If fixedParam is not null, it is added to the action, unless the action has choices.
+     */
+    private Action extractAction(ActionSource source, String actionName, String fixedParam, Object fixedValue) {
+        Map<String, Object> actionRecord = source.actionRecord(actionName);
         if (actionRecord == null) return null;
+        Map<String, Object> itemParams = source.itemParams(actionName);
+        Action.NextWindow baseNextWindow = source.baseNextWindow;
 
         Action actionHolder = new Action();
 
@@ -566,44 +713,19 @@ public class JiveItem extends Item {
             actionHolder.choices = new Action.JsonAction[choices.length];
             for (int i = 0; i < choices.length; i++) {
                 actionRecord = (Map<String, Object>) choices[i];
-                actionHolder.choices[i]= extractJsonAction(baseRecord, actionRecord, itemParams);
+                actionHolder.choices[i] = ActionTemplate.of(actionRecord).newAction(itemParams, nextWindow, baseNextWindow);
             }
         } else {
-            actionHolder.action = extractJsonAction(baseRecord, actionRecord, itemParams);
+            ActionTemplate template = ActionTemplate.of(actionRecord);
+            if (fixedParam != null) {
+                template = template.withParam(fixedParam, fixedValue);
+            }
+            actionHolder.action = template.newAction(itemParams, nextWindow, baseNextWindow);
         }
 
         return actionHolder;
     }
 
-    private Action.JsonAction extractJsonAction(Map<String, Object> baseRecord, Map<String, Object> actionRecord, Map<String, Object> itemParams) {
-        Action.JsonAction action = new Action.JsonAction();
-
-        action.nextWindow = Action.NextWindow.fromString(getString(actionRecord, "nextWindow"));
-        if (action.nextWindow == null) action.nextWindow = nextWindow;
-        if (action.nextWindow == null && baseRecord != null)
-            action.nextWindow = Action.NextWindow.fromString(getString(baseRecord, "nextWindow"));
-
-        action.cmd(Util.getStringArray(actionRecord, "cmd"));
-        Map<String, Object> params = getRecord(actionRecord, "params");
-        if (params != null) {
-            action.params(params);
-        }
-        if (itemParams != null) {
-            action.params(itemParams);
-        }
-        action.param("useContextMenu", "1");
-
-        Map<String, Object> windowRecord = getRecord(actionRecord, "window");
-        if (windowRecord != null) {
-            action.window = new Action.ActionWindow(getInt(windowRecord, "isContextMenu") != 0);
-        }
-
-        // LMS may send isContextMenu in the itemParams, but this is ignored by squeezeplay, so we must do the same.
-        action.isContextMenu = (params != null && params.containsKey("isContextMenu")) || (action.window != null && action.window.isContextMenu);
-
-        return action;
-    }
-
     private List<JiveItem> extractSubItems(Object[] item_loop) {
         if (item_loop != null) {
             List<JiveItem> items = new ArrayList<>();
@@ -617,15 +739,15 @@ public class JiveItem extends Item {
         return null;
     }
 
-    private SlimCommand extractDownloadAction(Map<String, Object> record) {
-        if ("local".equals(getString(record, "trackType")) && (goAction != null || moreAction != null)) {
+    private SlimCommand extractDownloadAction(String trackType) {
+        if ("local".equals(trackType) && (goAction != null || moreAction != null)) {
             Action action = (moreAction != null ? moreAction : goAction);
             String trackId = getStringOrEmpty(action.action.params, "track_id");
             return new SlimCommand()
                     .cmd("titles")
                     .param("tags", SONG_TAGS)
                     .param("track_id", trackId);
-        } else if (playAction != null && Collections.singletonList("playlistcontrol").equals(playAction.action.cmd) && "load".equals(playAction.action.params.get("cmd"))) {
+        } else if (playAction != null && playAction.action != null && Collections.singletonList("playlistcontrol").equals(playAction.action.cmd) && "load".equals(playAction.action.params.get("cmd"))) {
             if (playAction.action.params.containsKey("folder_id")) {
                 return new SlimCommand()
                         .cmd("musicfolder")
@@ -668,4 +790,93 @@ public class JiveItem extends Item {
     }
     private static final Set<String> title_parameters = new HashSet<>(Arrays.asList("track_id", "album_id", "artist_id", "genre_id", "year"));
 
+
+    /**
+     * The parts of the record from the server which are needed to extract the actions and sub items
+     * of an item.
+     * <p>
+     * This keeps only references to the records for the actions, the item parameters and the sub
+     * items, not the whole item record. The base actions are shared by all the items in a page.
+     */
+    private static class ActionSource {
+        private final Map<String, Object> baseActions;
+        private final Map<String, Object> itemActions;
+        /** Item parameters records referenced by the base actions, by name */
+        private final Map<String, Object> itemParamsRecords;
+        private final Action.NextWindow baseNextWindow;
+        private final Object[] itemLoop;
+        private final String trackType;
+        private final String goActionName;
+
+        ActionSource(Map<String, Object> record, Map<String, Object> baseActions, Map<String, Object> baseRecord) {
+            this.baseActions = baseActions;
+            itemActions = Util.getRecord(record, "actions");
+            itemLoop = (Object[]) record.get("item_loop");
+            trackType = Util.getString(record, "trackType");
+            baseNextWindow = (baseRecord != null ? Action.NextWindow.fromString(Util.getString(baseRecord, "nextWindow")) : null);
+
+            Map<String, Object> itemParamsRecords = null;
+            if (baseActions != null) {
+                for (Object baseAction : baseActions.values()) {
+                    if (baseAction instanceof Map) {
+                        String itemsParams = Util.getString((Map<String, Object>) baseAction, "itemsParams");
+                        Object itemParams = (itemsParams != null ? record.get(itemsParams) : null);
+                        if (itemParams instanceof Map) {
+                            if (itemParamsRecords == null) {
+                                itemParamsRecords = new HashMap<>();
+                            }
+                            itemParamsRecords.put(itemsParams, itemParams);
+                        }
+                    }
+                }
+            }
+            this.itemParamsRecords = (itemParamsRecords != null ? itemParamsRecords : Collections.emptyMap());
+
+            // check if item instructs us to use a different action
+            goActionName = (actionRecord("do") != null) ? "do" : record.containsKey("goAction") ? Util.getString(record, "goAction") : "go";
+        }
+
+        boolean isEmpty() {
+            return (baseActions == null && itemActions == null && itemLoop == null);
+        }
+
+        boolean isDoAction() {
+            if ("do".equals(goActionName)) {
+                return true;
+            }
+            Map<String, Object> actionRecord = actionRecord(goActionName);
+            return (actionRecord != null && !actionRecord.containsKey("choices") && Util.getStringArray(actionRecord, "cmd").length == 0);
+        }
+
+        /**
+         * @return The record of the action with the supplied name, or null if the item doesn't
+         *     have the action
+         */
+        Map<String, Object> actionRecord(String actionName) {
+            Object itemAction = (itemActions != null ? itemActions.get(actionName) : null);
+            if (itemAction instanceof Map) {
+                return (Map<String, Object>) itemAction;
+            }
+            Map<String, Object> baseAction = (baseActions != null ? Util.getRecord(baseActions, actionName) : null);
+            return (baseAction != null && itemParams(baseAction) != null ? baseAction : null);
+        }
+
+        /**
+         * @return The item parameters for the action with the supplied name, or null if the action
+         *     is defined by the item
+         */
+        Map<String, Object> itemParams(String actionName) {
+            Object itemAction = (itemActions != null ? itemActions.get(actionName) : null);
+            if (itemAction instanceof Map) {
+                return null;
+            }
+            Map<String, Object> baseAction = (baseActions != null ? Util.getRecord(baseActions, actionName) : null);
+            return (baseAction != null ? itemParams(baseAction) : null);
+        }
+
+        private Map<String, Object> itemParams(Map<String, Object> baseAction) {
+            String itemsParams = Util.getString(baseAction, "itemsParams");
+            return (itemsParams != null ? (Map<String, Object>) itemParamsRecords.get(itemsParams) : null);
+        }
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+
+/**
+ * A raw item from one of the library queries (<code>artists</code>, <code>albums</code>,
+ * <code>genres</code>, <code>years</code> or <code>titles</code>), as used to fill the library
+ * mirror.
+ */
+public class LibraryRecord {
+    @NonNull
+    public final Map<String, Object> record;
+
+    public LibraryRecord(@NonNull Map<String, Object> record) {
+        this.record = record;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LibraryRecord" + record;
+    }
+}
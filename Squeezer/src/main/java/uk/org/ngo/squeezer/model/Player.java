@@ -25,11 +25,14 @@ import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.Map;
 
 import uk.org.ngo.squeezer.Util;
 import uk.org.ngo.squeezer.service.event.SongTimeChanged;
+import uk.org.ngo.squeezer.util.SnapshotInput;
+import uk.org.ngo.squeezer.util.SnapshotOutput;
 
 
 public class Player extends Item implements Comparable<Player> {
@@ -111,6 +114,34 @@ public class Player extends Item implements Comparable<Player> {
         mHashCode = HashCode.fromString(source.readString());
     }
 
+    /**
+     * Restore a player written by {@link #writeToSnapshot(SnapshotOutput)}. The state of the
+     * player is stale, see {@link PlayerState#isStale()}.
+     */
+    Player(SnapshotInput in) throws IOException {
+        setId(in.readString());
+        mIp = in.readString();
+        mName = in.readString();
+        mModel = in.readString();
+        mCanPowerOff = in.readBoolean();
+        mConnected = in.readBoolean();
+        mHashCode = calcHashCode();
+        mPlayerState = new PlayerState(in);
+    }
+
+    /**
+     * Write this player to a {@link PlayerSnapshot}, with the supplied state.
+     */
+    void writeToSnapshot(SnapshotOutput out, PlayerState playerState) throws IOException {
+        out.writeString(getId());
+        out.writeString(mIp);
+        out.writeString(mName);
+        out.writeString(mModel);
+        out.writeBoolean(mCanPowerOff);
+        out.writeBoolean(mConnected);
+        playerState.writeToSnapshot(out);
+    }
+
     @NonNull
     @Override
     public String getName() {
@@ -151,6 +182,14 @@ public class Player extends Item implements Comparable<Player> {
         mPlayerState = playerState;
     }
 
+    /**
+     * @return True if the player is synced to another player
+     */
+    public boolean isSyncSlave() {
+        String syncMaster = mPlayerState.getSyncMaster();
+        return syncMaster != null && !syncMaster.equals(getId());
+    }
+
     public static final Creator<Player> CREATOR = new Creator<Player>() {
         @Override
         public Player[] newArray(int size) {
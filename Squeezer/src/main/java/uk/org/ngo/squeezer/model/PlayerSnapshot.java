@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.model;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import uk.org.ngo.squeezer.util.SnapshotInput;
+import uk.org.ngo.squeezer.util.SnapshotOutput;
+
+/**
+ * The players of a server and their last known state, in the compact binary format of
+ * {@link ItemSnapshot}.
+ * <p>
+ * Players read from a snapshot have a {@link PlayerState#isStale() stale} state.
+ */
+public class PlayerSnapshot {
+    private static final int MAGIC = 0x53515031; // "SQP1"
+
+    private PlayerSnapshot() {
+    }
+
+    /**
+     * Copy a player and its current state, so the copy can be written on another thread while the
+     * player receives status updates. The state of the copy is stale.
+     */
+    @NonNull
+    public static Player copy(@NonNull Player player) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            SnapshotOutput out = new SnapshotOutput(bytes);
+            player.writeToSnapshot(out, player.getPlayerState());
+            out.flush();
+            return new Player(new SnapshotInput(new ByteArrayInputStream(bytes.toByteArray())));
+        } catch (IOException e) {
+            // Byte array streams don't throw
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Write the players, each with its state in the supplied map, or its own state if the map
+     * doesn't have it. This allows to keep the last known state of players for which no status
+     * has been received.
+     */
+    public static void write(OutputStream outputStream, Collection<Player> players, Map<String, PlayerState> states) throws IOException {
+        SnapshotOutput out = new SnapshotOutput(outputStream);
+        out.writeVarInt(MAGIC);
+        out.writeVarInt(players.size());
+        for (Player player : players) {
+            PlayerState playerState = states.get(player.getId());
+            player.writeToSnapshot(out, playerState != null ? playerState : player.getPlayerState());
+        }
+        out.flush();
+    }
+
+    @NonNull
+    public static List<Player> read(InputStream inputStream) throws IOException {
+        SnapshotInput in = new SnapshotInput(inputStream);
+        if (in.readVarInt() != MAGIC) {
+            throw new IOException("Not a player snapshot");
+        }
+        int count = in.readVarInt();
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            players.add(new Player(in));
+        }
+        return players;
+    }
+}
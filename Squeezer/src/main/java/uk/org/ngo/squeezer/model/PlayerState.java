@@ -27,6 +27,7 @@ import androidx.annotation.StringDef;
 
 import com.google.common.collect.ImmutableList;
 
+import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.HashMap;
@@ -37,6 +38,8 @@ import uk.org.ngo.squeezer.R;
 import uk.org.ngo.squeezer.Util;
 import uk.org.ngo.squeezer.framework.EnumIdLookup;
 import uk.org.ngo.squeezer.framework.EnumWithId;
+import uk.org.ngo.squeezer.util.SnapshotInput;
+import uk.org.ngo.squeezer.util.SnapshotOutput;
 
 
 public class PlayerState implements Parcelable {
@@ -97,11 +100,59 @@ public class PlayerState implements Parcelable {
         dest.writeMap(prefs);
     }
 
+    /**
+     * Restore a state written by {@link #writeToSnapshot(SnapshotOutput)}.
+     * <p>
+     * Only what is shown in the player list is saved: power, play status, volume, the current
+     * song and the sync group. The restored state is {@link #isStale() stale}.
+     */
+    PlayerState(SnapshotInput in) throws IOException {
+        stale = true;
+        poweredOn = in.readBoolean();
+        playStatus = in.readString();
+        shuffleStatus = ShuffleStatus.valueOf(in.readInt());
+        repeatStatus = RepeatStatus.valueOf(in.readInt());
+        currentSong = (in.readBoolean() ? new CurrentPlaylistItem(in) : null);
+        currentVolume = in.readInt();
+        mSyncMaster = in.readString();
+        String[] syncSlaves = ItemSnapshot.readStrings(in);
+        mSyncSlaves = (syncSlaves != null ? ImmutableList.copyOf(syncSlaves) : ImmutableList.of());
+        int prefCount = in.readVarInt();
+        for (int i = 0; i < prefCount; i++) {
+            Player.Pref pref = Player.Pref.valueOf(in.readString());
+            prefs.put(pref, in.readString());
+        }
+    }
+
+    void writeToSnapshot(SnapshotOutput out) throws IOException {
+        out.writeBoolean(poweredOn);
+        out.writeString(playStatus);
+        out.writeInt(shuffleStatus != null ? shuffleStatus.getId() : -1);
+        out.writeInt(repeatStatus != null ? repeatStatus.getId() : -1);
+        out.writeBoolean(currentSong != null);
+        if (currentSong != null) {
+            currentSong.writeToSnapshot(out);
+        }
+        out.writeInt(currentVolume);
+        out.writeString(mSyncMaster);
+        ItemSnapshot.writeStrings(out, mSyncSlaves.toArray(new String[0]));
+        // The prefs may be replaced while the snapshot is written
+        Map<Player.Pref, String> currentPrefs = new HashMap<>(prefs);
+        out.writeVarInt(currentPrefs.size());
+        for (Map.Entry<Player.Pref, String> entry : currentPrefs.entrySet()) {
+            out.writeString(entry.getKey().name());
+            out.writeString(entry.getValue());
+        }
+    }
+
     @Override
     public int describeContents() {
         return 0;
     }
 
+    /** The state was restored from a {@link PlayerSnapshot}, and no status has been received. */
+    private boolean stale;
+
     private boolean poweredOn;
 
     private @PlayState String playStatus;
@@ -155,6 +206,14 @@ public class PlayerState implements Parcelable {
     @NonNull
     public Map<Player.Pref, String> prefs = new HashMap<>();
 
+    /**
+     * @return True if this is the last known state of the player from a previous session, which
+     *     has not yet been confirmed by the server.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
     public boolean isPlaying() {
         return PLAY_STATE_PLAY.equals(playStatus);
     }
@@ -421,7 +480,13 @@ public class PlayerState implements Parcelable {
 
     public enum PlayerSubscriptionType {
         NOTIFY_NONE("-"),
-        NOTIFY_ON_CHANGE("600");
+        NOTIFY_ON_CHANGE("600"),
+        /**
+         * Like {@link #NOTIFY_ON_CHANGE}, but without the current song, for synced players which
+         * are not the sync master. They play the same song as the master, so they share the
+         * current song of the master.
+         */
+        NOTIFY_ON_CHANGE_SYNCED("600");
 
         private final String status;
 
@@ -34,15 +34,26 @@ import uk.org.ngo.squeezer.Util;
  */
 public class SlimCommand implements Parcelable {
     /** Array of command terms, f.e. ['playlist', 'jump'] */
-    public final List<String> cmd = new ArrayList<>();
+    public final List<String> cmd;
 
     /** Hash of parameters, f.e. {sort = new}. Passed to the server in the form "key:value", f.e. 'sort:new'. */
-    public final Map<String, Object> params = new HashMap<>();
+    public final Map<String, Object> params;
 
     public SlimCommand() {
+        this(new ArrayList<>(), new HashMap<>());
+    }
+
+    /**
+     * Create a command which uses the supplied command terms and parameters, which may be shared
+     * with other commands.
+     */
+    protected SlimCommand(List<String> cmd, Map<String, Object> params) {
+        this.cmd = cmd;
+        this.params = params;
     }
 
     protected SlimCommand(Parcel in) {
+        this();
         cmd(in.createStringArrayList());
         params(Util.mapify(in.createStringArray()));
     }
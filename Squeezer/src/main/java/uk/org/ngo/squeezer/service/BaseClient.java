@@ -24,7 +24,6 @@ import com.google.common.base.Splitter;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
-import de.greenrobot.event.EventBus;
 import uk.org.ngo.squeezer.R;
 import uk.org.ngo.squeezer.Squeezer;
 import uk.org.ngo.squeezer.Util;
@@ -41,6 +40,7 @@ import uk.org.ngo.squeezer.service.event.PlaylistChanged;
 import uk.org.ngo.squeezer.service.event.PowerStatusChanged;
 import uk.org.ngo.squeezer.service.event.RepeatStatusChanged;
 import uk.org.ngo.squeezer.service.event.ShuffleStatusChanged;
+import uk.org.ngo.squeezer.service.event.SyncGroupChanged;
 
 abstract class BaseClient implements SlimClient {
     final static int mPageSize = Squeezer.getContext().getResources().getInteger(R.integer.PageSize);
@@ -51,12 +51,15 @@ abstract class BaseClient implements SlimClient {
     final ConnectionState mConnectionState;
 
     /** Shared event bus for status changes. */
-    @NonNull final EventBus mEventBus;
+    @NonNull final EventPoster mEventBus;
 
     /** The prefix for URLs for downloads and cover art. */
     String mUrlPrefix;
 
-    BaseClient(@NonNull EventBus eventBus) {
+    /** Predicted effects of player commands, which have not yet been confirmed by the server */
+    final OptimisticState mOptimisticState = new OptimisticState();
+
+    BaseClient(@NonNull EventPoster eventBus) {
         mEventBus = eventBus;
         mConnectionState = new ConnectionState(eventBus);
     }
@@ -94,14 +97,15 @@ abstract class BaseClient implements SlimClient {
         playerState.statusSeen = SystemClock.elapsedRealtime() / 1000.0;
 
         boolean changedPower = playerState.setPoweredOn(Util.getInt(tokenMap, "power") == 1);
-        boolean changedShuffleStatus = playerState.setShuffleStatus(Util.getString(tokenMap, "playlist shuffle"));
-        boolean changedRepeatStatus = playerState.setRepeatStatus(Util.getString(tokenMap, "playlist repeat"));
+        boolean changedShuffleStatus = playerState.setShuffleStatus(reconcile(player, OptimisticState.Field.SHUFFLE, Util.getString(tokenMap, "playlist shuffle")));
+        boolean changedRepeatStatus = playerState.setRepeatStatus(reconcile(player, OptimisticState.Field.REPEAT, Util.getString(tokenMap, "playlist repeat")));
         boolean changedPlaylist = playerState.setCurrentPlaylistTimestamp(Util.getLong(tokenMap, "playlist_timestamp"));
         playerState.setCurrentPlaylistTracksNum(Util.getInt(tokenMap, "playlist_tracks"));
-        playerState.setCurrentPlaylistIndex(Util.getInt(tokenMap, "playlist_cur_index"));
+        playerState.setCurrentPlaylistIndex(reconcile(player, OptimisticState.Field.PLAYLIST_INDEX, Util.getInt(tokenMap, "playlist_cur_index")));
         playerState.setCurrentPlaylist(Util.getString(tokenMap, "playlist_name"));
         boolean changedSleep = playerState.setSleep(Util.getInt(tokenMap, "will_sleep_in"));
         boolean changedSleepDuration = playerState.setSleepDuration(Util.getInt(tokenMap, "sleep"));
+        if (currentSong == null) currentSong = syncedSong(player, Util.getString(tokenMap, "sync_master"));
         if (currentSong == null) currentSong = new CurrentPlaylistItem(tokenMap);
         boolean changedSong = playerState.setCurrentSong(currentSong);
         playerState.setRemote(Util.getInt(tokenMap, "remote") == 1);
@@ -109,7 +113,7 @@ abstract class BaseClient implements SlimClient {
         playerState.rate = Util.getDouble(tokenMap, "rate");
         boolean changedSongDuration = playerState.setCurrentSongDuration(Util.getInt(tokenMap, "duration"));
         boolean changedSongTime = playerState.setCurrentTimeSecond(Util.getDouble(tokenMap, "time"));
-        boolean changedVolume = playerState.setCurrentVolume(Util.getInt(tokenMap, "mixer volume"));
+        boolean changedVolume = playerState.setCurrentVolume(reconcile(player, OptimisticState.Field.VOLUME, Util.getInt(tokenMap, "mixer volume")));
         boolean changedSyncMaster = playerState.setSyncMaster(Util.getString(tokenMap, "sync_master"));
         boolean changedSyncSlaves = playerState.setSyncSlaves(Splitter.on(",").omitEmptyStrings().splitToList(Util.getStringOrEmpty(tokenMap, "sync_slaves")));
 
@@ -117,7 +121,7 @@ abstract class BaseClient implements SlimClient {
 
         // Kept as its own method because other methods call it, unlike the explicit
         // calls to the callbacks below.
-        updatePlayStatus(player, Util.getString(tokenMap, "mode"));
+        updatePlayStatus(player, reconcile(player, OptimisticState.Field.PLAY_STATUS, Util.getString(tokenMap, "mode")));
 
         // Current playlist
         if (changedPlaylist) {
@@ -143,6 +147,12 @@ abstract class BaseClient implements SlimClient {
         // Current song
         if (changedSong) {
             mEventBus.postSticky(new MusicChanged(player, playerState));
+            shareSongWithSyncSlaves(player);
+        }
+
+        // Sync group
+        if (changedSyncMaster || changedSyncSlaves) {
+            mEventBus.post(new SyncGroupChanged(player));
         }
 
         // Shuffle status.
@@ -161,6 +171,132 @@ abstract class BaseClient implements SlimClient {
         }
     }
 
+    /**
+     * Status without the current song is received for players synced to another player, see
+     * {@link PlayerState.PlayerSubscriptionType#NOTIFY_ON_CHANGE_SYNCED}. They play the same song
+     * as the sync master.
+     *
+     * @return The current song of the sync master of the player, or null if it is not synced
+     */
+    private CurrentPlaylistItem syncedSong(Player player, String syncMasterId) {
+        if (syncMasterId == null || syncMasterId.equals(player.getId())) {
+            return null;
+        }
+        Player syncMaster = mConnectionState.getPlayer(syncMasterId);
+        return (syncMaster != null ? syncMaster.getPlayerState().getCurrentSong() : null);
+    }
+
+    /**
+     * Give the new song of a sync master to the players synced to it, which are subscribed to
+     * status without the current song. They all refer to the same song object.
+     */
+    private void shareSongWithSyncSlaves(Player syncMaster) {
+        PlayerState masterState = syncMaster.getPlayerState();
+        if (masterState.getCurrentSong() == null) {
+            return;
+        }
+        for (String playerId : masterState.getSyncSlaves()) {
+            Player player = mConnectionState.getPlayer(playerId);
+            if (player == null || player == syncMaster || !syncMaster.getId().equals(player.getPlayerState().getSyncMaster())) {
+                continue;
+            }
+            PlayerState playerState = player.getPlayerState();
+            if (playerState.getSubscriptionType() == PlayerState.PlayerSubscriptionType.NOTIFY_ON_CHANGE_SYNCED
+                    && playerState.setCurrentSong(masterState.getCurrentSong())) {
+                playerState.setCurrentSongDuration(masterState.getCurrentSongDuration());
+                postPlayerStateChanged(player);
+                mEventBus.postSticky(new MusicChanged(player, playerState));
+            }
+        }
+    }
+
+    /**
+     * @return The value to use for a field of player status from the server, taking predictions
+     *     into account
+     */
+    <T> T reconcile(Player player, OptimisticState.Field field, T value) {
+        return mOptimisticState.reconcile(player, field, value);
+    }
+
+    /**
+     * Apply the expected effects of a command to the player state immediately, and post the
+     * same events as if they were received from the server.
+     * <p>
+     * This is called on the background thread of the client, so the UI thread which gave the
+     * command doesn't change player state or post events.
+     *
+     * @param correlationId Identifies the command
+     */
+    void predict(Player player, int correlationId, Map<OptimisticState.Field, Object> predictions) {
+        long now = SystemClock.elapsedRealtime();
+        for (Map.Entry<OptimisticState.Field, Object> prediction : predictions.entrySet()) {
+            mOptimisticState.predict(player, prediction.getKey(), prediction.getValue(), getField(player, prediction.getKey()), correlationId, now);
+            setField(player, prediction.getKey(), prediction.getValue());
+        }
+    }
+
+    /**
+     * Resolve predictions which have not been confirmed in time. If the server responded to the
+     * command, the player status is ordered, otherwise the prediction is reverted.
+     */
+    void expirePredictions() {
+        for (OptimisticState.Expired expired : mOptimisticState.expire(SystemClock.elapsedRealtime())) {
+            if (expired.acknowledged) {
+                requestPlayerStatus(expired.player);
+            } else {
+                setField(expired.player, expired.field, expired.authoritative);
+            }
+        }
+    }
+
+    private static Object getField(Player player, OptimisticState.Field field) {
+        PlayerState playerState = player.getPlayerState();
+        switch (field) {
+            case PLAY_STATUS:
+                return playerState.getPlayStatus();
+            case SHUFFLE:
+                return playerState.getShuffleStatus() != null ? String.valueOf(playerState.getShuffleStatus().getId()) : null;
+            case REPEAT:
+                return playerState.getRepeatStatus() != null ? String.valueOf(playerState.getRepeatStatus().getId()) : null;
+            case VOLUME:
+                return playerState.getCurrentVolume();
+            case PLAYLIST_INDEX:
+                return playerState.getCurrentPlaylistIndex();
+        }
+        return null;
+    }
+
+    private void setField(Player player, OptimisticState.Field field, Object value) {
+        PlayerState playerState = player.getPlayerState();
+        switch (field) {
+            case PLAY_STATUS:
+                if (value != null) {
+                    updatePlayStatus(player, (String) value);
+                }
+                break;
+            case SHUFFLE:
+                if (playerState.setShuffleStatus((String) value)) {
+                    mEventBus.post(new ShuffleStatusChanged(player, playerState.getShuffleStatus()));
+                }
+                break;
+            case REPEAT:
+                if (playerState.setRepeatStatus((String) value)) {
+                    mEventBus.post(new RepeatStatusChanged(player, playerState.getRepeatStatus()));
+                }
+                break;
+            case VOLUME:
+                if (playerState.setCurrentVolume((Integer) value)) {
+                    postPlayerStateChanged(player);
+                    mEventBus.post(new PlayerVolume(playerState.getCurrentVolume(), player));
+                }
+                break;
+            case PLAYLIST_INDEX:
+                playerState.setCurrentPlaylistIndex((Integer) value);
+                postPlayerStateChanged(player);
+                break;
+        }
+    }
+
     protected void postSongTimeChanged(Player player) {
         mEventBus.post(player.getTrackElapsed());
     }
@@ -187,6 +323,7 @@ abstract class BaseClient implements SlimClient {
     protected static class BrowseRequest<T> extends SlimCommand {
         private final Player player;
         private final boolean fullList;
+        private final int pageSize;
         private int start;
         private int itemsPerResponse;
         private final IServiceItemListCallback<T> callback;
@@ -196,6 +333,7 @@ abstract class BaseClient implements SlimClient {
             this.cmd(cmd);
             this.fullList = (start < 0);
             this.start = (fullList ? 0 : start);
+            this.pageSize = itemsPerResponse;
             this.itemsPerResponse = itemsPerResponse;
             this.callback = callback;
             if (params != null) this.params(params);
@@ -223,6 +361,11 @@ abstract class BaseClient implements SlimClient {
             return itemsPerResponse;
         }
 
+        /** @return The number of items requested initially */
+        int getPageSize() {
+            return pageSize;
+        }
+
         public IServiceItemListCallback<T> getCallback() {
             return callback;
         }
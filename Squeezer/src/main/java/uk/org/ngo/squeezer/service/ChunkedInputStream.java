@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the body of a HTTP response with chunked transfer encoding.
+ * <p>
+ * Reads return the data of the chunks as soon as it arrives, and end of stream is reported after
+ * the last chunk and its trailer. Closing this stream doesn't close the underlying stream, so the
+ * connection can be used for further responses.
+ */
+class ChunkedInputStream extends InputStream {
+    private final InputStream in;
+    private int chunkRemaining;
+    private boolean eof;
+
+    ChunkedInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return (read(b, 0, 1) == -1) ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (eof || (chunkRemaining == 0 && !nextChunk())) {
+            return -1;
+        }
+        int read = in.read(b, off, Math.min(len, chunkRemaining));
+        if (read == -1) {
+            throw new EOFException("Chunk ended after " + chunkRemaining + " missing bytes");
+        }
+        chunkRemaining -= read;
+        if (chunkRemaining == 0) {
+            readLine(in); // CRLF after the chunk data
+        }
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return eof ? 0 : Math.min(chunkRemaining, in.available());
+    }
+
+    @Override
+    public void close() {
+        eof = true;
+    }
+
+    private boolean nextChunk() throws IOException {
+        String sizeLine = readLine(in);
+        int extension = sizeLine.indexOf(';');
+        if (extension >= 0) {
+            sizeLine = sizeLine.substring(0, extension);
+        }
+        try {
+            chunkRemaining = Integer.parseInt(sizeLine.trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + sizeLine);
+        }
+        if (chunkRemaining == 0) {
+            // Skip the trailer
+            while (!"".equals(readLine(in))) {
+            }
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read a line of a HTTP header from the supplied stream.
+     *
+     * @return The line without the line terminator
+     * @throws EOFException If the stream ends before the line
+     */
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new EOFException();
+            }
+            line.append((char) c);
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+}
@@ -19,6 +19,7 @@ package uk.org.ngo.squeezer.service;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -48,14 +49,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
-import de.greenrobot.event.EventBus;
 import uk.org.ngo.squeezer.Preferences;
 import uk.org.ngo.squeezer.Util;
 import uk.org.ngo.squeezer.model.AlertWindow;
@@ -65,6 +68,7 @@ import uk.org.ngo.squeezer.model.Alarm;
 import uk.org.ngo.squeezer.model.AlarmPlaylist;
 import uk.org.ngo.squeezer.model.CurrentPlaylistItem;
 import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.model.LibraryRecord;
 import uk.org.ngo.squeezer.model.MusicFolderItem;
 import uk.org.ngo.squeezer.model.Player;
 import uk.org.ngo.squeezer.model.PlayerState;
@@ -72,10 +76,10 @@ import uk.org.ngo.squeezer.model.SlimCommand;
 import uk.org.ngo.squeezer.model.Song;
 import uk.org.ngo.squeezer.service.event.AlertEvent;
 import uk.org.ngo.squeezer.service.event.DisplayEvent;
-import uk.org.ngo.squeezer.service.event.HandshakeComplete;
 import uk.org.ngo.squeezer.model.MenuStatusMessage;
 import uk.org.ngo.squeezer.service.event.PlayerVolume;
 import uk.org.ngo.squeezer.service.event.RegisterSqueezeNetwork;
+import uk.org.ngo.squeezer.util.ConnectRace;
 import uk.org.ngo.squeezer.util.Reflection;
 import uk.org.ngo.squeezer.util.SendWakeOnLan;
 
@@ -115,6 +119,18 @@ class CometClient extends BaseClient {
     // Maximum time for wait replies for server capabilities
     private static final long HANDSHAKE_TIMEOUT = 4000;
 
+    /** Minimum time between volume commands to a player, f.e. while the volume is dragged */
+    private static final long VOLUME_COMMAND_INTERVAL = 100;
+
+    /** Minimum time between seek commands to a player */
+    private static final long SEEK_COMMAND_INTERVAL = 300;
+
+    /** Time without volume changes before the volume of the affected players is ordered */
+    private static final long VOLUME_QUERY_DELAY = 250;
+
+    /** {@link java.util.regex.Pattern} that matches an absolute (unsigned) numeric command argument */
+    private static final Pattern mAbsoluteValuePattern = Pattern.compile("\\d+(\\.\\d+)?");
+
 
     /** Handler for off-main-thread work. */
     @NonNull
@@ -141,11 +157,23 @@ class CometClient extends BaseClient {
 
     private final PublishListener mPublishListener = new PublishListener();
 
+    /**
+     * Newest pending command for each player and command, for commands where only the latest
+     * value matters. See {@link #coalesce(String, Request, long)}.
+     */
+    private final CommandCoalescer<Request> mCoalescedCommands = new CommandCoalescer<>();
+
+    /** Identity check of the server at the address connected to, until serverstatus arrives */
+    private final AtomicReference<AddressCheck> mAddressCheck = new AtomicReference<>();
+
+    /** Players which have changed volume in the current burst of volume changes, by player id */
+    private final Map<String, Player> mVolumeQueries = new ConcurrentHashMap<>();
+
     // All requests are tagged with a correlation id, which can be used when
     // asynchronous responses are received.
-    private volatile int mCorrelationId = 0;
+    private final AtomicInteger mCorrelationId = new AtomicInteger();
 
-    CometClient(@NonNull EventBus eventBus) {
+    CometClient(@NonNull EventPoster eventBus) {
         super(eventBus);
 
         HandlerThread handlerThread = new HandlerThread(SqueezeService.class.getSimpleName());
@@ -157,6 +185,7 @@ class CometClient extends BaseClient {
                 new AlarmPlaylistsListener(),
                 new SongListener(),
                 new MusicFolderListener(),
+                new LibraryRecordListener(),
                 new JiveItemListener()
         );
         ImmutableMap.Builder<Class<?>, ItemListener<?>> builder = ImmutableMap.builder();
@@ -168,8 +197,15 @@ class CometClient extends BaseClient {
         mRequestMap = ImmutableMap.<String, ResponseHandler>builder()
                 .put("sync", (player, request, message) -> {
                     // LMS does not send new player status for the affected players, even if status
-                    // changes are subscribed, so we order them  here
-                    for (Player value : getConnectionState().getPlayers().values()) {
+                    // changes are subscribed, so we order them  here. These are the players in the
+                    // sync groups of the two players, as they were before the command.
+                    Map<String, Player> players = new LinkedHashMap<>();
+                    addSyncGroup(players, player);
+                    String syncPlayerId = request.cmd.get(1);
+                    if (!"-".equals(syncPlayerId)) {
+                        addSyncGroup(players, getConnectionState().getPlayer(syncPlayerId));
+                    }
+                    for (Player value : players.values()) {
                         requestPlayerStatus(value);
                     }
                 })
@@ -177,27 +213,16 @@ class CometClient extends BaseClient {
                     if (request.cmd.get(1).equals("volume")) {
                         String volume = (String) message.getDataAsMap().get("_volume");
                         if (volume != null) {
-                            int newVolume = Integer.parseInt(volume);
+                            int newVolume = reconcile(player, OptimisticState.Field.VOLUME, Integer.parseInt(volume));
                             player.getPlayerState().setCurrentVolume(newVolume);
                             mEventBus.post(new PlayerVolume(newVolume, player));
                         } else {
-                            // LMS delays player status for volume changes, so order it immediately to respond faster to user input
-                            command(player, new String[]{"mixer", "volume", "?"}, Collections.emptyMap());
-
-                            // Since LMS doesn't send player status when volume is updated via a synced player we order them explicitly
-                            if ("1".equals(player.getPlayerState().prefs.get(Player.Pref.SYNC_VOLUME))) {
-                                List<String> slaves = player.getPlayerState().getSyncSlaves();
-                                Player master = getConnectionState().getPlayer(player.getPlayerState().getSyncMaster());
-                                if (master != null && master != player) {
-                                    command(master, new String[]{"mixer", "volume", "?"}, Collections.emptyMap());
-                                }
-                                for (String slave : slaves) {
-                                    Player syncSlave = getConnectionState().getPlayer(slave);
-                                    if (syncSlave != null && syncSlave != player) {
-                                        command(syncSlave, new String[]{"mixer", "volume", "?"}, Collections.emptyMap());
-                                    }
-                                }
-                            }
+                            // LMS delays player status for volume changes, and doesn't send it
+                            // when volume is updated via a synced player, so we order volume
+                            // explicitly, once the volume stops changing.
+                            mVolumeQueries.put(player.getId(), player);
+                            mBackgroundHandler.removeMessages(MSG_VOLUME_QUERY);
+                            mBackgroundHandler.sendEmptyMessageDelayed(MSG_VOLUME_QUERY, VOLUME_QUERY_DELAY);
                         }
                     }
                 })
@@ -217,16 +242,37 @@ class CometClient extends BaseClient {
                 final Preferences.ServerAddress serverAddress = preferences.getServerAddress();
                 final String username = serverAddress.userName;
                 final String password = serverAddress.password;
-                if (serverAddress.wakeOnLan) {
-                    Log.i(TAG, "Send Wake-on-LAN to: " + Util.formatMac(serverAddress.mac));
-                    SendWakeOnLan.sendWakeOnLan(serverAddress.mac);
-                }
                 Log.i(TAG, "Connecting to: " + username + "@" + serverAddress.address());
 
-                if (!mEventBus.isRegistered(CometClient.this)) {
-                    mEventBus.register(CometClient.this);
-                }
                 mConnectionState.setConnectionState(ConnectionState.CONNECTION_STARTED);
+
+                mAddressCheck.set(null);
+                if (serverAddress.wakeOnLan) {
+                    // Start the handshake as soon as the server accepts connections, rather than
+                    // failing handshakes while it wakes up. The known addresses are raced while
+                    // waiting, so a sleeping server is woken right away. If it doesn't wake up in
+                    // time, the handshake reports the error.
+                    Log.i(TAG, "Wake server: " + Util.formatMac(serverAddress.mac));
+                    List<String> addresses = serverAddress.squeezeNetwork
+                            ? Collections.singletonList(serverAddress.address())
+                            : preferences.getServerAddresses(serverAddress);
+                    String address = SendWakeOnLan.wakeAndWait(serverAddress.mac, addresses, seconds -> {
+                        mConnectionState.setWakeProgress(seconds);
+                        return mConnectionState.isConnectInProgress();
+                    });
+                    if (!mConnectionState.isConnectInProgress()) {
+                        Log.i(TAG, "Connect cancelled while waking the server");
+                        return;
+                    }
+                    if (address != null && !serverAddress.squeezeNetwork) {
+                        serverAddress.setAddress(address);
+                    }
+                } else if (!serverAddress.squeezeNetwork) {
+                    selectReachableAddress(preferences, serverAddress);
+                }
+                if (!serverAddress.squeezeNetwork) {
+                    mAddressCheck.set(new AddressCheck(preferences, preferences.getServerAddress(), serverAddress.localAddress()));
+                }
                 final boolean isSqueezeNetwork = serverAddress.squeezeNetwork;
 
                 final HttpClient httpClient = new HttpClient();
@@ -259,14 +305,7 @@ class CometClient extends BaseClient {
                     return;
                 }
 
-                // Set the VM-wide authentication handler (needed by image fetcher and other using
-                // the standard java http API)
-                Authenticator.setDefault(new Authenticator() {
-                    @Override
-                    public PasswordAuthentication getPasswordAuthentication() {
-                        return new PasswordAuthentication(username, password.toCharArray());
-                    }
-                });
+                setDefaultAuthenticator(username, password);
 
                 Map<String, Object> options = new HashMap<>();
                 options.put(HttpClientTransport.MAX_NETWORK_DELAY_OPTION, LONG_POLLING_TIMEOUT);
@@ -341,6 +380,10 @@ class CometClient extends BaseClient {
                 String clientId = mBayeuxClient.getId();
 
                 mBayeuxClient.getChannel(String.format(CHANNEL_SLIM_REQUEST_RESPONSE_FORMAT, clientId, "*")).subscribe((channel, message) -> {
+                    if (!mOptimisticState.isEmpty()) {
+                        String[] channelParts = mSlashSplitPattern.split(message.getChannel());
+                        mOptimisticState.acknowledge(Util.getInt(channelParts[channelParts.length - 1], -1));
+                    }
                     Request request = mPendingRequests.get(message.getChannel());
                     if (request != null) {
                         request.callback.onResponse(request.player, request, message);
@@ -378,6 +421,75 @@ class CometClient extends BaseClient {
         });
     }
 
+    /**
+     * If the server has more than one known address, race connects to them, and use the first to
+     * answer for this connection. The winner is remembered for the current network when the server
+     * has confirmed its identity, see {@link #checkServerIdentity(String)}.
+     * <p>
+     * If none of the addresses answer, the address of the server is kept, so the connection
+     * reports the error.
+     */
+    private void selectReachableAddress(Preferences preferences, Preferences.ServerAddress serverAddress) {
+        List<String> addresses = preferences.getServerAddresses(serverAddress);
+        if (addresses.size() < 2) {
+            return;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        String address = ConnectRace.race(addresses);
+        Log.i(TAG, "Connect race " + addresses + " won by " + address + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        if (address != null) {
+            serverAddress.setAddress(address);
+        }
+    }
+
+    /**
+     * Check the uuid the server reported against the one known for the selected server.
+     * <ul>
+     *     <li>At the address of the selected server, the uuid is learned, and the address is
+     *     added to the known addresses of the server.</li>
+     *     <li>At another address with the same uuid, the address is remembered as the one which
+     *     is reachable from the current network.</li>
+     *     <li>At another address with a different uuid, another server answers at an address the
+     *     selected server used to have. The address is forgotten, and the connection is closed, so
+     *     it is made again to the remaining addresses.</li>
+     * </ul>
+     */
+    private void checkServerIdentity(String uuid) {
+        AddressCheck check = mAddressCheck.getAndSet(null);
+        if (check == null || uuid == null || check.address == null) {
+            return;
+        }
+
+        Preferences.ServerAddress server = check.server;
+        if (check.address.equals(server.localAddress())) {
+            if (!uuid.equals(server.uuid())) {
+                check.preferences.setServerUuid(server, uuid);
+            }
+            check.preferences.addServerAddress(uuid, check.address);
+        } else if (uuid.equals(server.uuid())) {
+            check.preferences.setPreferredServerAddress(server, check.address);
+        } else {
+            Log.w(TAG, "Server at " + check.address + " is " + uuid + ", not " + server.uuid() + ", reconnecting");
+            check.preferences.removeServerAddress(server.uuid(), check.address);
+            check.preferences.setPreferredServerAddress(server, null);
+            disconnect(ConnectionState.RECONNECT);
+        }
+    }
+
+    /**
+     * Set the VM-wide authentication handler (needed by image fetcher and other using the standard
+     * java http API)
+     */
+    static void setDefaultAuthenticator(final String username, final String password) {
+        Authenticator.setDefault(new Authenticator() {
+            @Override
+            public PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(username, password.toCharArray());
+            }
+        });
+    }
+
     private boolean needRegister() {
         return mBayeuxClient.getId().startsWith("1X");
     }
@@ -391,7 +503,12 @@ class CometClient extends BaseClient {
         boolean firstTimePlayersReceived = (getConnectionState().getServerVersion() == null);
 
         getConnectionState().setMediaDirs(Util.getStringArray(data, ConnectionState.MEDIA_DIRS));
+        getConnectionState().setServerUuid(Util.getString(data, "uuid"));
+        checkServerIdentity(Util.getString(data, "uuid"));
+        getConnectionState().setLastScan(Util.getLong(data, "lastscan"));
         getConnectionState().setServerVersion((String) data.get("version"));
+        // The handshake is complete when the server version is known
+        mBackgroundHandler.removeMessages(MSG_HANDSHAKE_TIMEOUT);
         Object[] item_data = (Object[]) data.get("players_loop");
         final HashMap<String, Player> players = new HashMap<>();
         if (item_data != null) {
@@ -566,7 +683,9 @@ class CometClient extends BaseClient {
 
             // Check if we need to order more items
             if ((fullList || end % mPageSize != 0) && end < max) {
-                int itemsPerResponse = (end + mPageSize > max ? max - end : fullList ? mPageSize : mPageSize - browseRequest.getItemsPerResponse());
+                // Full lists are ordered in pages of the size of the first request
+                int pageSize = (fullList ? browseRequest.getPageSize() : mPageSize);
+                int itemsPerResponse = (end + pageSize > max ? max - end : fullList ? pageSize : mPageSize - browseRequest.getItemsPerResponse());
                 //XXX support prefix
                 internalRequestItems(browseRequest.update(end, itemsPerResponse));
             }
@@ -616,15 +735,34 @@ class CometClient extends BaseClient {
         }
     }
 
-    private class JiveItemListener extends ItemListener<JiveItem> {
+    private class LibraryRecordListener extends ItemListener<LibraryRecord> {
         @Override
         public void onResponse(Player player, Request request, Message message) {
-            parseMessage("item_loop", message);
+            switch (request.getRequest()) {
+                case "artists":
+                    parseMessage("artists_loop", message);
+                    break;
+                case "albums":
+                    parseMessage("albums_loop", message);
+                    break;
+                case "genres":
+                    parseMessage("genres_loop", message);
+                    break;
+                case "years":
+                    parseMessage("years_loop", message);
+                    break;
+                default:
+                    parseMessage("titles_loop", message);
+                    break;
+            }
         }
     }
 
-    public void onEvent(@SuppressWarnings("unused") HandshakeComplete event) {
-        mBackgroundHandler.removeMessages(MSG_HANDSHAKE_TIMEOUT);
+    private class JiveItemListener extends ItemListener<JiveItem> {
+        @Override
+        public void onResponse(Player player, Request request, Message message) {
+            parseMessage("item_loop", message);
+        }
     }
 
     @Override
@@ -632,6 +770,12 @@ class CometClient extends BaseClient {
         disconnect(ConnectionState.DISCONNECTED);
     }
 
+    @Override
+    public void shutdown() {
+        disconnect();
+        mBackgroundHandler.getLooper().quitSafely();
+    }
+
     private void disconnect(@ConnectionState.ConnectionStates int connectionState) {
         if (mBayeuxClient != null) mBackgroundHandler.sendEmptyMessage(MSG_DISCONNECT);
         mConnectionState.setConnectionState(connectionState);
@@ -656,7 +800,7 @@ class CometClient extends BaseClient {
     }
 
     private String exec(Request request) {
-        String responseChannel = String.format(CHANNEL_SLIM_REQUEST_RESPONSE_FORMAT, mBayeuxClient.getId(), mCorrelationId++);
+        String responseChannel = String.format(CHANNEL_SLIM_REQUEST_RESPONSE_FORMAT, mBayeuxClient.getId(), request.correlationId);
         if (request.callback != null) mPendingRequests.put(responseChannel, request);
         publishMessage(request, CHANNEL_SLIM_REQUEST, responseChannel, null);
         return responseChannel;
@@ -707,8 +851,133 @@ class CometClient extends BaseClient {
 
     @Override
     public void command(Player player, String[] cmd, Map<String, Object> params) {
+        command(player, cmd, params, Collections.emptyMap());
+    }
+
+    @Override
+    public void command(Player player, String[] cmd, Map<String, Object> params, Map<OptimisticState.Field, Object> predictions) {
         ResponseHandler callback = mRequestMap.get(cmd[0]);
-        exec(request(player, callback, cmd).params(params));
+        Request request = request(player, callback, cmd).params(params);
+        if (player != null && !predictions.isEmpty()) {
+            // Queued ahead of the request, so the prediction is in place before any response
+            PredictMessage predictMessage = new PredictMessage(player, request.correlationId, predictions);
+            if (mBackgroundHandler.getLooper() == Looper.myLooper()) {
+                predict(predictMessage);
+            } else {
+                mBackgroundHandler.obtainMessage(MSG_PREDICT, predictMessage).sendToTarget();
+            }
+        }
+        long interval = coalesceInterval(player, cmd);
+        if (interval > 0) {
+            coalesce(coalesceKey(player) + cmd[0], request, interval);
+        } else {
+            if (player != null) {
+                // Commands the user gave earlier must not be overtaken
+                for (Request pending : mCoalescedCommands.takeAll(coalesceKey(player), SystemClock.uptimeMillis())) {
+                    exec(pending);
+                }
+            }
+            exec(request);
+        }
+    }
+
+    private static String coalesceKey(Player player) {
+        return player.getId() + " ";
+    }
+
+    /** This may only be called from the handler thread */
+    private void predict(PredictMessage message) {
+        predict(message.player, message.correlationId, message.predictions);
+        mBackgroundHandler.sendEmptyMessageDelayed(MSG_PREDICTION_TIMEOUT, OptimisticState.TIMEOUT);
+    }
+
+    /**
+     * @return The minimum time between commands like the supplied, if only the newest of a
+     *     series of them matters (absolute volume and seek), otherwise 0.
+     */
+    private static long coalesceInterval(Player player, String[] cmd) {
+        if (player == null) {
+            return 0;
+        }
+        if (cmd.length == 3 && "mixer".equals(cmd[0]) && "volume".equals(cmd[1]) && mAbsoluteValuePattern.matcher(cmd[2]).matches()) {
+            return VOLUME_COMMAND_INTERVAL;
+        }
+        if (cmd.length == 2 && "time".equals(cmd[0]) && mAbsoluteValuePattern.matcher(cmd[1]).matches()) {
+            return SEEK_COMMAND_INTERVAL;
+        }
+        return 0;
+    }
+
+    /**
+     * Send the request at most once per interval for the supplied key. If a request for the key is
+     * already waiting, it is replaced, so only the newest value is sent.
+     * <p>
+     * The first request of a burst is sent immediately. A waiting request is sent before any other
+     * command to the same player.
+     */
+    private void coalesce(String key, Request request, long interval) {
+        long delay = mCoalescedCommands.add(key, request, interval, SystemClock.uptimeMillis());
+        if (delay >= 0) {
+            mBackgroundHandler.sendMessageDelayed(mBackgroundHandler.obtainMessage(MSG_COALESCED_COMMAND, key), delay);
+        }
+    }
+
+    /** This may only be called from the handler thread */
+    private void sendCoalesced(String key) {
+        Request request = mCoalescedCommands.take(key, SystemClock.uptimeMillis());
+        if (request != null && mBayeuxClient != null) {
+            exec(request);
+        }
+    }
+
+    /**
+     * Order the volume of the players which changed volume, and of the players which follow their
+     * volume in a sync group. Each player is only asked once per burst of volume changes.
+     */
+    private void queryVolumes() {
+        Map<String, Player> players = new LinkedHashMap<>();
+        for (String id : mVolumeQueries.keySet()) {
+            Player player = mVolumeQueries.remove(id);
+            if (player == null) {
+                continue;
+            }
+            if ("1".equals(player.getPlayerState().prefs.get(Player.Pref.SYNC_VOLUME))) {
+                addSyncGroup(players, player);
+            } else {
+                players.put(player.getId(), player);
+            }
+        }
+        for (Player player : players.values()) {
+            command(player, new String[]{"mixer", "volume", "?"}, Collections.emptyMap());
+        }
+    }
+
+    /**
+     * Add the supplied player and the players in its sync group, as far as we know them.
+     */
+    private void addSyncGroup(Map<String, Player> players, Player player) {
+        if (player == null) {
+            return;
+        }
+        players.put(player.getId(), player);
+        addSyncSlaves(players, player);
+        String syncMaster = player.getPlayerState().getSyncMaster();
+        if (syncMaster != null) {
+            Player master = getConnectionState().getPlayer(syncMaster);
+            if (master != null) {
+                players.put(master.getId(), master);
+                addSyncSlaves(players, master);
+            }
+        }
+    }
+
+    private void addSyncSlaves(Map<String, Player> players, Player player) {
+        for (String slave : player.getPlayerState().getSyncSlaves()) {
+            Player syncSlave = getConnectionState().getPlayer(slave);
+            if (syncSlave != null) {
+                players.put(syncSlave.getId(), syncSlave);
+            }
+        }
     }
 
     @Override
@@ -719,7 +988,11 @@ class CometClient extends BaseClient {
 
     @Override
     public void subscribePlayerStatus(final Player player, final PlayerState.PlayerSubscriptionType subscriptionType) {
-        Request request = statusRequest(player).param("subscribe", subscriptionType.getStatus());
+        // Players synced to another player share the current song of the sync master
+        Request request = (subscriptionType == PlayerState.PlayerSubscriptionType.NOTIFY_ON_CHANGE_SYNCED
+                ? request(player, "status").param("menu", "menu").param("useContextMenu", "1")
+                : statusRequest(player))
+                .param("subscribe", subscriptionType.getStatus());
         publishMessage(request, CHANNEL_SLIM_SUBSCRIBE, subscribeResponseChannel(player, CHANNEL_PLAYER_STATUS_FORMAT), new PublishListener() {
             @Override
             public void onMessage(ClientSessionChannel channel, Message message) {
@@ -771,6 +1044,10 @@ class CometClient extends BaseClient {
     private static final int MSG_PUBLISH_RESPONSE_RECIEVED = 4;
     private static final int MSG_TIME_UPDATE = 5;
     private static final int MSG_STATE_UPDATE = 6;
+    private static final int MSG_COALESCED_COMMAND = 7;
+    private static final int MSG_VOLUME_QUERY = 8;
+    private static final int MSG_PREDICTION_TIMEOUT = 9;
+    private static final int MSG_PREDICT = 10;
     private class CliHandler extends Handler {
         CliHandler(Looper looper) {
             super(looper);
@@ -785,6 +1062,12 @@ class CometClient extends BaseClient {
                     break;
                 }
                 case MSG_DISCONNECT:
+                    mCoalescedCommands.clear();
+                    mVolumeQueries.clear();
+                    removeMessages(MSG_VOLUME_QUERY);
+                    Log.i(TAG, mOptimisticState.getMetrics());
+                    mOptimisticState.clear();
+                    removeMessages(MSG_PREDICTION_TIMEOUT);
                     mBayeuxClient.disconnect();
                     break;
                 case MSG_HANDSHAKE_TIMEOUT:
@@ -810,6 +1093,18 @@ class CometClient extends BaseClient {
                     postPlayerStateChanged(player);
                     break;
                 }
+                case MSG_COALESCED_COMMAND:
+                    sendCoalesced((String) msg.obj);
+                    break;
+                case MSG_VOLUME_QUERY:
+                    queryVolumes();
+                    break;
+                case MSG_PREDICT:
+                    predict((PredictMessage) msg.obj);
+                    break;
+                case MSG_PREDICTION_TIMEOUT:
+                    expirePredictions();
+                    break;
             }
         }
     }
@@ -831,29 +1126,31 @@ class CometClient extends BaseClient {
     }
 
     private Request request(Player player, ResponseHandler callback, String... cmd) {
-        return new Request(player, callback, cmd);
+        return new Request(mCorrelationId.getAndIncrement(), player, callback, cmd);
     }
 
     private Request request(Player player, String... cmd) {
-        return new Request(player, null, cmd);
+        return new Request(mCorrelationId.getAndIncrement(), player, null, cmd);
     }
 
     private Request request(ResponseHandler callback, String... cmd) {
-        return new Request(null, callback, cmd);
+        return new Request(mCorrelationId.getAndIncrement(), null, callback, cmd);
     }
 
     private Request request(String... cmd) {
-        return new Request(null, null, cmd);
+        return new Request(mCorrelationId.getAndIncrement(), null, null, cmd);
     }
 
     private static class Request extends SlimCommand {
         private static final Joiner joiner = Joiner.on(" ");
 
+        private final int correlationId;
         private final ResponseHandler callback;
         private final Player player;
         private PagingParams page;
 
-        private Request(Player player, ResponseHandler callback, String... cmd) {
+        private Request(int correlationId, Player player, ResponseHandler callback, String... cmd) {
+            this.correlationId = correlationId;
             this.player = player;
             this.callback = callback;
             this.cmd(cmd);
@@ -941,4 +1238,29 @@ class CometClient extends BaseClient {
             this.publishListener = publishListener;
         }
     }
+
+    /** The address connected to, to check against the server selected in the preferences */
+    private static class AddressCheck {
+        final Preferences preferences;
+        final Preferences.ServerAddress server;
+        final String address;
+
+        private AddressCheck(Preferences preferences, Preferences.ServerAddress server, String address) {
+            this.preferences = preferences;
+            this.server = server;
+            this.address = address;
+        }
+    }
+
+    private static class PredictMessage {
+        final Player player;
+        final int correlationId;
+        final Map<OptimisticState.Field, Object> predictions;
+
+        private PredictMessage(Player player, int correlationId, Map<OptimisticState.Field, Object> predictions) {
+            this.player = player;
+            this.correlationId = correlationId;
+            this.predictions = predictions;
+        }
+    }
 }
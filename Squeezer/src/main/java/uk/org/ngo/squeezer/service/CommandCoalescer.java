@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bookkeeping for commands where only the newest value matters, like absolute volume and seek.
+ * <p>
+ * Requests are kept by a key, which identifies the player and the command. The first request of a
+ * burst is sent immediately, after that at most one request per interval is sent for each key, and
+ * a waiting request is replaced by a newer one.
+ * <p>
+ * Other commands to a player must not overtake the requests waiting for it, so they are sent
+ * first, see {@link #takeAll(String, long)}.
+ * <p>
+ * Times are in milliseconds, and supplied by the caller.
+ *
+ * @param <T> Type of the requests
+ */
+class CommandCoalescer<T> {
+    /** Waiting requests, in the order their keys were first added */
+    private final Map<String, T> mPending = new LinkedHashMap<>();
+
+    /** Time the last request was sent, by key */
+    private final Map<String, Long> mLastSent = new HashMap<>();
+
+    /**
+     * Add a request for the supplied key.
+     *
+     * @return The time to wait before calling {@link #take(String, long)} for the key, or -1 if a
+     *     request for the key was already waiting, and it has been replaced.
+     */
+    synchronized long add(@NonNull String key, @NonNull T request, long interval, long now) {
+        if (mPending.put(key, request) != null) {
+            return -1;
+        }
+        Long lastSent = mLastSent.get(key);
+        return (lastSent == null ? 0 : Math.max(0, lastSent + interval - now));
+    }
+
+    /**
+     * @return The request waiting for the supplied key, if any. It is recorded as sent now.
+     */
+    @Nullable
+    synchronized T take(@NonNull String key, long now) {
+        T request = mPending.remove(key);
+        if (request != null) {
+            mLastSent.put(key, now);
+        }
+        return request;
+    }
+
+    /**
+     * @return The requests waiting for keys which start with the supplied prefix, in the order they
+     *     were added. They are recorded as sent now.
+     */
+    @NonNull
+    synchronized List<T> takeAll(@NonNull String prefix, long now) {
+        List<T> requests = new ArrayList<>();
+        for (Iterator<Map.Entry<String, T>> it = mPending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, T> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                requests.add(entry.getValue());
+                mLastSent.put(entry.getKey(), now);
+                it.remove();
+            }
+        }
+        return requests;
+    }
+
+    /** Forget all waiting requests */
+    synchronized void clear() {
+        mPending.clear();
+    }
+}
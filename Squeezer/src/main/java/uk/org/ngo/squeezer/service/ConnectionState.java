@@ -26,9 +26,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
-import de.greenrobot.event.EventBus;
 import uk.org.ngo.squeezer.Util;
 import uk.org.ngo.squeezer.model.Player;
 import uk.org.ngo.squeezer.model.JiveItem;
@@ -36,6 +37,7 @@ import uk.org.ngo.squeezer.service.event.ActivePlayerChanged;
 import uk.org.ngo.squeezer.service.event.ConnectionChanged;
 import uk.org.ngo.squeezer.service.event.HandshakeComplete;
 import uk.org.ngo.squeezer.service.event.HomeMenuEvent;
+import uk.org.ngo.squeezer.service.event.LastScanChanged;
 import uk.org.ngo.squeezer.model.MenuStatusMessage;
 import uk.org.ngo.squeezer.service.event.PlayersChanged;
 
@@ -43,11 +45,11 @@ public class ConnectionState {
 
     private static final String TAG = "ConnectionState";
 
-    ConnectionState(@NonNull EventBus eventBus) {
+    ConnectionState(@NonNull EventPoster eventBus) {
         mEventBus = eventBus;
     }
 
-    private final EventBus mEventBus;
+    private final EventPoster mEventBus;
 
     public final static String MEDIA_DIRS = "mediadirs";
 
@@ -82,6 +84,15 @@ public class ConnectionState {
 
     private final AtomicReference<String[]> mediaDirs = new AtomicReference<>();
 
+    /** The uuid the server reports in serverstatus, which identifies it across addresses */
+    private final AtomicReference<String> serverUuid = new AtomicReference<>();
+
+    /** Last reported time spent waiting for the server to wake up, see {@link #setWakeProgress(int)} */
+    private final AtomicInteger wakeSeconds = new AtomicInteger(-1);
+
+    /** Time of the last library scan on the server, 0 if not known. */
+    private final AtomicLong lastScan = new AtomicLong();
+
     /**
      * Sets a new connection state, and posts a sticky
      * {@link uk.org.ngo.squeezer.service.event.ConnectionChanged} event with the new state.
@@ -94,6 +105,19 @@ public class ConnectionState {
         mEventBus.postSticky(new ConnectionChanged(connectionState));
     }
 
+    /**
+     * Report progress while waiting for the server to wake up, by posting a sticky
+     * {@link uk.org.ngo.squeezer.service.event.ConnectionChanged} event with the time spent
+     * waiting, when it changes.
+     *
+     * @param seconds Seconds spent waiting for the server
+     */
+    void setWakeProgress(int seconds) {
+        if (mConnectionState == CONNECTION_STARTED && wakeSeconds.getAndSet(seconds) != seconds) {
+            mEventBus.postSticky(new ConnectionChanged(CONNECTION_STARTED, seconds));
+        }
+    }
+
     void setConnectionError(ConnectionError connectionError) {
         Log.i(TAG, "setConnectionError(" + mConnectionState + " => " + connectionError.name() + ")");
         updateConnectionState(CONNECTION_FAILED);
@@ -101,10 +125,13 @@ public class ConnectionState {
     }
 
     private void updateConnectionState(@ConnectionStates int connectionState) {
+        wakeSeconds.set(-1);
         // Clear data if we were previously connected
         if (isConnected() && !isConnected(connectionState)) {
             mEventBus.removeAllStickyEvents();
             setServerVersion(null);
+            serverUuid.set(null);
+            lastScan.set(0);
             mPlayers.clear();
             setActivePlayer(null);
         }
@@ -144,10 +171,21 @@ public class ConnectionState {
         }
     }
 
+    void setServerUuid(String uuid) {
+        serverUuid.set(uuid);
+    }
+
     void setMediaDirs(String[] mediaDirs) {
         this.mediaDirs.set(mediaDirs);
     }
 
+    void setLastScan(long lastScan) {
+        long previous = this.lastScan.getAndSet(lastScan);
+        if (previous != 0 && previous != lastScan) {
+            mEventBus.post(new LastScanChanged(lastScan));
+        }
+    }
+
     void clearHomeMenu() {
         homeMenu.clear();
     }
@@ -196,10 +234,21 @@ public class ConnectionState {
         return serverVersion.get();
     }
 
+    /**
+     * @return The uuid of the server, or null if it is not known (yet)
+     */
+    String getServerUuid() {
+        return serverUuid.get();
+    }
+
     String[] getMediaDirs() {
         return mediaDirs.get();
     }
 
+    long getLastScan() {
+        return lastScan.get();
+    }
+
     /**
      * @return True if the socket connection to the server has completed.
      */
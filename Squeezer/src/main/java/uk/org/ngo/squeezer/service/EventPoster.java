@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import androidx.annotation.NonNull;
+
+import de.greenrobot.event.EventBus;
+
+/**
+ * The part of an event bus which the clients of the server post their events to.
+ * <p>
+ * Clients post to a {@link SessionEventBus}, which passes the events on to the
+ * {@link EventBus} of the service, see {@link #of(EventBus)}.
+ */
+interface EventPoster {
+    void post(Object event);
+
+    void postSticky(Object event);
+
+    void removeAllStickyEvents();
+
+    /**
+     * @return An event poster which posts to the supplied event bus
+     */
+    static EventPoster of(@NonNull EventBus eventBus) {
+        return new EventPoster() {
+            @Override
+            public void post(Object event) {
+                eventBus.post(event);
+            }
+
+            @Override
+            public void postSticky(Object event) {
+                eventBus.postSticky(event);
+            }
+
+            @Override
+            public void removeAllStickyEvents() {
+                eventBus.removeAllStickyEvents();
+            }
+        };
+    }
+}
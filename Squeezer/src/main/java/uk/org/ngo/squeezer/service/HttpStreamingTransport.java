@@ -4,6 +4,9 @@ import android.annotation.TargetApi;
 import android.os.Build;
 import android.util.Log;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+
 import org.cometd.bayeux.Channel;
 import org.cometd.bayeux.Message;
 import org.cometd.client.transport.HttpClientTransport;
@@ -25,18 +28,15 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpScheme;
 import org.eclipse.jetty.http.HttpStatus;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 
-import java.io.BufferedReader;
-import java.io.EOFException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.PushbackInputStream;
+import java.io.Reader;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
 import java.net.HttpCookie;
@@ -44,6 +44,7 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -59,12 +60,17 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 
 public class HttpStreamingTransport extends HttpClientTransport implements MessageClientTransport {
     public static final String NAME = "streaming";
     public static final String PREFIX = "http-streaming.json";
     public static final String MAX_BUFFER_SIZE_OPTION = "maxBufferSize";
+    /** Ask for compressed responses on the streaming connection, true by default */
+    public static final String COMPRESSION_OPTION = "compression";
     private static final String TAG = HttpStreamingTransport.class.getSimpleName();
 
     private ScheduledExecutorService _scheduler;
@@ -78,6 +84,7 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
     private volatile boolean _aborted;
     private volatile int _maxBufferSize;
     private volatile boolean _appendMessageType;
+    private volatile boolean _compression;
     private volatile CookieManager _cookieManager;
 
     public HttpStreamingTransport(Map<String, Object> options, HttpClient httpClient) {
@@ -113,6 +120,7 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
         setMaxNetworkDelay(defaultMaxNetworkDelay);
 
         _maxBufferSize = getOption(MAX_BUFFER_SIZE_OPTION, 1024 * 1024);
+        _compression = getOption(COMPRESSION_OPTION, true);
 
         Pattern uriRegexp = Pattern.compile("(^https?://(((\\[[^\\]]+\\])|([^:/\\?#]+))(:(\\d+))?))?([^\\?#]*)(.*)?");
         Matcher uriMatcher = uriRegexp.matcher(getURL());
@@ -333,10 +341,13 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
         });
     }
 
-    private static void sendText(PrintWriter writer, String json, HttpFields customHeaders) {
+    private static void sendText(PrintWriter writer, String json, HttpFields customHeaders, boolean compression) {
         StringBuilder msg = new StringBuilder("POST /cometd HTTP/1.1\r\n" +
                 HttpHeader.CONTENT_TYPE.asString() + ": text/json;charset=UTF-8\r\n" +
                 HttpHeader.CONTENT_LENGTH.asString() + ": " + json.length() + "\r\n");
+        if (compression) {
+            msg.append(HttpHeader.ACCEPT_ENCODING.asString()).append(": gzip, deflate\r\n");
+        }
 
         for (HttpField httpField : customHeaders) {
             if (httpField.getHeader() != HttpHeader.ACCEPT_ENCODING) {
@@ -359,6 +370,10 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
         private Map<String, Object> _advice;
         private long interval;
 
+        /** Bytes of response bodies as received, and after decompression */
+        private volatile long bytesReceived;
+        private volatile long bytesDecoded;
+
         public Delegate() {
             socket = new Socket();
             Request request = _httpClient.newRequest(getURL());
@@ -486,7 +501,7 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
                 if (session == null)
                     throw new IOException("Unconnected");
 
-                sendText(session, content, headers);
+                sendText(session, content, headers, _compression);
             } catch (Throwable x) {
                 fail(x, "Exception");
             }
@@ -586,10 +601,22 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
                 shutdown(reason);
         }
 
+        /**
+         * Account for a part of a response body. Only called from the listening thread.
+         */
+        private void addTransfer(long received, long decoded) {
+            bytesReceived += received;
+            bytesDecoded += decoded;
+        }
+
         private void shutdown(String reason) {
             connected = false;
             writer = null;
             Log.v(TAG, "Closing socket, reason: " + reason);
+            if (bytesDecoded > 0) {
+                Log.i(TAG, String.format(Locale.ENGLISH, "Received %d bytes for %d bytes of messages, compression ratio %.2f, saved %d bytes",
+                        bytesReceived, bytesDecoded, (double) bytesDecoded / Math.max(1, bytesReceived), bytesDecoded - bytesReceived));
+            }
             try {
                 socket.close();
             } catch (IOException x) {
@@ -616,12 +643,12 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
     }
 
     private static class ListeningThread extends Thread {
-        private Delegate delegate;
-        private final BufferedReader reader;
+        private final Delegate delegate;
+        private final InputStream in;
 
-        public ListeningThread(Delegate delegate, InputStream inputStream) throws UnsupportedEncodingException {
+        public ListeningThread(Delegate delegate, InputStream inputStream) {
             this.delegate = delegate;
-            reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+            in = new BufferedInputStream(inputStream);
         }
 
         @Override
@@ -632,18 +659,32 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
 
                     boolean chunked = false;
                     int contentSize = 0;
+                    String contentEncoding = null;
                     String headerLine;
                     while (!"".equals(headerLine = readLine())) {
-                        if ("Transfer-Encoding: chunked".equals(headerLine))
-                            chunked = true;
-                        int pos = headerLine.indexOf("Content-Length: ");
-                        if (pos == 0) {
-                            contentSize = Integer.parseInt(headerLine.substring("Content-Length: ".length()));
+                        int colon = headerLine.indexOf(':');
+                        if (colon < 0) {
+                            continue;
+                        }
+                        String name = headerLine.substring(0, colon).trim();
+                        String value = headerLine.substring(colon + 1).trim();
+                        if (HttpHeader.TRANSFER_ENCODING.is(name)) {
+                            chunked = "chunked".equalsIgnoreCase(value);
+                        } else if (HttpHeader.CONTENT_LENGTH.is(name)) {
+                            contentSize = Integer.parseInt(value);
+                        } else if (HttpHeader.CONTENT_ENCODING.is(name)) {
+                            contentEncoding = value.toLowerCase(Locale.ENGLISH);
                         }
                     }
 
                     if (!chunked) {
-                        String content = read(contentSize);
+                        byte[] body = new byte[contentSize];
+                        ByteStreams.readFully(in, body);
+                        String content;
+                        try (CountingInputStream decoded = new CountingInputStream(decode(new ByteArrayInputStream(body), contentEncoding))) {
+                            content = new String(ByteStreams.toByteArray(decoded), StandardCharsets.UTF_8);
+                            delegate.addTransfer(body.length, decoded.getCount());
+                        }
                         if (content.length() > 0) {
                             if (status == HttpStatus.OK_200) {
                                 delegate.onData(content);
@@ -656,23 +697,29 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
                             delegate.fail(x, "No content");
                         }
                     } else {
-                        String unprocessed = "";
-                        while (!"0".equals(readLine())) {
-                            String data = readLine();
-                            Log.v(TAG, "data = " + data);
-                            unprocessed += data;
-                            Log.v(TAG, "unprocessed = " + unprocessed);
-                            if (isValidJson(unprocessed)) {
-                                Log.v(TAG, "JSON is valid! Sending data to parser.");
-                                if (status == HttpStatus.OK_200) {
-                                    delegate.onData(unprocessed);
+                        // Messages are sent as they happen, so decode the chunks as they arrive,
+                        // and pass on each JSON message as soon as it's complete.
+                        CountingInputStream body = new CountingInputStream(new ChunkedInputStream(in));
+                        try (CountingInputStream decoded = new CountingInputStream(decode(body, contentEncoding))) {
+                            Reader reader = new InputStreamReader(decoded, StandardCharsets.UTF_8);
+                            JsonFramer framer = new JsonFramer();
+                            char[] chars = new char[8192];
+                            long bodyCount = 0, decodedCount = 0;
+                            int length;
+                            while ((length = reader.read(chars)) != -1) {
+                                delegate.addTransfer(body.getCount() - bodyCount, decoded.getCount() - decodedCount);
+                                bodyCount = body.getCount();
+                                decodedCount = decoded.getCount();
+                                for (String json : framer.feed(chars, 0, length)) {
+                                    if (status == HttpStatus.OK_200) {
+                                        delegate.onData(json);
+                                    }
                                 }
-                                unprocessed = "";
-                            } else {
-                                Log.v(TAG, "JSON is not valid! Appending to next chunk.");
+                            }
+                            if (framer.hasPartialValue()) {
+                                Log.w(TAG, "Incomplete JSON at end of chunks");
                             }
                         }
-                        readLine();//Read final/empty chunk
                         delegate.disconnect("End of chunks");
                     }
 
@@ -691,19 +738,47 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
             }
         }
 
-        private boolean isValidJson(String jsonStr) {
-            try {
-                JSONTokener tokenizer = new JSONTokener(jsonStr);
-                while (tokenizer.more()) {
-                    Object json = tokenizer.nextValue();
-                    if (!(json instanceof JSONObject || json instanceof JSONArray)) {
-                        return false;
+        /**
+         * Decode the supplied body according to the content encoding.
+         * <p>
+         * The decompressing streams report nothing {@link InputStream#available()}, otherwise the
+         * reader of a streaming response would block for the next chunk, before it returns the
+         * message it has already decoded.
+         */
+        private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+            if (contentEncoding == null || "identity".equals(contentEncoding)) {
+                return body;
+            }
+            if ("gzip".equals(contentEncoding) || "x-gzip".equals(contentEncoding)) {
+                return new GZIPInputStream(body) {
+                    @Override
+                    public int available() {
+                        return 0;
                     }
-                }
-                return true;
-            } catch (JSONException e) {
-                return false;
+                };
+            }
+            if ("deflate".equals(contentEncoding)) {
+                // "deflate" should have the zlib wrapper, but some servers send raw deflate data
+                PushbackInputStream in = new PushbackInputStream(body, 2);
+                byte[] header = new byte[2];
+                ByteStreams.readFully(in, header);
+                in.unread(header);
+                boolean zlib = (header[0] & 0x0f) == 8 && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+                final Inflater inflater = new Inflater(!zlib);
+                return new InflaterInputStream(in, inflater) {
+                    @Override
+                    public int available() {
+                        return 0;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inflater.end();
+                    }
+                };
             }
+            throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
         }
 
         Pattern httpStatusLinePattern = Pattern.compile("HTTP/1.1 (\\d{3}) \\p{all}+");
@@ -719,20 +794,7 @@ public class HttpStreamingTransport extends HttpClientTransport implements Messa
         }
 
         private String readLine() throws IOException {
-            String inputLine = reader.readLine();
-            if (inputLine == null) {
-                throw new EOFException();
-            }
-            return inputLine;
-        }
-
-        private String read(int size) throws IOException {
-            char[] buffer = new char[size];
-            int length = reader.read(buffer);
-            if (length != size) {
-                throw new EOFException("Expected " + size + " characters, but got " + length);
-            }
-            return new String(buffer);
+            return ChunkedInputStream.readLine(in);
         }
     }
 
@@ -169,6 +169,21 @@ public interface ISqueezeService {
      */
     void pluginItems(Action action, IServiceItemListCallback<JiveItem> callback) throws SqueezeService.HandshakeNotCompleteException;
 
+    /**
+     * @return True if there is a local library mirror for the connected server, which can be
+     *     searched with {@link #searchLibrary(String, IServiceItemListCallback)}.
+     */
+    boolean canSearchLibrary();
+
+    /**
+     * Search the artists, albums and tracks of the local library mirror, for type-ahead results
+     * while the user enters a search.
+     *
+     * @param query Text to search for. Each word is matched as a prefix.
+     * @param callback This will be called with the results.
+     */
+    void searchLibrary(String query, IServiceItemListCallback<JiveItem> callback);
+
     /**
      * Perform the supplied SBS <code>do</code> <code>action</code> using parameters in <code>item</code>.
      * <p>
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a stream of characters into the JSON objects and arrays it contains.
+ * <p>
+ * The characters can be fed in any pieces, f.e. as they are decoded from a chunked or compressed
+ * HTTP response, and each top level value is returned as soon as it's complete. Only the nesting
+ * and the string literals are tracked, the values are not validated. Characters between the top
+ * level values, like whitespace, are skipped.
+ */
+class JsonFramer {
+    private final StringBuilder value = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escape;
+
+    /**
+     * Add the supplied characters.
+     *
+     * @return The top level values completed by these characters, in order
+     */
+    List<String> feed(char[] chars, int offset, int length) {
+        List<String> values = Collections.emptyList();
+        int start = (depth > 0 ? offset : -1);
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            if (depth == 0) {
+                if (c == '{' || c == '[') {
+                    depth = 1;
+                    start = i;
+                }
+                continue;
+            }
+
+            if (inString) {
+                if (escape) {
+                    escape = false;
+                } else if (c == '\\') {
+                    escape = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    value.append(chars, start, i + 1 - start);
+                    if (values.isEmpty()) {
+                        values = new ArrayList<>(1);
+                    }
+                    values.add(value.toString());
+                    value.setLength(0);
+                    start = -1;
+                }
+            }
+        }
+        if (start >= 0) {
+            value.append(chars, start, end - start);
+        }
+        return values;
+    }
+
+    /**
+     * @return True if there is an incomplete value
+     */
+    boolean hasPartialValue() {
+        return depth > 0;
+    }
+}
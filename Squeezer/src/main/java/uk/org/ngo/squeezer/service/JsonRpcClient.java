@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import android.text.TextUtils;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.io.ByteStreams;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import uk.org.ngo.squeezer.Preferences;
+import uk.org.ngo.squeezer.model.PlayerState;
+
+/**
+ * Sends player commands to the JSON-RPC endpoint of the server ({@code /jsonrpc.js}).
+ * <p>
+ * This is the fast path for the home screen widgets and the notification, where waiting for the
+ * CometD handshake and the player list before a command takes effect is too slow. Each command is a
+ * single HTTP request, and the responses are read to the end, so {@link HttpURLConnection} keeps
+ * the connection alive for the next command.
+ * <p>
+ * The methods block, so they must not be called on the UI thread.
+ */
+public class JsonRpcClient {
+    private static final String TAG = JsonRpcClient.class.getSimpleName();
+
+    private static final int TIMEOUT = 3000;
+
+    /**
+     * Thrown if a command certainly did not reach the server, because JSON-RPC is not available
+     * for the server, or the connection to it failed. Only then is it safe to send the command
+     * another way; after other errors the server may have run it.
+     */
+    public static class NotSentException extends IOException {
+        NotSentException(String message) {
+            super(message);
+        }
+
+        NotSentException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final URL url;
+    private final String authorization;
+    private final int fadeInSecs;
+
+    /**
+     * @param serverAddress The server to send commands to
+     * @param fadeInSecs Fade in when playback is started or resumed, see
+     *     {@link Preferences#KEY_FADE_IN_SECS}
+     * @throws NotSentException If no server is configured, the server is on mysqueezebox.com,
+     *     which doesn't offer JSON-RPC for player commands, or the address is invalid
+     */
+    public JsonRpcClient(@NonNull Preferences.ServerAddress serverAddress, int fadeInSecs) throws NotSentException {
+        if (serverAddress.squeezeNetwork || serverAddress.localAddress() == null) {
+            throw new NotSentException("JSON-RPC is not available for " + serverAddress.serverName());
+        }
+        try {
+            url = new URL("http://" + serverAddress.address() + "/jsonrpc.js");
+        } catch (IOException e) {
+            throw new NotSentException("Invalid server address " + serverAddress.address(), e);
+        }
+        authorization = (serverAddress.userName != null && serverAddress.password != null)
+                ? "Basic " + Base64.encodeToString((serverAddress.userName + ":" + serverAddress.password).getBytes(StandardCharsets.UTF_8), Base64.NO_WRAP)
+                : null;
+        this.fadeInSecs = fadeInSecs;
+    }
+
+    /**
+     * Send a command to a player.
+     *
+     * @return The result of the command
+     * @throws NotSentException If the server could not be reached
+     * @throws IOException If the request failed after it may have reached the server, or the
+     *     server returned an error
+     */
+    @NonNull
+    public JSONObject command(@NonNull String playerId, String... cmd) throws IOException {
+        byte[] body;
+        try {
+            JSONObject request = new JSONObject()
+                    .put("id", 1)
+                    .put("method", "slim.request")
+                    .put("params", new JSONArray().put(playerId).put(new JSONArray(cmd)));
+            body = request.toString().getBytes(StandardCharsets.UTF_8);
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+
+        long start = System.currentTimeMillis();
+        HttpURLConnection connection;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/json");
+            if (authorization != null) {
+                connection.setRequestProperty("Authorization", authorization);
+            }
+            // Connect separately, so we know whether the request can have reached the server
+            connection.connect();
+        } catch (IOException e) {
+            throw new NotSentException("Can't connect to " + url, e);
+        }
+        try {
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + responseCode + " from " + url);
+            }
+            String response;
+            try (InputStream in = connection.getInputStream()) {
+                response = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+            }
+            Log.d(TAG, playerId + " " + TextUtils.join(" ", cmd) + " took " + (System.currentTimeMillis() - start) + "ms");
+
+            JSONObject result = new JSONObject(response);
+            if (result.has("error")) {
+                throw new IOException(String.valueOf(result.get("error")));
+            }
+            JSONObject commandResult = result.optJSONObject("result");
+            return (commandResult != null ? commandResult : new JSONObject());
+        } catch (JSONException e) {
+            throw new IOException("Invalid response from " + url, e);
+        } catch (IOException e) {
+            // Don't leave a broken connection for the next request
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    public void togglePower(@NonNull String playerId) throws IOException {
+        command(playerId, "power");
+    }
+
+    /**
+     * Pause the player if it's playing, otherwise start or resume playback.
+     * <p>
+     * Like {@link ISqueezeService#togglePausePlay(uk.org.ngo.squeezer.model.Player)} this doesn't
+     * send the ambiguous "pause" toggle, so the current play mode is fetched first.
+     */
+    public void togglePausePlay(@NonNull String playerId) throws IOException {
+        String mode = command(playerId, "mode", "?").optString("_mode");
+        switch (mode) {
+            case PlayerState.PLAY_STATE_PLAY:
+                command(playerId, "pause", "1");
+                break;
+            case PlayerState.PLAY_STATE_PAUSE:
+                command(playerId, fadeIn("pause", "0"));
+                break;
+            default:
+                command(playerId, fadeIn("play"));
+                break;
+        }
+    }
+
+    public void play(@NonNull String playerId) throws IOException {
+        command(playerId, fadeIn("play"));
+    }
+
+    public void pause(@NonNull String playerId) throws IOException {
+        command(playerId, "pause", "1");
+    }
+
+    public void nextTrack(@NonNull String playerId) throws IOException {
+        command(playerId, "button", "jump_fwd");
+    }
+
+    public void previousTrack(@NonNull String playerId) throws IOException {
+        command(playerId, "button", "jump_rew");
+    }
+
+    public void button(@NonNull String playerId, @NonNull IRButton button) throws IOException {
+        command(playerId, "button", button.getFunction());
+    }
+
+    private String[] fadeIn(String... cmd) {
+        if (fadeInSecs <= 0) {
+            return cmd;
+        }
+        String[] fadeInCmd = new String[cmd.length + 1];
+        System.arraycopy(cmd, 0, fadeInCmd, 0, cmd.length);
+        fadeInCmd[cmd.length] = String.valueOf(fadeInSecs);
+        return fadeInCmd;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import uk.org.ngo.squeezer.itemlist.IServiceItemListCallback;
+import uk.org.ngo.squeezer.library.LibraryDatabase;
+import uk.org.ngo.squeezer.model.LibraryRecord;
+
+/**
+ * Keep the {@link LibraryDatabase library mirror} in sync with the library of the connected
+ * server.
+ * <p>
+ * The server reports the time of its last library scan. If the mirror was made from the same scan
+ * nothing is fetched, otherwise each table of the mirror is fetched in pages of
+ * {@link #PAGE_SIZE} items and written as the pages arrive. The server has no query for the
+ * changes since a scan, so a new scan is fetched in full. Database writes are done on a
+ * background thread of the sync, so they don't hold up other server responses, or reads of the
+ * mirror.
+ */
+class LibrarySync {
+    private static final String TAG = LibrarySync.class.getSimpleName();
+
+    /** Number of items to fetch per request */
+    private static final int PAGE_SIZE = 500;
+
+    private final SlimDelegate mDelegate;
+    private final LibraryDatabase mDatabase;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    /** Incremented for each sync, so responses for an abandoned sync can be ignored */
+    private int mSession;
+
+    /** True if the mirror holds a complete copy of the library of the connected server */
+    private volatile boolean mAvailable;
+
+    LibrarySync(@NonNull SlimDelegate delegate, @NonNull LibraryDatabase database) {
+        mDelegate = delegate;
+        mDatabase = database;
+    }
+
+    /**
+     * @return True if the mirror can be used for the connected server. It may be from an earlier
+     *     scan, if a sync is in progress.
+     */
+    boolean isAvailable() {
+        return mAvailable;
+    }
+
+    /**
+     * Bring the mirror up to date with the supplied server scan, if it isn't already.
+     *
+     * @param server Identifies the server, see {@link SlimDelegate#getLibraryKey()}
+     * @param lastScan Time of the last library scan on the server
+     */
+    synchronized void start(@NonNull final String server, final long lastScan) {
+        final int session = ++mSession;
+        mExecutor.execute(() -> {
+            long mirroredScan = mDatabase.getLastScan(server);
+            mAvailable = (mirroredScan != -1);
+            if (mirroredScan == lastScan) {
+                Log.i(TAG, "Library mirror is up to date");
+                return;
+            }
+            Log.i(TAG, "Sync library mirror for scan " + lastScan + ", mirror is from " + mirroredScan);
+            requestTable(new SyncState(session, server, lastScan, mDatabase.beginSync(server)), 0);
+        });
+    }
+
+    /**
+     * Abandon any sync in progress, f.e. because the connection to the server is closed.
+     */
+    synchronized void stop() {
+        mSession++;
+        mAvailable = false;
+        mDelegate.cancelClientRequests(this);
+    }
+
+    /**
+     * Remove the mirror.
+     */
+    void clear() {
+        stop();
+        mExecutor.execute(mDatabase::clear);
+    }
+
+    private synchronized boolean isCurrent(SyncState state) {
+        return state.session == mSession;
+    }
+
+    private void requestTable(SyncState state, int tableIndex) {
+        if (!isCurrent(state)) {
+            return;
+        }
+        LibraryDatabase.Table table = LibraryDatabase.Table.values()[tableIndex];
+        SlimDelegate.Command request = mDelegate.requestAllItems(PAGE_SIZE, new TableCallback(state, tableIndex)).cmd(table.cmd);
+        if (!table.tags.isEmpty()) {
+            request.param("tags", table.tags);
+        }
+        request.exec();
+    }
+
+    private void onTableComplete(SyncState state, int tableIndex) {
+        if (tableIndex + 1 < LibraryDatabase.Table.values().length) {
+            requestTable(state, tableIndex + 1);
+        } else {
+            mExecutor.execute(() -> {
+                if (isCurrent(state) && mDatabase.finishSync(state.server, state.lastScan, state.generation)) {
+                    mAvailable = true;
+                    Log.i(TAG, "Library mirror synced in " + (SystemClock.elapsedRealtime() - state.startTime) + "ms");
+                }
+            });
+        }
+    }
+
+    private static class SyncState {
+        final int session;
+        final String server;
+        final long lastScan;
+        final long generation;
+        final long startTime = SystemClock.elapsedRealtime();
+
+        private SyncState(int session, String server, long lastScan, long generation) {
+            this.session = session;
+            this.server = server;
+            this.lastScan = lastScan;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Receives the pages of one table, and stores them in the mirror.
+     */
+    private class TableCallback implements IServiceItemListCallback<LibraryRecord> {
+        private final SyncState state;
+        private final int tableIndex;
+
+        private TableCallback(SyncState state, int tableIndex) {
+            this.state = state;
+            this.tableIndex = tableIndex;
+        }
+
+        @Override
+        public void onItemsReceived(int count, int start, Map<String, Object> parameters, List<LibraryRecord> items, Class<LibraryRecord> dataType) {
+            if (!isCurrent(state)) {
+                return;
+            }
+            final LibraryDatabase.Table table = LibraryDatabase.Table.values()[tableIndex];
+            final List<Map<String, Object>> records = new ArrayList<>(items.size());
+            for (LibraryRecord item : items) {
+                records.add(item.record);
+            }
+            mExecutor.execute(() -> {
+                if (isCurrent(state)) {
+                    mDatabase.insert(table, state.generation, records);
+                }
+            });
+            if (start + items.size() >= count) {
+                Log.i(TAG, "Fetched " + count + " " + table.cmd);
+                onTableComplete(state, tableIndex);
+            }
+        }
+
+        @Override
+        public Object getClient() {
+            return LibrarySync.this;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import uk.org.ngo.squeezer.itemlist.IServiceItemListCallback;
+import uk.org.ngo.squeezer.model.JiveItem;
+import uk.org.ngo.squeezer.model.MusicFolderItem;
+import uk.org.ngo.squeezer.model.SlimCommand;
+import uk.org.ngo.squeezer.model.Song;
+
+/**
+ * Download a music folder and all its sub folders.
+ * <p>
+ * The server walks the folder tree, so a single <code>musicfolder</code> listing with
+ * <code>recursive:1</code> returns the tracks of all the sub folders, a page at a time. The tracks
+ * of each page are resolved and passed to the download scheduler as soon as the page arrives, so
+ * downloads start before the whole tree has been listed.
+ * <p>
+ * The server doesn't answer requests which fail, so the listing is given up if the next page of it
+ * doesn't arrive within {@link #PAGE_TIMEOUT} ms. Pages which arrive after that are ignored.
+ */
+class MusicFolderCrawler {
+    private static final String TAG = MusicFolderCrawler.class.getSimpleName();
+
+    /** Time to wait for each page of a folder listing, in ms */
+    private static final long PAGE_TIMEOUT = 30_000;
+
+    /**
+     * Sends the requests of a crawl to the server.
+     */
+    interface Requests {
+        /**
+         * Request the tracks of the supplied folder and all its sub folders, which may arrive in
+         * several pages.
+         */
+        void listTracks(@NonNull String folderId, @NonNull Listing listing);
+
+        /** Resolve the track with the supplied id, and download it. */
+        void downloadTrack(@NonNull String trackId);
+
+        /** The listing of the folder is complete, or has been given up. */
+        void onCrawlDone(@NonNull String folderId, int trackCount, boolean complete);
+    }
+
+    /**
+     * Receives the pages of a folder listing.
+     */
+    interface Listing {
+        /**
+         * @param count Number of items in the listing, including the sub folders
+         * @param start Position of the first item of this page
+         * @param size Number of items in this page
+         * @param trackIds Ids of the tracks in this page
+         */
+        void onPage(int count, int start, int size, @NonNull List<String> trackIds);
+    }
+
+    private final Requests mRequests;
+    private final ScheduledExecutorService mTimer;
+    private final long mTimeout;
+
+    /**
+     * @param delegate Used to send requests to the server
+     * @param songCallback Receives the tracks as they are resolved
+     * @param timer Used to give up folder listings which are not answered
+     */
+    MusicFolderCrawler(@NonNull SlimDelegate delegate, @NonNull IServiceItemListCallback<Song> songCallback, @NonNull ScheduledExecutorService timer) {
+        this(new Requests() {
+            @Override
+            public void listTracks(@NonNull String folderId, @NonNull Listing listing) {
+                delegate.requestItems(-1, new IServiceItemListCallback<MusicFolderItem>() {
+                    @Override
+                    public void onItemsReceived(int count, int start, Map<String, Object> parameters, List<MusicFolderItem> items, Class<MusicFolderItem> dataType) {
+                        List<String> trackIds = new ArrayList<>();
+                        for (MusicFolderItem item : items) {
+                            if ("track".equals(item.type)) {
+                                trackIds.add(item.id);
+                            }
+                        }
+                        listing.onPage(count, start, items.size(), trackIds);
+                    }
+
+                    @Override
+                    public Object getClient() {
+                        return listing;
+                    }
+                })
+                        .cmd("musicfolder")
+                        .param("tags", "cu")
+                        .param("recursive", "1")
+                        .param("folder_id", folderId)
+                        .exec();
+            }
+
+            @Override
+            public void downloadTrack(@NonNull String trackId) {
+                SlimCommand command = JiveItem.downloadCommand(trackId);
+                delegate.requestItems(-1, songCallback).params(command.params).cmd(command.cmd()).exec();
+            }
+
+            @Override
+            public void onCrawlDone(@NonNull String folderId, int trackCount, boolean complete) {
+                if (complete) {
+                    Log.i(TAG, "Crawl of " + folderId + " complete: " + trackCount + " tracks");
+                } else {
+                    Log.w(TAG, "No answer listing folder " + folderId + ", gave up after " + trackCount + " tracks");
+                }
+            }
+        }, timer, PAGE_TIMEOUT);
+    }
+
+    @VisibleForTesting
+    MusicFolderCrawler(@NonNull Requests requests, @NonNull ScheduledExecutorService timer, long timeout) {
+        mRequests = requests;
+        mTimer = timer;
+        mTimeout = timeout;
+    }
+
+    /**
+     * Start downloading the supplied folder.
+     */
+    void crawl(@NonNull String folderId) {
+        new FolderListing(folderId).start();
+    }
+
+    /**
+     * Receives the pages of the listing of a folder, and downloads the tracks in them.
+     */
+    private class FolderListing implements Listing {
+        private final String folderId;
+        private ScheduledFuture<?> timeout;
+        /** Number of pages received, so a timeout which fires as a page arrives is ignored */
+        private int pageCount;
+        private int trackCount;
+        private boolean done;
+
+        private FolderListing(String folderId) {
+            this.folderId = folderId;
+        }
+
+        private synchronized void start() {
+            startTimeout();
+            mRequests.listTracks(folderId, this);
+        }
+
+        private void startTimeout() {
+            int expectedPageCount = pageCount;
+            timeout = mTimer.schedule(() -> onTimeout(expectedPageCount), mTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void onTimeout(int expectedPageCount) {
+            if (done || pageCount != expectedPageCount) {
+                return;
+            }
+            done = true;
+            mRequests.onCrawlDone(folderId, trackCount, false);
+        }
+
+        @Override
+        public synchronized void onPage(int count, int start, int size, @NonNull List<String> trackIds) {
+            if (done) {
+                return;
+            }
+            timeout.cancel(false);
+            pageCount++;
+            trackCount += trackIds.size();
+            for (String trackId : trackIds) {
+                mRequests.downloadTrack(trackId);
+            }
+            if (start + size >= count) {
+                done = true;
+                mRequests.onCrawlDone(folderId, trackCount, true);
+            } else {
+                startTimeout();
+            }
+        }
+    }
+}
@@ -20,6 +20,8 @@ import android.net.Uri;
 
 import com.google.common.base.Joiner;
 
+import java.util.Objects;
+
 public class NotificationState {
     public boolean hasPlayer;
     public String playerName;
@@ -35,6 +37,17 @@ public class NotificationState {
         return Joiner.on(" - ").skipNulls().join(artistName, albumName);
     }
 
+    /**
+     * @return True if the supplied state is for the same song and artwork as this
+     */
+    public boolean hasSameMetadata(NotificationState that) {
+        return that != null &&
+                Objects.equals(songName, that.songName) &&
+                Objects.equals(albumName, that.albumName) &&
+                Objects.equals(artistName, that.artistName) &&
+                Objects.equals(artworkUrl, that.artworkUrl);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import uk.org.ngo.squeezer.model.Player;
+
+/**
+ * Bookkeeping for optimistic updates of player state.
+ * <p>
+ * When a player command is sent, the expected effect on the player state is applied immediately
+ * (a prediction), tagged with the correlation id of the command. Player status from the server is
+ * passed through {@link #reconcile(Player, Field, Object)}:
+ * <ul>
+ *     <li>Until the server has responded to the command, the status may predate it, so the
+ *     predicted value is kept, and the status value is remembered as the authoritative value.</li>
+ *     <li>The first status after the response confirms the prediction, or corrects it if it was
+ *     wrong.</li>
+ * </ul>
+ * Predictions which are not resolved within {@link #TIMEOUT} are reverted to the authoritative
+ * value if the server never responded to the command, see {@link #expire(long)}.
+ * <p>
+ * Values are compared with {@link Objects#equals(Object, Object)}, so they must be of the same
+ * type as the status values they are reconciled with.
+ */
+class OptimisticState {
+    /** Time in milliseconds to wait for a prediction to be confirmed */
+    static final long TIMEOUT = 3000;
+
+    /** The parts of the player state which can be predicted */
+    enum Field {
+        /** {@link uk.org.ngo.squeezer.model.PlayerState.PlayState} */
+        PLAY_STATUS,
+        /** Id of the {@link uk.org.ngo.squeezer.model.PlayerState.ShuffleStatus} as a String */
+        SHUFFLE,
+        /** Id of the {@link uk.org.ngo.squeezer.model.PlayerState.RepeatStatus} as a String */
+        REPEAT,
+        /** Integer */
+        VOLUME,
+        /** Integer */
+        PLAYLIST_INDEX
+    }
+
+    private static class Prediction {
+        final Player player;
+        final Field field;
+        final Object predicted;
+        final int correlationId;
+        final long time;
+        /** Latest value from the server */
+        Object authoritative;
+        /** True if the server has responded to the command */
+        boolean acknowledged;
+
+        private Prediction(Player player, Field field, Object predicted, Object authoritative, int correlationId, long time) {
+            this.player = player;
+            this.field = field;
+            this.predicted = predicted;
+            this.authoritative = authoritative;
+            this.correlationId = correlationId;
+            this.time = time;
+        }
+    }
+
+    /** A prediction which was not resolved in time */
+    static class Expired {
+        final Player player;
+        final Field field;
+        /** Value to revert to */
+        final Object authoritative;
+        /**
+         * True if the server has responded to the command, but status has not been received since.
+         * The prediction may well be correct, so status should be ordered rather than reverted.
+         */
+        final boolean acknowledged;
+
+        private Expired(Prediction prediction) {
+            player = prediction.player;
+            field = prediction.field;
+            authoritative = prediction.authoritative;
+            acknowledged = prediction.acknowledged;
+        }
+    }
+
+    /** Outstanding predictions by player id */
+    private final Map<String, Map<Field, Prediction>> mPredictions = new HashMap<>();
+
+    private int mConfirmed;
+    private int mMispredicted;
+    private int mReverted;
+
+    /**
+     * Register a prediction. A previous prediction for the same field is replaced, but its
+     * authoritative value is kept.
+     *
+     * @param current The current value of the field
+     */
+    synchronized void predict(@NonNull Player player, @NonNull Field field, Object predicted, Object current, int correlationId, long now) {
+        Map<Field, Prediction> predictions = mPredictions.get(player.getId());
+        if (predictions == null) {
+            mPredictions.put(player.getId(), predictions = new EnumMap<>(Field.class));
+        }
+        Prediction previous = predictions.get(field);
+        Object authoritative = (previous != null ? previous.authoritative : current);
+        predictions.put(field, new Prediction(player, field, predicted, authoritative, correlationId, now));
+    }
+
+    /**
+     * The server has responded to the command with the supplied correlation id, so player status
+     * from now on reflects it.
+     */
+    synchronized void acknowledge(int correlationId) {
+        for (Map<Field, Prediction> predictions : mPredictions.values()) {
+            for (Prediction prediction : predictions.values()) {
+                if (prediction.correlationId == correlationId) {
+                    prediction.acknowledged = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return True if there are outstanding predictions
+     */
+    synchronized boolean isEmpty() {
+        return mPredictions.isEmpty();
+    }
+
+    /**
+     * Reconcile a value from the server with the prediction for the field, if any.
+     *
+     * @return The value to use for the field
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T> T reconcile(@NonNull Player player, @NonNull Field field, T value) {
+        Map<Field, Prediction> predictions = mPredictions.get(player.getId());
+        Prediction prediction = (predictions != null ? predictions.get(field) : null);
+        if (prediction == null) {
+            return value;
+        }
+        if (!prediction.acknowledged) {
+            prediction.authoritative = value;
+            return (T) prediction.predicted;
+        }
+
+        remove(predictions, player, field);
+        if (Objects.equals(value, prediction.predicted)) {
+            mConfirmed++;
+        } else {
+            mMispredicted++;
+        }
+        return value;
+    }
+
+    /**
+     * Remove and return the predictions which were made before <code>now - TIMEOUT</code>.
+     */
+    @NonNull
+    synchronized List<Expired> expire(long now) {
+        List<Expired> expired = new ArrayList<>();
+        for (Iterator<Map<Field, Prediction>> it = mPredictions.values().iterator(); it.hasNext(); ) {
+            Map<Field, Prediction> predictions = it.next();
+            for (Iterator<Prediction> pit = predictions.values().iterator(); pit.hasNext(); ) {
+                Prediction prediction = pit.next();
+                if (now - prediction.time >= TIMEOUT) {
+                    pit.remove();
+                    expired.add(new Expired(prediction));
+                    if (!prediction.acknowledged) {
+                        mReverted++;
+                    }
+                }
+            }
+            if (predictions.isEmpty()) {
+                it.remove();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Forget all predictions, f.e. because the connection to the server is closed.
+     */
+    synchronized void clear() {
+        mPredictions.clear();
+    }
+
+    /**
+     * @return A summary of how often predictions were right.
+     */
+    synchronized String getMetrics() {
+        int total = mConfirmed + mMispredicted + mReverted;
+        return "Predictions: " + total + " resolved, " + mConfirmed + " confirmed, " + mMispredicted + " mispredicted, " + mReverted + " reverted" +
+                (total > 0 ? String.format(Locale.ROOT, " (%.1f%% wrong)", 100.0 * (mMispredicted + mReverted) / total) : "");
+    }
+
+    private void remove(Map<Field, Prediction> predictions, Player player, Field field) {
+        predictions.remove(field);
+        if (predictions.isEmpty()) {
+            mPredictions.remove(player.getId());
+        }
+    }
+}
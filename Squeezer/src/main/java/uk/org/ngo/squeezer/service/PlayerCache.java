@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import uk.org.ngo.squeezer.model.Player;
+import uk.org.ngo.squeezer.model.PlayerState;
+import uk.org.ngo.squeezer.model.PlayerSnapshot;
+
+/**
+ * File backed cache of the players of each server, and their last known state.
+ * <p>
+ * The players are saved with {@link #save(String, Collection)} as their state changes. Writes
+ * are delayed by {@link #WRITE_DELAY_MS}, so a burst of status updates results in a single write
+ * of the latest state. When the app is started, the players are read back with
+ * {@link #load(String, Callback)}, so the player list can be shown before the server has
+ * answered.
+ * <p>
+ * Status is only received for the players the user is looking at, so players which haven't
+ * received a status in this session keep the state they had in the cache.
+ * <p>
+ * Files are written and read on a background thread, one at a time.
+ */
+public class PlayerCache {
+    private static final String TAG = PlayerCache.class.getSimpleName();
+
+    private static final long WRITE_DELAY_MS = 2000;
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    /** Copies of the players waiting to be written, by server */
+    private static final Map<String, List<Player>> pending = new HashMap<>();
+
+    /**
+     * The last written state of each player, by server. The states belong to copies of the
+     * players, see {@link PlayerSnapshot#copy(Player)}. Only used on the executor.
+     */
+    private static final Map<String, Map<String, PlayerState>> writtenStates = new HashMap<>();
+
+    private final File directory;
+
+    public interface Callback {
+        /**
+         * Called on a background thread with the cached players, which is empty if there are none.
+         */
+        void onPlayers(@NonNull List<Player> players);
+    }
+
+    public PlayerCache(@NonNull Context context) {
+        directory = new File(context.getCacheDir(), "players");
+    }
+
+    /**
+     * Save the players of a server in the background.
+     * <p>
+     * The players are copied on the calling thread, which must be the thread that updates them, so
+     * the write sees a consistent state. A later save before the write replaces the copies.
+     *
+     * @param serverKey The server, see {@link uk.org.ngo.squeezer.Preferences.ServerAddress#address()}
+     * @param players The players of the server
+     */
+    public void save(@NonNull String serverKey, @NonNull Collection<Player> players) {
+        if (players.isEmpty()) {
+            return;
+        }
+        List<Player> copies = new ArrayList<>(players.size());
+        for (Player player : players) {
+            copies.add(PlayerSnapshot.copy(player));
+        }
+        synchronized (pending) {
+            boolean scheduled = pending.containsKey(serverKey);
+            pending.put(serverKey, copies);
+            if (!scheduled) {
+                executor.schedule(() -> write(serverKey), WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Read the cached players of a server in the background, and pass them to the callback.
+     */
+    public void load(@NonNull String serverKey, @NonNull Callback callback) {
+        executor.execute(() -> callback.onPlayers(read(serverKey)));
+    }
+
+    private List<Player> read(String serverKey) {
+        File file = file(serverKey);
+        if (file.exists()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                return PlayerSnapshot.read(in);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Could not read players of " + serverKey, e);
+                file.delete();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private void write(String serverKey) {
+        List<Player> players;
+        synchronized (pending) {
+            players = pending.remove(serverKey);
+        }
+        if (players == null) {
+            return;
+        }
+
+        Map<String, PlayerState> previousStates = writtenStates.get(serverKey);
+        if (previousStates == null) {
+            previousStates = new HashMap<>();
+            for (Player player : read(serverKey)) {
+                previousStates.put(player.getId(), player.getPlayerState());
+            }
+        }
+        Map<String, PlayerState> states = new HashMap<>();
+        for (Player player : players) {
+            PlayerState previousState = previousStates.get(player.getId());
+            boolean hasStatus = (player.getPlayerState().getPlayStatus() != null);
+            states.put(player.getId(), hasStatus || previousState == null ? player.getPlayerState() : previousState);
+        }
+        writtenStates.put(serverKey, states);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create " + directory);
+            return;
+        }
+        File file = file(serverKey);
+        File tmpFile = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+            PlayerSnapshot.write(out, players, states);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Could not write players of " + serverKey, e);
+            tmpFile.delete();
+            return;
+        }
+        if (!tmpFile.renameTo(file)) {
+            Log.w(TAG, "Could not rename " + tmpFile);
+            tmpFile.delete();
+        }
+    }
+
+    private File file(String serverKey) {
+        return new File(directory, Hashing.sha256().hashString(serverKey, Charsets.UTF_8).toString());
+    }
+}
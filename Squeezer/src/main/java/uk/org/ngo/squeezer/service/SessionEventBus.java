@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Event bus for the client of one server session, see {@link SlimDelegate}.
+ * <p>
+ * While the session is active events are passed on to the event bus of the service. While it is
+ * inactive events are dropped, except sticky events, which are kept, and posted to the event bus of
+ * the service when the session is activated again. So an inactive session doesn't disturb the
+ * UI, and the UI gets the current state of the session when it becomes active.
+ * <p>
+ * Only posting is supported, subscribers register with the event bus of the service.
+ * <p>
+ * The sticky events of the session are kept here, rather than in the event bus of the service,
+ * so only {@link EventPoster} is needed from it.
+ */
+class SessionEventBus implements EventPoster {
+    @NonNull private final EventPoster mTarget;
+
+    /** Sticky events of the session in the order they were first posted, by event class */
+    private final Map<Class<?>, Object> mStickyEvents = new LinkedHashMap<>();
+
+    private boolean mActive;
+
+    SessionEventBus(@NonNull EventPoster target) {
+        mTarget = target;
+    }
+
+    @Override
+    public synchronized void post(Object event) {
+        if (mActive) {
+            mTarget.post(event);
+        }
+    }
+
+    @Override
+    public synchronized void postSticky(Object event) {
+        mStickyEvents.put(event.getClass(), event);
+        if (mActive) {
+            mTarget.postSticky(event);
+        }
+    }
+
+    @Override
+    public synchronized void removeAllStickyEvents() {
+        mStickyEvents.clear();
+        if (mActive) {
+            mTarget.removeAllStickyEvents();
+        }
+    }
+
+    /**
+     * Pass events on to the event bus of the service, starting by replacing the sticky events
+     * there with the sticky events of this session.
+     */
+    synchronized void activate() {
+        mActive = true;
+        mTarget.removeAllStickyEvents();
+        List<Object> stickyEvents = new ArrayList<>(mStickyEvents.values());
+        for (Object event : stickyEvents) {
+            mTarget.postSticky(event);
+        }
+    }
+
+    /**
+     * Stop passing events on to the event bus of the service.
+     */
+    synchronized void deactivate() {
+        mActive = false;
+    }
+
+    synchronized boolean isActive() {
+        return mActive;
+    }
+}
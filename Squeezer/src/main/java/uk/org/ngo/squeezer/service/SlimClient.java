@@ -38,6 +38,11 @@ interface SlimClient {
     // XXX: Document
     void disconnect();
 
+    /**
+     * Disconnect, and release the resources of the client. The client can't be used afterwards.
+     */
+    void shutdown();
+
     ConnectionState getConnectionState();
     String getUsername();
     String getPassword();
@@ -52,6 +57,18 @@ interface SlimClient {
      */
     void command(Player player, String[] cmd, Map<String, Object> params);
 
+    /**
+     * Execute the supplied command, and apply its expected effects on the player state
+     * immediately. The predictions are confirmed or corrected when player status is received
+     * after the server has responded to the command.
+     *
+     * @param player This command is for a specific player
+     * @param cmd Array of command terms
+     * @param params Hash of parameters, f.e. {sort = new}. Passed to the server in the form "key:value", f.e. 'sort:new'.
+     * @param predictions Expected values of player state after the command.
+     */
+    void command(Player player, String[] cmd, Map<String, Object> params, Map<OptimisticState.Field, Object> predictions);
+
     /**
      * Send an asynchronous request to the SqueezeboxServer for the specified items.
      * <p>
@@ -16,140 +16,326 @@
 
 package uk.org.ngo.squeezer.service;
 
+import android.text.TextUtils;
+import android.util.Log;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import de.greenrobot.event.EventBus;
+import uk.org.ngo.squeezer.Preferences;
 import uk.org.ngo.squeezer.model.JiveItem;
 import uk.org.ngo.squeezer.model.SlimCommand;
 import uk.org.ngo.squeezer.itemlist.IServiceItemListCallback;
 import uk.org.ngo.squeezer.model.Player;
 import uk.org.ngo.squeezer.model.PlayerState;
 
+/**
+ * Access to the server for the service.
+ * <p>
+ * Each server is a session with its own client and {@link ConnectionState}. When the user
+ * disconnects, or connects to another server, the session is kept connected in the background, so
+ * switching back to the server is instant. Inactive sessions don't post events to the UI (see
+ * {@link SessionEventBus}) and are unsubscribed from player status, so all they receive are the
+ * occasional server status messages. Up to {@link #MAX_INACTIVE_SESSIONS} sessions are kept,
+ * and they are dropped under memory pressure, see {@link #trimMemory()}.
+ */
 class SlimDelegate {
+    private static final String TAG = SlimDelegate.class.getSimpleName();
+
+    /** The maximum number of inactive server sessions to keep connected */
+    private static final int MAX_INACTIVE_SESSIONS = 2;
+
+    @NonNull private final EventBus mEventBus;
+
+    /** The session of the current server */
+    @NonNull private volatile Session mSession;
 
-    @NonNull private final SlimClient mClient;
+    /** Inactive sessions by server, least recently used first */
+    private final Map<String, Session> mInactiveSessions = new LinkedHashMap<>(16, 0.75f, true);
 
     SlimDelegate(@NonNull EventBus eventBus) {
-        mClient = new CometClient(eventBus);
+        mEventBus = eventBus;
+        mSession = new Session(eventBus);
+        mSession.eventBus.activate();
+    }
+
+    /**
+     * Start a connection to the configured server.
+     * <p>
+     * If there is an inactive session for the server, which is still connected, it is made the
+     * current session, instead of making a new connection.
+     */
+    synchronized void startConnect(SqueezeService service) {
+        Preferences.ServerAddress serverAddress = new Preferences(service).getServerAddress();
+        String key = Session.key(serverAddress);
+
+        Session inactiveSession = mInactiveSessions.remove(key);
+        if (inactiveSession != null) {
+            if (inactiveSession.client.getConnectionState().isConnected()
+                    && inactiveSession.hasCredentials(serverAddress)) {
+                Log.i(TAG, "Resume session: " + key);
+                new Preferences(service).setManualDisconnect(false);
+                Session session = mSession;
+                if (session.client.getConnectionState().isConnected()) {
+                    deactivate(session);
+                } else {
+                    session.eventBus.deactivate();
+                    session.client.shutdown();
+                }
+                mSession = inactiveSession;
+                inactiveSession.eventBus.activate();
+                CometClient.setDefaultAuthenticator(inactiveSession.client.getUsername(), inactiveSession.client.getPassword());
+                return;
+            }
+            inactiveSession.client.shutdown();
+        }
+
+        if (mSession.key != null && !mSession.key.equals(key) && mSession.client.getConnectionState().isConnected()) {
+            deactivate(mSession);
+            mSession = new Session(mEventBus);
+            mSession.eventBus.activate();
+        }
+        mSession.key = key;
+        mSession.client.startConnect(service);
     }
 
-    void startConnect(SqueezeService service) {
-        mClient.startConnect(service);
+    /**
+     * Disconnect from the current server.
+     * <p>
+     * If it is connected the session is kept in the background, so connecting to the server
+     * again is instant.
+     */
+    synchronized void disconnect() {
+        Session session = mSession;
+        if (session.key == null || !session.client.getConnectionState().isConnected()) {
+            session.client.disconnect();
+            return;
+        }
+
+        deactivate(session);
+        mSession = new Session(mEventBus);
+        mSession.eventBus.activate();
+        mEventBus.removeAllStickyEvents();
+        mSession.client.getConnectionState().setConnectionState(ConnectionState.DISCONNECTED);
+    }
+
+    /**
+     * Disconnect from all servers.
+     */
+    synchronized void disconnectAll() {
+        trimMemory();
+        mSession.client.disconnect();
+    }
+
+    /**
+     * Disconnect the inactive sessions and release their resources.
+     */
+    synchronized void trimMemory() {
+        for (Session session : mInactiveSessions.values()) {
+            Log.i(TAG, "Drop session: " + session.key);
+            session.client.shutdown();
+        }
+        mInactiveSessions.clear();
     }
 
-    void disconnect() {
-        mClient.disconnect();
+    /**
+     * Move the supplied session to the background: Unsubscribe from all status and stop posting
+     * events to the UI.
+     */
+    private void deactivate(Session session) {
+        Log.i(TAG, "Deactivate session: " + session.key);
+        ConnectionState connectionState = session.client.getConnectionState();
+        Player activePlayer = connectionState.getActivePlayer();
+        if (activePlayer != null) {
+            session.client.subscribeDisplayStatus(activePlayer, false);
+            session.client.subscribeMenuStatus(activePlayer, false);
+            connectionState.setActivePlayer(null);
+        }
+        for (Player player : connectionState.getPlayers().values()) {
+            if (player.getPlayerState().getSubscriptionType() != PlayerState.PlayerSubscriptionType.NOTIFY_NONE) {
+                session.client.subscribePlayerStatus(player, PlayerState.PlayerSubscriptionType.NOTIFY_NONE);
+            }
+        }
+        session.eventBus.deactivate();
+
+        mInactiveSessions.put(session.key, session);
+        Iterator<Session> it = mInactiveSessions.values().iterator();
+        while (mInactiveSessions.size() > MAX_INACTIVE_SESSIONS) {
+            Session eldest = it.next();
+            Log.i(TAG, "Drop session: " + eldest.key);
+            eldest.client.shutdown();
+            it.remove();
+        }
     }
 
     void cancelClientRequests(Object client) {
-        mClient.cancelClientRequests(client);
+        mSession.client.cancelClientRequests(client);
     }
 
 
     void requestPlayerStatus(Player player) {
-        mClient.requestPlayerStatus(player);
+        mSession.client.requestPlayerStatus(player);
     }
 
     void subscribePlayerStatus(Player player, PlayerState.PlayerSubscriptionType subscriptionType) {
-        mClient.subscribePlayerStatus(player, subscriptionType);
+        mSession.client.subscribePlayerStatus(player, subscriptionType);
     }
 
     void subscribeDisplayStatus(Player player, boolean subscribe) {
-        mClient.subscribeDisplayStatus(player, subscribe);
+        mSession.client.subscribeDisplayStatus(player, subscribe);
     }
 
     void subscribeMenuStatus(Player player, boolean subscribe) {
-        mClient.subscribeMenuStatus(player, subscribe);
+        mSession.client.subscribeMenuStatus(player, subscribe);
     }
 
 
     boolean isConnected() {
-        return mClient.getConnectionState().isConnected();
+        return mSession.client.getConnectionState().isConnected();
     }
 
     boolean isConnectInProgress() {
-        return mClient.getConnectionState().isConnectInProgress();
+        return mSession.client.getConnectionState().isConnectInProgress();
     }
 
     String getServerVersion() {
-        return mClient.getConnectionState().getServerVersion();
+        return mSession.client.getConnectionState().getServerVersion();
     }
 
     Command command(Player player) {
-        return new Command(mClient, player);
+        return new Command(mSession.client, player);
     }
 
     Command command() {
-        return new Command(mClient);
+        return new Command(mSession.client);
     }
 
     /** If there is an active player call {@link #command(Player)} with the active player */
     Command activePlayerCommand() {
-        return new PlayerCommand(mClient, mClient.getConnectionState().getActivePlayer());
+        SlimClient client = mSession.client;
+        return new PlayerCommand(client, client.getConnectionState().getActivePlayer());
     }
 
     <T> Request requestItems(Player player, int start, IServiceItemListCallback<T> callback) {
-        return new Request<>(mClient, player, start, callback);
+        return new Request<>(mSession.client, player, start, callback);
     }
 
     <T> Request requestItems(Player player, IServiceItemListCallback<T> callback) {
-        return new Request<>(mClient, player, 0, 200, callback);
+        return new Request<>(mSession.client, player, 0, 200, callback);
     }
 
     <T> Request requestItems(int start, IServiceItemListCallback<T> callback) {
-        return new Request<>(mClient, start, callback);
+        return new Request<>(mSession.client, start, callback);
     }
 
     <T> Request requestItems(IServiceItemListCallback<T> callback) {
-        return new Request<>(mClient, 0, 200, callback);
+        return new Request<>(mSession.client, 0, 200, callback);
+    }
+
+    /** Request the entire list in pages of the supplied size */
+    <T> Request requestAllItems(int pageSize, IServiceItemListCallback<T> callback) {
+        return new Request<>(mSession.client, -1, pageSize, callback);
     }
 
     public Player getActivePlayer() {
-        return mClient.getConnectionState().getActivePlayer();
+        return mSession.client.getConnectionState().getActivePlayer();
     }
 
     void setActivePlayer(Player player) {
-        mClient.getConnectionState().setActivePlayer(player);
+        mSession.client.getConnectionState().setActivePlayer(player);
     }
 
     Player getPlayer(String playerId) {
-        return mClient.getConnectionState().getPlayer(playerId);
+        return mSession.client.getConnectionState().getPlayer(playerId);
     }
 
     public Map<String, Player> getPlayers() {
-        return mClient.getConnectionState().getPlayers();
+        return mSession.client.getConnectionState().getPlayers();
+    }
+
+    /**
+     * @return The key of the current server, {@link Preferences.ServerAddress#address()}, or null
+     *     if no connection has been started
+     */
+    @Nullable
+    String getServerKey() {
+        return mSession.key;
     }
 
     void clearHomeMenu() {
-        mClient.getConnectionState().clearHomeMenu();
+        mSession.client.getConnectionState().clearHomeMenu();
     }
 
     void addToHomeMenu(int count, List<JiveItem> items) {
-        mClient.getConnectionState().addToHomeMenu(count, items);
+        mSession.client.getConnectionState().addToHomeMenu(count, items);
     }
 
     public String getUsername() {
-        return mClient.getUsername();
+        return mSession.client.getUsername();
     }
 
     public String getPassword() {
-        return mClient.getPassword();
+        return mSession.client.getPassword();
     }
 
     String getUrlPrefix() {
-        return mClient.getUrlPrefix();
+        return mSession.client.getUrlPrefix();
     }
 
     String[] getMediaDirs() {
-        return mClient.getConnectionState().getMediaDirs();
+        return mSession.client.getConnectionState().getMediaDirs();
+    }
+
+    long getLastScan() {
+        return mSession.client.getConnectionState().getLastScan();
+    }
+
+    /**
+     * @return A key for the library of the connected server. This is the uuid of the server, so
+     *     it doesn't change when the server is reached at another address. Servers which don't
+     *     report a uuid are identified by their address.
+     */
+    String getLibraryKey() {
+        String uuid = mSession.client.getConnectionState().getServerUuid();
+        return (uuid != null ? uuid : getServerKey());
+    }
+
+    /**
+     * The client of a server, and the event bus it posts to.
+     */
+    private static class Session {
+        @NonNull final SessionEventBus eventBus;
+        @NonNull final SlimClient client;
+
+        /** The server of the session, null until the first connect */
+        String key;
+
+        Session(@NonNull EventBus eventBus) {
+            this.eventBus = new SessionEventBus(EventPoster.of(eventBus));
+            client = new CometClient(this.eventBus);
+        }
+
+        boolean hasCredentials(Preferences.ServerAddress serverAddress) {
+            return TextUtils.equals(client.getUsername(), serverAddress.userName)
+                    && TextUtils.equals(client.getPassword(), serverAddress.password);
+        }
+
+        static String key(Preferences.ServerAddress serverAddress) {
+            return serverAddress.address();
+        }
     }
 
     static class Command extends SlimCommand {
         final SlimClient slimClient;
         final protected Player player;
+        private final Map<OptimisticState.Field, Object> predictions = new EnumMap<>(OptimisticState.Field.class);
 
         private Command(SlimClient slimClient, Player player) {
             this.slimClient = slimClient;
@@ -184,8 +370,21 @@ class SlimDelegate {
             return this;
         }
 
+        /**
+         * Apply the expected effect of this command on the player state immediately, see
+         * {@link SlimClient#command(Player, String[], Map, Map)}.
+         */
+        Command predict(OptimisticState.Field field, Object value) {
+            predictions.put(field, value);
+            return this;
+        }
+
         protected void exec() {
-            slimClient.command(player, cmd(), params);
+            if (player != null && !predictions.isEmpty()) {
+                slimClient.command(player, cmd(), params, predictions);
+            } else {
+                slimClient.command(player, cmd(), params);
+            }
         }
     }
 
@@ -32,8 +32,11 @@ import android.net.Uri;
 import android.net.wifi.WifiManager;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
 
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
@@ -51,9 +54,14 @@ import android.widget.RemoteViews;
 
 import com.google.common.io.Files;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import uk.org.ngo.squeezer.NowPlayingActivity;
@@ -62,9 +70,13 @@ import uk.org.ngo.squeezer.R;
 import uk.org.ngo.squeezer.Squeezer;
 import uk.org.ngo.squeezer.Util;
 import uk.org.ngo.squeezer.download.DownloadDatabase;
+import uk.org.ngo.squeezer.download.DownloadScheduler;
+import uk.org.ngo.squeezer.library.LibraryBrowser;
+import uk.org.ngo.squeezer.library.LibraryDatabase;
+import uk.org.ngo.squeezer.localplayer.OggVorbisSink;
+import uk.org.ngo.squeezer.localplayer.SlimprotoClient;
 import uk.org.ngo.squeezer.model.Action;
 import uk.org.ngo.squeezer.model.JiveItem;
-import uk.org.ngo.squeezer.model.MusicFolderItem;
 import uk.org.ngo.squeezer.model.SlimCommand;
 import uk.org.ngo.squeezer.itemlist.IServiceItemListCallback;
 import uk.org.ngo.squeezer.model.Alarm;
@@ -75,11 +87,15 @@ import uk.org.ngo.squeezer.model.PlayerState;
 import uk.org.ngo.squeezer.model.Song;
 import uk.org.ngo.squeezer.service.event.ConnectionChanged;
 import uk.org.ngo.squeezer.service.event.HandshakeComplete;
+import uk.org.ngo.squeezer.service.event.LastScanChanged;
 import uk.org.ngo.squeezer.service.event.MusicChanged;
 import uk.org.ngo.squeezer.service.event.PlayStatusChanged;
 import uk.org.ngo.squeezer.service.event.PlayerStateChanged;
+import uk.org.ngo.squeezer.service.event.PlayerVolume;
 import uk.org.ngo.squeezer.service.event.PlayersChanged;
+import uk.org.ngo.squeezer.service.event.PowerStatusChanged;
 import uk.org.ngo.squeezer.service.event.SongTimeChanged;
+import uk.org.ngo.squeezer.service.event.SyncGroupChanged;
 import uk.org.ngo.squeezer.util.ImageFetcher;
 import uk.org.ngo.squeezer.util.NotificationUtil;
 import uk.org.ngo.squeezer.util.Scrobble;
@@ -114,6 +130,17 @@ public class SqueezeService extends Service {
     @NonNull
     private final ScheduledThreadPoolExecutor mExecutor = new ScheduledThreadPoolExecutor(1);
 
+    /** Executor for reads of the library mirror, so they don't wait for other work. */
+    @NonNull
+    private final ExecutorService mLibraryExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Executor for type-ahead searches of the library mirror. Building the search index takes a
+     * while, and browsing should not wait for it.
+     */
+    @NonNull
+    private final ExecutorService mSearchExecutor = Executors.newSingleThreadExecutor();
+
     /** True if the handshake with the server has completed, otherwise false. */
     private volatile boolean mHandshakeComplete = false;
 
@@ -126,8 +153,52 @@ public class SqueezeService extends Service {
     /** The most recent notifcation. */
     private NotificationState ongoingNotification;
 
+    /**
+     * Minimum time between notification updates, so a burst of status changes stays below the
+     * rate at which the system starts to drop notification updates.
+     */
+    private static final long NOTIFICATION_UPDATE_INTERVAL = 250;
+
+    /** When the notification was last updated, in {@link SystemClock#uptimeMillis()} */
+    private long lastNotificationUpdate;
+
+    /** True if a rate limited notification update is waiting */
+    private boolean notificationUpdateScheduled;
+
+    /** The state of the media session metadata, null if it is not set with artwork yet */
+    private NotificationState notificationMetadata;
+
+    /** Artwork of the notification, scaled to the large icon size, and its URL */
+    private Uri notificationArtworkUrl;
+    private Bitmap notificationArtwork;
+    private Bitmap notificationPlaceholder;
+
+    private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
+
     private final SlimDelegate mDelegate = new SlimDelegate(mEventBus);
 
+    /** Keeps the library mirror up to date with the connected server */
+    private LibrarySync mLibrarySync;
+
+    /** Answers library requests from the library mirror */
+    private LibraryBrowser mLibraryBrowser;
+
+    /** The last known players of each server, so the player list can be shown while connecting */
+    private PlayerCache mPlayerCache;
+
+    /**
+     * Is the library mirror enabled?
+     */
+    private boolean mLibraryMirror;
+
+    /** Plays on this device, while connected to a server */
+    private SlimprotoClient mLocalPlayer;
+
+    /**
+     * Is the local player enabled?
+     */
+    private boolean mLocalPlayerEnabled;
+
     /**
      * Is scrobbling enabled?
      */
@@ -198,6 +269,10 @@ public class SqueezeService extends Service {
 
         cachePreferences();
 
+        mLibrarySync = new LibrarySync(mDelegate, new LibraryDatabase(this));
+        mLibraryBrowser = new LibraryBrowser(this);
+        mPlayerCache = new PlayerCache(this);
+
         setWifiLock(((WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE)).createWifiLock(
                 WifiManager.WIFI_MODE_FULL, "Squeezer_WifiLock"));
 
@@ -227,7 +302,7 @@ public class SqueezeService extends Service {
                         squeezeService.pause();
                         break;
                     case ACTION_CLOSE:
-                        squeezeService.disconnect();
+                        disconnect();
                         break;
                 }
             }
@@ -244,6 +319,8 @@ public class SqueezeService extends Service {
         final SharedPreferences preferences = getSharedPreferences(Preferences.NAME, MODE_PRIVATE);
         scrobblingEnabled = preferences.getBoolean(Preferences.KEY_SCROBBLE_ENABLED, false);
         mFadeInSecs = preferences.getInt(Preferences.KEY_FADE_IN_SECS, 0);
+        mLibraryMirror = preferences.getBoolean(Preferences.KEY_LIBRARY_MIRROR, false);
+        mLocalPlayerEnabled = preferences.getBoolean(Preferences.KEY_LOCAL_PLAYER, false);
     }
 
     @Override
@@ -268,6 +345,7 @@ public class SqueezeService extends Service {
     public void onDestroy() {
         super.onDestroy();
         disconnect();
+        stopLocalPlayer();
         mEventBus.unregister(this);
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -286,8 +364,19 @@ public class SqueezeService extends Service {
         super.onTaskRemoved(rootIntent);
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mDelegate.trimMemory();
+        }
+    }
+
+    /**
+     * Disconnect from the current server, and drop the sessions to other servers.
+     */
     void disconnect() {
-        mDelegate.disconnect();
+        mDelegate.disconnectAll();
     }
 
     @Nullable public PlayerState getActivePlayerState() {
@@ -306,6 +395,34 @@ public class SqueezeService extends Service {
             updateWifiLock(event.player.getPlayerState().isPlaying());
             updateOngoingNotification();
         }
+        savePlayers();
+    }
+
+    public void onEvent(PlayerVolume event) {
+        savePlayers();
+    }
+
+    public void onEvent(PowerStatusChanged event) {
+        savePlayers();
+    }
+
+    /**
+     * Players synced to another player are subscribed to less status, so the subscriptions are
+     * adjusted when a sync group changes.
+     */
+    public void onEvent(SyncGroupChanged event) {
+        updateAllPlayerSubscriptionStates();
+    }
+
+    /**
+     * Save the players of the current server and their state in the background. Writes are
+     * coalesced, see {@link PlayerCache}.
+     */
+    private void savePlayers() {
+        String serverKey = mDelegate.getServerKey();
+        if (serverKey != null) {
+            mPlayerCache.save(serverKey, mDelegate.getPlayers().values());
+        }
     }
 
     /**
@@ -393,6 +510,13 @@ public class SqueezeService extends Service {
 
         if (mEventBus.hasSubscriberForEvent(PlayerStateChanged.class) ||
                 (mEventBus.hasSubscriberForEvent(PlayStatusChanged.class) && player.equals(activePlayer))) {
+            // Players synced to another player share the current song of the sync master, so it
+            // isn't sent for each of them. The sync master is subscribed as well, because all
+            // players are when there are PlayerStateChanged subscribers.
+            if (mEventBus.hasSubscriberForEvent(PlayerStateChanged.class) && !player.equals(activePlayer)
+                    && player.isSyncSlave() && mDelegate.getPlayer(player.getPlayerState().getSyncMaster()) != null) {
+                return PlayerState.PlayerSubscriptionType.NOTIFY_ON_CHANGE_SYNCED;
+            }
             return PlayerState.PlayerSubscriptionType.NOTIFY_ON_CHANGE;
         } else {
             return PlayerState.PlayerSubscriptionType.NOTIFY_NONE;
@@ -422,9 +546,11 @@ public class SqueezeService extends Service {
 
     /**
      * Manages the state of any ongoing notification based on the player and connection state.
+     * <p>
+     * Updates are rate limited to {@link #NOTIFICATION_UPDATE_INTERVAL}, later changes are
+     * coalesced into one update.
      */
-    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
-    private void updateOngoingNotification() {
+    private synchronized void updateOngoingNotification() {
         PlayerState activePlayerState = getActivePlayerState();
 
         // Update scrobble state, if either we're currently scrobbling, or we
@@ -435,7 +561,21 @@ public class SqueezeService extends Service {
             Scrobble.scrobbleFromPlayerState(this, activePlayerState);
         }
 
-        NotificationState notificationState = notificationState();
+        long delay = lastNotificationUpdate + NOTIFICATION_UPDATE_INTERVAL - SystemClock.uptimeMillis();
+        if (delay > 0) {
+            if (!notificationUpdateScheduled) {
+                notificationUpdateScheduled = true;
+                uiThreadHandler.postDelayed(this::renderOngoingNotification, delay);
+            }
+            return;
+        }
+        renderOngoingNotification();
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private synchronized void renderOngoingNotification() {
+        notificationUpdateScheduled = false;
+        final NotificationState notificationState = notificationState();
 
         // Compare the current state with the state when the notification was last updated.
         // If there are no changes (same song, same playing state) then there's nothing to do.
@@ -443,31 +583,39 @@ public class SqueezeService extends Service {
             return;
         }
         ongoingNotification = notificationState;
+        lastNotificationUpdate = SystemClock.uptimeMillis();
 
-        final NotificationManagerCompat nm = NotificationManagerCompat.from(this);
-        final NotificationData notificationData = new NotificationData(notificationState);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            final MediaMetadataCompat.Builder metaBuilder = new MediaMetadataCompat.Builder();
-            metaBuilder.putString(MediaMetadata.METADATA_KEY_ARTIST, notificationState.artistName);
-            metaBuilder.putString(MediaMetadata.METADATA_KEY_ALBUM, notificationState.albumName);
-            metaBuilder.putString(MediaMetadata.METADATA_KEY_TITLE, notificationState.songName);
-            mMediaSession.setMetadata(metaBuilder.build());
+            // The artwork is the same unless the song changed, so reuse the scaled bitmap
+            if (notificationArtwork != null && Objects.equals(notificationState.artworkUrl, notificationArtworkUrl)) {
+                showOngoingNotification(notificationState, notificationArtwork);
+                return;
+            }
 
             ImageFetcher.getInstance(this).loadImage(notificationState.artworkUrl,
                     getResources().getDimensionPixelSize(android.R.dimen.notification_large_icon_width),
                     getResources().getDimensionPixelSize(android.R.dimen.notification_large_icon_height),
                     (data, bitmap) -> {
-                        if (bitmap == null) {
-                            bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.icon_pending_artwork);
+                        synchronized (SqueezeService.this) {
+                            if (bitmap != null) {
+                                notificationArtworkUrl = notificationState.artworkUrl;
+                                notificationArtwork = bitmap;
+                            } else {
+                                if (notificationPlaceholder == null) {
+                                    notificationPlaceholder = BitmapFactory.decodeResource(getResources(), R.drawable.icon_pending_artwork);
+                                }
+                                bitmap = notificationPlaceholder;
+                            }
+
+                            // Skip if a newer state is already shown (or waiting for its artwork)
+                            if (notificationState == ongoingNotification) {
+                                showOngoingNotification(notificationState, bitmap);
+                            }
                         }
-
-                        metaBuilder.putBitmap(MediaMetadata.METADATA_KEY_ALBUM_ART, bitmap);
-                        metaBuilder.putBitmap(MediaMetadata.METADATA_KEY_ART, bitmap);
-                        mMediaSession.setMetadata(metaBuilder.build());
-                        notificationData.builder.setLargeIcon(bitmap);
-                        nm.notify(PLAYBACKSERVICE_STATUS, notificationData.builder.build());
                     });
         } else {
+            final NotificationManagerCompat nm = NotificationManagerCompat.from(this);
+            final NotificationData notificationData = new NotificationData(notificationState);
             Notification notification = notificationData.builder.build();
             notification.bigContentView = notificationData.expandedView;
 
@@ -484,6 +632,28 @@ public class SqueezeService extends Service {
         }
     }
 
+    /**
+     * Post the notification for the supplied state, and update the media session metadata if the
+     * song has changed.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void showOngoingNotification(NotificationState notificationState, Bitmap artwork) {
+        if (!notificationState.hasSameMetadata(notificationMetadata)) {
+            final MediaMetadataCompat.Builder metaBuilder = new MediaMetadataCompat.Builder();
+            metaBuilder.putString(MediaMetadata.METADATA_KEY_ARTIST, notificationState.artistName);
+            metaBuilder.putString(MediaMetadata.METADATA_KEY_ALBUM, notificationState.albumName);
+            metaBuilder.putString(MediaMetadata.METADATA_KEY_TITLE, notificationState.songName);
+            metaBuilder.putBitmap(MediaMetadata.METADATA_KEY_ALBUM_ART, artwork);
+            metaBuilder.putBitmap(MediaMetadata.METADATA_KEY_ART, artwork);
+            mMediaSession.setMetadata(metaBuilder.build());
+            notificationMetadata = notificationState;
+        }
+
+        NotificationData notificationData = new NotificationData(notificationState);
+        notificationData.builder.setLargeIcon(artwork);
+        NotificationManagerCompat.from(this).notify(PLAYBACKSERVICE_STATUS, notificationData.builder.build());
+    }
+
     private class NotificationData {
         private final NotificationCompat.Builder builder;
         private RemoteViews normalView;
@@ -639,6 +809,8 @@ public class SqueezeService extends Service {
             telephonyManager.listen(phoneStateListener, PhoneStateListener.LISTEN_NONE);
 
             mHandshakeComplete = false;
+            mLibrarySync.stop();
+            stopLocalPlayer();
             stopForeground();
         }
     }
@@ -691,24 +863,85 @@ public class SqueezeService extends Service {
     private void stopForeground() {
         Log.i(TAG, "stopForeground");
         foreGround = false;
-        ongoingNotification = null;
+        synchronized (this) {
+            uiThreadHandler.removeCallbacksAndMessages(null);
+            notificationUpdateScheduled = false;
+            ongoingNotification = null;
+            notificationMetadata = null;
+        }
         stopForeground(true);
         stopSelf();
     }
 
     public void onEvent(HandshakeComplete event) {
         mHandshakeComplete = true;
+        syncLibrary();
+        startLocalPlayer();
+    }
+
+    public void onEvent(LastScanChanged event) {
+        syncLibrary();
+    }
+
+    private void syncLibrary() {
+        if (mLibraryMirror) {
+            mLibrarySync.start(mDelegate.getLibraryKey(), mDelegate.getLastScan());
+        }
+    }
+
+    /**
+     * Start playing on this device, as a player of the connected server. mysqueezebox.com
+     * doesn't stream to software players, so it is only done for local servers.
+     */
+    private synchronized void startLocalPlayer() {
+        if (!mLocalPlayerEnabled || mLocalPlayer != null) {
+            return;
+        }
+        Preferences preferences = new Preferences(this);
+        if (preferences.getServerAddress().squeezeNetwork) {
+            return;
+        }
+
+        String host = Uri.parse(mDelegate.getUrlPrefix()).getHost();
+        byte[] mac = Util.parseMac(preferences.getMacId());
+        mLocalPlayer = new SlimprotoClient(host, SlimprotoClient.PORT, mac, "Squeezer-" + Build.MODEL,
+                new OggVorbisSink(), new SlimprotoClient.Listener() {
+            @Override
+            public void onConnected() {
+                Log.i(TAG, "Local player connected to " + host);
+            }
+
+            @Override
+            public void onDisconnected(@NonNull IOException e) {
+                Log.w(TAG, "Local player disconnected from " + host, e);
+            }
+
+            @Override
+            public void onStreamError(@NonNull IOException e) {
+                Log.w(TAG, "Local player stream failed", e);
+            }
+        });
+        mLocalPlayer.start();
+    }
+
+    private synchronized void stopLocalPlayer() {
+        if (mLocalPlayer != null) {
+            mLocalPlayer.stop();
+            mLocalPlayer = null;
+        }
     }
 
     public void onEvent(MusicChanged event) {
         if (event.player.equals(mDelegate.getActivePlayer())) {
             updateOngoingNotification();
         }
+        savePlayers();
     }
 
     public void onEvent(PlayersChanged event) {
         // Figure out the new active player, let everyone know.
         changeActivePlayer(getPreferredPlayer(event.players.values()));
+        savePlayers();
     }
 
     /**
@@ -732,46 +965,31 @@ public class SqueezeService extends Service {
         return !players.isEmpty() ? players.iterator().next() : null;
     }
 
-    /** A download request will be passed to the download manager for each song called back to this */
+    /** A download request will be passed to the download scheduler for each song called back to this */
     private final IServiceItemListCallback<Song> songDownloadCallback = new IServiceItemListCallback<Song>() {
         @Override
         public void onItemsReceived(int count, int start, Map<String, Object> parameters, List<Song> items, Class<Song> dataType) {
             final Preferences preferences = new Preferences(SqueezeService.this);
+            final List<DownloadDatabase.DownloadEntry> entries = new ArrayList<>(items.size());
             for (Song song : items) {
                 Log.i(TAG, "downloadSong(" + song + ")");
                 Uri downloadUrl = Util.getDownloadUrl(mDelegate.getUrlPrefix(), song.id);
+                DownloadDatabase.DownloadEntry entry;
                 if (preferences.isDownloadUseServerPath()) {
-                    downloadSong(downloadUrl, song.title, song.album, song.artist, getLocalFile(song.url));
+                    entry = downloadEntry(downloadUrl, song.title, song.album, song.artist, getLocalFile(song.url));
                 } else {
                     final String lastPathSegment = song.url.getLastPathSegment();
                     final String fileExtension = Files.getFileExtension(lastPathSegment);
                     final String localPath = song.getLocalPath(preferences.getDownloadPathStructure(), preferences.getDownloadFilenameStructure());
-                    downloadSong(downloadUrl, song.title, song.album, song.artist, localPath + "." + fileExtension);
+                    entry = downloadEntry(downloadUrl, song.title, song.album, song.artist, localPath + "." + fileExtension);
                 }
-            }
-        }
-
-        @Override
-        public Object getClient() {
-            return this;
-        }
-    };
-
-    /**
-     * For each item called to this:
-     * If it is a folder: recursive lookup items in the folder
-     * If is is a track: Enqueue a download request to the download manager
-     */
-    private final IServiceItemListCallback<MusicFolderItem> musicFolderDownloadCallback = new IServiceItemListCallback<MusicFolderItem>() {
-        @Override
-        public void onItemsReceived(int count, int start, Map<String, Object> parameters, List<MusicFolderItem> items, Class<MusicFolderItem> dataType) {
-            for (MusicFolderItem item : items) {
-                if ("track".equals(item.type)) {
-                    Log.i(TAG, "downloadMusicFolderTrack(" + item + ")");
-                    SlimCommand command = JiveItem.downloadCommand(item.id);
-                    mDelegate.requestItems(-1, songDownloadCallback).params(command.params).cmd(command.cmd()).exec();
+                if (entry != null) {
+                    entries.add(entry);
                 }
             }
+            if (!entries.isEmpty()) {
+                mExecutor.execute(() -> DownloadScheduler.getInstance(SqueezeService.this).enqueue(entries));
+            }
         }
 
         @Override
@@ -780,21 +998,26 @@ public class SqueezeService extends Service {
         }
     };
 
-    private void downloadSong(@NonNull Uri url, String title, String album, String artist, String localPath) {
-        Log.i(TAG, "downloadSong(" + title + "): " + url);
+    @Nullable
+    private DownloadDatabase.DownloadEntry downloadEntry(@NonNull Uri url, String title, String album, String artist, String localPath) {
+        Log.i(TAG, "downloadEntry(" + title + "): " + url);
         if (url.equals(Uri.EMPTY)) {
-            return;
+            return null;
         }
 
         if (localPath == null) {
-            return;
+            return null;
         }
 
+        DownloadDatabase.DownloadEntry entry = new DownloadDatabase.DownloadEntry();
+        entry.url = url;
         // Convert VFAT-unfriendly characters to "_".
-        localPath =  localPath.replaceAll("[?<>\\\\:*|\"]", "_");
-        DownloadDatabase downloadDatabase = new DownloadDatabase(this);
-        String credentials = mDelegate.getUsername() + ":" + mDelegate.getPassword();
-        downloadDatabase.registerDownload(this, credentials, url, localPath, title, album, artist);
+        entry.fileName = localPath.replaceAll("[?<>\\\\:*|\"]", "_");
+        entry.credentials = mDelegate.getUsername() + ":" + mDelegate.getPassword();
+        entry.title = title;
+        entry.album = album;
+        entry.artist = artist;
+        return entry;
     }
 
     /**
@@ -874,12 +1097,16 @@ public class SqueezeService extends Service {
 
         @Override
         public void adjustVolumeTo(Player player, int newVolume) {
-            mDelegate.command(player).cmd("mixer", "volume", String.valueOf(Math.min(100, Math.max(0, newVolume)))).exec();
+            int volume = Math.min(100, Math.max(0, newVolume));
+            mDelegate.command(player).cmd("mixer", "volume", String.valueOf(volume))
+                    .predict(OptimisticState.Field.VOLUME, volume).exec();
         }
 
         @Override
         public void adjustVolumeTo(int newVolume) {
-            mDelegate.activePlayerCommand().cmd("mixer", "volume", String.valueOf(Math.min(100, Math.max(0, newVolume)))).exec();
+            int volume = Math.min(100, Math.max(0, newVolume));
+            mDelegate.activePlayerCommand().cmd("mixer", "volume", String.valueOf(volume))
+                    .predict(OptimisticState.Field.VOLUME, volume).exec();
         }
 
         @Override
@@ -911,7 +1138,7 @@ public class SqueezeService extends Service {
             if (!isConnected()) {
                 return;
             }
-            SqueezeService.this.disconnect();
+            mDelegate.disconnect();
         }
 
         @Override
@@ -952,11 +1179,14 @@ public class SqueezeService extends Service {
         public void syncPlayerToPlayer(@NonNull Player slave, @NonNull String masterId) {
             Player master = mDelegate.getPlayer(masterId);
             mDelegate.command(master).cmd("sync", slave.getId()).exec();
+            // The write is delayed, so it includes the new sync group from the next status
+            savePlayers();
         }
 
         @Override
         public void unsyncPlayer(@NonNull Player player) {
             mDelegate.command(player).cmd("sync", "-").exec();
+            savePlayers();
         }
 
 
@@ -1024,17 +1254,20 @@ public class SqueezeService extends Service {
                 // because then we'd get confused when they came back in to us, not being
                 // able to differentiate ours coming back on the listen channel vs. those
                 // of those idiots at the dinner party messing around.
-                mDelegate.command(player).cmd("pause", "1").exec();
+                mDelegate.command(player).cmd("pause", "1")
+                        .predict(OptimisticState.Field.PLAY_STATUS, PlayerState.PLAY_STATE_PAUSE).exec();
                 return true;
             }
 
             if (playStatus.equals(PlayerState.PLAY_STATE_STOP)) {
-                mDelegate.command(player).cmd("play", fadeInSecs()).exec();
+                mDelegate.command(player).cmd("play", fadeInSecs())
+                        .predict(OptimisticState.Field.PLAY_STATUS, PlayerState.PLAY_STATE_PLAY).exec();
                 return true;
             }
 
             if (playStatus.equals(PlayerState.PLAY_STATE_PAUSE)) {
-                mDelegate.command(player).cmd("pause", "0", fadeInSecs()).exec();
+                mDelegate.command(player).cmd("pause", "0", fadeInSecs())
+                        .predict(OptimisticState.Field.PLAY_STATUS, PlayerState.PLAY_STATE_PLAY).exec();
                 return true;
             }
 
@@ -1046,7 +1279,8 @@ public class SqueezeService extends Service {
             if (!isConnected()) {
                 return false;
             }
-            mDelegate.activePlayerCommand().cmd("play", fadeInSecs()).exec();
+            mDelegate.activePlayerCommand().cmd("play", fadeInSecs())
+                    .predict(OptimisticState.Field.PLAY_STATUS, PlayerState.PLAY_STATE_PLAY).exec();
             return true;
         }
 
@@ -1055,7 +1289,8 @@ public class SqueezeService extends Service {
             if(!isConnected()) {
                 return false;
             }
-            mDelegate.activePlayerCommand().cmd("pause", "1", fadeInSecs()).exec();
+            mDelegate.activePlayerCommand().cmd("pause", "1", fadeInSecs())
+                    .predict(OptimisticState.Field.PLAY_STATUS, PlayerState.PLAY_STATE_PAUSE).exec();
             return true;
         }
 
@@ -1064,7 +1299,8 @@ public class SqueezeService extends Service {
             if (!isConnected()) {
                 return false;
             }
-            mDelegate.activePlayerCommand().cmd("stop").exec();
+            mDelegate.activePlayerCommand().cmd("stop")
+                    .predict(OptimisticState.Field.PLAY_STATUS, PlayerState.PLAY_STATE_STOP).exec();
             return true;
         }
 
@@ -1077,7 +1313,13 @@ public class SqueezeService extends Service {
             if (!isConnected() || !isPlaying()) {
                 return false;
             }
-            mDelegate.command(player).cmd("button", "jump_fwd").exec();
+            SlimDelegate.Command command = mDelegate.command(player).cmd("button", "jump_fwd");
+            PlayerState playerState = player.getPlayerState();
+            int nextIndex = playerState.getCurrentPlaylistIndex() + 1;
+            if (nextIndex < playerState.getCurrentPlaylistTracksNum()) {
+                command.predict(OptimisticState.Field.PLAYLIST_INDEX, nextIndex);
+            }
+            command.exec();
             return true;
         }
 
@@ -1100,7 +1342,15 @@ public class SqueezeService extends Service {
             if (!isConnected()) {
                 return false;
             }
-            mDelegate.activePlayerCommand().cmd("button", "shuffle").exec();
+            SlimDelegate.Command command = mDelegate.activePlayerCommand().cmd("button", "shuffle");
+            Player player = getActivePlayer();
+            PlayerState.ShuffleStatus shuffleStatus = (player != null ? player.getPlayerState().getShuffleStatus() : null);
+            if (shuffleStatus != null) {
+                // The shuffle button cycles through the shuffle modes
+                int next = (shuffleStatus.getId() + 1) % PlayerState.ShuffleStatus.values().length;
+                command.predict(OptimisticState.Field.SHUFFLE, String.valueOf(next));
+            }
+            command.exec();
             return true;
         }
 
@@ -1109,7 +1359,15 @@ public class SqueezeService extends Service {
             if (!isConnected()) {
                 return false;
             }
-            mDelegate.activePlayerCommand().cmd("button", "repeat").exec();
+            SlimDelegate.Command command = mDelegate.activePlayerCommand().cmd("button", "repeat");
+            Player player = getActivePlayer();
+            PlayerState.RepeatStatus repeatStatus = (player != null ? player.getPlayerState().getRepeatStatus() : null);
+            if (repeatStatus != null) {
+                // The repeat button cycles through the repeat modes
+                int next = (repeatStatus.getId() + 1) % PlayerState.RepeatStatus.values().length;
+                command.predict(OptimisticState.Field.REPEAT, String.valueOf(next));
+            }
+            command.exec();
             return true;
         }
 
@@ -1123,7 +1381,9 @@ public class SqueezeService extends Service {
             if (!isConnected()) {
                 return false;
             }
-            mDelegate.activePlayerCommand().cmd("playlist", "index", String.valueOf(index), fadeInSecs()).exec();
+            mDelegate.activePlayerCommand().cmd("playlist", "index", String.valueOf(index), fadeInSecs())
+                    .predict(OptimisticState.Field.PLAYLIST_INDEX, index)
+                    .predict(OptimisticState.Field.PLAY_STATUS, PlayerState.PLAY_STATE_PLAY).exec();
             return true;
         }
 
@@ -1245,7 +1505,23 @@ public class SqueezeService extends Service {
         @Override
         public void preferenceChanged(String key) {
             Log.i(TAG, "Preference changed: " + key);
+            boolean libraryMirror = mLibraryMirror;
+            boolean localPlayer = mLocalPlayerEnabled;
             cachePreferences();
+            if (mLibraryMirror != libraryMirror) {
+                if (!mLibraryMirror) {
+                    mLibrarySync.clear();
+                } else if (mHandshakeComplete) {
+                    syncLibrary();
+                }
+            }
+            if (mLocalPlayerEnabled != localPlayer) {
+                if (!mLocalPlayerEnabled) {
+                    stopLocalPlayer();
+                } else if (mHandshakeComplete) {
+                    startLocalPlayer();
+                }
+            }
         }
 
 
@@ -1343,9 +1619,30 @@ public class SqueezeService extends Service {
             if (!mHandshakeComplete) {
                 throw new HandshakeNotCompleteException("Handshake with server has not completed.");
             }
+            if (mLibraryMirror && item.inputValue == null && LibraryBrowser.canBrowse(action.action) && mLibrarySync.isAvailable()) {
+                final String server = mDelegate.getLibraryKey();
+                final String urlPrefix = mDelegate.getUrlPrefix();
+                mLibraryExecutor.execute(() -> mLibraryBrowser.browse(server, action.action, start, BaseClient.mPageSize, urlPrefix, callback));
+                return;
+            }
             mDelegate.requestItems(getActivePlayer(), start, callback).cmd(action.action.cmd).params(action.action.params(item.inputValue)).exec();
         }
 
+        @Override
+        public boolean canSearchLibrary() {
+            return mLibraryMirror && mHandshakeComplete && mLibrarySync.isAvailable();
+        }
+
+        @Override
+        public void searchLibrary(String query, IServiceItemListCallback<JiveItem> callback) {
+            if (!canSearchLibrary()) {
+                return;
+            }
+            final String server = mDelegate.getLibraryKey();
+            final String urlPrefix = mDelegate.getUrlPrefix();
+            mSearchExecutor.execute(() -> mLibraryBrowser.search(server, query, urlPrefix, callback));
+        }
+
         @Override
         public void pluginItems(Action action, IServiceItemListCallback<JiveItem> callback) throws HandshakeNotCompleteException {
             // We cant use paging for context menu items as LMS does some "magic"
@@ -1373,8 +1670,11 @@ public class SqueezeService extends Service {
         public void downloadItem(JiveItem item) throws HandshakeNotCompleteException {
             Log.i(TAG, "downloadItem(" + item + ")");
             SlimCommand command = item.downloadCommand();
-            IServiceItemListCallback<?> callback = ("musicfolder".equals(command.cmd.get(0))) ? musicFolderDownloadCallback : songDownloadCallback;
-            mDelegate.requestItems(-1, callback).params(command.params).cmd(command.cmd()).exec();
+            if ("musicfolder".equals(command.cmd.get(0))) {
+                new MusicFolderCrawler(mDelegate, songDownloadCallback, mExecutor).crawl(String.valueOf(command.params.get("folder_id")));
+            } else {
+                mDelegate.requestItems(-1, songDownloadCallback).params(command.params).cmd(command.cmd()).exec();
+            }
         }
     }
 
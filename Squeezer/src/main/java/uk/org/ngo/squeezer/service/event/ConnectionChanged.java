@@ -28,10 +28,18 @@ public class ConnectionChanged {
     public int connectionState;
     public ConnectionError connectionError;
 
+    /** Seconds spent waiting for the server to wake up, -1 if the server is not being woken */
+    public int wakeSeconds = -1;
+
     public ConnectionChanged(@ConnectionState.ConnectionStates int connectionState) {
         this.connectionState = connectionState;
     }
 
+    public ConnectionChanged(@ConnectionState.ConnectionStates int connectionState, int wakeSeconds) {
+        this.connectionState = connectionState;
+        this.wakeSeconds = wakeSeconds;
+    }
+
     public ConnectionChanged(ConnectionError connectionError) {
         this.connectionState = ConnectionState.CONNECTION_FAILED;
         this.connectionError = connectionError;
@@ -39,7 +47,7 @@ public class ConnectionChanged {
 
     @Override
     public String toString() {
-        return "ConnectionChanged{" + connectionState + '}';
+        return "ConnectionChanged{" + connectionState + (wakeSeconds >= 0 ? ", wakeSeconds=" + wakeSeconds : "") + '}';
     }
 
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service.event;
+
+/**
+ * Event sent when the server has finished a scan of the music library while we are connected.
+ */
+public class LastScanChanged {
+    /** Time of the last scan (seconds since the epoch) as reported by the server */
+    public final long lastScan;
+
+    public LastScanChanged(long lastScan) {
+        this.lastScan = lastScan;
+    }
+
+    @Override
+    public String toString() {
+        return "LastScanChanged{" +
+                "lastScan=" + lastScan +
+                '}';
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.org.ngo.squeezer.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the address of a server which is reachable from the current network, by racing TCP
+ * connects to the known addresses of the server (the "happy eyeballs" algorithm of RFC 8305).
+ * <p>
+ * Connects are started in order of preference. The next connect is started when the previous
+ * fails, or after {@link #STAGGER} ms, so a preferred address which answers quickly wins, but an
+ * address which doesn't answer at all only costs the stagger delay. The first address to accept a
+ * connection wins, and the remaining connects are abandoned.
+ */
+public class ConnectRace {
+    /** Delay before the connect to the next address is started */
+    private static final long STAGGER = 250;
+
+    /** Connect timeout for each address */
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    /**
+     * Race TCP connects to the supplied addresses.
+     * <p>
+     * This blocks, so it must not be called on the UI thread.
+     *
+     * @param addresses Addresses in the form host:port, in order of preference
+     * @return The first address to accept a connection, or null if none did
+     */
+    @Nullable
+    public static String race(@NonNull List<String> addresses) {
+        return race(addresses, CONNECT_TIMEOUT);
+    }
+
+    /**
+     * As {@link #race(List)}, but give up on each address after the supplied timeout.
+     *
+     * @param connectTimeout Connect timeout for each address in ms
+     */
+    @Nullable
+    public static String race(@NonNull List<String> addresses, int connectTimeout) {
+        BlockingQueue<Attempt> finished = new LinkedBlockingQueue<>();
+        List<Attempt> attempts = new ArrayList<>();
+        try {
+            int finishedCount = 0;
+            while (finishedCount < addresses.size()) {
+                if (attempts.size() < addresses.size() && attempts.size() == finishedCount) {
+                    // Nothing in flight, start the next connect now
+                    attempts.add(new Attempt(addresses.get(attempts.size()), connectTimeout, finished));
+                }
+
+                boolean moreToStart = attempts.size() < addresses.size();
+                Attempt attempt = finished.poll(moreToStart ? STAGGER : connectTimeout + STAGGER, TimeUnit.MILLISECONDS);
+                if (attempt == null) {
+                    if (!moreToStart) {
+                        return null;
+                    }
+                    attempts.add(new Attempt(addresses.get(attempts.size()), connectTimeout, finished));
+                    continue;
+                }
+
+                finishedCount++;
+                if (attempt.connected) {
+                    return attempt.address;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (Attempt attempt : attempts) {
+                attempt.cancel();
+            }
+        }
+    }
+
+    /**
+     * Parse the host and port of an address in the form host:port.
+     */
+    private static InetSocketAddress parse(String address) {
+        int colonPos = address.lastIndexOf(':');
+        return new InetSocketAddress(address.substring(0, colonPos), Integer.parseInt(address.substring(colonPos + 1)));
+    }
+
+    private static class Attempt extends Thread {
+        private final String address;
+        private final int connectTimeout;
+        private final BlockingQueue<Attempt> finished;
+        private final Socket socket = new Socket();
+        private volatile boolean connected;
+
+        private Attempt(String address, int connectTimeout, BlockingQueue<Attempt> finished) {
+            super(ConnectRace.class.getSimpleName() + " " + address);
+            this.address = address;
+            this.connectTimeout = connectTimeout;
+            this.finished = finished;
+            start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket.connect(parse(address), connectTimeout);
+                connected = true;
+            } catch (IOException | RuntimeException e) {
+                // Unreachable, refused, unknown host or invalid address
+            } finally {
+                cancel();
+                finished.add(this);
+            }
+        }
+
+        private void cancel() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import uk.org.ngo.squeezer.model.JiveItem;
+
+/**
+ * A Lua script which filters, sorts or groups a list of {@link JiveItem}s, using the bundled Lua
+ * 5.1 (the version SqueezePlay uses).
+ * <p>
+ * The script must return a function. The function is called with a list (1-based Lua table) of
+ * items, each a table with the fields {@code id}, {@code name}, {@code text2}, {@code type} and
+ * {@code index} (the 0-based position in the supplied list), and must return a list of the items
+ * to show, in the order to show them. F.e. to sort albums by artist:
+ * <pre>
+ * return function(items)
+ *     table.sort(items, function(a, b) return (a.text2 or "") &lt; (b.text2 or "") end)
+ *     return items
+ * end
+ * </pre>
+ * Only the base, table, string, math and bit libraries are available, and a script which runs for
+ * too long is aborted.
+ * <p>
+ * Scripts run in a pool of Lua states. A thread takes a state from the pool for each run, so
+ * scripts can run on several threads at once, and puts it back afterwards. At most
+ * {@link #MAX_IDLE_STATES} states are kept, the rest are closed. Each state keeps the
+ * {@link #MAX_SCRIPTS} most recently used scripts compiled. As scripts are only limited by the
+ * instruction limit, they must not be run on the UI thread.
+ */
+public class MenuScript {
+    private static final String TAG = MenuScript.class.getSimpleName();
+
+    static {
+        System.loadLibrary("Player");
+    }
+
+    /** Directory of the menu scripts in the external files of the app, see {@link #forMenu(Context, String)} */
+    private static final String SCRIPT_DIRECTORY = "menu_scripts";
+
+    /** Menu ids which can name a script file */
+    private static final Pattern MENU_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+    /** Maximum number of Lua states kept for reuse */
+    private static final int MAX_IDLE_STATES = 2;
+
+    /** Maximum number of scripts kept compiled in a Lua state */
+    private static final int MAX_SCRIPTS = 8;
+
+    /** Lua states which are not in use */
+    private static final Deque<LuaState> idleStates = new ArrayDeque<>();
+
+    private final String name;
+    private final String source;
+
+    /**
+     * @param name Name of the script, used in error messages
+     * @param source Lua source of the script
+     */
+    public MenuScript(@NonNull String name, @NonNull String source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    /**
+     * Get the script the user has supplied for a menu: the file {@code <menu id>.lua} in the
+     * {@value #SCRIPT_DIRECTORY} directory of the external files of the app.
+     * <p>
+     * This reads the file, so it must not be called on the UI thread.
+     *
+     * @param menuId Id of the menu, f.e. the id of the item which opened it
+     * @return The script, or null if there is none, or it can't be read
+     */
+    @Nullable
+    public static MenuScript forMenu(@NonNull Context context, @Nullable String menuId) {
+        if (menuId == null || !MENU_ID.matcher(menuId).matches()) {
+            return null;
+        }
+        File directory = context.getExternalFilesDir(SCRIPT_DIRECTORY);
+        if (directory == null) {
+            return null;
+        }
+        File file = new File(directory, menuId + ".lua");
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return new MenuScript(file.getName(), Files.asCharSource(file, Charsets.UTF_8).read());
+        } catch (IOException e) {
+            Log.w(TAG, "Can't read " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Run the script on the supplied items.
+     *
+     * @return Positions in the supplied list of the items to show, in the order to show them
+     * @throws ScriptException If the script fails, or returns something else than a list of the
+     *     supplied items
+     */
+    @NonNull
+    public int[] apply(@NonNull List<JiveItem> items) throws ScriptException {
+        int count = items.size();
+        String[] ids = new String[count];
+        String[] names = new String[count];
+        String[] text2s = new String[count];
+        String[] types = new String[count];
+        for (int i = 0; i < count; i++) {
+            JiveItem item = items.get(i);
+            ids[i] = item.getId();
+            names[i] = item.getName();
+            text2s[i] = item.text2;
+            types[i] = item.getType();
+        }
+
+        LuaState state = takeState();
+        try {
+            return nativeApply(state.handle, state.load(this), ids, names, text2s, types);
+        } finally {
+            returnState(state);
+        }
+    }
+
+    /**
+     * Run the script on the supplied items.
+     *
+     * @return A new list of the items to show, in the order to show them
+     * @see #apply(List)
+     */
+    @NonNull
+    public List<JiveItem> transform(@NonNull List<JiveItem> items) throws ScriptException {
+        int[] positions = apply(items);
+        List<JiveItem> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(items.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Run the script on the supplied items, and put them in the order it returns them, in place.
+     * <p>
+     * Items the script doesn't return are kept after the returned items, in their original order,
+     * so the number of items doesn't change. This is what a page of a list from the server needs,
+     * as the server decides the positions of the pages.
+     *
+     * @see #apply(List)
+     */
+    public void reorder(@NonNull List<JiveItem> items) throws ScriptException {
+        int[] positions = apply(items);
+        List<JiveItem> original = new ArrayList<>(items);
+        boolean[] placed = new boolean[original.size()];
+        int next = 0;
+        for (int position : positions) {
+            if (!placed[position]) {
+                placed[position] = true;
+                items.set(next++, original.get(position));
+            }
+        }
+        for (int i = 0; i < placed.length; i++) {
+            if (!placed[i]) {
+                items.set(next++, original.get(i));
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "MenuScript{" + name + '}';
+    }
+
+    private static LuaState takeState() {
+        synchronized (idleStates) {
+            LuaState state = idleStates.pollFirst();
+            if (state != null) {
+                return state;
+            }
+        }
+        return new LuaState();
+    }
+
+    private static void returnState(LuaState state) {
+        synchronized (idleStates) {
+            if (idleStates.size() < MAX_IDLE_STATES) {
+                idleStates.addFirst(state);
+                return;
+            }
+        }
+        state.close();
+    }
+
+    /**
+     * A Lua state, and the scripts compiled in it, by source. Only used by one thread at a time.
+     */
+    private static class LuaState {
+        private final long handle = nativeNewState();
+
+        /** References to the compiled scripts, least recently used first */
+        private final LinkedHashMap<String, Integer> scripts = new LinkedHashMap<>(MAX_SCRIPTS, 0.75f, true);
+
+        private int load(MenuScript script) throws ScriptException {
+            Integer ref = scripts.get(script.source);
+            if (ref == null) {
+                if (scripts.size() >= MAX_SCRIPTS) {
+                    Iterator<Map.Entry<String, Integer>> eldest = scripts.entrySet().iterator();
+                    nativeUnload(handle, eldest.next().getValue());
+                    eldest.remove();
+                }
+                ref = nativeLoad(handle, script.name, script.source);
+                scripts.put(script.source, ref);
+            }
+            return ref;
+        }
+
+        private void close() {
+            nativeClose(handle);
+        }
+    }
+
+    /**
+     * A menu script failed.
+     */
+    public static class ScriptException extends Exception {
+        public ScriptException(String message) {
+            super(message);
+        }
+    }
+
+    private static native long nativeNewState();
+    private static native void nativeClose(long handle);
+    private static native int nativeLoad(long handle, String name, String source) throws ScriptException;
+    private static native void nativeUnload(long handle, int ref);
+    private static native int[] nativeApply(long handle, int ref, String[] ids, String[] names, String[] text2s, String[] types) throws ScriptException;
+}
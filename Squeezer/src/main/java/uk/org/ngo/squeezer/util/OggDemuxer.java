@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits an Ogg stream into packets, using the bundled libogg.
+ * <p>
+ * Stream data is fed in as it arrives with {@link #feed(ByteBuffer)}, and the packets of the
+ * logical stream are read with {@link #nextPacket(ByteBuffer)}. Both take direct buffers, which
+ * the caller is expected to reuse, so the demuxer doesn't allocate anything per page or packet.
+ * Chained streams (f.e. internet radio where each track is a new logical stream) are followed, and
+ * the demuxer resynchronizes if it's fed from the middle of a stream. Of a multiplexed stream only
+ * the first logical stream is demuxed.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class OggDemuxer implements Closeable {
+    static {
+        System.loadLibrary("Player");
+    }
+
+    /** Returned by {@link #nextPacket(ByteBuffer)} when all fed data has been demuxed */
+    public static final int NEED_MORE_DATA = 0;
+
+    /** Returned by {@link #nextPacket(ByteBuffer)} when the next packet is empty */
+    public static final int EMPTY_PACKET = -1;
+
+    /** Returned by the native code when the packet doesn't fit in the buffer */
+    private static final int BUFFER_TOO_SMALL = -2;
+
+    private long handle;
+
+    public OggDemuxer() {
+        handle = nativeCreate();
+    }
+
+    /**
+     * Add the remaining bytes of the supplied buffer to the stream.
+     * <p>
+     * On return the position of the buffer is at its limit.
+     *
+     * @param buffer A direct buffer with stream data
+     */
+    public void feed(@NonNull ByteBuffer buffer) throws IOException {
+        checkOpen();
+        checkDirect(buffer);
+        if (!nativeFeed(handle, buffer, buffer.position(), buffer.remaining())) {
+            throw new IOException("Can't add data to the Ogg stream");
+        }
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * Copy the next packet of the stream to the supplied buffer, at its position.
+     * <p>
+     * The position of the buffer is advanced by the length of the packet.
+     *
+     * @param buffer A direct buffer to receive the packet
+     * @return The length of the packet, {@link #EMPTY_PACKET}, or {@link #NEED_MORE_DATA}
+     * @throws IOException If the packet doesn't fit in the remaining space of the buffer. The
+     *     packet is kept, so it can be read into a larger buffer.
+     */
+    public int nextPacket(@NonNull ByteBuffer buffer) throws IOException {
+        checkOpen();
+        checkDirect(buffer);
+        int length = nativeNextPacket(handle, buffer, buffer.position(), buffer.remaining());
+        if (length == BUFFER_TOO_SMALL) {
+            throw new IOException("Ogg packet doesn't fit in " + buffer.remaining() + " bytes");
+        }
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+        return length;
+    }
+
+    /**
+     * @return The granule position (the sample position for audio codecs) of the last packet which
+     *     had one, or -1 if none has
+     */
+    public long getGranulePosition() {
+        checkOpen();
+        return nativeGranulePosition(handle);
+    }
+
+    /**
+     * Discard all buffered data, f.e. after a seek.
+     */
+    public void reset() {
+        checkOpen();
+        nativeReset(handle);
+    }
+
+    @Override
+    public void close() {
+        if (handle != 0) {
+            nativeDestroy(handle);
+            handle = 0;
+        }
+    }
+
+    private void checkOpen() {
+        if (handle == 0) {
+            throw new IllegalStateException("OggDemuxer is closed");
+        }
+    }
+
+    private static void checkDirect(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("OggDemuxer needs a direct buffer");
+        }
+    }
+
+    private static native long nativeCreate();
+    private static native void nativeDestroy(long handle);
+    private static native boolean nativeFeed(long handle, ByteBuffer buffer, int offset, int length);
+    private static native int nativeNextPacket(long handle, ByteBuffer buffer, int offset, int capacity);
+    private static native long nativeGranulePosition(long handle);
+    private static native void nativeReset(long handle);
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map which is a view of a shared base map, with the entries of an overlay map on top.
+ * <p>
+ * Neither of the maps given to the constructor are modified. The first modification of this map
+ * copies the overlay, so many instances can share both the base and the overlay, and only pay for
+ * the entries which are actually changed.
+ * <p>
+ * Lookups check the overlay and then the base, and iteration resolves the entries lazily.
+ * Entries are immutable, and the iterators of the views don't support remove.
+ */
+public class OverlayMap<K, V> extends AbstractMap<K, V> {
+    private Map<K, V> base;
+    private Map<K, V> overlay;
+    private boolean ownsOverlay;
+
+    public OverlayMap(@NonNull Map<K, V> base, @NonNull Map<K, V> overlay) {
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    @Override
+    public V get(Object key) {
+        V value = overlay.get(key);
+        return (value != null || overlay.containsKey(key)) ? value : base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return overlay.containsKey(key) || base.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        int size = overlay.size();
+        for (K key : base.keySet()) {
+            if (!overlay.containsKey(key)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V previous = get(key);
+        ownOverlay().put(key, value);
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+        if (base.containsKey(key)) {
+            // The base can't be changed, so resolve the entries, and drop it
+            overlay = new HashMap<>(this);
+            ownsOverlay = true;
+            base = Collections.emptyMap();
+        }
+        return ownOverlay().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        base = Collections.emptyMap();
+        overlay = new HashMap<>();
+        ownsOverlay = true;
+    }
+
+    private Map<K, V> ownOverlay() {
+        if (!ownsOverlay) {
+            overlay = new HashMap<>(overlay);
+            ownsOverlay = true;
+        }
+        return overlay;
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @NonNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator(overlay, base);
+            }
+
+            @Override
+            public int size() {
+                return OverlayMap.this.size();
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Map<K, V> overlay;
+        private final Iterator<Entry<K, V>> overlayIterator;
+        private final Iterator<Entry<K, V>> baseIterator;
+        private Entry<K, V> next;
+
+        EntryIterator(Map<K, V> overlay, Map<K, V> base) {
+            this.overlay = overlay;
+            overlayIterator = overlay.entrySet().iterator();
+            baseIterator = base.entrySet().iterator();
+            next = advance();
+        }
+
+        private Entry<K, V> advance() {
+            if (overlayIterator.hasNext()) {
+                return overlayIterator.next();
+            }
+            while (baseIterator.hasNext()) {
+                Entry<K, V> entry = baseIterator.next();
+                if (!overlay.containsKey(entry.getKey())) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = new SimpleImmutableEntry<>(next);
+            next = advance();
+            return entry;
+        }
+    }
+}
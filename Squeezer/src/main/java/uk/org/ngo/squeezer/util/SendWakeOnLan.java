@@ -1,7 +1,10 @@
 package uk.org.ngo.squeezer.util;
 
+import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
@@ -9,6 +12,7 @@ import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Sends a Wake-on-LAN (WOL) message.
@@ -22,6 +26,92 @@ public class SendWakeOnLan {
     private static final int WOL_PORT = 9;
     public static final String BROADCAST_ADDRESS = "192.168.0.255";
 
+    /** Maximum time to wait for a server to wake up */
+    private static final long WAKE_TIMEOUT = 90_000;
+
+    /** Time between bursts of WOL messages while waiting */
+    private static final long WOL_INTERVAL = 5_000;
+
+    /** Number of WOL messages in a burst, as a single UDP packet may be lost */
+    private static final int WOL_BURST = 3;
+
+    /** Connect timeout for a probe of each address of the server */
+    private static final int PROBE_TIMEOUT = 500;
+
+    /** Minimum time between the start of two probes of the server */
+    private static final long PROBE_INTERVAL = 500;
+
+    /**
+     * Progress of {@link #wakeAndWait(byte[], List, WakeProgress)}.
+     */
+    public interface WakeProgress {
+        /**
+         * Called after each unsuccessful probe of the server.
+         *
+         * @param seconds Seconds spent waiting for the server
+         * @return False to stop waiting
+         */
+        boolean onWaiting(int seconds);
+    }
+
+    /**
+     * Wake the server, and wait until it accepts connections at one of its addresses.
+     * <p>
+     * The addresses are probed with a {@link ConnectRace} first, so WOL is only sent if the server
+     * doesn't answer. Then bursts of WOL messages are sent every {@link #WOL_INTERVAL} ms, and the
+     * addresses are probed every {@link #PROBE_INTERVAL} ms, until the server accepts a connection
+     * or {@link #WAKE_TIMEOUT} ms have passed. Probes give up after {@link #PROBE_TIMEOUT} ms, so a
+     * sleeping server gets the first WOL burst right away, also when it has several addresses.
+     * <p>
+     * This blocks, so it must not be called on the UI thread.
+     *
+     * @param mac MAC address of the server
+     * @param addresses Addresses of the server in the form host:port, in order of preference
+     * @param progress Receives progress, and can stop the wait
+     *
+     * @return The first address to accept a connection, or null if the server didn't wake up
+     */
+    @Nullable
+    public static String wakeAndWait(byte[] mac, List<String> addresses, WakeProgress progress) {
+        long start = SystemClock.elapsedRealtime();
+        String address = ConnectRace.race(addresses, PROBE_TIMEOUT);
+        if (address != null) {
+            return address;
+        }
+
+        long nextWakeOnLan = start;
+        while (true) {
+            long probeStart = SystemClock.elapsedRealtime();
+            if (probeStart >= nextWakeOnLan) {
+                Log.i(TAG, "Send Wake-on-LAN to " + addresses);
+                for (int i = 0; i < WOL_BURST; i++) {
+                    sendWakeOnLan(mac);
+                }
+                nextWakeOnLan = probeStart + WOL_INTERVAL;
+            }
+
+            address = ConnectRace.race(addresses, PROBE_TIMEOUT);
+            if (address != null) {
+                Log.i(TAG, address + " is awake after " + (SystemClock.elapsedRealtime() - start) + " ms");
+                return address;
+            }
+
+            long now = SystemClock.elapsedRealtime();
+            if (now - start >= WAKE_TIMEOUT) {
+                Log.w(TAG, addresses + " did not wake up in " + WAKE_TIMEOUT + " ms");
+                return null;
+            }
+            if (!progress.onWaiting((int) ((now - start) / 1000))) {
+                return null;
+            }
+
+            long delay = probeStart + PROBE_INTERVAL - now;
+            if (delay > 0) {
+                SystemClock.sleep(delay);
+            }
+        }
+    }
+
     public static void sendWakeOnLan(byte[] mac) {
 
         // The WOL message payload is 6 bytes of all 255 followed by sixteen repetitions of the
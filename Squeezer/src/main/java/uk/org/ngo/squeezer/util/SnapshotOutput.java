@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a compact binary snapshot, to be read by {@link SnapshotInput}.
+ * <p>
+ * Integers are written as variable length quantities, so small values take a single byte.
+ * Strings are interned: the first time a string is written it is assigned an id, and later
+ * occurrences are written as the id. Item lists from the server repeat the same action commands,
+ * parameter names and base record values on every item, so this makes the snapshot much smaller.
+ */
+public class SnapshotOutput {
+    private final DataOutputStream out;
+
+    /** Ids of the strings written so far */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public SnapshotOutput(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Write a non-negative integer in 7 bit groups, least significant first. The high bit of each
+     * byte is set if more bytes follow.
+     */
+    public void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Write a signed integer. Small negative values take as little space as small positive values.
+     */
+    public void writeInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.writeBoolean(value);
+    }
+
+    /**
+     * Write a string, which may be null.
+     * <p>
+     * It is encoded as 0 for null, the id of a previous string plus 2, or for a new string 1
+     * followed by the length and the UTF-8 bytes.
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer id = strings.get(value);
+        if (id != null) {
+            writeVarInt(id + 2);
+        } else {
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(1);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return Number of distinct strings written
+     */
+    public int getStringCount() {
+        return strings.size();
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
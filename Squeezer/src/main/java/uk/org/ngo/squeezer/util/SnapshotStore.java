@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * File backed store for snapshots of activity state which is too large for the saved instance
+ * state.
+ * <p>
+ * A snapshot is written with {@link #put(Writer)}, which returns a small handle to put in the
+ * saved instance state instead of the data. When the activity is recreated, the snapshot is read
+ * back with {@link #get(String, Reader, Callback)}.
+ * <p>
+ * Snapshots are written and read on a background thread, one at a time, so a snapshot is always
+ * complete when it is read. Snapshots older than {@link #MAX_AGE} are deleted.
+ */
+public class SnapshotStore {
+    private static final String TAG = SnapshotStore.class.getSimpleName();
+
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+    private static final Pattern HANDLE = Pattern.compile("[0-9a-f-]+");
+
+    private static final Executor executor = Executors.newSingleThreadExecutor();
+
+    private final File directory;
+
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    public interface Reader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    public interface Callback<T> {
+        /**
+         * Called on a background thread with the snapshot, or null if it could not be read.
+         */
+        void onSnapshot(@Nullable T snapshot);
+    }
+
+    public SnapshotStore(@NonNull Context context) {
+        directory = new File(context.getCacheDir(), "snapshots");
+    }
+
+    /**
+     * Write a snapshot in the background.
+     *
+     * @return Handle to read the snapshot back with
+     */
+    @NonNull
+    public String put(@NonNull Writer writer) {
+        String handle = UUID.randomUUID().toString();
+        executor.execute(() -> {
+            deleteOld();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                Log.w(TAG, "Could not create " + directory);
+                return;
+            }
+            File tmpFile = new File(directory, handle + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+                writer.write(out);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write snapshot", e);
+                tmpFile.delete();
+                return;
+            }
+            if (!tmpFile.renameTo(new File(directory, handle))) {
+                Log.w(TAG, "Could not rename " + tmpFile);
+                tmpFile.delete();
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Read a snapshot in the background, and pass it to the callback.
+     */
+    public <T> void get(@NonNull String handle, @NonNull Reader<T> reader, @NonNull Callback<T> callback) {
+        executor.execute(() -> {
+            T snapshot = null;
+            File file = file(handle);
+            if (file != null && file.exists()) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                    snapshot = reader.read(in);
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Could not read snapshot " + handle, e);
+                }
+            }
+            callback.onSnapshot(snapshot);
+        });
+    }
+
+    /**
+     * Delete a snapshot which is no longer needed.
+     */
+    public void remove(@Nullable String handle) {
+        if (handle == null) {
+            return;
+        }
+        executor.execute(() -> {
+            File file = file(handle);
+            if (file != null) {
+                file.delete();
+            }
+        });
+    }
+
+    @Nullable
+    private File file(String handle) {
+        return HANDLE.matcher(handle).matches() ? new File(directory, handle) : null;
+    }
+
+    private void deleteOld() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            long oldest = System.currentTimeMillis() - MAX_AGE;
+            for (File file : files) {
+                if (file.lastModified() < oldest) {
+                    file.delete();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import android.text.TextUtils;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.collection.LruCache;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cache of measured texts for the rows of a list.
+ * <p>
+ * The texts of a page of items are measured with {@link #prepare(CharSequence)} on a background
+ * thread, so binding a row only has to attach the finished {@link PrecomputedTextCompat}, see
+ * {@link #setText(TextView, CharSequence)}.
+ * <p>
+ * Texts are measured for each style (paint, break strategy, etc.) the cache has seen in a
+ * {@link #setText(TextView, CharSequence)} call, so the first rows of a list are bound as plain
+ * text. The measurement doesn't depend on the width of the view, so the same entry serves rows in
+ * any width, and in any orientation.
+ */
+public class TextLayoutCache {
+    private final LruCache<Key, PrecomputedTextCompat> cache;
+    private final List<PrecomputedTextCompat.Params> styles = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param maxSize The maximum number of measured texts to keep
+     */
+    public TextLayoutCache(int maxSize) {
+        cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Measure the supplied text for each of the known styles, unless it is already cached.
+     * <p>
+     * This can be called from any thread.
+     */
+    public void prepare(CharSequence text) {
+        if (TextUtils.isEmpty(text)) {
+            return;
+        }
+        for (PrecomputedTextCompat.Params params : styles) {
+            Key key = new Key(text, params);
+            if (cache.get(key) == null) {
+                cache.put(key, PrecomputedTextCompat.create(text, params));
+            }
+        }
+    }
+
+    /**
+     * Set the text of the supplied view, using the measured text if it is cached for the current
+     * style of the view.
+     * <p>
+     * Must be called on the UI thread, after the text appearance of the view is set.
+     */
+    public void setText(@NonNull TextView textView, CharSequence text) {
+        if (TextUtils.isEmpty(text)) {
+            textView.setText(text);
+            return;
+        }
+
+        PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(textView);
+        PrecomputedTextCompat precomputedText = cache.get(new Key(text, params));
+        if (precomputedText != null) {
+            TextViewCompat.setPrecomputedText(textView, precomputedText);
+        } else {
+            if (!styles.contains(params)) {
+                styles.add(params);
+            }
+            textView.setText(text);
+        }
+    }
+
+    private static class Key {
+        private final String text;
+        private final PrecomputedTextCompat.Params params;
+
+        private Key(CharSequence text, PrecomputedTextCompat.Params params) {
+            this.text = text.toString();
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return text.equals(key.text) && params.equals(key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, params);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test {@link HttpDownloadEngine} against a local HTTP server, which serves a fixed payload and
+ * honours Range requests.
+ */
+public class HttpDownloadEngineTest extends TestCase {
+    private static final int SIZE = 300_000;
+
+    private HttpServer server;
+    private File dir;
+    private byte[] payload;
+
+    /** If > 0, the server drops the connection after this many bytes on the first request */
+    private int dropAfter;
+    private boolean supportRange = true;
+    private String contentMd5;
+    /** If set, the server stops sending after the first chunk until this is released */
+    private volatile CountDownLatch stall;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String lastRange;
+    private volatile String lastAuthorization;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        payload = new byte[SIZE];
+        new Random(42).nextBytes(payload);
+        dir = Files.createTempDirectory("engine").toFile();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/music/1/download", this::handle);
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (stall != null) {
+            stall.countDown();
+        }
+        server.stop(0);
+        deleteRecursive(dir);
+        super.tearDown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int request = requests.incrementAndGet();
+        lastRange = exchange.getRequestHeaders().getFirst("Range");
+        lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+        int start = 0;
+        if (supportRange && lastRange != null) {
+            start = Integer.parseInt(lastRange.substring("bytes=".length(), lastRange.length() - 1));
+        }
+        if (contentMd5 != null) {
+            exchange.getResponseHeaders().add("Content-MD5", contentMd5);
+        }
+        if (start >= SIZE) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes */" + SIZE);
+            exchange.sendResponseHeaders(416, -1);
+            exchange.close();
+            return;
+        }
+        if (start > 0) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (SIZE - 1) + "/" + SIZE);
+            exchange.sendResponseHeaders(206, SIZE - start);
+        } else {
+            exchange.sendResponseHeaders(200, SIZE);
+        }
+        OutputStream out = exchange.getResponseBody();
+        if (stall != null) {
+            out.write(payload, start, 10_000);
+            out.flush();
+            try {
+                stall.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+            return;
+        }
+        if (request == 1 && dropAfter > 0) {
+            // Close the exchange before the announced length is sent, so the client sees a
+            // truncated body
+            out.write(payload, start, dropAfter);
+            out.flush();
+            exchange.close();
+            return;
+        }
+        out.write(payload, start, SIZE - start);
+        out.close();
+    }
+
+    private HttpDownloadEngine.Request request(String name) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/music/1/download");
+        HttpDownloadEngine.Request request = new HttpDownloadEngine.Request(url, new File(dir, "Artist/Album/" + name));
+        request.credentials = "user:secret";
+        return request;
+    }
+
+    private HttpDownloadEngine engine() {
+        HttpDownloadEngine engine = new HttpDownloadEngine(2, 3, 10);
+        engine.setTimeouts(2_000, 2_000);
+        return engine;
+    }
+
+    public void testDownload() throws Exception {
+        HttpDownloadEngine engine = engine();
+        File file = engine.download(request("01 - Track.flac"));
+
+        assertTrue(Arrays.equals(payload, Files.readAllBytes(file.toPath())));
+        assertFalse(new File(file.getPath() + HttpDownloadEngine.PART_SUFFIX).exists());
+        assertNull(lastRange);
+        assertEquals("Basic " + Base64.getEncoder().encodeToString("user:secret".getBytes()), lastAuthorization);
+        assertEquals(SIZE, engine.getMetrics().bytes.get());
+        assertEquals(1, engine.getMetrics().downloads.get());
+    }
+
+    public void testResumePartialFile() throws Exception {
+        HttpDownloadEngine.Request request = request("02 - Track.flac");
+        File part = new File(request.destination.getPath() + HttpDownloadEngine.PART_SUFFIX);
+        assertTrue(part.getParentFile().mkdirs());
+        try (FileOutputStream out = new FileOutputStream(part)) {
+            out.write(payload, 0, 100_000);
+        }
+
+        HttpDownloadEngine engine = engine();
+        File file = engine.download(request);
+
+        assertEquals("bytes=100000-", lastRange);
+        assertTrue(Arrays.equals(payload, Files.readAllBytes(file.toPath())));
+        assertEquals(SIZE - 100_000, engine.getMetrics().bytes.get());
+        assertEquals(1, engine.getMetrics().resumes.get());
+    }
+
+    public void testCompletePartialFile() throws Exception {
+        HttpDownloadEngine.Request request = request("03 - Track.flac");
+        File part = new File(request.destination.getPath() + HttpDownloadEngine.PART_SUFFIX);
+        assertTrue(part.getParentFile().mkdirs());
+        Files.write(part.toPath(), payload);
+
+        File file = engine().download(request);
+
+        assertTrue(Arrays.equals(payload, Files.readAllBytes(file.toPath())));
+    }
+
+    public void testServerIgnoresRange() throws Exception {
+        supportRange = false;
+        HttpDownloadEngine.Request request = request("04 - Track.flac");
+        File part = new File(request.destination.getPath() + HttpDownloadEngine.PART_SUFFIX);
+        assertTrue(part.getParentFile().mkdirs());
+        try (FileOutputStream out = new FileOutputStream(part)) {
+            out.write(new byte[1000]);
+        }
+
+        File file = engine().download(request);
+
+        assertTrue(Arrays.equals(payload, Files.readAllBytes(file.toPath())));
+    }
+
+    public void testRetryResumesAfterDroppedConnection() throws Exception {
+        dropAfter = 50_000;
+        HttpDownloadEngine engine = engine();
+        File file = engine.download(request("05 - Track.flac"));
+
+        assertTrue(Arrays.equals(payload, Files.readAllBytes(file.toPath())));
+        assertTrue(engine.getMetrics().retries.get() >= 1);
+        assertEquals(1, engine.getMetrics().resumes.get());
+    }
+
+    public void testExpectedSizeMismatch() throws Exception {
+        HttpDownloadEngine.Request request = request("06 - Track.flac");
+        request.expectedSize = SIZE + 1;
+        HttpDownloadEngine engine = engine();
+        try {
+            engine.download(request);
+            fail("Expected VerificationException");
+        } catch (HttpDownloadEngine.VerificationException expected) {
+        }
+        assertFalse(request.destination.exists());
+        assertFalse(new File(request.destination.getPath() + HttpDownloadEngine.PART_SUFFIX).exists());
+        assertEquals(1, engine.getMetrics().failures.get());
+    }
+
+    public void testServerChecksum() throws Exception {
+        contentMd5 = Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(payload));
+        File file = engine().download(request("07 - Track.flac"));
+        assertTrue(file.exists());
+    }
+
+    public void testServerChecksumMismatch() throws Exception {
+        contentMd5 = Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(new byte[1]));
+        HttpDownloadEngine engine = engine();
+        try {
+            engine.download(request("08 - Track.flac"));
+            fail("Expected VerificationException");
+        } catch (HttpDownloadEngine.VerificationException expected) {
+        }
+        assertEquals(1, engine.getMetrics().checksumMismatches.get());
+    }
+
+    public void testCancelTransfer() throws Exception {
+        stall = new CountDownLatch(1);
+        HttpDownloadEngine.Request request = request("09 - Track.flac");
+        File part = new File(request.destination.getPath() + HttpDownloadEngine.PART_SUFFIX);
+        HttpDownloadEngine engine = engine();
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        engine.enqueue(request, new HttpDownloadEngine.Listener() {
+            @Override
+            public void onComplete(HttpDownloadEngine.Request request, File file) {
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(HttpDownloadEngine.Request request, IOException e) {
+                failure.set(e);
+                done.countDown();
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (request.bytesDownloaded == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(part.exists());
+
+        engine.cancel(request);
+
+        // Well before the read timeout of the engine
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof HttpDownloadEngine.CancelledException);
+        assertFalse(part.exists());
+        assertFalse(request.destination.exists());
+        assertEquals(0, engine.getMetrics().failures.get());
+    }
+
+    public void testCancelBeforeStart() throws Exception {
+        HttpDownloadEngine.Request request = request("10 - Track.flac");
+        File part = new File(request.destination.getPath() + HttpDownloadEngine.PART_SUFFIX);
+        assertTrue(part.getParentFile().mkdirs());
+        Files.write(part.toPath(), new byte[1000]);
+
+        HttpDownloadEngine engine = engine();
+        engine.cancel(request);
+        try {
+            engine.download(request);
+            fail("Expected CancelledException");
+        } catch (HttpDownloadEngine.CancelledException expected) {
+        }
+        assertFalse(part.exists());
+        assertEquals(0, requests.get());
+    }
+
+    public void testSetMaxParallel() {
+        HttpDownloadEngine engine = engine();
+        engine.setMaxParallel(4);
+        assertEquals(4, engine.getMaxParallel());
+        engine.setMaxParallel(1);
+        assertEquals(1, engine.getMaxParallel());
+        engine.setMaxParallel(0);
+        assertEquals(1, engine.getMaxParallel());
+    }
+
+    public void testParseContentRange() {
+        assertTrue(Arrays.equals(new long[]{100, 199, 1000}, HttpDownloadEngine.parseContentRange("bytes 100-199/1000")));
+        assertTrue(Arrays.equals(new long[]{100, 199, -1}, HttpDownloadEngine.parseContentRange("bytes 100-199/*")));
+        assertTrue(Arrays.equals(new long[]{-1, -1, 1000}, HttpDownloadEngine.parseContentRange("bytes */1000")));
+        assertNull(HttpDownloadEngine.parseContentRange("items 1-2/3"));
+        assertNull(HttpDownloadEngine.parseContentRange(null));
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
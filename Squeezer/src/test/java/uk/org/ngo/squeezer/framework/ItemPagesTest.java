@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Pages are received, evicted and ordered again the way {@link ItemAdapter} and
+ * {@link ItemListActivity} use {@link ItemPages} and {@link PageOrders}.
+ */
+public class ItemPagesTest extends TestCase {
+    private static final int PAGE_SIZE = 50;
+
+    public void testScrollLargeList() {
+        scrollLargeList(false);
+    }
+
+    public void testScrollLargeListWithEmptyItem() {
+        scrollLargeList(true);
+    }
+
+    /**
+     * Scroll through a list of 50.000 items from a mock server, and back again.
+     */
+    private void scrollLargeList(boolean emptyItem) {
+        final int count = 50_000;
+        final int budget = 2_000;
+        MockList list = new MockList(count, budget, emptyItem);
+        int end = list.items.size();
+
+        // Scroll down a screen at a time
+        for (int position = 0; position < end; position += 15) {
+            list.display(position, 15);
+            if (position % 1500 == 0) {
+                assertTrue("held " + list.heldItems(), list.heldItems() <= budget);
+            }
+        }
+        assertEquals(count / PAGE_SIZE, list.orders);
+
+        // Scroll back to the top
+        for (int position = end - 15; position >= 0; position -= 15) {
+            list.display(position, 15);
+            if (position % 1500 == 0) {
+                assertTrue("held " + list.heldItems(), list.heldItems() <= budget);
+            }
+        }
+
+        // Only the pages within the budget from the bottom are not ordered again
+        assertEquals(2 * count / PAGE_SIZE - budget / PAGE_SIZE, list.orders);
+
+        // Jump around
+        list.display(25_000, 15);
+        list.display(0, 15);
+        list.display(25_010, 15);
+        assertTrue(list.heldItems() <= budget);
+    }
+
+    /**
+     * The items of an evicted page are forgotten, and not the items next to it.
+     */
+    public void testEvictWithEmptyItem() {
+        MockList list = new MockList(1000, 4 * PAGE_SIZE, true);
+        for (int page = 0; page < 4; page++) {
+            list.display(1 + page * PAGE_SIZE, 1);
+        }
+        assertEquals(4, list.pages.size());
+        assertNull(list.items.get(0));
+
+        // Page 0 is the least recently used
+        list.display(1 + 4 * PAGE_SIZE, 1);
+        assertEquals(4, list.pages.size());
+        for (int position = 1; position <= PAGE_SIZE; position++) {
+            assertNull("position " + position, list.items.get(position));
+        }
+        assertEquals("item 50", list.items.get(1 + PAGE_SIZE));
+        assertEquals("item 199", list.items.get(4 * PAGE_SIZE));
+
+        // The evicted page is ordered again when it is displayed
+        list.display(1 + PAGE_SIZE - 1, 1);
+        assertEquals(6, list.orders);
+    }
+
+    public void testForget() {
+        MockList list = new MockList(1000, 8 * PAGE_SIZE, true);
+        for (int page = 0; page < 4; page++) {
+            list.display(1 + page * PAGE_SIZE, 1);
+        }
+
+        list.pages.forget(PAGE_SIZE, PAGE_SIZE);
+        assertEquals(3, list.pages.size());
+        assertEquals("item 49", list.items.get(PAGE_SIZE));
+        for (int position = 1 + PAGE_SIZE; position <= 2 * PAGE_SIZE; position++) {
+            assertNull("position " + position, list.items.get(position));
+        }
+        assertEquals("item 100", list.items.get(1 + 2 * PAGE_SIZE));
+
+        // The forgotten page is ordered again when it is displayed
+        list.display(1 + PAGE_SIZE, PAGE_SIZE);
+        assertEquals(5, list.orders);
+        assertEquals(4, list.pages.size());
+    }
+
+    /**
+     * A list of items backed by a mock server, which serves items a page at a time.
+     * <p>
+     * Pages are ordered as by {@link ItemListActivity#maybeOrderPage(int)}, and received as by
+     * {@link ItemListActivity#onItemsReceived(int, int, List, Class)} and
+     * {@link ItemAdapter#update(int, int, List)}.
+     */
+    private static class MockList implements ItemPages.Callback {
+        private final int count;
+        private final int offset;
+        final SparseItemList<String> items = new SparseItemList<>();
+        final ItemPages<String> pages;
+        private final PageOrders pageOrders = new PageOrders(PAGE_SIZE, new HashSet<>());
+        private final List<Integer> pendingPages = new ArrayList<>();
+        int orders;
+
+        MockList(int count, int budget, boolean emptyItem) {
+            this.count = count;
+            offset = (emptyItem ? 1 : 0);
+            items.setSize(count + offset);
+            pages = new ItemPages<>(items, PAGE_SIZE, budget, emptyItem, this);
+        }
+
+        @Override
+        public void orderPage(int pagePosition) {
+            if (pageOrders.needsOrder(pagePosition)) {
+                pageOrders.ordered(pagePosition);
+                pendingPages.add(pagePosition);
+            }
+        }
+
+        @Override
+        public void onPageEvicted(int pagePosition) {
+            pageOrders.evicted(pagePosition);
+        }
+
+        /**
+         * Display the items from the supplied adapter position, and serve the pages which are
+         * ordered.
+         */
+        void display(int start, int size) {
+            for (int position = start; position < Math.min(start + size, count + offset); position++) {
+                String item = pages.get(position);
+                if (position < offset) {
+                    assertNull(item);
+                    continue;
+                }
+                if (item == null) {
+                    assertFalse("position " + position + " not ordered", pendingPages.isEmpty());
+                    serve();
+                    item = pages.get(position);
+                }
+                assertEquals("item " + (position - offset), item);
+            }
+        }
+
+        private void serve() {
+            for (int start : pendingPages) {
+                orders++;
+                List<String> page = new ArrayList<>();
+                for (int i = start; i < Math.min(start + PAGE_SIZE, count); i++) {
+                    page.add("item " + i);
+                }
+                pageOrders.received(count, start, page.size());
+                pages.set(start, page);
+            }
+            pendingPages.clear();
+        }
+
+        int heldItems() {
+            int held = 0;
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i) != null) {
+                    held++;
+                }
+            }
+            return held;
+        }
+    }
+}
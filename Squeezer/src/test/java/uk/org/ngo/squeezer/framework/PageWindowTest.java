@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class PageWindowTest extends TestCase {
+    private static final int PAGE_SIZE = 50;
+
+    public void testLeastRecentlyUsedIsEvicted() {
+        PageWindow window = new PageWindow(PAGE_SIZE, 4 * PAGE_SIZE);
+
+        assertTrue(window.add(0, PAGE_SIZE).isEmpty());
+        assertTrue(window.add(50, PAGE_SIZE).isEmpty());
+        assertTrue(window.add(100, PAGE_SIZE).isEmpty());
+        assertTrue(window.add(150, PAGE_SIZE).isEmpty());
+        assertEquals(4, window.size());
+
+        // Page 0 is displayed, so page 50 is now the least recently used
+        window.touch(10);
+        assertEquals(Arrays.asList(50), window.add(200, PAGE_SIZE));
+        assertEquals(Arrays.asList(100), window.add(250, PAGE_SIZE));
+        assertEquals(4, window.size());
+    }
+
+    public void testBudgetIsNotBelowMinimum() {
+        PageWindow window = new PageWindow(PAGE_SIZE, 10);
+        for (int i = 0; i < PageWindow.MIN_PAGES; i++) {
+            assertTrue(window.add(i * PAGE_SIZE, PAGE_SIZE).isEmpty());
+        }
+        assertEquals(Arrays.asList(0), window.add(PageWindow.MIN_PAGES * PAGE_SIZE, PAGE_SIZE));
+    }
+
+    public void testPagesReceivedInChunks() {
+        PageWindow window = new PageWindow(PAGE_SIZE, 4 * PAGE_SIZE);
+        window.add(0, 20);
+        window.add(20, 30);
+        window.add(40, 20);
+        assertEquals(2, window.size());
+    }
+
+    public void testRemove() {
+        PageWindow window = new PageWindow(PAGE_SIZE, 4 * PAGE_SIZE);
+        window.add(0, PAGE_SIZE);
+        window.add(50, PAGE_SIZE);
+        window.add(100, PAGE_SIZE);
+
+        window.remove(50, PAGE_SIZE);
+        assertEquals(2, window.size());
+
+        // The removed page is not evicted again
+        window.add(150, PAGE_SIZE);
+        window.add(200, PAGE_SIZE);
+        assertEquals(Arrays.asList(0), window.add(250, PAGE_SIZE));
+    }
+}
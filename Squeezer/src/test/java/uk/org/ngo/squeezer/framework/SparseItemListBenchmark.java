@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measure removing, moving and inserting items in a list of 1.000.000 positions with a few loaded
+ * pages, as when editing a long playlist. Each edit should take microseconds, independent of the
+ * size of the list.
+ * <p>
+ * This is not a unit test, as timings depend on the machine. Run it from the test classpath.
+ */
+public class SparseItemListBenchmark {
+
+    public static void main(String[] args) {
+        final int size = 1_000_000;
+        final int edits = 3_000;
+        SparseItemList<Integer> list = new SparseItemList<>();
+        list.setSize(size);
+        for (int start = 0; start < size; start += 10_000) {
+            List<Integer> page = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                page.add(start + i);
+            }
+            list.set(start, page);
+        }
+
+        Random random = new Random(2);
+        long[] times = new long[edits];
+        for (int i = 0; i < edits; i++) {
+            long start = System.nanoTime();
+            list.remove(random.nextInt(list.size()));
+            list.move(random.nextInt(list.size()), random.nextInt(list.size()));
+            list.insert(random.nextInt(list.size()), i);
+            times[i] = System.nanoTime() - start;
+        }
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        Arrays.sort(times);
+        System.out.printf("SparseItemList: %d edits of remove, move and insert on %d positions in %.1f ms, median %.3f ms, max %.3f ms%n",
+                edits, list.size(), total / 1e6, times[edits / 2] / 1e6, times[edits - 1] / 1e6);
+    }
+}
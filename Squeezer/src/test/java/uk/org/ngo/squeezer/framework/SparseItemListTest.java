@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.framework;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class SparseItemListTest extends TestCase {
+
+    private static void assertContents(List<Integer> expected, SparseItemList<Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("position " + i, expected.get(i), actual.get(i));
+        }
+        assertNull(actual.get(-1));
+        assertNull(actual.get(expected.size()));
+    }
+
+    private static List<Integer> range(int from, int count) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(from + i);
+        }
+        return list;
+    }
+
+    public void testSetGrowsAndLeavesHoles() {
+        SparseItemList<Integer> list = new SparseItemList<>();
+        list.set(100, range(100, 50));
+
+        List<Integer> expected = new ArrayList<>(Collections.nCopies(100, null));
+        expected.addAll(range(100, 50));
+        assertContents(expected, list);
+
+        list.setSize(1000);
+        expected.addAll(Collections.nCopies(850, null));
+        assertContents(expected, list);
+
+        list.setSize(120);
+        assertContents(expected.subList(0, 120), list);
+
+        list.clear();
+        assertEquals(0, list.size());
+    }
+
+    public void testInsertRemoveMove() {
+        SparseItemList<Integer> list = new SparseItemList<>();
+        list.set(0, Arrays.asList(0, 1, 2, 3, 4));
+
+        list.insert(2, 10);
+        assertContents(Arrays.asList(0, 1, 10, 2, 3, 4), list);
+
+        list.remove(0);
+        assertContents(Arrays.asList(1, 10, 2, 3, 4), list);
+
+        list.move(0, 4);
+        assertContents(Arrays.asList(10, 2, 3, 4, 1), list);
+
+        list.move(3, 1);
+        assertContents(Arrays.asList(10, 4, 2, 3, 1), list);
+
+        list.insert(7, 7);
+        assertContents(Arrays.asList(10, 4, 2, 3, 1, null, null, 7), list);
+
+        list.move(6, 0);
+        assertContents(Arrays.asList(null, 10, 4, 2, 3, 1, null, 7), list);
+    }
+
+    public void testForget() {
+        SparseItemList<Integer> list = new SparseItemList<>();
+        list.set(0, range(0, 200));
+
+        list.forget(10, 100);
+        List<Integer> expected = range(0, 200);
+        for (int i = 10; i < 110; i++) {
+            expected.set(i, null);
+        }
+        assertContents(expected, list);
+
+        list.forget(150, 100);
+        for (int i = 150; i < 200; i++) {
+            expected.set(i, null);
+        }
+        assertContents(expected, list);
+
+        list.forget(-5, 10);
+        for (int i = 0; i < 5; i++) {
+            expected.set(i, null);
+        }
+        assertContents(expected, list);
+    }
+
+    /**
+     * Apply random operations to a list and an {@link ArrayList} and check they agree.
+     */
+    public void testRandomOperations() {
+        Random random = new Random(1);
+        SparseItemList<Integer> list = new SparseItemList<>();
+        List<Integer> expected = new ArrayList<>();
+        int next = 0;
+
+        for (int op = 0; op < 20_000; op++) {
+            int size = expected.size();
+            switch (random.nextInt(7)) {
+                case 0: {
+                    int start = random.nextInt(size + 10);
+                    List<Integer> items = range(next, 1 + random.nextInt(150));
+                    next += items.size();
+                    list.set(start, items);
+                    while (expected.size() < start + items.size()) {
+                        expected.add(null);
+                    }
+                    for (int i = 0; i < items.size(); i++) {
+                        expected.set(start + i, items.get(i));
+                    }
+                    break;
+                }
+                case 1: {
+                    int newSize = random.nextInt(size + 200);
+                    list.setSize(newSize);
+                    while (expected.size() > newSize) {
+                        expected.remove(expected.size() - 1);
+                    }
+                    while (expected.size() < newSize) {
+                        expected.add(null);
+                    }
+                    break;
+                }
+                case 2: {
+                    int position = random.nextInt(size + 1);
+                    list.insert(position, next);
+                    expected.add(position, next++);
+                    break;
+                }
+                case 3:
+                case 4:
+                    if (size > 0) {
+                        int position = random.nextInt(size);
+                        list.remove(position);
+                        expected.remove(position);
+                    }
+                    break;
+                case 5:
+                    if (size > 0) {
+                        int from = random.nextInt(size);
+                        int to = random.nextInt(size);
+                        list.move(from, to);
+                        expected.add(to, expected.remove(from));
+                    }
+                    break;
+                case 6: {
+                    int start = random.nextInt(size + 1);
+                    int count = random.nextInt(200);
+                    list.forget(start, count);
+                    for (int i = start; i < Math.min(start + count, size); i++) {
+                        expected.set(i, null);
+                    }
+                    break;
+                }
+            }
+            if (op % 100 == 0) {
+                assertContents(expected, list);
+            }
+        }
+        assertContents(expected, list);
+    }
+
+    /**
+     * Edit a large, mostly unloaded list. {@link SparseItemListBenchmark} measures the same
+     * operations.
+     */
+    public void testLargeList() {
+        final int size = 1_000_000;
+        SparseItemList<Integer> list = new SparseItemList<>();
+        list.setSize(size);
+        for (int start = 0; start < size; start += 10_000) {
+            list.set(start, range(start, 50));
+        }
+
+        Random random = new Random(2);
+        for (int i = 0; i < 3_000; i++) {
+            list.remove(random.nextInt(list.size()));
+            list.move(random.nextInt(list.size()), random.nextInt(list.size()));
+            list.insert(random.nextInt(list.size()), i);
+        }
+        assertEquals(size, list.size());
+
+        list.insert(size / 2, -1);
+        assertEquals(Integer.valueOf(-1), list.get(size / 2));
+        list.remove(size / 2);
+        assertEquals(size, list.size());
+    }
+}
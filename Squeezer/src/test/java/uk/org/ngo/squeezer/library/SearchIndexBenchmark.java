@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measure type-ahead search over a synthetic library of 100.000 tracks, where each key stroke
+ * should be answered within a few milliseconds.
+ * <p>
+ * This is not a unit test, as timings depend on the machine. Run it from the test classpath.
+ */
+public class SearchIndexBenchmark {
+
+    public static void main(String[] args) {
+        final int artists = 5_000;
+        final int albums = 10_000;
+        final int tracks = 100_000;
+        String[] vocabulary = syntheticWords(4_000, new Random(1));
+        Random random = new Random(2);
+
+        long startTime = System.nanoTime();
+        SearchIndex.Builder builder = new SearchIndex.Builder();
+        for (int i = 0; i < artists; i++) {
+            builder.addArtist("ar" + i, name(vocabulary, random, 2));
+        }
+        String[] albumTitles = new String[albums];
+        String[] albumArtists = new String[albums];
+        for (int i = 0; i < albums; i++) {
+            albumTitles[i] = name(vocabulary, random, 3);
+            albumArtists[i] = "artist " + random.nextInt(artists);
+            builder.addAlbum("al" + i, albumTitles[i], albumArtists[i], "tr" + i);
+        }
+        for (int i = 0; i < tracks; i++) {
+            int album = random.nextInt(albums);
+            builder.addTrack("tr" + i, name(vocabulary, random, 3), albumArtists[album], albumTitles[album], "tr" + album);
+        }
+        SearchIndex index = builder.build();
+        long buildTime = System.nanoTime() - startTime;
+
+        // Every prefix of a number of queries of one to three words, as they are typed
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String query = name(vocabulary, random, 1 + random.nextInt(3));
+            for (int length = 1; length <= query.length(); length++) {
+                queries.add(query.substring(0, length));
+            }
+        }
+
+        // Warm up
+        for (String query : queries) {
+            index.search(query, 15);
+        }
+
+        long[] times = new long[queries.size()];
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            index.search(queries.get(i), 15);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        long median = times[times.length / 2];
+        long p99 = times[times.length * 99 / 100];
+        System.out.printf("SearchIndex: %d documents built in %d ms, %d queries, median %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                index.size(), buildTime / 1_000_000, times.length, median / 1e6, p99 / 1e6, times[times.length - 1] / 1e6);
+    }
+
+    private static String[] syntheticWords(int count, Random random) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            char[] word = new char[3 + random.nextInt(7)];
+            for (int c = 0; c < word.length; c++) {
+                word[c] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(word);
+        }
+        return words;
+    }
+
+    private static String name(String[] vocabulary, Random random, int words) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                name.append(' ');
+            }
+            name.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return name.toString();
+    }
+}
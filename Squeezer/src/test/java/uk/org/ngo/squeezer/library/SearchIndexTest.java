@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.library;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchIndexTest extends TestCase {
+
+    private static SearchIndex smallIndex() {
+        return new SearchIndex.Builder()
+                .addArtist("1", "The Beatles")
+                .addArtist("2", "Björk")
+                .addArtist("3", "Beastie Boys")
+                .addAlbum("10", "Abbey Road", "The Beatles", "100")
+                .addAlbum("11", "Homogenic", "Björk", "110")
+                .addAlbum("12", "Ill Communication", "Beastie Boys", "120")
+                .addTrack("100", "Come Together", "The Beatles", "Abbey Road", "100")
+                .addTrack("101", "Something", "The Beatles", "Abbey Road", "100")
+                .addTrack("110", "Jóga", "Björk", "Homogenic", "110")
+                .addTrack("120", "Sabotage", "Beastie Boys", "Ill Communication", "120")
+                .build();
+    }
+
+    private static List<String> ids(List<SearchIndex.Document> documents) {
+        List<String> ids = new ArrayList<>();
+        for (SearchIndex.Document document : documents) {
+            ids.add(document.id);
+        }
+        return ids;
+    }
+
+    public void testWords() {
+        assertEquals(Arrays.asList("bjork", "s", "joga"), SearchIndex.words("Björk's  JÓGA!"));
+        assertTrue(SearchIndex.words(" - ").isEmpty());
+        assertTrue(SearchIndex.words(null).isEmpty());
+    }
+
+    public void testPrefixMatchInDisplayOrder() {
+        SearchIndex index = smallIndex();
+
+        // Artists before albums before tracks, each sorted by name
+        assertEquals(Arrays.asList("3", "1", "10", "12", "100", "120", "101"), ids(index.search("bea", 10)));
+        assertEquals(Arrays.asList("1", "10", "100", "101"), ids(index.search("beatles", 10)));
+    }
+
+    public void testAllWordsMustMatch() {
+        SearchIndex index = smallIndex();
+
+        assertEquals(Arrays.asList("10", "100", "101"), ids(index.search("beat abb", 10)));
+        assertEquals(Arrays.asList("101"), ids(index.search("some beat", 10)));
+        assertTrue(index.search("beat sabotage", 10).isEmpty());
+        assertTrue(index.search("xyz", 10).isEmpty());
+    }
+
+    public void testAccentsAndCase() {
+        SearchIndex index = smallIndex();
+
+        assertEquals(Arrays.asList("2", "11", "110"), ids(index.search("BJORK", 10)));
+        assertEquals(Arrays.asList("110"), ids(index.search("jóg", 10)));
+    }
+
+    public void testLimitIsPerType() {
+        SearchIndex index = smallIndex();
+
+        assertEquals(Arrays.asList("3", "10", "100"), ids(index.search("bea", 1)));
+    }
+
+    public void testEmpty() {
+        assertTrue(smallIndex().search("  ", 10).isEmpty());
+        assertTrue(new SearchIndex.Builder().build().search("a", 10).isEmpty());
+    }
+}
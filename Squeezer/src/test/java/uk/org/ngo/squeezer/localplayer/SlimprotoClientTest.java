@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import androidx.annotation.NonNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test {@link SlimprotoClient} against a stand-in for the server, which controls the client with
+ * slimproto and serves the stream over HTTP. The client plays to a sink which records the stream.
+ */
+public class SlimprotoClientTest extends TestCase {
+    private static final byte[] MAC = {0x00, 0x04, 0x20, 0x01, 0x02, 0x03};
+    private static final String REQUEST = "GET /stream.ogg?player=00:04:20:01:02:03 HTTP/1.0\r\n\r\n";
+
+    private ServerSocket control;
+    private HttpServer http;
+    private byte[] payload;
+    /** If set, the stream stops after the first chunk until this is released */
+    private volatile CountDownLatch stall;
+    private volatile int httpStatus = 200;
+
+    private RecordingSink sink;
+    private final List<IOException> streamErrors = new ArrayList<>();
+    private SlimprotoClient client;
+
+    private Socket connection;
+    private DataInputStream in;
+    private OutputStream out;
+    /** Events of the STAT messages read so far */
+    private final List<String> events = new ArrayList<>();
+    private String responseHeaders;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        payload = new byte[200_000];
+        new Random(42).nextBytes(payload);
+
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        http.createContext("/stream.ogg", this::handle);
+        http.start();
+
+        control = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        control.setSoTimeout(5000);
+        sink = new RecordingSink();
+        client = new SlimprotoClient("127.0.0.1", control.getLocalPort(), MAC, "Kitchen", sink, new SlimprotoClient.Listener() {
+            @Override
+            public void onConnected() {
+            }
+
+            @Override
+            public void onDisconnected(@NonNull IOException e) {
+            }
+
+            @Override
+            public void onStreamError(@NonNull IOException e) {
+                synchronized (streamErrors) {
+                    streamErrors.add(e);
+                }
+            }
+        });
+        client.start();
+
+        connection = control.accept();
+        connection.setSoTimeout(5000);
+        in = new DataInputStream(connection.getInputStream());
+        out = connection.getOutputStream();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (stall != null) {
+            stall.countDown();
+        }
+        client.stop();
+        connection.close();
+        control.close();
+        http.stop(0);
+        super.tearDown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (httpStatus != 200) {
+            exchange.sendResponseHeaders(httpStatus, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/ogg");
+        exchange.sendResponseHeaders(200, payload.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            int offset = 0;
+            while (offset < payload.length) {
+                int length = Math.min(8192, payload.length - offset);
+                body.write(payload, offset, length);
+                offset += length;
+                if (stall != null) {
+                    body.flush();
+                    stall.await(10, TimeUnit.SECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public void testHelo() throws IOException {
+        Message helo = read();
+
+        assertEquals("HELO", helo.opcode);
+        assertEquals(Slimproto.DEVICE_ID, helo.payload[0]);
+        assertTrue(Arrays.equals(MAC, Arrays.copyOfRange(helo.payload, 2, 8)));
+        String capabilities = new String(helo.payload, 36, helo.payload.length - 36, StandardCharsets.US_ASCII);
+        assertTrue(capabilities, capabilities.startsWith("Model=squeezer,"));
+        assertTrue(capabilities, capabilities.endsWith(",ogg"));
+    }
+
+    public void testName() throws IOException {
+        read();
+        send("setd", new byte[]{0});
+
+        Message setd = read();
+        assertEquals("SETD", setd.opcode);
+        assertEquals("Kitchen", new String(setd.payload, 1, setd.payload.length - 2, StandardCharsets.UTF_8));
+    }
+
+    public void testVolume() throws Exception {
+        read();
+        send("audg", SlimprotoTest.audg(1, 0x4000));
+
+        for (int i = 0; i < 100 && sink.volume != 0.25f; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0.25f, sink.volume);
+    }
+
+    public void testPlay() throws Exception {
+        read();
+        send("strm", strm('s', '1', 'o'));
+
+        awaitEvent("STMu");
+        assertEquals(Arrays.asList("STMc", "STMh", "STMs", "STMd", "STMu"), events);
+        assertTrue(responseHeaders, responseHeaders.startsWith("HTTP/1.1 200"));
+        assertTrue(responseHeaders, responseHeaders.endsWith("\r\n\r\n"));
+        assertTrue(Arrays.equals(payload, sink.data()));
+        assertEquals(1, sink.opened);
+        awaitClosed();
+    }
+
+    public void testStatus() throws IOException {
+        read();
+        send("strm", SlimprotoTest.strm('t', '0', 'm', 0, 0x12345678, 0, 0, ""));
+
+        Message stat = awaitEvent("STMt");
+        assertEquals(0x12345678, ByteBuffer.wrap(stat.payload).getInt(47));
+    }
+
+    /** Without autostart, playback waits for the server to unpause */
+    public void testUnpause() throws Exception {
+        read();
+        send("strm", strm('s', '0', 'o'));
+
+        awaitEvent("STMl");
+        Thread.sleep(100);
+        assertFalse(sink.playing);
+
+        send("strm", SlimprotoTest.strm('u', '0', 'm', 0, 0, 0, 0, ""));
+        awaitEvent("STMu");
+        assertTrue(events.toString(), events.indexOf("STMr") < events.indexOf("STMu"));
+        assertTrue(Arrays.equals(payload, sink.data()));
+    }
+
+    /** The next stream starts when the previous one has played, instead of cutting it off */
+    public void testNextStream() throws IOException {
+        read();
+        send("strm", strm('s', '0', 'o'));
+        awaitEvent("STMd");
+
+        send("strm", strm('s', '1', 'o'));
+        send("strm", SlimprotoTest.strm('u', '0', 'm', 0, 0, 0, 0, ""));
+        awaitEvent("STMu");
+        assertEquals(2, sink.opened);
+        assertEquals(1, events.indexOf("STMu") - events.lastIndexOf("STMd"));
+        assertEquals(2, events.stream().filter("STMd"::equals).count());
+        assertTrue(Arrays.equals(payload, sink.data()));
+    }
+
+    public void testPause() throws IOException {
+        stall = new CountDownLatch(1);
+        read();
+        send("strm", strm('s', '1', 'o'));
+        awaitEvent("STMs");
+
+        send("strm", SlimprotoTest.strm('p', '0', 'm', 0, 0, 0, 0, ""));
+        awaitEvent("STMp");
+        assertFalse(sink.playing);
+    }
+
+    public void testStop() throws Exception {
+        stall = new CountDownLatch(1);
+        read();
+        send("strm", strm('s', '1', 'o'));
+        awaitEvent("STMs");
+
+        send("strm", SlimprotoTest.strm('q', '0', 'm', 0, 0, 0, 0, ""));
+        awaitEvent("STMf");
+        awaitClosed();
+        assertTrue(sink.data().length < payload.length);
+        assertTrue(streamErrors.isEmpty());
+    }
+
+    public void testUnsupportedFormat() throws IOException {
+        read();
+        send("strm", strm('s', '1', 'm'));
+
+        awaitEvent("STMn");
+        assertEquals(0, sink.opened);
+    }
+
+    public void testHttpError() throws IOException {
+        httpStatus = 404;
+        read();
+        send("strm", strm('s', '1', 'o'));
+
+        awaitEvent("STMn");
+        synchronized (streamErrors) {
+            assertEquals(1, streamErrors.size());
+        }
+        assertEquals(0, sink.opened);
+    }
+
+    private void awaitClosed() throws InterruptedException {
+        for (int i = 0; i < 100 && !sink.closed; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(sink.closed);
+    }
+
+    private byte[] strm(char command, char autostart, char format) {
+        return SlimprotoTest.strm(command, autostart, format, 1, 0, http.getAddress().getPort(), 0, REQUEST);
+    }
+
+    private void send(String command, byte[] data) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(6 + data.length);
+        frame.putShort((short) (4 + data.length));
+        frame.put(command.getBytes(StandardCharsets.US_ASCII));
+        frame.put(data);
+        out.write(frame.array());
+        out.flush();
+    }
+
+    /**
+     * Read messages until a STAT with the given event.
+     */
+    private Message awaitEvent(String event) throws IOException {
+        while (true) {
+            Message message = read();
+            if ("RESP".equals(message.opcode)) {
+                responseHeaders = new String(message.payload, StandardCharsets.ISO_8859_1);
+            }
+            if ("STAT".equals(message.opcode)) {
+                String received = new String(message.payload, 0, 4, StandardCharsets.US_ASCII);
+                events.add(received);
+                if (received.equals(event)) {
+                    return message;
+                }
+            }
+        }
+    }
+
+    private Message read() throws IOException {
+        byte[] opcode = new byte[4];
+        in.readFully(opcode);
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return new Message(new String(opcode, StandardCharsets.US_ASCII), payload);
+    }
+
+    private static class Message {
+        final String opcode;
+        final byte[] payload;
+
+        Message(String opcode, byte[] payload) {
+            this.opcode = opcode;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Records the stream, and plays it instantly once playback has started.
+     */
+    private static class RecordingSink implements AudioSink {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        volatile int opened;
+        volatile boolean closed;
+        volatile boolean playing;
+        volatile float volume = 1;
+
+        @NonNull
+        @Override
+        public String getFormats() {
+            return "ogg";
+        }
+
+        @Override
+        public boolean canPlay(char format) {
+            return format == 'o';
+        }
+
+        @Override
+        public synchronized void open(boolean start) {
+            opened++;
+            closed = false;
+            playing = start;
+            data.reset();
+        }
+
+        @Override
+        public void write(@NonNull ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            synchronized (this) {
+                data.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void drain() throws IOException {
+            while (!playing) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public void pause() {
+            playing = false;
+        }
+
+        @Override
+        public void resume() {
+            playing = true;
+        }
+
+        @Override
+        public void setVolume(float volume) {
+            this.volume = volume;
+        }
+
+        @Override
+        public synchronized long getPlayedMillis() {
+            return playing ? data.size() : 0;
+        }
+
+        synchronized byte[] data() {
+            return data.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class SlimprotoTest extends TestCase {
+    private static final byte[] MAC = {0x00, 0x04, 0x20, 0x01, 0x02, 0x03};
+
+    public void testHelo() {
+        ByteBuffer frame = ByteBuffer.wrap(Slimproto.helo(MAC, "Model=squeezer,ogg"));
+
+        assertEquals("HELO", opcode(frame));
+        assertEquals(frame.capacity() - 8, frame.getInt(4));
+        assertEquals(Slimproto.DEVICE_ID, frame.get(8));
+        assertTrue(Arrays.equals(MAC, Arrays.copyOfRange(frame.array(), 10, 16)));
+        assertEquals("Model=squeezer,ogg", new String(frame.array(), 8 + 36, frame.capacity() - 8 - 36, StandardCharsets.US_ASCII));
+    }
+
+    public void testStat() {
+        ByteBuffer frame = ByteBuffer.wrap(Slimproto.stat("STMt", 65536, 100, 0x100000002L, 12345, 61_500, 0x7f001234));
+
+        assertEquals("STAT", opcode(frame));
+        assertEquals(Slimproto.STAT_LENGTH, frame.getInt(4));
+        assertEquals(Slimproto.STAT_LENGTH + 8, frame.capacity());
+        ByteBuffer payload = ByteBuffer.wrap(frame.array(), 8, Slimproto.STAT_LENGTH).slice();
+        assertEquals("STMt", new String(frame.array(), 8, 4, StandardCharsets.US_ASCII));
+        assertEquals(65536, payload.getInt(7));
+        assertEquals(100, payload.getInt(11));
+        assertEquals(1, payload.getInt(15));
+        assertEquals(2, payload.getInt(19));
+        assertEquals(12345, payload.getInt(25));
+        assertEquals(61, payload.getInt(37));
+        assertEquals(61_500, payload.getInt(43));
+        assertEquals(0x7f001234, payload.getInt(47));
+        assertEquals(0, payload.getShort(51));
+    }
+
+    public void testSetdName() {
+        byte[] frame = Slimproto.setdName("Kitchen");
+
+        assertEquals("SETD", opcode(ByteBuffer.wrap(frame)));
+        assertEquals(0, frame[8]);
+        assertEquals("Kitchen", new String(frame, 9, 7, StandardCharsets.UTF_8));
+        assertEquals(0, frame[frame.length - 1]);
+    }
+
+    public void testReadFrame() throws IOException {
+        byte[] bytes = {0, 6, 'a', 'u', 'd', 'e', 1, 1, 0, 4, 'v', 'e', 'r', 's'};
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        Slimproto.Frame frame = Slimproto.readFrame(in);
+        assertEquals("aude", frame.command);
+        assertTrue(Arrays.equals(new byte[]{1, 1}, frame.data));
+
+        frame = Slimproto.readFrame(in);
+        assertEquals("vers", frame.command);
+        assertEquals(0, frame.data.length);
+    }
+
+    public void testStrm() throws IOException {
+        Slimproto.Strm strm = Slimproto.Strm.parse(strm('s', '0', 'o', 255, 0x01020304, 9000, 0xc0a80102, "GET /stream.mp3 HTTP/1.0\r\n\r\n"));
+
+        assertEquals(Slimproto.Strm.START, strm.command);
+        assertFalse(strm.autostart());
+        assertEquals('o', strm.format);
+        assertEquals(255 * 1024, strm.threshold);
+        assertEquals(0x01020304, strm.replayGain);
+        assertEquals(9000, strm.serverPort);
+        assertEquals(0xc0a80102, strm.serverIp);
+        assertEquals("GET /stream.mp3 HTTP/1.0\r\n\r\n", strm.request);
+    }
+
+    public void testStrmTooShort() {
+        try {
+            Slimproto.Strm.parse(new byte[10]);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    public void testGain() throws IOException {
+        assertEquals(0.5f, Slimproto.gain(audg(1, 0x8000)));
+        assertEquals(1f, Slimproto.gain(audg(1, 0x20000)));
+        assertEquals(1f, Slimproto.gain(audg(0, 0x100)));
+    }
+
+    static byte[] strm(char command, char autostart, char format, int threshold, int replayGain, int port, int ip, String request) {
+        byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer data = ByteBuffer.allocate(Slimproto.STRM_LENGTH + bytes.length);
+        data.put((byte) command);
+        data.put((byte) autostart);
+        data.put((byte) format);
+        data.put(new byte[]{'?', '?', '?', '?'});
+        data.put((byte) threshold);
+        data.put(new byte[6]);
+        data.putInt(replayGain);
+        data.putShort((short) port);
+        data.putInt(ip);
+        data.put(bytes);
+        return data.array();
+    }
+
+    static byte[] audg(int adjust, int gain) {
+        ByteBuffer data = ByteBuffer.allocate(18);
+        data.position(8);
+        data.put((byte) adjust);
+        data.put((byte) 255);
+        data.putInt(gain);
+        data.putInt(gain);
+        return data.array();
+    }
+
+    private static String opcode(ByteBuffer frame) {
+        return new String(frame.array(), 0, 4, StandardCharsets.US_ASCII);
+    }
+}
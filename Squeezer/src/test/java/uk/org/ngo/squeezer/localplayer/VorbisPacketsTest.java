@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.localplayer;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class VorbisPacketsTest extends TestCase {
+
+    public void testType() {
+        assertEquals(VorbisPackets.IDENTIFICATION, VorbisPackets.type(identification(2, 44100)));
+        assertEquals(VorbisPackets.COMMENT, VorbisPackets.type(header(VorbisPackets.COMMENT, 20)));
+        assertEquals(VorbisPackets.SETUP, VorbisPackets.type(header(VorbisPackets.SETUP, 200)));
+        assertEquals(VorbisPackets.AUDIO, VorbisPackets.type(ByteBuffer.wrap(new byte[]{0, 'v', 'o', 'r', 'b', 'i', 's'})));
+        // An audio packet with the low bit set, which doesn't spell vorbis
+        assertEquals(VorbisPackets.AUDIO, VorbisPackets.type(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+        assertEquals(VorbisPackets.AUDIO, VorbisPackets.type(ByteBuffer.wrap(new byte[]{1})));
+    }
+
+    /** The packet is read from its position, which is left unchanged */
+    public void testPosition() {
+        ByteBuffer buffer = ByteBuffer.allocate(40);
+        buffer.position(5);
+        buffer.put(identification(1, 48000));
+        buffer.position(5);
+
+        assertEquals(VorbisPackets.IDENTIFICATION, VorbisPackets.type(buffer));
+        assertEquals(1, VorbisPackets.channels(buffer));
+        assertEquals(48000, VorbisPackets.sampleRate(buffer));
+        assertEquals(5, buffer.position());
+    }
+
+    public void testIdentification() {
+        ByteBuffer packet = identification(2, 44100);
+
+        assertEquals(2, VorbisPackets.channels(packet));
+        assertEquals(44100, VorbisPackets.sampleRate(packet));
+    }
+
+    public void testNotIdentification() {
+        try {
+            VorbisPackets.sampleRate(header(VorbisPackets.SETUP, 40));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testPutSampleCount() {
+        ByteBuffer input = ByteBuffer.allocate(8);
+        input.put(new byte[]{1, 2});
+        VorbisPackets.putSampleCount(input);
+
+        assertEquals(6, input.position());
+        assertEquals(-1, input.getInt(2));
+        assertEquals(ByteOrder.BIG_ENDIAN, input.order());
+    }
+
+    private static ByteBuffer identification(int channels, int sampleRate) {
+        ByteBuffer packet = header(VorbisPackets.IDENTIFICATION, 30).order(ByteOrder.LITTLE_ENDIAN);
+        packet.putInt(7, 0); // version
+        packet.put(11, (byte) channels);
+        packet.putInt(12, sampleRate);
+        packet.put(28, (byte) 0xb8); // block sizes
+        packet.put(29, (byte) 1); // framing
+        return packet.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static ByteBuffer header(int type, int length) {
+        ByteBuffer packet = ByteBuffer.allocate(length);
+        packet.put((byte) type);
+        packet.put(new byte[]{'v', 'o', 'r', 'b', 'i', 's'});
+        packet.rewind();
+        return packet;
+    }
+}
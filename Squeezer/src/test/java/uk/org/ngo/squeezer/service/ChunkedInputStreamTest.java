@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class ChunkedInputStreamTest extends TestCase {
+
+    private static byte[] chunked(byte[]... chunks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            out.write((Integer.toHexString(chunk.length) + ";ext=1\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(chunk);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write("0\r\nX-Trailer: 1\r\n\r\nHTTP/1.1 200 OK\r\n".getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public void testChunks() throws IOException {
+        InputStream in = new ByteArrayInputStream(chunked("[{\"a\":".getBytes(StandardCharsets.UTF_8), "\"Björk\"}]".getBytes(StandardCharsets.UTF_8)));
+        ChunkedInputStream chunkedInputStream = new ChunkedInputStream(in);
+        assertEquals("[{\"a\":\"Björk\"}]", readAll(chunkedInputStream));
+
+        // The stream is left at the next response, and closing doesn't close it
+        chunkedInputStream.close();
+        assertEquals("HTTP/1.1 200 OK", ChunkedInputStream.readLine(in));
+    }
+
+    /** Compressed data which is flushed per message, spans chunks independent of the messages */
+    public void testGzipAcrossChunks() throws IOException {
+        String first = "[{\"channel\":\"/slim/serverstatus\",\"data\":{\"player count\":2}}]";
+        String second = "[{\"channel\":\"/slim/playerstatus\",\"data\":{\"mode\":\"play\"}}]";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed, true);
+        gzip.write(first.getBytes(StandardCharsets.UTF_8));
+        gzip.flush();
+        gzip.write(second.getBytes(StandardCharsets.UTF_8));
+        gzip.finish();
+        byte[] bytes = compressed.toByteArray();
+
+        int split = bytes.length / 3;
+        byte[] a = new byte[split];
+        byte[] b = new byte[bytes.length - split];
+        System.arraycopy(bytes, 0, a, 0, a.length);
+        System.arraycopy(bytes, split, b, 0, b.length);
+
+        InputStream in = new GZIPInputStream(new ChunkedInputStream(new ByteArrayInputStream(chunked(a, b))));
+        assertEquals(first + second, readAll(in));
+    }
+
+    public void testTruncated() {
+        InputStream in = new ChunkedInputStream(new ByteArrayInputStream("a\r\n12345".getBytes(StandardCharsets.US_ASCII)));
+        try {
+            readAll(in);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+}
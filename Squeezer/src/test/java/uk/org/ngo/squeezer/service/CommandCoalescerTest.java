@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CommandCoalescerTest extends TestCase {
+    private static final long INTERVAL = 100;
+
+    private final CommandCoalescer<String> coalescer = new CommandCoalescer<>();
+
+    public void testFirstIsSentImmediately() {
+        assertEquals(0, coalescer.add("p1 mixer", "mixer volume 10", INTERVAL, 1000));
+        assertEquals("mixer volume 10", coalescer.take("p1 mixer", 1000));
+        assertNull(coalescer.take("p1 mixer", 1000));
+    }
+
+    public void testNewestWins() {
+        coalescer.add("p1 mixer", "mixer volume 10", INTERVAL, 1000);
+        coalescer.take("p1 mixer", 1000);
+
+        assertEquals(70, coalescer.add("p1 mixer", "mixer volume 11", INTERVAL, 1030));
+        assertEquals(-1, coalescer.add("p1 mixer", "mixer volume 12", INTERVAL, 1050));
+        assertEquals("mixer volume 12", coalescer.take("p1 mixer", 1100));
+
+        assertEquals(0, coalescer.add("p1 mixer", "mixer volume 13", INTERVAL, 1300));
+    }
+
+    /** A command which isn't coalesced must not overtake the coalesced commands before it */
+    public void testOtherCommandsDoNotOvertake() {
+        List<String> sent = new ArrayList<>();
+        coalescer.add("p1 mixer", "mixer volume 10", INTERVAL, 1000);
+        sent.add(coalescer.take("p1 mixer", 1000));
+        coalescer.add("p1 mixer", "mixer volume 20", INTERVAL, 1010);
+        coalescer.add("p1 time", "time 30", INTERVAL, 1020);
+        coalescer.add("p2 mixer", "mixer volume 40", INTERVAL, 1030);
+
+        // As CometClient.command does for the pause command
+        sent.addAll(coalescer.takeAll("p1 ", 1040));
+        sent.add("pause 1");
+
+        // The timer of the flushed commands finds nothing to send
+        assertNull(coalescer.take("p1 mixer", 1100));
+        assertNull(coalescer.take("p1 time", 1100));
+
+        assertEquals(Arrays.asList("mixer volume 10", "mixer volume 20", "time 30", "pause 1"), sent);
+        assertEquals("mixer volume 40", coalescer.take("p2 mixer", 1100));
+    }
+
+    public void testFlushCountsAsSent() {
+        coalescer.add("p1 mixer", "mixer volume 10", INTERVAL, 1000);
+        assertEquals(Collections.singletonList("mixer volume 10"), coalescer.takeAll("p1 ", 1000));
+
+        assertEquals(INTERVAL - 20, coalescer.add("p1 mixer", "mixer volume 20", INTERVAL, 1020));
+    }
+
+    public void testClear() {
+        coalescer.add("p1 mixer", "mixer volume 10", INTERVAL, 1000);
+        coalescer.clear();
+        assertNull(coalescer.take("p1 mixer", 1000));
+        assertTrue(coalescer.takeAll("p1 ", 1000).isEmpty());
+    }
+}
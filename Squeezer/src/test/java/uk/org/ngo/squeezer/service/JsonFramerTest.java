@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class JsonFramerTest extends TestCase {
+    private static final String FIRST = "[{\"channel\":\"/slim/serverstatus\",\"data\":{\"name\":\"a]}\\\"b\",\"players_loop\":[{\"id\":1},{\"id\":2}]}}]";
+    private static final String SECOND = "{\"id\":\"7\",\"successful\":true}";
+
+    private static List<String> feedInPieces(JsonFramer framer, String text, int pieceSize) {
+        List<String> values = new ArrayList<>();
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i += pieceSize) {
+            values.addAll(framer.feed(chars, i, Math.min(pieceSize, chars.length - i)));
+        }
+        return values;
+    }
+
+    public void testWholeValues() {
+        JsonFramer framer = new JsonFramer();
+        assertEquals(Arrays.asList(FIRST, SECOND), feedInPieces(framer, FIRST + "\r\n" + SECOND + "\n", Integer.MAX_VALUE));
+        assertFalse(framer.hasPartialValue());
+    }
+
+    /** Values split at any position, including inside strings and escapes, must be reassembled */
+    public void testSplitValues() {
+        String text = FIRST + SECOND + " " + FIRST;
+        for (int pieceSize = 1; pieceSize <= text.length(); pieceSize++) {
+            JsonFramer framer = new JsonFramer();
+            assertEquals("piece size " + pieceSize, Arrays.asList(FIRST, SECOND, FIRST), feedInPieces(framer, text, pieceSize));
+            assertFalse(framer.hasPartialValue());
+        }
+    }
+
+    public void testPartialValue() {
+        JsonFramer framer = new JsonFramer();
+        assertTrue(feedInPieces(framer, FIRST.substring(0, 40), 7).isEmpty());
+        assertTrue(framer.hasPartialValue());
+        assertEquals(Arrays.asList(FIRST), feedInPieces(framer, FIRST.substring(40), 3));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import androidx.annotation.NonNull;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class MusicFolderCrawlerTest extends TestCase {
+
+    private ScheduledExecutorService timer;
+    private FakeRequests requests;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        timer = new ScheduledThreadPoolExecutor(1);
+        requests = new FakeRequests();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        timer.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testListsFolderOnce() {
+        new MusicFolderCrawler(requests, timer, 10_000).crawl("root");
+
+        assertEquals(Collections.singletonList("root"), requests.listed);
+        requests.answer("root", 0, 4, 4, "1", "2", "3");
+
+        assertEquals(Collections.singletonList("root"), requests.listed);
+        assertEquals(Arrays.asList("1", "2", "3"), requests.downloaded);
+        assertEquals(Collections.singletonList("root 3 complete"), requests.done);
+    }
+
+    public void testDownloadsEachPage() {
+        new MusicFolderCrawler(requests, timer, 10_000).crawl("root");
+
+        requests.answer("root", 0, 2, 5, "1", "2");
+        assertEquals(Arrays.asList("1", "2"), requests.downloaded);
+        assertEquals(Collections.emptyList(), requests.done);
+
+        requests.answer("root", 2, 3, 5, "3");
+        assertEquals(Arrays.asList("1", "2", "3"), requests.downloaded);
+        assertEquals(Collections.singletonList("root 3 complete"), requests.done);
+    }
+
+    public void testEmptyFolder() {
+        new MusicFolderCrawler(requests, timer, 10_000).crawl("root");
+
+        requests.answer("root", 0, 0, 0);
+        assertEquals(Collections.emptyList(), requests.downloaded);
+        assertEquals(Collections.singletonList("root 0 complete"), requests.done);
+    }
+
+    public void testGivesUpUnansweredListing() throws InterruptedException {
+        new MusicFolderCrawler(requests, timer, 50).crawl("root");
+
+        assertTrue(requests.awaitDone());
+        assertEquals(Collections.singletonList("root 0 given up"), requests.done);
+
+        // Answers to a listing which was given up are ignored
+        requests.answer("root", 0, 1, 1, "1");
+        assertEquals(Collections.emptyList(), requests.downloaded);
+        assertEquals(Collections.singletonList("root 0 given up"), requests.done);
+    }
+
+    public void testGivesUpListingWhichStopsMidway() throws InterruptedException {
+        new MusicFolderCrawler(requests, timer, 50).crawl("root");
+
+        requests.answer("root", 0, 1, 2, "1");
+        assertTrue(requests.awaitDone());
+        requests.answer("root", 1, 1, 2, "2");
+
+        assertEquals(Collections.singletonList("1"), requests.downloaded);
+        assertEquals(Collections.singletonList("root 1 given up"), requests.done);
+    }
+
+    /**
+     * Records the requests of the crawler, and lets the test answer folder listings.
+     */
+    private static class FakeRequests implements MusicFolderCrawler.Requests {
+        private final Map<String, MusicFolderCrawler.Listing> listings = new LinkedHashMap<>();
+        private final List<String> listed = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> downloaded = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> done = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+        @Override
+        public synchronized void listTracks(@NonNull String folderId, @NonNull MusicFolderCrawler.Listing listing) {
+            listed.add(folderId);
+            listings.put(folderId, listing);
+        }
+
+        @Override
+        public void downloadTrack(@NonNull String trackId) {
+            downloaded.add(trackId);
+        }
+
+        @Override
+        public void onCrawlDone(@NonNull String folderId, int trackCount, boolean complete) {
+            done.add(folderId + " " + trackCount + (complete ? " complete" : " given up"));
+            doneLatch.countDown();
+        }
+
+        boolean awaitDone() throws InterruptedException {
+            return doneLatch.await(5, TimeUnit.SECONDS);
+        }
+
+        void answer(String folderId, int start, int size, int count, String... trackIds) {
+            MusicFolderCrawler.Listing listing;
+            synchronized (this) {
+                listing = listings.get(folderId);
+            }
+            listing.onPage(count, start, size, Arrays.asList(trackIds));
+        }
+    }
+}
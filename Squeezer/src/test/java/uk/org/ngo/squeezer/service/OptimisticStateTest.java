@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.org.ngo.squeezer.model.Player;
+
+import static uk.org.ngo.squeezer.service.OptimisticState.Field.PLAY_STATUS;
+import static uk.org.ngo.squeezer.service.OptimisticState.Field.VOLUME;
+
+public class OptimisticStateTest extends TestCase {
+    private static final long NOW = 1000;
+
+    private final OptimisticState state = new OptimisticState();
+    private final Player player = player("00:04:20:00:00:01");
+
+    public void testConfirmed() {
+        state.predict(player, PLAY_STATUS, "pause", "play", 1, NOW);
+
+        // Status sent before the server handled the command must not undo the prediction
+        assertEquals("pause", state.reconcile(player, PLAY_STATUS, "play"));
+
+        state.acknowledge(1);
+        assertEquals("pause", state.reconcile(player, PLAY_STATUS, "pause"));
+        assertTrue(state.isEmpty());
+        assertEquals("Predictions: 1 resolved, 1 confirmed, 0 mispredicted, 0 reverted (0.0% wrong)", state.getMetrics());
+    }
+
+    public void testMispredicted() {
+        state.predict(player, VOLUME, 50, 40, 1, NOW);
+        state.acknowledge(1);
+
+        assertEquals(Integer.valueOf(45), state.reconcile(player, VOLUME, 45));
+        assertTrue(state.isEmpty());
+        assertEquals("Predictions: 1 resolved, 0 confirmed, 1 mispredicted, 0 reverted (100.0% wrong)", state.getMetrics());
+
+        // Later status is passed through
+        assertEquals(Integer.valueOf(30), state.reconcile(player, VOLUME, 30));
+    }
+
+    public void testOnlyTheCommandAcknowledges() {
+        state.predict(player, PLAY_STATUS, "pause", "play", 1, NOW);
+        state.acknowledge(2);
+
+        assertEquals("pause", state.reconcile(player, PLAY_STATUS, "play"));
+        assertFalse(state.isEmpty());
+    }
+
+    public void testOtherPlayersAndFields() {
+        Player other = player("00:04:20:00:00:02");
+        state.predict(player, PLAY_STATUS, "pause", "play", 1, NOW);
+
+        assertEquals("play", state.reconcile(other, PLAY_STATUS, "play"));
+        assertEquals(Integer.valueOf(20), state.reconcile(player, VOLUME, 20));
+    }
+
+    /** Without a response from the server, the prediction is reverted to the newest status */
+    public void testTimeoutReverts() {
+        state.predict(player, PLAY_STATUS, "pause", "play", 1, NOW);
+        state.reconcile(player, PLAY_STATUS, "stop");
+
+        assertTrue(state.expire(NOW + OptimisticState.TIMEOUT - 1).isEmpty());
+
+        List<OptimisticState.Expired> expired = state.expire(NOW + OptimisticState.TIMEOUT);
+        assertEquals(1, expired.size());
+        assertSame(player, expired.get(0).player);
+        assertEquals(PLAY_STATUS, expired.get(0).field);
+        assertEquals("stop", expired.get(0).authoritative);
+        assertFalse(expired.get(0).acknowledged);
+        assertTrue(state.isEmpty());
+        assertEquals("Predictions: 1 resolved, 0 confirmed, 0 mispredicted, 1 reverted (100.0% wrong)", state.getMetrics());
+    }
+
+    /** After a response from the server, status must be ordered rather than reverted */
+    public void testTimeoutAfterResponse() {
+        state.predict(player, PLAY_STATUS, "pause", "play", 1, NOW);
+        state.acknowledge(1);
+
+        List<OptimisticState.Expired> expired = state.expire(NOW + OptimisticState.TIMEOUT);
+        assertEquals(1, expired.size());
+        assertTrue(expired.get(0).acknowledged);
+        assertEquals("Predictions: 0 resolved, 0 confirmed, 0 mispredicted, 0 reverted", state.getMetrics());
+    }
+
+    /** A newer prediction replaces the older, but reverts to the value before both */
+    public void testReplacedPrediction() {
+        state.predict(player, VOLUME, 50, 40, 1, NOW);
+        state.predict(player, VOLUME, 60, 50, 2, NOW + 100);
+
+        assertTrue(state.expire(NOW + OptimisticState.TIMEOUT).isEmpty());
+        List<OptimisticState.Expired> expired = state.expire(NOW + 100 + OptimisticState.TIMEOUT);
+        assertEquals(1, expired.size());
+        assertEquals(40, expired.get(0).authoritative);
+    }
+
+    public void testClear() {
+        state.predict(player, PLAY_STATUS, "pause", "play", 1, NOW);
+        state.clear();
+
+        assertTrue(state.isEmpty());
+        assertEquals("play", state.reconcile(player, PLAY_STATUS, "play"));
+    }
+
+    private static Player player(String id) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("playerid", id);
+        record.put("name", "Player " + id);
+        return new Player(record);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.service;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SessionEventBusTest extends TestCase {
+    private Target target;
+
+    @Override
+    protected void setUp() {
+        target = new Target();
+    }
+
+    public void testActivePassesEventsOn() {
+        SessionEventBus bus = new SessionEventBus(target);
+        bus.activate();
+
+        State state = new State("connected");
+        bus.postSticky(state);
+        bus.post("volume");
+
+        assertEquals(Arrays.<Object>asList(state, "volume"), target.events);
+        assertSame(state, target.getStickyEvent(State.class));
+    }
+
+    public void testInactiveKeepsOnlyStickyEvents() {
+        SessionEventBus bus = new SessionEventBus(target);
+
+        bus.postSticky(new State("connecting"));
+        bus.post("volume");
+        State state = new State("connected");
+        bus.postSticky(state);
+        Players players = new Players();
+        bus.postSticky(players);
+
+        assertEquals(Collections.emptyList(), target.events);
+        assertNull(target.getStickyEvent(State.class));
+
+        bus.activate();
+        assertEquals(Arrays.<Object>asList(state, players), target.events);
+        assertSame(state, target.getStickyEvent(State.class));
+        assertSame(players, target.getStickyEvent(Players.class));
+    }
+
+    public void testActivateReplacesStickyEvents() {
+        SessionEventBus first = new SessionEventBus(target);
+        first.activate();
+        first.postSticky(new Players());
+
+        SessionEventBus second = new SessionEventBus(target);
+        State state = new State("connected");
+        second.postSticky(state);
+
+        first.deactivate();
+        second.activate();
+        assertSame(state, target.getStickyEvent(State.class));
+        assertNull(target.getStickyEvent(Players.class));
+    }
+
+    public void testRemoveAllStickyEvents() {
+        SessionEventBus bus = new SessionEventBus(target);
+        bus.postSticky(new State("connected"));
+        bus.removeAllStickyEvents();
+        bus.postSticky(new State("disconnected"));
+
+        bus.activate();
+        assertEquals(1, target.events.size());
+        assertEquals("disconnected", ((State) target.events.get(0)).name);
+    }
+
+    private static class State {
+        final String name;
+
+        State(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Players {
+    }
+
+    /** Records the events posted to it, and keeps the sticky events like an event bus */
+    private static class Target implements EventPoster {
+        final List<Object> events = new ArrayList<>();
+        private final Map<Class<?>, Object> stickyEvents = new HashMap<>();
+
+        @Override
+        public void post(Object event) {
+            events.add(event);
+        }
+
+        @Override
+        public void postSticky(Object event) {
+            stickyEvents.put(event.getClass(), event);
+            events.add(event);
+        }
+
+        @Override
+        public void removeAllStickyEvents() {
+            stickyEvents.clear();
+        }
+
+        <T> T getStickyEvent(Class<T> eventType) {
+            return eventType.cast(stickyEvents.get(eventType));
+        }
+    }
+}
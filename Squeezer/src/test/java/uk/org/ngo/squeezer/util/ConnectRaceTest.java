@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.org.ngo.squeezer.util;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ConnectRaceTest extends TestCase {
+    private ServerSocket first;
+    private ServerSocket second;
+    private String closed;
+
+    @Override
+    protected void setUp() throws IOException {
+        first = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        second = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        closed = address(socket);
+        socket.close();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        first.close();
+        second.close();
+    }
+
+    private static String address(ServerSocket socket) {
+        return "127.0.0.1:" + socket.getLocalPort();
+    }
+
+    public void testPreferredAddressWins() {
+        assertEquals(address(first), ConnectRace.race(Arrays.asList(address(first), address(second))));
+    }
+
+    public void testSkipsRefusedAddress() {
+        assertEquals(address(second), ConnectRace.race(Arrays.asList(closed, address(second))));
+    }
+
+    public void testSkipsInvalidAddress() {
+        assertEquals(address(second), ConnectRace.race(Arrays.asList("no port", address(second))));
+    }
+
+    public void testConnectTimeout() {
+        assertEquals(address(second), ConnectRace.race(Arrays.asList(closed, address(second)), 500));
+    }
+
+    public void testNoneReachable() {
+        assertNull(ConnectRace.race(Arrays.asList(closed, "no port")));
+        assertNull(ConnectRace.race(Collections.emptyList()));
+    }
+}
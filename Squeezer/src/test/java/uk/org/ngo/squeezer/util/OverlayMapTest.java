@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OverlayMapTest extends TestCase {
+    private Map<String, Object> base;
+    private Map<String, Object> overlay;
+    private Map<String, Object> map;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        base = new HashMap<>();
+        base.put("menu", "1");
+        base.put("mode", "albums");
+        base.put("useContextMenu", "1");
+        overlay = new HashMap<>();
+        overlay.put("album_id", 42L);
+        overlay.put("mode", "tracks");
+        map = new OverlayMap<>(Collections.unmodifiableMap(base), Collections.unmodifiableMap(overlay));
+    }
+
+    private Map<String, Object> expected() {
+        Map<String, Object> expected = new HashMap<>(base);
+        expected.putAll(overlay);
+        return expected;
+    }
+
+    public void testResolve() {
+        assertEquals(4, map.size());
+        assertEquals("tracks", map.get("mode"));
+        assertEquals(42L, map.get("album_id"));
+        assertEquals("1", map.get("menu"));
+        assertNull(map.get("artist_id"));
+        assertTrue(map.containsKey("useContextMenu"));
+        assertFalse(map.containsKey("artist_id"));
+        assertEquals(expected(), map);
+        assertEquals(expected(), new HashMap<>(map));
+        assertEquals(expected().hashCode(), map.hashCode());
+    }
+
+    public void testNullValueInOverlay() {
+        overlay.put("menu", null);
+        map = new OverlayMap<>(base, overlay);
+        assertTrue(map.containsKey("menu"));
+        assertNull(map.get("menu"));
+        assertEquals(expected(), new HashMap<>(map));
+    }
+
+    public void testPutCopiesOverlay() {
+        Map<String, Object> other = new OverlayMap<>(base, overlay);
+
+        assertEquals("1", map.put("menu", "0"));
+        assertNull(map.put("xmlBrowseInterimCM", 1));
+        assertEquals("0", map.get("menu"));
+        assertEquals(1, map.get("xmlBrowseInterimCM"));
+        assertEquals(5, map.size());
+
+        // The shared maps and the other views of them are not changed
+        assertEquals(3, base.size());
+        assertEquals(2, overlay.size());
+        assertEquals(expected(), other);
+    }
+
+    public void testRemove() {
+        Map<String, Object> other = new OverlayMap<>(base, overlay);
+
+        assertEquals(42L, map.remove("album_id"));
+        assertEquals("tracks", map.remove("mode"));
+        assertNull(map.remove("mode"));
+        assertEquals("1", map.remove("menu"));
+        assertEquals(Collections.singletonMap("useContextMenu", "1"), map);
+
+        assertEquals(3, base.size());
+        assertEquals(2, overlay.size());
+        assertEquals(expected(), other);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(expected(), other);
+    }
+
+    public void testEntriesAreImmutable() {
+        try {
+            map.entrySet().iterator().next().setValue("x");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+        }
+        assertEquals(expected(), map);
+    }
+}
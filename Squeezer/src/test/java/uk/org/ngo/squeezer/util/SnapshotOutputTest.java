@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 The Squeezer contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.org.ngo.squeezer.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class SnapshotOutputTest extends TestCase {
+
+    public void testRoundTrip() throws IOException {
+        int[] ints = {0, 1, -1, 63, -64, 64, 127, 128, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        int[] varInts = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE};
+        String[] strings = {"play", null, "", "Björk – Jóga", "play", "", "🎵", null, "Björk – Jóga"};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotOutput out = new SnapshotOutput(bytes);
+        for (int value : ints) {
+            out.writeInt(value);
+        }
+        for (int value : varInts) {
+            out.writeVarInt(value);
+        }
+        for (String value : strings) {
+            out.writeString(value);
+        }
+        out.writeBoolean(true);
+        out.writeBoolean(false);
+        out.flush();
+        assertEquals(4, out.getStringCount());
+
+        SnapshotInput in = new SnapshotInput(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : ints) {
+            assertEquals(value, in.readInt());
+        }
+        for (int value : varInts) {
+            assertEquals(value, in.readVarInt());
+        }
+        String[] read = new String[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            read[i] = in.readString();
+            assertEquals(strings[i], read[i]);
+        }
+        assertTrue(in.readBoolean());
+        assertFalse(in.readBoolean());
+
+        // Repeated strings are restored as the same instance
+        assertSame(read[0], read[4]);
+        assertSame(read[3], read[8]);
+    }
+
+    public void testSmallValuesTakeOneByte() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotOutput out = new SnapshotOutput(bytes);
+        out.writeInt(-64);
+        out.writeInt(63);
+        out.writeVarInt(127);
+        out.writeString(null);
+        out.flush();
+        assertEquals(4, bytes.size());
+    }
+
+    /**
+     * A page of items repeats the same command and parameter names on every item, so interning
+     * must make the snapshot much smaller than writing every string.
+     */
+    public void testInterning() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotOutput out = new SnapshotOutput(bytes);
+        int plain = 0;
+        for (int i = 0; i < 50; i++) {
+            String[] item = {"browselibrary", "items", "menu", "1", "track_id", String.valueOf(1000 + i), "useContextMenu", "1", "Track " + i};
+            for (String s : item) {
+                out.writeString(s);
+                plain += s.length() + 2;
+            }
+        }
+        out.flush();
+        assertTrue(bytes.size() + " bytes", bytes.size() < plain / 3);
+    }
+
+    public void testMalformed() {
+        SnapshotInput in = new SnapshotInput(new ByteArrayInputStream(new byte[]{5}));
+        try {
+            in.readString();
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+}